@@ -1,18 +1,24 @@
 package com.BossLiftingClub.BossLifting.Analytics;
 
+import com.BossLiftingClub.BossLifting.Analytics.cache.AnalyticsCacheRegion;
+import com.BossLiftingClub.BossLifting.Analytics.cache.AnalyticsCacheResult;
+import com.BossLiftingClub.BossLifting.Analytics.cache.AnalyticsCacheService;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerCharge;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerInvoice;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerRefund;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.StripeLedgerService;
+import com.BossLiftingClub.BossLifting.Analytics.occupancy.OccupancyService;
+import com.BossLiftingClub.BossLifting.Analytics.rollup.DailyBusinessMetric;
+import com.BossLiftingClub.BossLifting.Analytics.rollup.DailyMetricsRollupService;
 import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusiness;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessRepository;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessMembership;
 import com.BossLiftingClub.BossLifting.User.Membership.Membership;
-import com.BossLiftingClub.BossLifting.User.User;
-import com.BossLiftingClub.BossLifting.User.UserRepository;
 import com.stripe.model.*;
 import com.stripe.param.SubscriptionListParams;
 import com.stripe.param.InvoiceListParams;
-import com.stripe.param.RefundListParams;
-import com.stripe.param.ChargeListParams;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,15 +31,14 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -41,9 +46,6 @@ public class AnalyticsController {
 
     private static final Logger logger = LoggerFactory.getLogger(AnalyticsController.class);
 
-    private static final long OVERVIEW_CACHE_TTL_MS = 5 * 60 * 1000;
-    private static final Map<String, CachedOverviewBundle> overviewBundleCache = new ConcurrentHashMap<>();
-
     private static final Map<String, String> MONTH_MAP = createMonthMap();
 
     private static Map<String, String> createMonthMap() {
@@ -75,37 +77,45 @@ public class AnalyticsController {
     }
 
     @Autowired
-    private final UserRepository userRepository;
+    private final AnalyticsCacheService analyticsCacheService;
 
     @Autowired
-    private final AnalyticsCacheRepository analyticsCacheRepository;
+    private final BusinessRepository businessRepository;
 
     @Autowired
-    private final ObjectMapper objectMapper;
+    private final UserBusinessRepository userBusinessRepository;
 
     @Autowired
-    private final BusinessRepository businessRepository;
+    private final RecentActivityRepository recentActivityRepository;
 
     @Autowired
-    private final UserBusinessRepository userBusinessRepository;
+    private final StripeLedgerService stripeLedgerService;
 
     @Autowired
-    private final RecentActivityRepository recentActivityRepository;
+    private final DailyMetricsRollupService dailyMetricsRollupService;
+
+    @Autowired
+    private final OccupancyService occupancyService;
 
-    public AnalyticsController(UserRepository userRepository, AnalyticsCacheRepository analyticsCacheRepository,
-                                ObjectMapper objectMapper, BusinessRepository businessRepository, UserBusinessRepository userBusinessRepository,
-                                RecentActivityRepository recentActivityRepository) {
-        this.userRepository = userRepository;
-        this.analyticsCacheRepository = analyticsCacheRepository;
-        this.objectMapper = objectMapper;
+    public AnalyticsController(AnalyticsCacheService analyticsCacheService,
+                                BusinessRepository businessRepository, UserBusinessRepository userBusinessRepository,
+                                RecentActivityRepository recentActivityRepository, StripeLedgerService stripeLedgerService,
+                                DailyMetricsRollupService dailyMetricsRollupService, OccupancyService occupancyService) {
+        this.analyticsCacheService = analyticsCacheService;
         this.businessRepository = businessRepository;
         this.userBusinessRepository = userBusinessRepository;
         this.recentActivityRepository = recentActivityRepository;
+        this.stripeLedgerService = stripeLedgerService;
+        this.dailyMetricsRollupService = dailyMetricsRollupService;
+        this.occupancyService = occupancyService;
     }
 
+    /**
+     * Served stale-while-revalidate: a value past its 12h TTL is returned at once (see X-Data-Age /
+     * X-Data-Stale) while a single background refresh recomputes it.
+     */
     @GetMapping
-    @Transactional
-    public AnalyticsResponse getAnalytics(
+    public ResponseEntity<?> getAnalytics(
             @RequestParam String userType,
             @RequestParam(required = false) String month,
             @RequestParam(defaultValue = "false") boolean includeMaintenance) {
@@ -132,55 +142,51 @@ public class AnalyticsController {
             }
 
             String cacheKey = String.format("%s_%s_%s", userType, standardizedMonth, includeMaintenance);
-
-            // Check cache first
-            Optional<AnalyticsCache> cacheOptional = analyticsCacheRepository.findById(cacheKey);
-            if (cacheOptional.isPresent()) {
-                AnalyticsCache cache = cacheOptional.get();
-                if (cache.getLastUpdated() != null && cache.getLastUpdated().isAfter(LocalDateTime.now().minusHours(12))) {
-                    logger.info("Serving cached analytics data for key={}", cacheKey);
-                    return objectMapper.readValue(cache.getAnalyticsData(), AnalyticsResponse.class);
-                }
-            }
-
-            // Calculate live data if cache is empty or stale
-            AnalyticsResponse response = calculateAnalytics(userType, standardizedMonth, includeMaintenance);
-
-            // Save or update cache
-            AnalyticsCache cache = cacheOptional.orElse(new AnalyticsCache());
-            cache.setCacheKey(cacheKey);
-            cache.setAnalyticsData(objectMapper.writeValueAsString(response));
-            cache.setLastUpdated(LocalDateTime.now());
-            analyticsCacheRepository.save(cache);
-
-            logger.info("Calculated and cached analytics data for key={}", cacheKey);
-            return response;
+            return withDataAge(analyticsCacheService.getPersistentStaleWhileRevalidate(AnalyticsCacheRegion.ANALYTICS,
+                    cacheKey, analyticsTtl(standardizedMonth), AnalyticsResponse.class,
+                    () -> calculateAnalytics(userType, standardizedMonth, includeMaintenance)));
         } catch (Exception e) {
             logger.error("Unexpected error in getAnalytics for userType={}, month={}, includeMaintenance={}: {}", userType, month, includeMaintenance, e.getMessage(), e);
             throw new RuntimeException("Error fetching analytics data: " + e.getMessage());
         }
     }
 
+    /**
+     * Warms the current-month analytics keys plus the default /dashboard and /overview-bundle keys of every
+     * active business. Each analytics key runs its own aggregate ledger queries; the keys are computed in
+     * parallel by the cache service, which logs and reports a timing per key.
+     */
     @Scheduled(cron = "0 0 0,12 * * ?") // Run at 00:00 and 12:00 daily
-    @Transactional
     public void updateAnalyticsCache() {
         try {
             logger.info("Starting scheduled analytics cache update");
             String[] userTypes = {"all", "founder", "monthly", "annual", "misc", "maintenance"};
             boolean[] includes = {true, false};
+            String currentMonth = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
+
+            List<AnalyticsCacheService.WarmupTask> tasks = new ArrayList<>();
             for (String userType : userTypes) {
                 for (boolean include : includes) {
-                    String cacheKey = String.format("%s_current_%s", userType, include);
-                    AnalyticsResponse response = calculateAnalytics(userType, null, include);
-                    Optional<AnalyticsCache> cacheOptional = analyticsCacheRepository.findById(cacheKey);
-                    AnalyticsCache cache = cacheOptional.orElse(new AnalyticsCache());
-                    cache.setCacheKey(cacheKey);
-                    cache.setAnalyticsData(objectMapper.writeValueAsString(response));
-                    cache.setLastUpdated(LocalDateTime.now());
-                    analyticsCacheRepository.save(cache);
-                    logger.info("Cached analytics data for key={}", cacheKey);
+                    // Same key getAnalytics uses for the current month, so requests pick the warmed value up
+                    String cacheKey = String.format("%s_%s_%s", userType, currentMonth, include);
+                    tasks.add(new AnalyticsCacheService.WarmupTask(AnalyticsCacheRegion.ANALYTICS, cacheKey,
+                            analyticsTtl(currentMonth), () -> calculateAnalytics(userType, currentMonth, include)));
                 }
             }
+            for (Business business : businessRepository.findByStatusIgnoreCase("ACTIVE")) {
+                Long businessId = business.getId();
+                String businessTag = business.getBusinessTag();
+                if (businessTag != null) {
+                    tasks.add(new AnalyticsCacheService.WarmupTask(AnalyticsCacheRegion.METRICS,
+                            cacheKey("dashboard", businessTag, null, null, null), AnalyticsCacheRegion.METRICS.getDefaultTtl(),
+                            () -> computeDashboardMetrics(businessTag, null, null, null)));
+                }
+                tasks.add(new AnalyticsCacheService.WarmupTask(AnalyticsCacheRegion.OVERVIEW,
+                        cacheKey("overview-bundle", businessId, null, null), AnalyticsCacheRegion.OVERVIEW.getDefaultTtl(),
+                        () -> buildOverviewBundle(businessId, null, null)));
+            }
+
+            analyticsCacheService.warm(tasks);
             logger.info("Completed scheduled analytics cache update");
         } catch (Exception e) {
             logger.error("Error updating analytics cache: {}", e.getMessage(), e);
@@ -200,121 +206,6 @@ public class AnalyticsController {
 
             boolean skipMaintenance = !includeMaintenance && !userType.equals("maintenance");
 
-            // Fetch all users from UserRepository
-            List<User> users;
-            try {
-                users = userRepository.findAll();
-            } catch (Exception e) {
-                logger.error("Error fetching users: {}", e.getMessage(), e);
-                throw new RuntimeException("Failed to fetch users: " + e.getMessage());
-            }
-
-            Set<String> ourCustomers = new HashSet<>();
-            for (User user : users) {
-                if (user.getUserStripeMemberId() != null) {
-                    ourCustomers.add(user.getUserStripeMemberId());
-                }
-            }
-
-            // Fetch all paid invoices
-            InvoiceListParams paidInvoicesParams = InvoiceListParams.builder()
-                    .setStatus(InvoiceListParams.Status.PAID)
-                    .build();
-            List<Invoice> allPaidInvoices = new ArrayList<>();
-            for (Invoice invoice : Invoice.list(paidInvoicesParams).autoPagingIterable()) {
-                if (ourCustomers.contains(invoice.getCustomer())) {
-                    allPaidInvoices.add(invoice);
-                }
-            }
-
-            // Fetch failed invoices (OPEN status)
-            InvoiceListParams openInvoicesParams = InvoiceListParams.builder()
-                    .setStatus(InvoiceListParams.Status.OPEN)
-                    .build();
-            List<Invoice> openInvoices = new ArrayList<>();
-            for (Invoice invoice : Invoice.list(openInvoicesParams).autoPagingIterable()) {
-                if (ourCustomers.contains(invoice.getCustomer())) {
-                    openInvoices.add(invoice);
-                }
-            }
-
-            // Fetch failed invoices (UNCOLLECTIBLE status)
-            InvoiceListParams uncollectibleInvoicesParams = InvoiceListParams.builder()
-                    .setStatus(InvoiceListParams.Status.UNCOLLECTIBLE)
-                    .build();
-            List<Invoice> uncollectibleInvoices = new ArrayList<>();
-            for (Invoice invoice : Invoice.list(uncollectibleInvoicesParams).autoPagingIterable()) {
-                if (ourCustomers.contains(invoice.getCustomer())) {
-                    uncollectibleInvoices.add(invoice);
-                }
-            }
-
-            // Combine failed invoices
-            List<Invoice> allFailedInvoices = new ArrayList<>();
-            allFailedInvoices.addAll(openInvoices);
-            allFailedInvoices.addAll(uncollectibleInvoices);
-
-            // Fetch all refunds
-            RefundListParams refundParams = RefundListParams.builder().build();
-            List<Refund> allRefunds = new ArrayList<>();
-            for (Refund refund : Refund.list(refundParams).autoPagingIterable()) {
-                // Get customer ID from the associated Charge
-                if (refund.getCharge() != null) {
-                    try {
-                        Charge charge = Charge.retrieve(refund.getCharge());
-                        if (charge.getCustomer() != null && ourCustomers.contains(charge.getCustomer())) {
-                            allRefunds.add(refund);
-                        }
-                    } catch (Exception e) {
-                        logger.warn("Error retrieving charge for refund {}: {}", refund.getId(), e.getMessage());
-                    }
-                }
-            }
-
-            // Fetch all subscriptions for each user
-            List<Subscription> allSubscriptions = new ArrayList<>();
-            for (User user : users) {
-                String customerId = user.getUserStripeMemberId();
-                if (customerId == null) {
-                    logger.warn("Skipping user with ID {}: stripeCustomerId is null", user.getId());
-                    continue;
-                }
-
-                try {
-                    SubscriptionListParams params = SubscriptionListParams.builder()
-                            .setCustomer(customerId)
-                            .setStatus(SubscriptionListParams.Status.ALL)
-                            .build();
-
-                    SubscriptionCollection subscriptions = Subscription.list(params);
-                    for (Subscription sub : subscriptions.autoPagingIterable()) {
-                        allSubscriptions.add(sub);
-                    }
-                } catch (Exception e) {
-                    logger.error("Error fetching subscriptions for user {}: {}", user.getId(), e.getMessage());
-                    continue;
-                }
-            }
-
-            // Filter relevant subscriptions based on type and maintenance flag
-            List<Subscription> filteredSubscriptions = new ArrayList<>();
-            for (Subscription sub : allSubscriptions) {
-                boolean isRelevant = false;
-                for (SubscriptionItem item : sub.getItems().getData()) {
-                    String priceId = item.getPrice() != null ? item.getPrice().getId() : null;
-                    if (priceId == null) continue;
-                    if (skipMaintenance && priceId.equals(maintenanceId)) continue;
-                    String subType = getTypeFromPriceId(priceIds, priceId);
-                    if (matchesUserType(userType, subType)) {
-                        isRelevant = true;
-                        break;
-                    }
-                }
-                if (isRelevant) {
-                    filteredSubscriptions.add(sub);
-                }
-            }
-
             // Determine selected month
             LocalDate nowDate = LocalDate.now();
             LocalDate selectedMonthDate = month != null ? LocalDate.parse(month + "-01") : nowDate.withDayOfMonth(1);
@@ -326,58 +217,50 @@ public class AnalyticsController {
             long startSelectedEpoch = startOfSelectedMonth.atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
             long endSelectedEpoch = endOfSelectedMonth.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toEpochSecond();
 
-            LocalDate startOfPreviousMonth = startOfSelectedMonth.minusMonths(1);
-            LocalDate endOfPreviousMonth = startOfPreviousMonth.plusMonths(1).minusDays(1);
-            long startPreviousEpoch = startOfPreviousMonth.atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
-            long endPreviousEpoch = endOfPreviousMonth.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toEpochSecond();
-
-            // Calculate lifetime revenue and customers per type
+            // Lifetime revenue per type, and the prices each type was paid on
             Map<String, Double> lifetimeRevenuePerType = new HashMap<>();
-            Map<String, Set<String>> customersPerType = new HashMap<>();
-            Set<String> allPayingCustomers = new HashSet<>();
-            for (Invoice invoice : allPaidInvoices) {
-                String customer = invoice.getCustomer();
-                boolean isRefunded = allRefunds.stream().anyMatch(refund ->
-                        refund.getCharge() != null && refund.getCharge().equals(invoice.getCharge()));
-                if (isRefunded) continue;
-                for (InvoiceLineItem line : invoice.getLines().getData()) {
-                    String priceId = line.getPrice() != null ? line.getPrice().getId() : null;
-                    if (priceId == null) continue;
-                    if (skipMaintenance && priceId.equals(maintenanceId)) continue;
-                    String subType = getTypeFromPriceId(priceIds, priceId);
-                    if (!matchesUserType(userType, subType)) continue;
-                    double amount = line.getAmount() / 100.0;
-                    lifetimeRevenuePerType.put(subType, lifetimeRevenuePerType.getOrDefault(subType, 0.0) + amount);
-                    Set<String> customers = customersPerType.computeIfAbsent(subType, k -> new HashSet<>());
-                    customers.add(customer);
-                    allPayingCustomers.add(customer);
-                }
+            Map<String, Set<String>> paidPricesPerType = new HashMap<>();
+            for (Object[] row : stripeLedgerService.sumMemberPaidInvoiceLinesByPrice(0L, Long.MAX_VALUE)) {
+                String priceId = (String) row[0];
+                if (!matchesPrice(priceId, userType, priceIds, skipMaintenance, maintenanceId)) continue;
+                String subType = getTypeFromPriceId(priceIds, priceId);
+                lifetimeRevenuePerType.merge(subType, ((Number) row[1]).longValue() / 100.0, Double::sum);
+                paidPricesPerType.computeIfAbsent(subType, k -> new HashSet<>()).add(priceId);
             }
 
+            Set<String> allPaidPrices = new HashSet<>();
+            paidPricesPerType.values().forEach(allPaidPrices::addAll);
+            long payingCustomers = stripeLedgerService.countMemberPayingCustomers(allPaidPrices);
             double totalLifetimeRevenue = lifetimeRevenuePerType.values().stream().mapToDouble(Double::doubleValue).sum();
-            double averageLTV = allPayingCustomers.size() > 0 ? totalLifetimeRevenue / allPayingCustomers.size() : 0;
+            double averageLTV = payingCustomers > 0 ? totalLifetimeRevenue / payingCustomers : 0;
+
+            // Subscriptions count when one of their items is on a matching price
+            Map<String, Set<String>> subscriptionPricesPerType = new HashMap<>();
+            Set<String> subscriptionPrices = new HashSet<>();
+            for (String priceId : stripeLedgerService.findSubscriptionItemPriceIds()) {
+                if (!matchesPrice(priceId, userType, priceIds, skipMaintenance, maintenanceId)) continue;
+                subscriptionPricesPerType.computeIfAbsent(getTypeFromPriceId(priceIds, priceId), k -> new HashSet<>()).add(priceId);
+                subscriptionPrices.add(priceId);
+            }
 
-            // Prepare userTypeBreakdown
+            // Prepare userTypeBreakdown, with the count of subscriptions active at the end of the month per type
             Map<String, UserTypeData> userTypeBreakdown = new HashMap<>();
             for (Map.Entry<String, Double> entry : lifetimeRevenuePerType.entrySet()) {
                 String type = entry.getKey();
                 UserTypeData data = new UserTypeData();
                 data.setRevenue(entry.getValue());
-                Set<String> customers = customersPerType.getOrDefault(type, new HashSet<>());
-                data.setLtv(customers.size() > 0 ? entry.getValue() / customers.size() : 0);
+                long customers = stripeLedgerService.countMemberPayingCustomers(paidPricesPerType.get(type));
+                data.setLtv(customers > 0 ? entry.getValue() / customers : 0);
+                Set<String> typeSubscriptionPrices = subscriptionPricesPerType.getOrDefault(type, Set.of());
+                data.setCount((int) stripeLedgerService.countMemberSubscriptions(typeSubscriptionPrices,
+                        startSelectedEpoch, endSelectedEpoch)[3]);
                 userTypeBreakdown.put(type, data);
             }
 
-            // Calculate actual revenue for selected month
-            double actualRevenueSelected = calculateRevenueForPeriod(allPaidInvoices, startSelectedEpoch, endSelectedEpoch, userType, priceIds, skipMaintenance, maintenanceId, allRefunds);
-
-            // Calculate actual revenue for previous month
-            double actualRevenuePrevious = calculateRevenueForPeriod(allPaidInvoices, startPreviousEpoch, endPreviousEpoch, userType, priceIds, skipMaintenance, maintenanceId, allRefunds);
-
             // Calculate projected revenue (only for current month)
             double projectedRevenue = 0;
             if (isCurrentMonth) {
-                projectedRevenue = calculateProjectedRevenue(filteredSubscriptions, currentEpoch, endSelectedEpoch, priceIds, userType, skipMaintenance, maintenanceId);
+                projectedRevenue = stripeLedgerService.sumMemberRenewals(subscriptionPrices, currentEpoch, endSelectedEpoch);
             }
 
             // Calculate historical monthly data (last 6 months including selected)
@@ -391,7 +274,7 @@ public class AnalyticsController {
                 LocalDate mEnd = histMonth.plusMonths(1).minusDays(1);
                 long mStartEpoch = mStart.atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
                 long mEndEpoch = mEnd.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toEpochSecond();
-                double rev = calculateRevenueForPeriod(allPaidInvoices, mStartEpoch, mEndEpoch, userType, priceIds, skipMaintenance, maintenanceId, allRefunds);
+                double rev = calculateRevenueForPeriod(mStartEpoch, mEndEpoch, userType, priceIds, skipMaintenance, maintenanceId);
                 historicalLabels[i] = histMonth.format(DateTimeFormatter.ofPattern("MMM yyyy"));
                 historicalActual[i] = rev;
                 historicalProjected[i] = 0.0;
@@ -401,101 +284,39 @@ public class AnalyticsController {
                 historicalProjected[numHistoricalMonths - 1] = projectedRevenue;
             }
 
+            // The last two historical months are the selected and the previous month
+            double actualRevenueSelected = historicalActual[numHistoricalMonths - 1];
+            double actualRevenuePrevious = historicalActual[numHistoricalMonths - 2];
+
             // Calculate failed and refunded payments for selected month
             int failedPaymentCount = 0;
             double failedPaymentAmount = 0.0;
-            for (Invoice invoice : allFailedInvoices) {
-                if (invoice.getCreated() >= startSelectedEpoch && invoice.getCreated() <= endSelectedEpoch) {
-                    for (InvoiceLineItem line : invoice.getLines().getData()) {
-                        String priceId = line.getPrice() != null ? line.getPrice().getId() : null;
-                        if (priceId == null) continue;
-                        if (skipMaintenance && priceId.equals(maintenanceId)) continue;
-                        String subType = getTypeFromPriceId(priceIds, priceId);
-                        if (matchesUserType(userType, subType)) {
-                            failedPaymentCount++;
-                            failedPaymentAmount += line.getAmount() / 100.0;
-                        }
-                    }
+            for (Object[] row : stripeLedgerService.summarizeMemberFailedInvoiceLinesByPrice(startSelectedEpoch, endSelectedEpoch)) {
+                if (matchesPrice((String) row[0], userType, priceIds, skipMaintenance, maintenanceId)) {
+                    failedPaymentCount += ((Number) row[1]).intValue();
+                    failedPaymentAmount += ((Number) row[2]).longValue() / 100.0;
                 }
             }
 
             int refundedPaymentCount = 0;
             double refundedPaymentAmount = 0.0;
-            for (Refund refund : allRefunds) {
-                if (refund.getCreated() >= startSelectedEpoch && refund.getCreated() <= endSelectedEpoch) {
-                    String chargeId = refund.getCharge();
-                    Invoice invoice = allPaidInvoices.stream()
-                            .filter(inv -> chargeId != null && chargeId.equals(inv.getCharge()))
-                            .findFirst()
-                            .orElse(null);
-                    if (invoice != null) {
-                        for (InvoiceLineItem line : invoice.getLines().getData()) {
-                            String priceId = line.getPrice() != null ? line.getPrice().getId() : null;
-                            if (priceId == null) continue;
-                            if (skipMaintenance && priceId.equals(maintenanceId)) continue;
-                            String subType = getTypeFromPriceId(priceIds, priceId);
-                            if (matchesUserType(userType, subType)) {
-                                refundedPaymentCount++;
-                                refundedPaymentAmount += refund.getAmount() / 100.0;
-                            }
-                        }
-                    }
+            for (Object[] row : stripeLedgerService.summarizeMemberRefundsByPrice(startSelectedEpoch, endSelectedEpoch)) {
+                if (matchesPrice((String) row[0], userType, priceIds, skipMaintenance, maintenanceId)) {
+                    refundedPaymentCount += ((Number) row[1]).intValue();
+                    refundedPaymentAmount += ((Number) row[2]).longValue() / 100.0;
                 }
             }
 
             // Calculate churn, new subs, active count, MRR for selected month
-            int activeAtStart = 0;
-            int numberCanceled = 0;
-            int newSubscriptions = 0;
-            int userCount = 0; // Active at end of month
-            double mrr = 0.0;
-            for (Subscription sub : filteredSubscriptions) {
-                if (sub.getStartDate() <= startSelectedEpoch && (sub.getCanceledAt() == null || sub.getCanceledAt() > startSelectedEpoch)) {
-                    activeAtStart++;
-                }
-                if (sub.getCanceledAt() != null && sub.getCanceledAt() >= startSelectedEpoch && sub.getCanceledAt() <= endSelectedEpoch) {
-                    numberCanceled++;
-                }
-                if (sub.getStartDate() >= startSelectedEpoch && sub.getStartDate() <= endSelectedEpoch) {
-                    newSubscriptions++;
-                }
-                if (sub.getStartDate() <= endSelectedEpoch && (sub.getCanceledAt() == null || sub.getCanceledAt() > endSelectedEpoch)) {
-                    userCount++;
-                    for (SubscriptionItem item : sub.getItems().getData()) {
-                        String priceId = item.getPrice() != null ? item.getPrice().getId() : null;
-                        if (priceId == null) continue;
-                        if (skipMaintenance && priceId.equals(maintenanceId)) continue;
-                        String subType = getTypeFromPriceId(priceIds, priceId);
-                        if (!matchesUserType(userType, subType)) continue;
-                        long unitAmount = item.getPrice().getUnitAmount();
-                        String interval = item.getPrice().getRecurring() != null ? item.getPrice().getRecurring().getInterval() : "month";
-                        double monthlyAmount = (unitAmount / 100.0) / (interval.equals("year") ? 12 : 1);
-                        mrr += monthlyAmount;
-                    }
-                }
-            }
+            long[] subscriptionCounts = stripeLedgerService.countMemberSubscriptions(subscriptionPrices,
+                    startSelectedEpoch, endSelectedEpoch);
+            int activeAtStart = (int) subscriptionCounts[0];
+            int numberCanceled = (int) subscriptionCounts[1];
+            int newSubscriptions = (int) subscriptionCounts[2];
+            int userCount = (int) subscriptionCounts[3]; // Active at end of month
+            double mrr = stripeLedgerService.sumMemberMrr(subscriptionPrices, endSelectedEpoch);
             double churnRate = activeAtStart > 0 ? (numberCanceled / (double) activeAtStart) * 100 : 0;
 
-            // Set counts in userTypeBreakdown (current active per type)
-            Map<String, Integer> activeCountsPerType = new HashMap<>();
-            for (Subscription sub : filteredSubscriptions) {
-                if (sub.getStartDate() <= endSelectedEpoch && (sub.getCanceledAt() == null || sub.getCanceledAt() > endSelectedEpoch)) {
-                    for (SubscriptionItem item : sub.getItems().getData()) {
-                        String priceId = item.getPrice() != null ? item.getPrice().getId() : null;
-                        if (priceId == null) continue;
-                        if (skipMaintenance && priceId.equals(maintenanceId)) continue;
-                        String subType = getTypeFromPriceId(priceIds, priceId);
-                        if (matchesUserType(userType, subType)) {
-                            activeCountsPerType.put(subType, activeCountsPerType.getOrDefault(subType, 0) + 1);
-                            break;
-                        }
-                    }
-                }
-            }
-            for (Map.Entry<String, UserTypeData> entry : userTypeBreakdown.entrySet()) {
-                entry.getValue().setCount(activeCountsPerType.getOrDefault(entry.getKey(), 0));
-            }
-
             // Calculate percentage change based on actual
             double percentageChange = actualRevenuePrevious > 0 ?
                     ((actualRevenueSelected - actualRevenuePrevious) / actualRevenuePrevious) * 100 : 0;
@@ -552,44 +373,20 @@ public class AnalyticsController {
         return userType.equals("all") || userType.equals(subType) || (userType.equals("misc") && subType.equals("misc"));
     }
 
-    private double calculateRevenueForPeriod(List<Invoice> allPaidInvoices, long startEpoch, long endEpoch, String userType, Map<String, String> priceIds, boolean skipMaintenance, String maintenanceId, List<Refund> allRefunds) {
-        double revenue = 0;
-        for (Invoice invoice : allPaidInvoices) {
-            if (invoice.getCreated() < startEpoch || invoice.getCreated() > endEpoch) continue;
-            boolean isRefunded = allRefunds.stream().anyMatch(refund ->
-                    refund.getCharge() != null && refund.getCharge().equals(invoice.getCharge()));
-            if (isRefunded) continue;
-            for (InvoiceLineItem line : invoice.getLines().getData()) {
-                String priceId = line.getPrice() != null ? line.getPrice().getId() : null;
-                if (priceId == null) continue;
-                if (skipMaintenance && priceId.equals(maintenanceId)) continue;
-                String subType = getTypeFromPriceId(priceIds, priceId);
-                if (matchesUserType(userType, subType)) {
-                    revenue += line.getAmount() / 100.0;
-                }
-            }
-        }
-        return revenue;
+    private boolean matchesPrice(String priceId, String userType, Map<String, String> priceIds, boolean skipMaintenance, String maintenanceId) {
+        if (priceId == null) return false;
+        if (skipMaintenance && priceId.equals(maintenanceId)) return false;
+        return matchesUserType(userType, getTypeFromPriceId(priceIds, priceId));
     }
 
-    private double calculateProjectedRevenue(List<Subscription> filteredSubscriptions, long currentEpoch, long endEpoch, Map<String, String> priceIds, String userType, boolean skipMaintenance, String maintenanceId) {
-        double projected = 0;
-        for (Subscription sub : filteredSubscriptions) {
-            if (!sub.getStatus().equals("active")) continue;
-            for (SubscriptionItem item : sub.getItems().getData()) {
-                String priceId = item.getPrice() != null ? item.getPrice().getId() : null;
-                if (priceId == null) continue;
-                if (skipMaintenance && priceId.equals(maintenanceId)) continue;
-                String subType = getTypeFromPriceId(priceIds, priceId);
-                if (!matchesUserType(userType, subType)) continue;
-                long unitAmount = item.getPrice().getUnitAmount();
-                double amount = unitAmount / 100.0;
-                if (sub.getCurrentPeriodEnd() > currentEpoch && sub.getCurrentPeriodEnd() <= endEpoch) {
-                    projected += amount;
-                }
+    private double calculateRevenueForPeriod(long startEpoch, long endEpoch, String userType, Map<String, String> priceIds, boolean skipMaintenance, String maintenanceId) {
+        double revenue = 0;
+        for (Object[] row : stripeLedgerService.sumMemberPaidInvoiceLinesByPrice(startEpoch, endEpoch)) {
+            if (matchesPrice((String) row[0], userType, priceIds, skipMaintenance, maintenanceId)) {
+                revenue += ((Number) row[1]).longValue() / 100.0;
             }
         }
-        return projected;
+        return revenue;
     }
 
     // DTO classes
@@ -694,40 +491,28 @@ public class AnalyticsController {
     }
 
     /**
-     * Get individual metric - Total Revenue (fast, uses Stripe Balance for "all time")
+     * Get individual metric - Total Revenue (aggregated from the local Stripe ledger)
      * GET /api/analytics/metric/total-revenue?businessTag={tag}&startDate={start}&endDate={end}
      */
     @GetMapping("/metric/total-revenue")
-    @Transactional
     public Map<String, Object> getTotalRevenue(
             @RequestParam(required = false) String businessTag,
             @RequestParam(required = false) String clubTag,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.METRICS,
+                cacheKey("total-revenue", businessTag, clubTag, startDate, endDate),
+                () -> computeTotalRevenue(businessTag, clubTag, startDate, endDate));
+    }
+
+    private Map<String, Object> computeTotalRevenue(String businessTag, String clubTag, String startDate, String endDate) {
         try {
             String tag = businessTag != null ? businessTag : clubTag;
-            Business business = businessRepository.findByBusinessTag(tag)
-                    .orElseThrow(() -> new RuntimeException("Business not found"));
-            String stripeAccountId = null; // Single-tenant: platform account only
             LocalDateTime start = parseDate(startDate);
             LocalDateTime end = parseDate(endDate, LocalDateTime.now());
 
-            com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                    ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                    : null;
-
-            double revenue;
-            // Always use optimized charge fetching - only fetch charges in the date range
-            if (start == null) {
-                // For "all time", use wide date range (e.g. 10 years) instead of unbounded fetch
-                LocalDateTime chargeStart = LocalDateTime.now().minusYears(10);
-                List<Charge> allCharges = fetchChargesForDateRange(requestOptions, chargeStart, LocalDateTime.now());
-                revenue = calculateTotalRevenueFromCache(allCharges, null, LocalDateTime.now());
-            } else {
-                // For date ranges, only fetch charges in that range (much faster)
-                List<Charge> charges = fetchChargesForDateRange(requestOptions, start, end);
-                revenue = calculateTotalRevenueFromCache(charges, start, end);
-            }
+            // A null start means "all time"
+            double revenue = stripeLedgerService.sumNetRevenue(start, end);
 
             Map<String, Object> result = new HashMap<>();
             result.put("value", revenue);
@@ -744,10 +529,15 @@ public class AnalyticsController {
      * Get individual metric - Active Members
      */
     @GetMapping("/metric/active-members")
-    @Transactional
     public Map<String, Object> getActiveMembers(
             @RequestParam(required = false) String businessTag,
             @RequestParam(required = false) String clubTag) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.METRICS,
+                cacheKey("active-members", businessTag, clubTag),
+                () -> computeActiveMembers(businessTag, clubTag));
+    }
+
+    private Map<String, Object> computeActiveMembers(String businessTag, String clubTag) {
         try {
             String tag = businessTag != null ? businessTag : clubTag;
             List<UserBusiness> userBusinesses = userBusinessRepository.findAllByBusinessTag(tag);
@@ -767,10 +557,15 @@ public class AnalyticsController {
      * Get individual metric - MRR
      */
     @GetMapping("/metric/mrr")
-    @Transactional
     public Map<String, Object> getMRR(
             @RequestParam(required = false) String businessTag,
             @RequestParam(required = false) String clubTag) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.METRICS,
+                cacheKey("mrr", businessTag, clubTag),
+                () -> computeMRR(businessTag, clubTag));
+    }
+
+    private Map<String, Object> computeMRR(String businessTag, String clubTag) {
         try {
             String tag = businessTag != null ? businessTag : clubTag;
             List<UserBusiness> userBusinesses = userBusinessRepository.findAllByBusinessTag(tag);
@@ -790,24 +585,19 @@ public class AnalyticsController {
      * Get individual metric - Average LTV
      */
     @GetMapping("/metric/average-ltv")
-    @Transactional
     public Map<String, Object> getAverageLTV(
             @RequestParam(required = false) String businessTag,
             @RequestParam(required = false) String clubTag) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.METRICS,
+                cacheKey("average-ltv", businessTag, clubTag),
+                () -> computeAverageLTV(businessTag, clubTag));
+    }
+
+    private Map<String, Object> computeAverageLTV(String businessTag, String clubTag) {
         try {
             String tag = businessTag != null ? businessTag : clubTag;
-            Business business = businessRepository.findByBusinessTag(tag)
-                    .orElseThrow(() -> new RuntimeException("Business not found"));
-            String stripeAccountId = null; // Single-tenant: platform account only
             List<UserBusiness> userBusinesses = userBusinessRepository.findAllByBusinessTag(tag);
-            com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                    ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                    : null;
-            
-            // Fetch charges in practical range for lifetime revenue (10 years)
-            LocalDateTime chargeStart = LocalDateTime.now().minusYears(10);
-            List<Charge> allCharges = fetchChargesForDateRange(requestOptions, chargeStart, LocalDateTime.now());
-            double lifetimeRevenue = calculateLifetimeRevenueFromCache(allCharges);
+            double lifetimeRevenue = stripeLedgerService.sumNetRevenue(null, LocalDateTime.now());
             
             double ltv = userBusinesses.size() > 0 ? lifetimeRevenue / userBusinesses.size() : 0.0;
             Map<String, Object> result = new HashMap<>();
@@ -838,43 +628,67 @@ public class AnalyticsController {
         return parseDate(dateStr, null);
     }
 
-    // Optimized: Fetch only charges for specific date range
-    private List<Charge> fetchChargesForDateRange(com.stripe.net.RequestOptions requestOptions, LocalDateTime start, LocalDateTime end) {
-        List<Charge> charges = new ArrayList<>();
+    // Response for a stale-while-revalidate read, carrying X-Data-Age and, if stale, when fresher data is due
+    private ResponseEntity<?> withDataAge(AnalyticsCacheResult<?> result) {
+        if (result.getValue() instanceof ResponseEntity<?> response) {
+            return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .headers(result.toHeaders())
+                    .body(response.getBody());
+        }
+        return ResponseEntity.ok().headers(result.toHeaders()).body(result.getValue());
+    }
+
+    // Cache key from the endpoint name and its raw request parameters
+    private static String cacheKey(String endpoint, Object... params) {
+        StringBuilder key = new StringBuilder(endpoint);
+        for (Object param : params) {
+            key.append('|').append(param != null ? param : "");
+        }
+        return key.toString();
+    }
+
+    // Closed months only change through late refunds, so they can be kept longer than the current one
+    private Duration analyticsTtl(String standardizedMonth) {
+        String currentMonth = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
+        return standardizedMonth.compareTo(currentMonth) < 0
+                ? Duration.ofHours(24)
+                : AnalyticsCacheRegion.ANALYTICS.getDefaultTtl();
+    }
+
+    // Hourly "today" charts move quickly; ranges that ended before today barely move at all
+    private Duration chartTtl(String period, String endDate) {
+        if ("today".equalsIgnoreCase(period)) {
+            return Duration.ofMinutes(1);
+        }
         try {
-            long startEpoch = start.atZone(ZoneId.systemDefault()).toEpochSecond();
-            long endEpoch = end.atZone(ZoneId.systemDefault()).toEpochSecond();
-            
-            ChargeListParams params = ChargeListParams.builder()
-                    .setLimit(100L)
-                    .setCreated(ChargeListParams.Created.builder()
-                            .setGte(startEpoch)
-                            .setLte(endEpoch)
-                            .build())
-                    .build();
-            
-            ChargeCollection chargeCollection = requestOptions != null ? Charge.list(params, requestOptions) : Charge.list(params);
-            for (Charge charge : chargeCollection.autoPagingIterable()) {
-                charges.add(charge);
+            if (endDate != null && !endDate.isEmpty() && LocalDate.parse(endDate).isBefore(LocalDate.now(DailyMetricsRollupService.ZONE))) {
+                return Duration.ofHours(1);
             }
-            logger.debug("Fetched {} charges for date range", charges.size());
         } catch (Exception e) {
-            logger.error("Error fetching charges for date range: {}", e.getMessage(), e);
+            // Unparseable dates are rejected by the chart itself; fall through to the default
         }
-        return charges;
+        return AnalyticsCacheRegion.CHARTS.getDefaultTtl();
     }
 
     /**
      * Get comprehensive dashboard metrics for a business
      * GET /api/analytics/dashboard?businessTag={tag}&startDate={start}&endDate={end}
+     * Served stale-while-revalidate; X-Data-Age gives the age of the metrics in seconds.
      */
     @GetMapping("/dashboard")
-    @Transactional
-    public Map<String, Object> getDashboardMetrics(
+    public ResponseEntity<?> getDashboardMetrics(
             @RequestParam(required = false) String businessTag,
             @RequestParam(required = false) String clubTag, // Backward compatibility
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return withDataAge(analyticsCacheService.getStaleWhileRevalidate(AnalyticsCacheRegion.METRICS,
+                cacheKey("dashboard", businessTag, clubTag, startDate, endDate),
+                AnalyticsCacheRegion.METRICS.getDefaultTtl(),
+                () -> computeDashboardMetrics(businessTag, clubTag, startDate, endDate)));
+    }
+
+    private Map<String, Object> computeDashboardMetrics(String businessTag, String clubTag, String startDate, String endDate) {
         try {
             String tag = businessTag != null ? businessTag : clubTag;
             if (tag == null) {
@@ -883,8 +697,6 @@ public class AnalyticsController {
             Business business = businessRepository.findByBusinessTag(tag)
                     .orElseThrow(() -> new RuntimeException("Business not found with tag: " + tag));
 
-            String stripeAccountId = null; // Single-tenant: platform account only
-
             // Parse date range - handle ISO 8601 format with timezone (Z suffix)
             LocalDateTime start = null;
             LocalDateTime end = LocalDateTime.now();
@@ -905,37 +717,23 @@ public class AnalyticsController {
 
             List<UserBusiness> userBusinesses = userBusinessRepository.findAllByBusinessTag(tag);
 
-            com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                    ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                    : null;
-            
-            // Use date-filtered charge fetch when we have dates - much faster than fetching ALL charges
-            LocalDateTime chargeStart = start;
-            LocalDateTime chargeEnd = end;
-            if (chargeStart == null) {
-                chargeStart = LocalDateTime.now().minusYears(2);
-                chargeEnd = LocalDateTime.now();
-            }
-            List<Charge> allCharges = fetchChargesForDateRange(requestOptions, chargeStart, chargeEnd);
-            
-            List<Refund> allRefunds = fetchAllRefunds(requestOptions, chargeStart, chargeEnd);
-
             Map<String, Object> metrics = new HashMap<>();
 
-            // Calculate metrics based on requirements - reuse cached data
-            metrics.put("totalRevenue", calculateTotalRevenueFromCache(allCharges, start, end));
+            // Payment metrics are SQL aggregations over the local Stripe ledger
+            metrics.put("totalRevenue", stripeLedgerService.sumNetRevenue(start, end));
             metrics.put("activeMembers", calculateActiveMembers(userBusinesses));
             metrics.put("totalMembers", userBusinesses.size());
             metrics.put("mrr", calculateMRR(userBusinesses));
             metrics.put("memberGrowth", calculateMemberGrowth(userBusinesses, start, end));
-            metrics.put("revenueGrowth", calculateRevenueGrowthFromCache(allCharges, start, end));
+            metrics.put("revenueGrowth", calculateRevenueGrowthFromLedger(start, end));
             metrics.put("churnRate", calculateChurnRate(userBusinesses, start, end));
             metrics.put("churnCount", calculateChurnCount(userBusinesses, start, end));
             metrics.put("newMembers", calculateNewMembers(userBusinesses, start, end));
-            metrics.put("totalLifetimeRevenue", calculateLifetimeRevenueFromCache(allCharges));
-            metrics.put("averageLTV", calculateAverageLTVFromCache(allCharges, userBusinesses.size()));
-            metrics.put("failedPayments", getFailedPayments(stripeAccountId, start, end));
-            metrics.put("refundedPayments", getRefundedPaymentsFromCache(allRefunds, start, end));
+            double lifetimeRevenue = stripeLedgerService.sumNetRevenue(null, LocalDateTime.now());
+            metrics.put("totalLifetimeRevenue", lifetimeRevenue);
+            metrics.put("averageLTV", userBusinesses.isEmpty() ? 0.0 : lifetimeRevenue / userBusinesses.size());
+            metrics.put("failedPayments", stripeLedgerService.summarizeFailedPayments(start, end));
+            metrics.put("refundedPayments", stripeLedgerService.summarizeRefunds(start, end));
             metrics.put("membershipBreakdown", getMembershipBreakdown(userBusinesses));
 
             return metrics;
@@ -957,71 +755,6 @@ public class AnalyticsController {
         }
     }
 
-    // OPTIMIZATION: Fetch all refunds once and cache them
-    private List<Refund> fetchAllRefunds(com.stripe.net.RequestOptions requestOptions, LocalDateTime start, LocalDateTime end) {
-        List<Refund> allRefunds = new ArrayList<>();
-        try {
-            RefundListParams.Builder paramsBuilder = RefundListParams.builder();
-            if (start != null) {
-                paramsBuilder.setCreated(RefundListParams.Created.builder()
-                        .setGte(start.atZone(ZoneId.systemDefault()).toEpochSecond())
-                        .setLte(end.atZone(ZoneId.systemDefault()).toEpochSecond())
-                        .build());
-            }
-            RefundCollection refunds = requestOptions != null ? Refund.list(paramsBuilder.build(), requestOptions) : Refund.list(paramsBuilder.build());
-            for (Refund refund : refunds.autoPagingIterable()) {
-                allRefunds.add(refund);
-            }
-            logger.debug("Fetched {} refunds from Stripe", allRefunds.size());
-        } catch (Exception e) {
-            logger.error("Error fetching refunds: {}", e.getMessage(), e);
-        }
-        return allRefunds;
-    }
-
-    // Calculate revenue from cached charges (much faster)
-    private double calculateTotalRevenueFromCache(List<Charge> allCharges, LocalDateTime start, LocalDateTime end) {
-        long startEpoch = start != null ? start.atZone(ZoneId.systemDefault()).toEpochSecond() : 0;
-        long endEpoch = end != null ? end.atZone(ZoneId.systemDefault()).toEpochSecond() : Long.MAX_VALUE;
-        
-        double totalRevenue = 0.0;
-        for (Charge charge : allCharges) {
-            if (charge.getPaid() && !charge.getRefunded()) {
-                long chargeTime = charge.getCreated();
-                if (chargeTime >= startEpoch && chargeTime <= endEpoch) {
-                    totalRevenue += charge.getAmount() / 100.0;
-                }
-            }
-        }
-        return totalRevenue;
-    }
-
-    private double calculateTotalRevenue(String stripeAccountId, LocalDateTime start, LocalDateTime end) throws Exception {
-        com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                : null;
-
-        ChargeListParams.Builder paramsBuilder = ChargeListParams.builder().setLimit(100L);
-
-        if (start != null) {
-            paramsBuilder.setCreated(ChargeListParams.Created.builder()
-                    .setGte(start.atZone(ZoneId.systemDefault()).toEpochSecond())
-                    .setLte(end.atZone(ZoneId.systemDefault()).toEpochSecond())
-                    .build());
-        }
-
-        ChargeCollection charges = requestOptions != null ? Charge.list(paramsBuilder.build(), requestOptions) : Charge.list(paramsBuilder.build());
-        double totalRevenue = 0.0;
-
-        for (Charge charge : charges.autoPagingIterable()) {
-            if (charge.getPaid() && !charge.getRefunded()) {
-                totalRevenue += charge.getAmount() / 100.0;
-            }
-        }
-
-        return totalRevenue;
-    }
-
     private int calculateActiveMembers(List<UserBusiness> userBusinesses) {
         int active = 0;
         for (UserBusiness userBusiness : userBusinesses) {
@@ -1091,8 +824,7 @@ public class AnalyticsController {
         return growth;
     }
 
-    // Optimized version using cached charges
-    private Map<String, Object> calculateRevenueGrowthFromCache(List<Charge> allCharges, LocalDateTime start, LocalDateTime end) {
+    private Map<String, Object> calculateRevenueGrowthFromLedger(LocalDateTime start, LocalDateTime end) {
         Map<String, Object> growth = new HashMap<>();
 
         if (start == null) {
@@ -1103,31 +835,8 @@ public class AnalyticsController {
         long periodDays = java.time.Duration.between(start, end).toDays();
         LocalDateTime previousStart = start.minusDays(periodDays);
 
-        double currentRevenue = calculateTotalRevenueFromCache(allCharges, start, end);
-        double previousRevenue = calculateTotalRevenueFromCache(allCharges, previousStart, start);
-
-        double percentChange = previousRevenue > 0 ? ((currentRevenue - previousRevenue) / previousRevenue) * 100 : 0.0;
-
-        growth.put("percentChange", percentChange);
-        growth.put("currentPeriod", currentRevenue);
-        growth.put("previousPeriod", previousRevenue);
-        return growth;
-    }
-
-    // Legacy method kept for backward compatibility
-    private Map<String, Object> calculateRevenueGrowth(String stripeAccountId, LocalDateTime start, LocalDateTime end) throws Exception {
-        Map<String, Object> growth = new HashMap<>();
-
-        if (start == null) {
-            growth.put("percentChange", 0.0);
-            return growth;
-        }
-
-        long periodDays = java.time.Duration.between(start, end).toDays();
-        LocalDateTime previousStart = start.minusDays(periodDays);
-
-        double currentRevenue = calculateTotalRevenue(stripeAccountId, start, end);
-        double previousRevenue = calculateTotalRevenue(stripeAccountId, previousStart, start);
+        double currentRevenue = stripeLedgerService.sumNetRevenue(start, end);
+        double previousRevenue = stripeLedgerService.sumNetRevenue(previousStart, start);
 
         double percentChange = previousRevenue > 0 ? ((currentRevenue - previousRevenue) / previousRevenue) * 100 : 0.0;
 
@@ -1171,121 +880,6 @@ public class AnalyticsController {
                 .count();
     }
 
-    // Optimized version using cached charges
-    private double calculateLifetimeRevenueFromCache(List<Charge> allCharges) {
-        return calculateTotalRevenueFromCache(allCharges, null, LocalDateTime.now());
-    }
-
-    private double calculateAverageLTVFromCache(List<Charge> allCharges, int totalMembers) {
-        if (totalMembers == 0) return 0.0;
-        return calculateLifetimeRevenueFromCache(allCharges) / totalMembers;
-    }
-
-    // Legacy methods kept for backward compatibility
-    private double calculateLifetimeRevenue(String stripeAccountId) throws Exception {
-        return calculateTotalRevenue(stripeAccountId, null, LocalDateTime.now());
-    }
-
-    private double calculateAverageLTV(String stripeAccountId, int totalMembers) throws Exception {
-        if (totalMembers == 0) return 0.0;
-        return calculateLifetimeRevenue(stripeAccountId) / totalMembers;
-    }
-
-    private Map<String, Object> getFailedPayments(String stripeAccountId, LocalDateTime start, LocalDateTime end) {
-        Map<String, Object> failed = new HashMap<>();
-        int count = 0;
-        double amount = 0.0;
-
-        try {
-            com.stripe.net.RequestOptions ro = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                    ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build() : null;
-            long startEpoch = start != null ? start.atZone(ZoneId.systemDefault()).toEpochSecond() : 0L;
-            long endEpoch = end != null ? end.atZone(ZoneId.systemDefault()).toEpochSecond() : Long.MAX_VALUE;
-
-            // Fetch OPEN invoices (payment attempted but failed)
-            InvoiceListParams openParams = InvoiceListParams.builder()
-                    .setStatus(InvoiceListParams.Status.OPEN)
-                    .setLimit(100L)
-                    .build();
-            for (Invoice inv : (ro != null ? Invoice.list(openParams, ro) : Invoice.list(openParams)).autoPagingIterable()) {
-                if (inv.getCreated() >= startEpoch && inv.getCreated() <= endEpoch) {
-                    count++;
-                    amount += (inv.getAmountDue() != null ? inv.getAmountDue() : 0L) / 100.0;
-                }
-            }
-
-            // Fetch UNCOLLECTIBLE invoices
-            InvoiceListParams uncollectibleParams = InvoiceListParams.builder()
-                    .setStatus(InvoiceListParams.Status.UNCOLLECTIBLE)
-                    .setLimit(100L)
-                    .build();
-            for (Invoice inv : (ro != null ? Invoice.list(uncollectibleParams, ro) : Invoice.list(uncollectibleParams)).autoPagingIterable()) {
-                if (inv.getCreated() >= startEpoch && inv.getCreated() <= endEpoch) {
-                    count++;
-                    amount += (inv.getAmountDue() != null ? inv.getAmountDue() : 0L) / 100.0;
-                }
-            }
-
-            logger.debug("Fetched {} failed payments (amount ${}) from Stripe", count, roundTwo(amount));
-        } catch (Exception e) {
-            logger.warn("Error fetching failed payments from Stripe: {}", e.getMessage());
-        }
-
-        failed.put("count", count);
-        failed.put("amount", roundTwo(amount));
-        return failed;
-    }
-
-    // Optimized version using cached refunds
-    private Map<String, Object> getRefundedPaymentsFromCache(List<Refund> allRefunds, LocalDateTime start, LocalDateTime end) {
-        Map<String, Object> refunded = new HashMap<>();
-        int count = 0;
-        double amount = 0.0;
-        
-        long startEpoch = start != null ? start.atZone(ZoneId.systemDefault()).toEpochSecond() : 0;
-        long endEpoch = end != null ? end.atZone(ZoneId.systemDefault()).toEpochSecond() : Long.MAX_VALUE;
-        
-        for (Refund refund : allRefunds) {
-            long refundTime = refund.getCreated();
-            if (refundTime >= startEpoch && refundTime <= endEpoch) {
-                count++;
-                amount += refund.getAmount() / 100.0;
-            }
-        }
-
-        refunded.put("count", count);
-        refunded.put("amount", amount);
-        return refunded;
-    }
-
-    private Map<String, Object> getRefundedPayments(String stripeAccountId, LocalDateTime start, LocalDateTime end) throws Exception {
-        Map<String, Object> refunded = new HashMap<>();
-        int count = 0;
-        double amount = 0.0;
-
-        com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                : null;
-
-        RefundListParams.Builder paramsBuilder = RefundListParams.builder();
-        if (start != null) {
-            paramsBuilder.setCreated(RefundListParams.Created.builder()
-                    .setGte(start.atZone(ZoneId.systemDefault()).toEpochSecond())
-                    .setLte(end.atZone(ZoneId.systemDefault()).toEpochSecond())
-                    .build());
-        }
-
-        RefundCollection refunds = requestOptions != null ? Refund.list(paramsBuilder.build(), requestOptions) : Refund.list(paramsBuilder.build());
-        for (Refund refund : refunds.autoPagingIterable()) {
-            count++;
-            amount += refund.getAmount() / 100.0;
-        }
-
-        refunded.put("count", count);
-        refunded.put("amount", amount);
-        return refunded;
-    }
-
     private List<Map<String, Object>> getMembershipBreakdown(List<UserBusiness> userBusinesses) {
         Map<String, Map<String, Object>> breakdownMap = new HashMap<>();
 
@@ -1336,56 +930,18 @@ public class AnalyticsController {
 
     /**
      * Combined overview bundle: stats + balance + activity in one request.
-     * Cached for 5 minutes. Use this for fast initial Overview page load.
+     * Fresh for 5 minutes, then served stale while it is refreshed. Use this for fast initial Overview page load.
      */
     @GetMapping("/overview-bundle")
-    @Transactional
     public ResponseEntity<?> getOverviewBundle(
             @RequestParam Long businessId,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
         try {
-            LocalDateTime start = parseOverviewDate(startDate);
-            LocalDateTime end = parseOverviewDate(endDate);
-            String cacheKey = "bundle_" + businessId + "_" + (startDate != null ? startDate : "") + "_" + (endDate != null ? endDate : "");
-            CachedOverviewBundle cached = overviewBundleCache.get(cacheKey);
-            long now = System.currentTimeMillis();
-            if (cached != null && now < cached.expiresAt) {
-                return ResponseEntity.ok(cached.data);
-            }
-            if (overviewBundleCache.size() > 50) {
-                overviewBundleCache.entrySet().removeIf(e -> {
-                    CachedOverviewBundle c = e.getValue();
-                    return c != null && now >= c.expiresAt;
-                });
-            }
-            Map<String, Object> bundle = new HashMap<>();
-            ClubOverviewResponse overview = getClubOverviewInternal(businessId, start, end);
-            bundle.put("overview", Map.of(
-                    "totalRevenue", overview.getTotalRevenue(),
-                    "mrr", overview.getMrr(),
-                    "totalActiveMembers", overview.getTotalActiveMembers(),
-                    "newMembers", overview.getNewMembers()));
-            try {
-                BalanceResponse balance = getBalanceInternal(businessId);
-                bundle.put("balance", Map.of(
-                        "available", balance.getAvailable(),
-                        "pending", balance.getPending(),
-                        "currency", balance.getCurrency() != null ? balance.getCurrency() : "usd",
-                        "pendingByDate", balance.getPendingByDate() != null ? balance.getPendingByDate() : Map.of()));
-            } catch (Exception e) {
-                logger.warn("Balance fetch failed in bundle: {}", e.getMessage());
-                bundle.put("balance", Map.of("available", 0.0, "pending", 0.0, "currency", "usd", "pendingByDate", Map.of()));
-            }
-            try {
-                List<Map<String, Object>> activity = getOverviewActivityInternal(businessId);
-                bundle.put("activity", activity);
-            } catch (Exception e) {
-                logger.warn("Activity fetch failed in bundle: {}", e.getMessage());
-                bundle.put("activity", List.of());
-            }
-            overviewBundleCache.put(cacheKey, new CachedOverviewBundle(bundle, System.currentTimeMillis() + OVERVIEW_CACHE_TTL_MS));
-            return ResponseEntity.ok(bundle);
+            return withDataAge(analyticsCacheService.getStaleWhileRevalidate(AnalyticsCacheRegion.OVERVIEW,
+                    cacheKey("overview-bundle", businessId, startDate, endDate),
+                    AnalyticsCacheRegion.OVERVIEW.getDefaultTtl(),
+                    () -> buildOverviewBundle(businessId, startDate, endDate)));
         } catch (Exception e) {
             logger.error("Error fetching overview bundle for businessId={}: {}", businessId, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -1393,6 +949,37 @@ public class AnalyticsController {
         }
     }
 
+    private Map<String, Object> buildOverviewBundle(Long businessId, String startDate, String endDate) {
+        LocalDateTime start = parseOverviewDate(startDate);
+        LocalDateTime end = parseOverviewDate(endDate);
+        Map<String, Object> bundle = new HashMap<>();
+        ClubOverviewResponse overview = getClubOverviewInternal(businessId, start, end);
+        bundle.put("overview", Map.of(
+                "totalRevenue", overview.getTotalRevenue(),
+                "mrr", overview.getMrr(),
+                "totalActiveMembers", overview.getTotalActiveMembers(),
+                "newMembers", overview.getNewMembers()));
+        try {
+            BalanceResponse balance = getBalanceInternal(businessId);
+            bundle.put("balance", Map.of(
+                    "available", balance.getAvailable(),
+                    "pending", balance.getPending(),
+                    "currency", balance.getCurrency() != null ? balance.getCurrency() : "usd",
+                    "pendingByDate", balance.getPendingByDate() != null ? balance.getPendingByDate() : Map.of()));
+        } catch (Exception e) {
+            logger.warn("Balance fetch failed in bundle: {}", e.getMessage());
+            bundle.put("balance", Map.of("available", 0.0, "pending", 0.0, "currency", "usd", "pendingByDate", Map.of()));
+        }
+        try {
+            List<Map<String, Object>> activity = getOverviewActivityInternal(businessId);
+            bundle.put("activity", activity);
+        } catch (Exception e) {
+            logger.warn("Activity fetch failed in bundle: {}", e.getMessage());
+            bundle.put("activity", List.of());
+        }
+        return bundle;
+    }
+
     private BalanceResponse getBalanceInternal(Long businessId) {
         Business business = businessRepository.findById(businessId)
                 .orElseThrow(() -> new RuntimeException("Business not found"));
@@ -1447,39 +1034,25 @@ public class AnalyticsController {
     private List<Map<String, Object>> getOverviewActivityInternal(Long businessId) throws Exception {
         Business business = businessRepository.findById(businessId)
                 .orElseThrow(() -> new RuntimeException("Business not found"));
-        String stripeAccountId = null;
         List<Map<String, Object>> activities = new ArrayList<>();
         LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
         long sevenDaysEpoch = sevenDaysAgo.atZone(ZoneId.systemDefault()).toEpochSecond();
-        com.stripe.net.RequestOptions ro = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build() : null;
-        ChargeListParams chargeParams = ChargeListParams.builder()
-                .setLimit(50L)
-                .setCreated(ChargeListParams.Created.builder().setGte(sevenDaysEpoch).build())
-                .build();
-        var chargeColl = ro != null ? Charge.list(chargeParams, ro) : Charge.list(chargeParams);
-        for (Charge charge : chargeColl.getData()) {
-            if (charge.getCreated() < sevenDaysEpoch) break;
-            if ("succeeded".equals(charge.getStatus()) && charge.getPaid()) {
-                Map<String, Object> a = new HashMap<>();
-                a.put("type", "PAYMENT");
-                a.put("icon", "DollarSign");
-                a.put("text", "Payment received from " + (charge.getBillingDetails() != null && charge.getBillingDetails().getName() != null ? charge.getBillingDetails().getName() : "Customer"));
-                a.put("amount", charge.getAmount() / 100.0);
-                a.put("time", formatTimeAgo(charge.getCreated()));
-                a.put("timestamp", charge.getCreated());
-                activities.add(a);
-            }
+        for (LedgerCharge charge : stripeLedgerService.findRecentSucceededCharges(sevenDaysEpoch, 50)) {
+            Map<String, Object> a = new HashMap<>();
+            a.put("type", "PAYMENT");
+            a.put("icon", "DollarSign");
+            a.put("text", "Payment received from " + (charge.getBillingName() != null ? charge.getBillingName() : "Customer"));
+            a.put("amount", charge.getAmount() / 100.0);
+            a.put("time", formatTimeAgo(charge.getCreated()));
+            a.put("timestamp", charge.getCreated());
+            activities.add(a);
         }
-        InvoiceListParams openParams = InvoiceListParams.builder().setStatus(InvoiceListParams.Status.OPEN).setLimit(20L).build();
-        var openInvs = ro != null ? Invoice.list(openParams, ro) : Invoice.list(openParams);
-        for (Invoice inv : openInvs.getData()) {
-            if (inv.getCreated() < sevenDaysEpoch) break;
+        for (LedgerInvoice inv : stripeLedgerService.findRecentFailedInvoices(sevenDaysEpoch, 50)) {
             Map<String, Object> a = new HashMap<>();
             a.put("type", "FAILED_PAYMENT");
             a.put("icon", "AlertCircle");
             a.put("text", "Failed payment from " + (inv.getCustomerName() != null ? inv.getCustomerName() : "Customer"));
-            a.put("amount", inv.getAmountDue() / 100.0);
+            a.put("amount", (inv.getAmountDue() != null ? inv.getAmountDue() : 0L) / 100.0);
             a.put("time", formatTimeAgo(inv.getCreated()));
             a.put("timestamp", inv.getCreated());
             activities.add(a);
@@ -1515,26 +1088,24 @@ public class AnalyticsController {
         }
     }
 
-    private static class CachedOverviewBundle {
-        final Map<String, Object> data;
-        final long expiresAt;
-        CachedOverviewBundle(Map<String, Object> data, long expiresAt) {
-            this.data = data;
-            this.expiresAt = expiresAt;
-        }
-    }
-
     /**
      * Get business-specific overview analytics
      * GET /api/analytics/business-overview?businessId={id}&startDate={date}&endDate={date}
      * startDate and endDate are optional - if not provided, calculates revenue for all time
+     * Served stale-while-revalidate (also for /club-overview); X-Data-Age gives the age in seconds.
      */
     @GetMapping("/business-overview")
-    @Transactional
     public ResponseEntity<?> getBusinessOverview(
             @RequestParam Long businessId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        return withDataAge(analyticsCacheService.getStaleWhileRevalidate(AnalyticsCacheRegion.METRICS,
+                cacheKey("business-overview", businessId, startDate, endDate),
+                AnalyticsCacheRegion.METRICS.getDefaultTtl(),
+                () -> computeBusinessOverview(businessId, startDate, endDate)));
+    }
+
+    private ResponseEntity<?> computeBusinessOverview(Long businessId, LocalDateTime startDate, LocalDateTime endDate) {
         try {
             // TODO: Add business scope validation for staff after verifying staff business loading works
             // For now, we allow all authenticated users to access any business
@@ -1555,7 +1126,6 @@ public class AnalyticsController {
      */
     @Deprecated
     @GetMapping("/club-overview")
-    @Transactional
     public ResponseEntity<?> getClubOverview(@RequestParam Long clubId,
                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
@@ -1568,8 +1138,6 @@ public class AnalyticsController {
             Business business = businessRepository.findById(businessId)
                     .orElseThrow(() -> new RuntimeException("Business not found with id: " + businessId));
 
-            String stripeAccountId = null; // Single-tenant: platform account only
-
             // Use DB aggregation queries - no entity loading, fast single-round-trip counts
             // Active = has at least one membership with status ACTIVE (not past_due, not canceled)
             long totalActiveMembers = userBusinessRepository.countActiveMembersByBusinessId(businessId);
@@ -1579,51 +1147,14 @@ public class AnalyticsController {
 
             logger.debug("Overview aggregates: activeMembers={}, newMembers={}, mrr={}", totalActiveMembers, newMembers, mrr);
 
-            // Calculate Total Revenue from Stripe (date-filtered, single API call)
-            double totalRevenue = 0.0;
-
-            try {
-                    com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                            ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                            : null;
-
-                    int totalCharges = 0;
-
-                    long startEpoch;
-                    long endEpoch;
-                    if (startDate != null && endDate != null) {
-                        startEpoch = startDate.atZone(ZoneId.systemDefault()).toEpochSecond();
-                        endEpoch = endDate.atZone(ZoneId.systemDefault()).toEpochSecond();
-                    } else {
-                        LocalDateTime defEnd = LocalDateTime.now();
-                        LocalDateTime defStart = defEnd.minusMonths(12);
-                        startEpoch = defStart.atZone(ZoneId.systemDefault()).toEpochSecond();
-                        endEpoch = defEnd.atZone(ZoneId.systemDefault()).toEpochSecond();
-                    }
-                    ChargeListParams params = ChargeListParams.builder()
-                            .setLimit(100L)
-                            .setCreated(ChargeListParams.Created.builder()
-                                    .setGte(startEpoch)
-                                    .setLte(endEpoch)
-                                    .build())
-                            .build();
-
-                    ChargeCollection charges = requestOptions != null ? Charge.list(params, requestOptions) : Charge.list(params);
-
-                    for (Charge charge : charges.autoPagingIterable()) {
-                        // Only count successful charges that haven't been refunded
-                        if (charge.getPaid() && !charge.getRefunded()) {
-                            double amount = charge.getAmount() / 100.0;
-                            totalRevenue += amount;
-                            totalCharges++;
-                            logger.debug("Added charge ${} (ID: {})", amount, charge.getId());
-                        }
-                    }
-                    logger.info("Total revenue from Stripe: ${} from {} charges for businessId={}",
-                        totalRevenue, totalCharges, businessId);
-                } catch (Exception e) {
-                    logger.error("Error fetching Stripe data for businessId={}: {}", businessId, e.getMessage(), e);
-                }
+            // Total revenue from the local Stripe ledger (defaults to the last 12 months)
+            LocalDateTime revenueStart = startDate;
+            LocalDateTime revenueEnd = endDate;
+            if (revenueStart == null || revenueEnd == null) {
+                revenueEnd = LocalDateTime.now();
+                revenueStart = revenueEnd.minusMonths(12);
+            }
+            double totalRevenue = stripeLedgerService.sumNetRevenue(revenueStart, revenueEnd);
 
             ClubOverviewResponse response = new ClubOverviewResponse();
             response.setTotalRevenue(totalRevenue);
@@ -1658,20 +1189,25 @@ public class AnalyticsController {
     }
 
     /**
-     * Get revenue chart data from Stripe for a specific business
+     * Get revenue chart data (from the local Stripe ledger) for a specific business
      * GET /api/analytics/revenue-chart?businessId={id}&period={period}
      *
      * @param businessId The business ID
      * @param period Time period: "today", "7d", "30d", "90d", "1y", or "all"
      */
     @GetMapping("/revenue-chart")
-    @Transactional
     public ResponseEntity<?> getRevenueChart(
             @RequestParam(required = false) Long businessId,
             @RequestParam(required = false) Long clubId, // Backward compatibility
             @RequestParam(defaultValue = "30d") String period,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.CHARTS,
+                cacheKey("revenue-chart", businessId, clubId, period, startDate, endDate),
+                chartTtl(period, endDate), () -> computeRevenueChart(businessId, clubId, period, startDate, endDate));
+    }
+
+    private ResponseEntity<?> computeRevenueChart(Long businessId, Long clubId, String period, String startDate, String endDate) {
         Long actualBusinessId = businessId != null ? businessId : clubId;
         if (actualBusinessId == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -1689,10 +1225,8 @@ public class AnalyticsController {
                         .body(Map.of("error", "Business not found with id: " + actualBusinessId));
             }
 
-            String stripeAccountId = null; // Single-tenant: platform account only
-
-            // Calculate date range based on period or custom dates
-            LocalDateTime endDateTime = LocalDateTime.now();
+            // Calculate date range based on period or custom dates, in the rollup's zone
+            LocalDateTime endDateTime = LocalDateTime.now(DailyMetricsRollupService.ZONE);
             LocalDateTime startDateTime;
 
             if (startDate != null && !startDate.isEmpty()) {
@@ -1710,7 +1244,7 @@ public class AnalyticsController {
             } else {
                 switch (period.toLowerCase()) {
                     case "today":
-                        startDateTime = LocalDate.now().atStartOfDay();
+                        startDateTime = endDateTime.toLocalDate().atStartOfDay();
                         break;
                     case "7d":
                         startDateTime = endDateTime.minusDays(7);
@@ -1725,84 +1259,49 @@ public class AnalyticsController {
                         startDateTime = endDateTime.minusYears(1);
                         break;
                     case "all":
-                        startDateTime = LocalDateTime.of(2000, 1, 1, 0, 0); // Far back enough for "all time"
+                        // Start at the first day the rollup has for this business
+                        LocalDate firstMetricDate = dailyMetricsRollupService.findEarliestMetricDate(actualBusinessId);
+                        startDateTime = firstMetricDate != null ? firstMetricDate.atStartOfDay() : endDateTime.toLocalDate().atStartOfDay();
                         break;
                     default:
                         startDateTime = endDateTime.minusDays(30); // Default to 30 days
                 }
             }
 
-            long startEpoch = startDateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
-            long endEpoch = endDateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+            long startEpoch = startDateTime.toEpochSecond(DailyMetricsRollupService.ZONE);
+            long endEpoch = endDateTime.toEpochSecond(DailyMetricsRollupService.ZONE);
 
             // Map to store revenue by date (date string -> revenue amount)
             Map<String, Double> revenueByDate = new TreeMap<>(); // TreeMap to keep dates sorted
-            int totalChargesProcessed = 0;
-
-            try {
-                com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                        ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                        : null;
-
-                ChargeListParams.Builder paramsBuilder = ChargeListParams.builder()
-                        .setCreated(ChargeListParams.Created.builder()
-                                .setGte(startEpoch)
-                                .setLte(endEpoch)
-                                .build())
-                        .setLimit(100L);
-
-                ChargeCollection charges = requestOptions != null ? Charge.list(paramsBuilder.build(), requestOptions) : Charge.list(paramsBuilder.build());
-                Iterable<Charge> chargesIterable = charges.autoPagingIterable();
-
-                for (Charge charge : chargesIterable) {
-                    // Only count successful charges that haven't been refunded
-                    if (charge.getPaid() && !charge.getRefunded()) {
-                        LocalDateTime chargeDateTime = LocalDateTime
-                                .ofEpochSecond(charge.getCreated(), 0, java.time.ZoneOffset.UTC);
-
-                        String dateKey;
-                        // For "today" or single day selection, group by hour
-                        boolean isSingleDay = startDateTime.toLocalDate().isEqual(endDateTime.toLocalDate());
-                        
-                        if ("today".equalsIgnoreCase(period) || isSingleDay) {
-                            // Format as "HH:00" for hourly grouping
-                            dateKey = String.format("%02d:00", chargeDateTime.getHour());
-                        } else {
-                            // Format as YYYY-MM-DD for daily grouping
-                            dateKey = chargeDateTime.toLocalDate().toString();
-                        }
-
-                        double amount = charge.getAmount() / 100.0; // Convert cents to dollars
-                        revenueByDate.put(dateKey, revenueByDate.getOrDefault(dateKey, 0.0) + amount);
-
-                        totalChargesProcessed++;
-                    }
+            // For "today" or single day selection, group by hour
+            boolean groupByHour = "today".equalsIgnoreCase(period)
+                    || startDateTime.toLocalDate().isEqual(endDateTime.toLocalDate());
+
+            if (groupByHour) {
+                // Hourly detail for a single day comes straight from the ledger
+                List<Object[]> points = stripeLedgerService.findNetRevenuePointsForBusiness(actualBusinessId, startEpoch, endEpoch);
+                for (Object[] point : points) {
+                    long created = ((Number) point[0]).longValue();
+                    long amountCents = ((Number) point[1]).longValue();
+                    LocalDateTime chargeDateTime = LocalDateTime.ofEpochSecond(created, 0, DailyMetricsRollupService.ZONE);
+                    revenueByDate.merge(String.format("%02d:00", chargeDateTime.getHour()), amountCents / 100.0, Double::sum);
                 }
 
-                logger.info("Total charges processed: {}, Total unique dates: {}",
-                    totalChargesProcessed, revenueByDate.size());
-            } catch (Exception e) {
-                logger.error("Error fetching Stripe data for businessId={}: {}", actualBusinessId, e.getMessage(), e);
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(Map.of("error", "Error fetching Stripe data: " + e.getMessage()));
-            }
-
-            // For "today" or single day, ensure we have all 24 hours
-            boolean isSingleDay = startDateTime.toLocalDate().isEqual(endDateTime.toLocalDate());
-            if ("today".equalsIgnoreCase(period) || isSingleDay) {
-                Map<String, Double> completeHourlyData = new TreeMap<>();
+                // Ensure we have all 24 hours
                 for (int hour = 0; hour < 24; hour++) {
-                    String hourKey = String.format("%02d:00", hour);
-                    completeHourlyData.put(hourKey, revenueByDate.getOrDefault(hourKey, 0.0));
+                    revenueByDate.putIfAbsent(String.format("%02d:00", hour), 0.0);
                 }
-                revenueByDate = completeHourlyData;
             } else {
-                // Fill in missing days with 0
+                // Daily series from the precomputed rollup: gross revenue less refunds
+                Map<LocalDate, DailyBusinessMetric> metrics = loadDailyMetrics(actualBusinessId,
+                        startDateTime.toLocalDate(), endDateTime.toLocalDate());
                 LocalDate curr = startDateTime.toLocalDate();
                 LocalDate end = endDateTime.toLocalDate();
                 while (!curr.isAfter(end)) {
-                    String key = curr.toString();
-                    revenueByDate.putIfAbsent(key, 0.0);
+                    DailyBusinessMetric metric = metrics.get(curr);
+                    revenueByDate.put(curr.toString(), metric != null
+                            ? (metric.getGrossRevenue() - metric.getRefunds()) / 100.0
+                            : 0.0);
                     curr = curr.plusDays(1);
                 }
             }
@@ -1868,11 +1367,16 @@ public class AnalyticsController {
      * Returns chart data for new members created per day/hour
      */
     @GetMapping("/new-members-chart")
-    @Transactional
     public ResponseEntity<?> getNewMembersChart(
             @RequestParam(required = false) Long businessId,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.CHARTS,
+                cacheKey("new-members-chart", businessId, startDate, endDate),
+                chartTtl(null, endDate), () -> computeNewMembersChart(businessId, startDate, endDate));
+    }
+
+    private ResponseEntity<?> computeNewMembersChart(Long businessId, String startDate, String endDate) {
         if (businessId == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", "businessId parameter is required"));
@@ -1887,8 +1391,8 @@ public class AnalyticsController {
                         .body(Map.of("error", "Business not found"));
             }
 
-            // Calculate date range
-            LocalDateTime endDateTime = LocalDateTime.now();
+            // Calculate date range, in the rollup's zone
+            LocalDateTime endDateTime = LocalDateTime.now(DailyMetricsRollupService.ZONE);
             LocalDateTime startDateTime;
 
             if (startDate != null && !startDate.isEmpty()) {
@@ -1903,33 +1407,24 @@ public class AnalyticsController {
             boolean isSingleDay = startDateTime.toLocalDate().isEqual(endDateTime.toLocalDate());
             Map<String, Long> membersByDate = new TreeMap<>();
 
-            List<UserBusiness> userBusinesses = userBusinessRepository.findByBusinessIdWithMemberships(businessId);
-            
-            for (UserBusiness userBusiness : userBusinesses) {
-                LocalDateTime createdAt = userBusiness.getCreatedAt();
-                if (createdAt != null && !createdAt.isBefore(startDateTime) && !createdAt.isAfter(endDateTime)) {
-                    String dateKey;
-                    if (isSingleDay) {
-                        dateKey = String.format("%02d:00", createdAt.getHour());
-                    } else {
-                        dateKey = createdAt.toLocalDate().toString();
-                    }
-                    membersByDate.put(dateKey, membersByDate.getOrDefault(dateKey, 0L) + 1);
-                }
-            }
-
-            // Fill in missing dates/hours with 0
             if (isSingleDay) {
+                for (LocalDateTime createdAt : userBusinessRepository.findCreatedAtByBusinessIdBetween(businessId,
+                        DailyMetricsRollupService.toServerTime(startDateTime), DailyMetricsRollupService.toServerTime(endDateTime))) {
+                    int hour = DailyMetricsRollupService.toRollupTime(createdAt).getHour();
+                    membersByDate.merge(String.format("%02d:00", hour), 1L, Long::sum);
+                }
                 for (int hour = 0; hour < 24; hour++) {
                     String hourKey = String.format("%02d:00", hour);
                     membersByDate.putIfAbsent(hourKey, 0L);
                 }
             } else {
+                Map<LocalDate, DailyBusinessMetric> metrics = loadDailyMetrics(businessId,
+                        startDateTime.toLocalDate(), endDateTime.toLocalDate());
                 LocalDate curr = startDateTime.toLocalDate();
                 LocalDate end = endDateTime.toLocalDate();
                 while (!curr.isAfter(end)) {
-                    String key = curr.toString();
-                    membersByDate.putIfAbsent(key, 0L);
+                    DailyBusinessMetric metric = metrics.get(curr);
+                    membersByDate.put(curr.toString(), metric != null ? metric.getNewMembers().longValue() : 0L);
                     curr = curr.plusDays(1);
                 }
             }
@@ -1957,11 +1452,16 @@ public class AnalyticsController {
      * Returns chart data for total active members per day/hour
      */
     @GetMapping("/total-members-chart")
-    @Transactional
     public ResponseEntity<?> getTotalMembersChart(
             @RequestParam(required = false) Long businessId,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.CHARTS,
+                cacheKey("total-members-chart", businessId, startDate, endDate),
+                chartTtl(null, endDate), () -> computeTotalMembersChart(businessId, startDate, endDate));
+    }
+
+    private ResponseEntity<?> computeTotalMembersChart(Long businessId, String startDate, String endDate) {
         if (businessId == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", "businessId parameter is required"));
@@ -1976,8 +1476,8 @@ public class AnalyticsController {
                         .body(Map.of("error", "Business not found"));
             }
 
-            // Calculate date range
-            LocalDateTime endDateTime = LocalDateTime.now();
+            // Calculate date range, in the rollup's zone
+            LocalDateTime endDateTime = LocalDateTime.now(DailyMetricsRollupService.ZONE);
             LocalDateTime startDateTime;
 
             if (startDate != null && !startDate.isEmpty()) {
@@ -1992,28 +1492,30 @@ public class AnalyticsController {
             boolean isSingleDay = startDateTime.toLocalDate().isEqual(endDateTime.toLocalDate());
             Map<String, Long> membersByDate = new TreeMap<>();
 
-            List<UserBusiness> userBusinesses = userBusinessRepository.findByBusinessIdWithMemberships(businessId);
-            
             // For each date/hour in range, count members who existed at that point
             if (isSingleDay) {
+                LocalDateTime dayStart = startDateTime.toLocalDate().atStartOfDay();
+                long before = userBusinessRepository.countByBusinessIdCreatedBefore(businessId,
+                        DailyMetricsRollupService.toServerTime(dayStart));
+                List<LocalDateTime> joinedToday = userBusinessRepository.findCreatedAtByBusinessIdBetween(businessId,
+                        DailyMetricsRollupService.toServerTime(dayStart),
+                        DailyMetricsRollupService.toServerTime(startDateTime.toLocalDate().atTime(23, 59, 59))).stream()
+                        .map(DailyMetricsRollupService::toRollupTime)
+                        .toList();
                 for (int hour = 0; hour < 24; hour++) {
                     String hourKey = String.format("%02d:00", hour);
-                    LocalDateTime checkTime = startDateTime.toLocalDate().atTime(hour, 0);
-                    long count = userBusinesses.stream()
-                            .filter(ub -> ub.getCreatedAt() != null && !ub.getCreatedAt().isAfter(checkTime))
-                            .count();
+                    LocalDateTime checkTime = dayStart.plusHours(hour);
+                    long count = before + joinedToday.stream().filter(createdAt -> !createdAt.isAfter(checkTime)).count();
                     membersByDate.put(hourKey, count);
                 }
             } else {
+                Map<LocalDate, DailyBusinessMetric> metrics = loadDailyMetrics(businessId,
+                        startDateTime.toLocalDate(), endDateTime.toLocalDate());
                 LocalDate curr = startDateTime.toLocalDate();
                 LocalDate end = endDateTime.toLocalDate();
                 while (!curr.isAfter(end)) {
-                    String key = curr.toString();
-                    LocalDateTime checkTime = curr.atTime(23, 59, 59);
-                    long count = userBusinesses.stream()
-                            .filter(ub -> ub.getCreatedAt() != null && !ub.getCreatedAt().isAfter(checkTime))
-                            .count();
-                    membersByDate.put(key, count);
+                    DailyBusinessMetric metric = metrics.get(curr);
+                    membersByDate.put(curr.toString(), metric != null ? metric.getTotalMembers().longValue() : 0L);
                     curr = curr.plusDays(1);
                 }
             }
@@ -2041,11 +1543,16 @@ public class AnalyticsController {
      * Returns chart data for Monthly Recurring Revenue per day/hour
      */
     @GetMapping("/mrr-chart")
-    @Transactional
     public ResponseEntity<?> getMrrChart(
             @RequestParam(required = false) Long businessId,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.CHARTS,
+                cacheKey("mrr-chart", businessId, startDate, endDate),
+                chartTtl(null, endDate), () -> computeMrrChart(businessId, startDate, endDate));
+    }
+
+    private ResponseEntity<?> computeMrrChart(Long businessId, String startDate, String endDate) {
         if (businessId == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", "businessId parameter is required"));
@@ -2060,9 +1567,7 @@ public class AnalyticsController {
                         .body(Map.of("error", "Business not found"));
             }
 
-            String stripeAccountId = null; // Single-tenant: platform account only
-
-            LocalDateTime endDateTime = LocalDateTime.now();
+            LocalDateTime endDateTime = LocalDateTime.now(DailyMetricsRollupService.ZONE);
             LocalDateTime startDateTime;
 
             if (startDate != null && !startDate.isEmpty()) {
@@ -2077,73 +1582,21 @@ public class AnalyticsController {
             boolean isSingleDay = startDateTime.toLocalDate().isEqual(endDateTime.toLocalDate());
             Map<String, Double> mrrByDate = new TreeMap<>();
 
-            com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                    ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                    : null;
-
-            SubscriptionListParams.Builder paramsBuilder = SubscriptionListParams.builder()
-                    .setLimit(100L);
-
-            SubscriptionCollection subscriptions = requestOptions != null ? Subscription.list(paramsBuilder.build(), requestOptions) : Subscription.list(paramsBuilder.build());
-            Iterable<Subscription> subscriptionsIterable = subscriptions.autoPagingIterable();
-
-            // Collect all subscriptions with their monthly amounts and dates
-            List<SubscriptionData> subscriptionDataList = new ArrayList<>();
-            for (Subscription subscription : subscriptionsIterable) {
-                if (subscription.getItems() != null && subscription.getItems().getData() != null) {
-                    for (SubscriptionItem item : subscription.getItems().getData()) {
-                        if (item.getPrice() != null && item.getPrice().getRecurring() != null) {
-                            String interval = item.getPrice().getRecurring().getInterval();
-                            Long unitAmount = item.getPrice().getUnitAmount();
-                            
-                            if (unitAmount != null && "month".equals(interval)) {
-                                double monthlyAmount = unitAmount / 100.0;
-                                LocalDateTime subCreated = LocalDateTime.ofEpochSecond(
-                                        subscription.getCreated(), 0, java.time.ZoneOffset.UTC);
-                                LocalDateTime subEnded = subscription.getCanceledAt() != null
-                                        ? LocalDateTime.ofEpochSecond(subscription.getCanceledAt(), 0, java.time.ZoneOffset.UTC)
-                                        : null;
-                                String status = subscription.getStatus();
-                                
-                                subscriptionDataList.add(new SubscriptionData(monthlyAmount, subCreated, subEnded, status));
-                            }
-                        }
-                    }
-                }
-            }
-
-            // Calculate MRR for each date/hour in range
+            // MRR per day from the precomputed rollup; a single day shows that day's value for every hour
+            Map<LocalDate, DailyBusinessMetric> metrics = loadDailyMetrics(businessId,
+                    startDateTime.toLocalDate(), endDateTime.toLocalDate());
             if (isSingleDay) {
+                DailyBusinessMetric metric = metrics.get(startDateTime.toLocalDate());
+                double mrr = metric != null ? metric.getMrr() / 100.0 : 0.0;
                 for (int hour = 0; hour < 24; hour++) {
-                    String hourKey = String.format("%02d:00", hour);
-                    LocalDateTime checkTime = startDateTime.toLocalDate().atTime(hour, 0);
-                    double mrr = subscriptionDataList.stream()
-                            .filter(sub -> {
-                                boolean created = !sub.createdAt.isAfter(checkTime);
-                                boolean notEnded = sub.endedAt == null || !sub.endedAt.isBefore(checkTime);
-                                boolean active = "active".equals(sub.status) || "trialing".equals(sub.status) || "past_due".equals(sub.status);
-                                return created && notEnded && active;
-                            })
-                            .mapToDouble(sub -> sub.monthlyAmount)
-                            .sum();
-                    mrrByDate.put(hourKey, mrr);
+                    mrrByDate.put(String.format("%02d:00", hour), mrr);
                 }
             } else {
                 LocalDate curr = startDateTime.toLocalDate();
                 LocalDate end = endDateTime.toLocalDate();
                 while (!curr.isAfter(end)) {
-                    String key = curr.toString();
-                    LocalDateTime checkTime = curr.atTime(23, 59, 59);
-                    double mrr = subscriptionDataList.stream()
-                            .filter(sub -> {
-                                boolean created = !sub.createdAt.isAfter(checkTime);
-                                boolean notEnded = sub.endedAt == null || !sub.endedAt.isBefore(checkTime);
-                                boolean active = "active".equals(sub.status) || "trialing".equals(sub.status) || "past_due".equals(sub.status);
-                                return created && notEnded && active;
-                            })
-                            .mapToDouble(sub -> sub.monthlyAmount)
-                            .sum();
-                    mrrByDate.put(key, mrr);
+                    DailyBusinessMetric metric = metrics.get(curr);
+                    mrrByDate.put(curr.toString(), metric != null ? metric.getMrr() / 100.0 : 0.0);
                     curr = curr.plusDays(1);
                 }
             }
@@ -2166,19 +1619,15 @@ public class AnalyticsController {
         }
     }
 
-    // Helper class for MRR calculation
-    private static class SubscriptionData {
-        double monthlyAmount;
-        LocalDateTime createdAt;
-        LocalDateTime endedAt;
-        String status;
-
-        SubscriptionData(double monthlyAmount, LocalDateTime createdAt, LocalDateTime endedAt, String status) {
-            this.monthlyAmount = monthlyAmount;
-            this.createdAt = createdAt;
-            this.endedAt = endedAt;
-            this.status = status;
+    /**
+     * Rollup rows for a business keyed by day; days without a row are simply absent.
+     */
+    private Map<LocalDate, DailyBusinessMetric> loadDailyMetrics(Long businessId, LocalDate from, LocalDate to) {
+        Map<LocalDate, DailyBusinessMetric> byDate = new HashMap<>();
+        for (DailyBusinessMetric metric : dailyMetricsRollupService.findMetrics(businessId, from, to)) {
+            byDate.put(metric.getMetricDate(), metric);
         }
+        return byDate;
     }
 
     /**
@@ -2186,7 +1635,6 @@ public class AnalyticsController {
      * GET /api/analytics/balance?businessId={id}
      */
     @GetMapping("/balance")
-    @Transactional
     public BalanceResponse getBalance(
             @RequestParam(required = false) Long businessId,
             @RequestParam(required = false) Long clubId) { // Backward compatibility
@@ -2194,6 +1642,12 @@ public class AnalyticsController {
         if (actualBusinessId == null) {
             throw new RuntimeException("businessId parameter is required");
         }
+        return analyticsCacheService.get(AnalyticsCacheRegion.BALANCE,
+                cacheKey("balance", actualBusinessId),
+                () -> computeBalance(actualBusinessId));
+    }
+
+    private BalanceResponse computeBalance(Long actualBusinessId) {
         try {
             // Get the business
             Business business = businessRepository.findById(actualBusinessId)
@@ -2397,7 +1851,6 @@ public class AnalyticsController {
      * GET /api/analytics/recent-activity?businessId={id}
      */
     @GetMapping("/recent-activity")
-    @Transactional
     public List<RecentActivityResponse> getRecentActivity(
             @RequestParam(required = false) Long businessId,
             @RequestParam(required = false) Long clubId) { // Backward compatibility
@@ -2405,6 +1858,44 @@ public class AnalyticsController {
         if (actualBusinessId == null) {
             throw new RuntimeException("businessId parameter is required");
         }
+        return analyticsCacheService.get(AnalyticsCacheRegion.ACTIVITY,
+                cacheKey("recent-activity", actualBusinessId),
+                () -> computeRecentActivity(actualBusinessId));
+    }
+
+    /**
+     * Estimated number of members on site right now, from the in-memory check-in stream
+     * GET /api/analytics/occupancy?businessId={id}
+     */
+    @GetMapping("/occupancy")
+    public ResponseEntity<?> getOccupancy(
+            @RequestParam(required = false) Long businessId,
+            @RequestParam(required = false) Long clubId) { // Backward compatibility
+        Long actualBusinessId = businessId != null ? businessId : clubId;
+        if (actualBusinessId == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "businessId parameter is required"));
+        }
+        return ResponseEntity.ok(occupancyService.getOccupancy(actualBusinessId));
+    }
+
+    /**
+     * Check-ins by weekday and hour of day over the recent weeks, from incrementally maintained counts
+     * GET /api/analytics/traffic-heatmap?businessId={id}
+     */
+    @GetMapping("/traffic-heatmap")
+    public ResponseEntity<?> getTrafficHeatmap(
+            @RequestParam(required = false) Long businessId,
+            @RequestParam(required = false) Long clubId) { // Backward compatibility
+        Long actualBusinessId = businessId != null ? businessId : clubId;
+        if (actualBusinessId == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "businessId parameter is required"));
+        }
+        return ResponseEntity.ok(occupancyService.getHeatmap(actualBusinessId));
+    }
+
+    private List<RecentActivityResponse> computeRecentActivity(Long actualBusinessId) {
         try {
             // Get activities from last 2 days
             LocalDateTime twoDaysAgo = LocalDateTime.now().minusDays(2);
@@ -2450,16 +1941,21 @@ public class AnalyticsController {
     }
 
     /**
-     * Get refunded payments details from Stripe for the selected date range.
+     * Get refunded payments details from the local Stripe ledger for the selected date range.
      * GET /api/analytics/refunded-payments-details?businessTag={tag}&startDate={}&endDate={}
      */
     @GetMapping("/refunded-payments-details")
-    @Transactional
     public ResponseEntity<?> getRefundedPaymentsDetails(
             @RequestParam(required = false) String businessTag,
             @RequestParam(required = false) String clubTag,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.ACTIVITY,
+                cacheKey("refunded-payments-details", businessTag, clubTag, startDate, endDate),
+                () -> computeRefundedPaymentsDetails(businessTag, clubTag, startDate, endDate));
+    }
+
+    private ResponseEntity<?> computeRefundedPaymentsDetails(String businessTag, String clubTag, String startDate, String endDate) {
         try {
             String tag = businessTag != null ? businessTag : clubTag;
             if (tag == null) {
@@ -2485,21 +1981,11 @@ public class AnalyticsController {
             long startEpoch = start != null ? start.atZone(ZoneId.systemDefault()).toEpochSecond() : 0L;
             long endEpoch = end.atZone(ZoneId.systemDefault()).toEpochSecond();
 
-            com.stripe.net.RequestOptions ro = null;
-            RefundListParams.Builder paramsBuilder = RefundListParams.builder().setLimit(100L);
-            if (start != null) {
-                paramsBuilder.setCreated(RefundListParams.Created.builder()
-                        .setGte(startEpoch)
-                        .setLte(endEpoch)
-                        .build());
-            }
-
             List<Map<String, Object>> refunds = new ArrayList<>();
-            for (Refund r : (ro != null ? Refund.list(paramsBuilder.build(), ro) : Refund.list(paramsBuilder.build())).autoPagingIterable()) {
-                if (r.getCreated() < startEpoch || r.getCreated() > endEpoch) continue;
+            for (LedgerRefund r : stripeLedgerService.findRefunds(startEpoch, endEpoch)) {
                 Map<String, Object> m = new HashMap<>();
                 m.put("refundId", r.getId());
-                m.put("chargeId", r.getCharge());
+                m.put("chargeId", r.getChargeId());
                 m.put("amount", r.getAmount() / 100.0);
                 m.put("status", r.getStatus());
                 m.put("createdAt", java.time.Instant.ofEpochSecond(r.getCreated()).atZone(ZoneId.systemDefault()).toString());
@@ -2519,119 +2005,19 @@ public class AnalyticsController {
      * GET /api/analytics/overview-activity?businessId={id}
      */
     @GetMapping("/overview-activity")
-    @Transactional
     public ResponseEntity<?> getOverviewActivity(@RequestParam Long businessId) {
+        return analyticsCacheService.get(AnalyticsCacheRegion.ACTIVITY,
+                cacheKey("overview-activity", businessId),
+                () -> computeOverviewActivity(businessId));
+    }
+
+    private ResponseEntity<?> computeOverviewActivity(Long businessId) {
         try {
-            // Validate business exists
-            Business business = businessRepository.findById(businessId)
-                    .orElseThrow(() -> new RuntimeException("Business not found with id: " + businessId));
-            
             // TODO: Add business scope validation for staff after verifying staff business loading works
             // For now, we allow all authenticated users to access any business
             // This will be secured once we verify the staff business relationship is properly loaded
-            
-            String stripeAccountId = null; // Single-tenant: platform account only
-            List<Map<String, Object>> activities = new ArrayList<>();
-
-            try {
-                    LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
-                    long sevenDaysAgoEpoch = sevenDaysAgo.atZone(ZoneId.systemDefault()).toEpochSecond();
-
-                    com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                            ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                            : null;
-
-                    ChargeListParams chargeParams = ChargeListParams.builder()
-                            .setLimit(50L)
-                            .build();
-
-                    com.stripe.model.ChargeCollection chargeColl = requestOptions != null ? Charge.list(chargeParams, requestOptions) : Charge.list(chargeParams);
-                    for (Charge charge : chargeColl.autoPagingIterable()) {
-                        if (charge.getCreated() < sevenDaysAgoEpoch) break;
-                        if ("succeeded".equals(charge.getStatus()) && charge.getPaid()) {
-                            Map<String, Object> activity = new HashMap<>();
-                            activity.put("type", "PAYMENT");
-                            activity.put("icon", "DollarSign");
-                            String customerName = charge.getBillingDetails() != null && charge.getBillingDetails().getName() != null
-                                    ? charge.getBillingDetails().getName()
-                                    : "Customer";
-                            activity.put("text", "Payment received from " + customerName);
-                            activity.put("amount", charge.getAmount() / 100.0);
-                            activity.put("time", formatTimeAgo(charge.getCreated()));
-                            activity.put("timestamp", charge.getCreated());
-                            activities.add(activity);
-                        }
-                    }
-
-                    // Get failed payments (OPEN and UNCOLLECTIBLE invoices)
-                    InvoiceListParams openParams = InvoiceListParams.builder()
-                            .setStatus(InvoiceListParams.Status.OPEN)
-                            .setLimit(50L)
-                            .build();
-
-                    com.stripe.model.InvoiceCollection openInvoices = requestOptions != null ? Invoice.list(openParams, requestOptions) : Invoice.list(openParams);
-                    for (Invoice invoice : openInvoices.autoPagingIterable()) {
-                        if (invoice.getCreated() < sevenDaysAgoEpoch) break;
-                        Map<String, Object> activity = new HashMap<>();
-                        activity.put("type", "FAILED_PAYMENT");
-                        activity.put("icon", "AlertCircle");
-                        String customerName = invoice.getCustomerName() != null ? invoice.getCustomerName() : "Customer";
-                        activity.put("text", "Failed payment from " + customerName);
-                        activity.put("amount", invoice.getAmountDue() / 100.0);
-                        activity.put("time", formatTimeAgo(invoice.getCreated()));
-                        activity.put("timestamp", invoice.getCreated());
-                        activities.add(activity);
-                    }
-
-                    InvoiceListParams uncollectibleParams = InvoiceListParams.builder()
-                            .setStatus(InvoiceListParams.Status.UNCOLLECTIBLE)
-                            .setLimit(50L)
-                            .build();
-
-                    com.stripe.model.InvoiceCollection uncollectibleInvoices = requestOptions != null ? Invoice.list(uncollectibleParams, requestOptions) : Invoice.list(uncollectibleParams);
-                    for (Invoice invoice : uncollectibleInvoices.autoPagingIterable()) {
-                        if (invoice.getCreated() < sevenDaysAgoEpoch) break;
-                        Map<String, Object> activity = new HashMap<>();
-                        activity.put("type", "FAILED_PAYMENT");
-                        activity.put("icon", "AlertCircle");
-                        String customerName = invoice.getCustomerName() != null ? invoice.getCustomerName() : "Customer";
-                        activity.put("text", "Failed payment from " + customerName);
-                        activity.put("amount", invoice.getAmountDue() / 100.0);
-                        activity.put("time", formatTimeAgo(invoice.getCreated()));
-                        activity.put("timestamp", invoice.getCreated());
-                        activities.add(activity);
-                    }
-                } catch (Exception e) {
-                    logger.error("Error fetching Stripe data for recent activity: {}", e.getMessage(), e);
-                }
-
-            LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
-            List<UserBusiness> newMembers = userBusinessRepository.findByBusinessIdWithMemberships(businessId).stream()
-                    .filter(ub -> ub.getCreatedAt() != null && ub.getCreatedAt().isAfter(sevenDaysAgo))
-                    .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                    .limit(20)
-                    .collect(java.util.stream.Collectors.toList());
-
-            for (UserBusiness userBusiness : newMembers) {
-                Map<String, Object> activity = new HashMap<>();
-                activity.put("type", "NEW_MEMBER");
-                activity.put("icon", "UserPlus");
-                String memberName = userBusiness.getUser().getFirstName() + " " + userBusiness.getUser().getLastName();
-                activity.put("text", "New member " + memberName + " joined");
-                activity.put("time", formatTimeAgo(userBusiness.getCreatedAt().atZone(ZoneId.systemDefault()).toEpochSecond()));
-                activity.put("timestamp", userBusiness.getCreatedAt().atZone(ZoneId.systemDefault()).toEpochSecond());
-                activities.add(activity);
-            }
-
-            // Sort by timestamp (most recent first) and limit to 20
-            activities.sort((a, b) -> {
-                long timeA = (long) a.get("timestamp");
-                long timeB = (long) b.get("timestamp");
-                return Long.compare(timeB, timeA);
-            });
-
-            return ResponseEntity.ok(activities.stream().limit(20).collect(java.util.stream.Collectors.toList()));
 
+            return ResponseEntity.ok(getOverviewActivityInternal(businessId));
         } catch (Exception e) {
             logger.error("Error fetching overview activity for businessId={}: {}", businessId, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -2,6 +2,7 @@ package com.BossLiftingClub.BossLifting.Analytics;
 
 import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import com.BossLiftingClub.BossLifting.Stripe.StripeBulkFetcher;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusiness;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessRepository;
 import com.BossLiftingClub.BossLifting.User.User;
@@ -38,10 +39,14 @@ public class FailedPaymentDetailsEndpoint {
     @Autowired
     private final UserRepository userRepository;
 
-    public FailedPaymentDetailsEndpoint(BusinessRepository businessRepository, UserBusinessRepository userBusinessRepository, UserRepository userRepository) {
+    @Autowired
+    private final StripeBulkFetcher bulkFetcher;
+
+    public FailedPaymentDetailsEndpoint(BusinessRepository businessRepository, UserBusinessRepository userBusinessRepository, UserRepository userRepository, StripeBulkFetcher bulkFetcher) {
         this.businessRepository = businessRepository;
         this.userBusinessRepository = userBusinessRepository;
         this.userRepository = userRepository;
+        this.bulkFetcher = bulkFetcher;
     }
 
     /**
@@ -92,35 +97,27 @@ public class FailedPaymentDetailsEndpoint {
 
             List<FailedPaymentDetail> failedPayments = new ArrayList<>();
 
-            // Fetch OPEN invoices (failed/unpaid)
-            InvoiceListParams openParams = InvoiceListParams.builder()
-                    .setStatus(InvoiceListParams.Status.OPEN)
-                    .setLimit(100L)
-                    .build();
-
-            for (Invoice invoice : Invoice.list(openParams, requestOptions).autoPagingIterable()) {
-                if (start != null && invoice.getCreated() < startEpoch) continue;
-                if (invoice.getCreated() > endEpoch) continue;
-
-                FailedPaymentDetail detail = createFailedPaymentDetail(invoice, business.getId());
-                if (detail != null) {
-                    failedPayments.add(detail);
+            // OPEN (failed/unpaid) and UNCOLLECTIBLE invoices, date-filtered by Stripe and with the
+            // customer and charge expanded so no per-invoice lookups are needed
+            for (InvoiceListParams.Status status : List.of(InvoiceListParams.Status.OPEN, InvoiceListParams.Status.UNCOLLECTIBLE)) {
+                InvoiceListParams.Created.Builder created = InvoiceListParams.Created.builder().setLte(endEpoch);
+                if (start != null) {
+                    created.setGte(startEpoch);
                 }
-            }
-
-            // Fetch UNCOLLECTIBLE invoices
-            InvoiceListParams uncollectibleParams = InvoiceListParams.builder()
-                    .setStatus(InvoiceListParams.Status.UNCOLLECTIBLE)
-                    .setLimit(100L)
-                    .build();
-
-            for (Invoice invoice : Invoice.list(uncollectibleParams, requestOptions).autoPagingIterable()) {
-                if (start != null && invoice.getCreated() < startEpoch) continue;
-                if (invoice.getCreated() > endEpoch) continue;
-
-                FailedPaymentDetail detail = createFailedPaymentDetail(invoice, business.getId());
-                if (detail != null) {
-                    failedPayments.add(detail);
+                List<Invoice> invoices = bulkFetcher.listAll(cursor -> Invoice.list(InvoiceListParams.builder()
+                        .setStatus(status)
+                        .setCreated(created.build())
+                        .setLimit(100L)
+                        .addExpand("data.customer")
+                        .addExpand("data.charge")
+                        .setStartingAfter(cursor)
+                        .build(), requestOptions));
+
+                for (Invoice invoice : invoices) {
+                    FailedPaymentDetail detail = createFailedPaymentDetail(invoice, business.getId());
+                    if (detail != null) {
+                        failedPayments.add(detail);
+                    }
                 }
             }
 
@@ -158,13 +155,8 @@ public class FailedPaymentDetailsEndpoint {
 
             UserBusiness userBusiness = userBusinessOpt.get();
 
-            // Get customer details from Stripe
-            Customer customer = null;
-            try {
-                customer = Customer.retrieve(customerId);
-            } catch (Exception e) {
-                logger.warn("Could not retrieve customer details for: {}", customerId);
-            }
+            // Customer details come expanded on the invoice
+            Customer customer = invoice.getCustomerObject();
 
             // Calculate total amount from invoice line items
             double totalAmount = 0.0;
@@ -205,15 +197,9 @@ public class FailedPaymentDetailsEndpoint {
 
         // Check if payment was attempted
         if (invoice.getAttempted() != null && invoice.getAttempted()) {
-            if (invoice.getCharge() != null) {
-                try {
-                    com.stripe.model.Charge charge = com.stripe.model.Charge.retrieve(invoice.getCharge());
-                    if (charge.getFailureMessage() != null) {
-                        return charge.getFailureMessage();
-                    }
-                } catch (Exception e) {
-                    logger.debug("Could not retrieve charge details: {}", e.getMessage());
-                }
+            com.stripe.model.Charge charge = invoice.getChargeObject();
+            if (charge != null && charge.getFailureMessage() != null) {
+                return charge.getFailureMessage();
             }
             return "Payment failed - please update payment method";
         }
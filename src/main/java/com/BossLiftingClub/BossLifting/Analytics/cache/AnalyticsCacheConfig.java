@@ -0,0 +1,70 @@
+package com.BossLiftingClub.BossLifting.Analytics.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Registers one Caffeine cache per {@link AnalyticsCacheRegion}. Caches are async so concurrent misses on a
+ * key share a single in-flight computation, and expiry is read from each {@link AnalyticsCacheEntry} so
+ * keys in the same region can carry their own TTL. Entries are evicted once they are past their TTL plus
+ * the region's stale window.
+ */
+@Configuration
+@EnableCaching
+public class AnalyticsCacheConfig {
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAsyncCacheMode(true);
+        cacheManager.setAllowNullValues(false);
+        for (AnalyticsCacheRegion region : AnalyticsCacheRegion.values()) {
+            cacheManager.registerCustomCache(region.getCacheName(), Caffeine.newBuilder()
+                    .maximumSize(region.getMaximumSize())
+                    .expireAfter(new EntryTtlExpiry(region.getStaleWindow()))
+                    .recordStats()
+                    .buildAsync());
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Expires each entry at computedAt + ttl + staleWindow, regardless of when it was read.
+     */
+    private static class EntryTtlExpiry implements Expiry<Object, Object> {
+        private final Duration staleWindow;
+
+        EntryTtlExpiry(Duration staleWindow) {
+            this.staleWindow = staleWindow;
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return ttlNanos(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return ttlNanos(value);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long ttlNanos(Object value) {
+            if (value instanceof AnalyticsCacheEntry<?> entry) {
+                return entry.remainingTtl().plus(staleWindow).toNanos();
+            }
+            return AnalyticsCacheRegion.METRICS.getDefaultTtl().toNanos();
+        }
+    }
+}
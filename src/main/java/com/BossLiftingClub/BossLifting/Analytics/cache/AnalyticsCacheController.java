@@ -0,0 +1,26 @@
+package com.BossLiftingClub.BossLifting.Analytics.cache;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/analytics/cache")
+public class AnalyticsCacheController {
+
+    private final AnalyticsCacheService analyticsCacheService;
+
+    public AnalyticsCacheController(AnalyticsCacheService analyticsCacheService) {
+        this.analyticsCacheService = analyticsCacheService;
+    }
+
+    /**
+     * Hit/miss/load-time statistics for each analytics cache region
+     * GET /api/analytics/cache/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(analyticsCacheService.stats());
+    }
+}
@@ -0,0 +1,41 @@
+package com.BossLiftingClub.BossLifting.Analytics.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A cached analytics value together with when it was computed and how long it stays fresh.
+ */
+public final class AnalyticsCacheEntry<T> {
+
+    private final T value;
+    private final Instant computedAt;
+    private final Duration ttl;
+
+    public AnalyticsCacheEntry(T value, Instant computedAt, Duration ttl) {
+        this.value = value;
+        this.computedAt = computedAt;
+        this.ttl = ttl;
+    }
+
+    public T getValue() { return value; }
+    public Instant getComputedAt() { return computedAt; }
+    public Duration getTtl() { return ttl; }
+
+    public Duration getAge() {
+        Duration age = Duration.between(computedAt, Instant.now());
+        return age.isNegative() ? Duration.ZERO : age;
+    }
+
+    public boolean isFresh() {
+        return computedAt.plus(ttl).isAfter(Instant.now());
+    }
+
+    /**
+     * Time left before this entry expires, measured from now; never negative.
+     */
+    public Duration remainingTtl() {
+        Duration remaining = Duration.between(Instant.now(), computedAt.plus(ttl));
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+}
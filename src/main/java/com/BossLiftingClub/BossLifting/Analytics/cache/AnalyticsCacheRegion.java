@@ -0,0 +1,40 @@
+package com.BossLiftingClub.BossLifting.Analytics.cache;
+
+import java.time.Duration;
+
+/**
+ * Named caches behind the /api/analytics endpoints. Each region has a default TTL (individual keys may
+ * override it) and a maximum entry count; persistent regions are also written to the analytics_cache table
+ * so a restart or a second instance does not have to recompute them.
+ *
+ * Entries are kept for a further stale window after their TTL so stale-while-revalidate reads can still
+ * answer from them; plain reads treat anything past its TTL as a miss.
+ */
+public enum AnalyticsCacheRegion {
+    ANALYTICS("analytics", Duration.ofHours(12), Duration.ofDays(7), 200, true),
+    METRICS("analytics-metrics", Duration.ofMinutes(5), Duration.ofHours(1), 500, false),
+    OVERVIEW("analytics-overview", Duration.ofMinutes(5), Duration.ofHours(1), 200, false),
+    CHARTS("analytics-charts", Duration.ofMinutes(5), Duration.ZERO, 500, false),
+    BALANCE("analytics-balance", Duration.ofMinutes(1), Duration.ZERO, 100, false),
+    ACTIVITY("analytics-activity", Duration.ofMinutes(1), Duration.ZERO, 200, false);
+
+    private final String cacheName;
+    private final Duration defaultTtl;
+    private final Duration staleWindow;
+    private final long maximumSize;
+    private final boolean persistent;
+
+    AnalyticsCacheRegion(String cacheName, Duration defaultTtl, Duration staleWindow, long maximumSize, boolean persistent) {
+        this.cacheName = cacheName;
+        this.defaultTtl = defaultTtl;
+        this.staleWindow = staleWindow;
+        this.maximumSize = maximumSize;
+        this.persistent = persistent;
+    }
+
+    public String getCacheName() { return cacheName; }
+    public Duration getDefaultTtl() { return defaultTtl; }
+    public Duration getStaleWindow() { return staleWindow; }
+    public long getMaximumSize() { return maximumSize; }
+    public boolean isPersistent() { return persistent; }
+}
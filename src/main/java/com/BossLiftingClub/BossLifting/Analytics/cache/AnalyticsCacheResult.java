@@ -0,0 +1,56 @@
+package com.BossLiftingClub.BossLifting.Analytics.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A value served by a stale-while-revalidate read, with enough about its freshness to tell the client.
+ */
+public final class AnalyticsCacheResult<T> {
+
+    public static final String DATA_AGE_HEADER = "X-Data-Age";
+    public static final String DATA_STALE_HEADER = "X-Data-Stale";
+    public static final String REFRESH_EXPECTED_HEADER = "X-Data-Refresh-Expected";
+
+    private final T value;
+    private final Instant computedAt;
+    private final boolean stale;
+    private final Instant refreshExpectedAt;
+
+    AnalyticsCacheResult(T value, Instant computedAt, boolean stale, Instant refreshExpectedAt) {
+        this.value = value;
+        this.computedAt = computedAt;
+        this.stale = stale;
+        this.refreshExpectedAt = refreshExpectedAt;
+    }
+
+    public T getValue() { return value; }
+    public Instant getComputedAt() { return computedAt; }
+    public boolean isStale() { return stale; }
+
+    /** When the background refresh is expected to have finished, or null if none is running. */
+    public Instant getRefreshExpectedAt() { return refreshExpectedAt; }
+
+    public Duration getAge() {
+        Duration age = Duration.between(computedAt, Instant.now());
+        return age.isNegative() ? Duration.ZERO : age;
+    }
+
+    /**
+     * X-Data-Age (seconds) always; X-Data-Stale and X-Data-Refresh-Expected (ISO-8601) when a stale value
+     * was served and fresher data is on its way.
+     */
+    public HttpHeaders toHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(DATA_AGE_HEADER, String.valueOf(getAge().toSeconds()));
+        if (stale) {
+            headers.set(DATA_STALE_HEADER, "true");
+        }
+        if (refreshExpectedAt != null) {
+            headers.set(REFRESH_EXPECTED_HEADER, refreshExpectedAt.toString());
+        }
+        return headers;
+    }
+}
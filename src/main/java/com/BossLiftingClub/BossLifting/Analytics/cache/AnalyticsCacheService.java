@@ -0,0 +1,531 @@
+package com.BossLiftingClub.BossLifting.Analytics.cache;
+
+import com.BossLiftingClub.BossLifting.Analytics.AnalyticsCache;
+import com.BossLiftingClub.BossLifting.Analytics.AnalyticsCacheRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single entry point for caching analytics results.
+ *
+ * Values live in the Caffeine caches registered by {@link AnalyticsCacheConfig}. A miss installs an
+ * in-flight future before computing, so concurrent requests for the same key wait for that one computation
+ * instead of starting their own. The loader runs on the calling thread inside a transaction, so lazy
+ * associations behave as they did when the controller methods were @Transactional themselves.
+ *
+ * Plain reads only ever return fresh values: an entry past its TTL is recomputed before returning.
+ * Stale-while-revalidate reads return an entry that is past its TTL (but inside the region's stale window)
+ * straight away and recompute it on a background thread; at most one refresh per key runs at a time,
+ * whichever kind of read started it.
+ *
+ * Results that carry an "error" body or a non-2xx status are handed back to the callers but never stored.
+ * Persistent regions fall back to (and write through to) the analytics_cache table.
+ *
+ * {@link #warm(List)} recomputes a batch of keys in parallel on a bounded pool that only lives for the run.
+ */
+@Service
+public class AnalyticsCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsCacheService.class);
+
+    private static final Duration MIN_REFRESH_ESTIMATE = Duration.ofSeconds(1);
+
+    /** A key to precompute, with the TTL to store it under and the loader that produces it. */
+    public record WarmupTask(AnalyticsCacheRegion region, String key, Duration ttl, Callable<?> loader) {
+    }
+
+    private final CacheManager cacheManager;
+    private final AnalyticsCacheRepository analyticsCacheRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService refreshExecutor;
+    private final int warmupThreads;
+    private volatile Map<String, Object> lastWarmup = Map.of();
+    private final Map<String, RefreshTask> refreshes = new ConcurrentHashMap<>();
+    private final Map<AnalyticsCacheRegion, RegionCounters> counters = new EnumMap<>(AnalyticsCacheRegion.class);
+
+    public AnalyticsCacheService(CacheManager cacheManager, AnalyticsCacheRepository analyticsCacheRepository,
+                                 ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                 @Value("${analytics.cache.refresh-threads:2}") int refreshThreads,
+                                 @Value("${analytics.cache.warmup-threads:4}") int warmupThreads) {
+        this.cacheManager = cacheManager;
+        this.analyticsCacheRepository = analyticsCacheRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.warmupThreads = Math.max(1, warmupThreads);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(Math.max(1, refreshThreads), runnable -> {
+            Thread thread = new Thread(runnable, "analytics-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (AnalyticsCacheRegion region : AnalyticsCacheRegion.values()) {
+            counters.put(region, new RegionCounters());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Cached value for key, computing it with loader on a miss. Uses the region's default TTL.
+     */
+    public <T> T get(AnalyticsCacheRegion region, String key, Callable<T> loader) {
+        return get(region, key, region.getDefaultTtl(), loader);
+    }
+
+    /**
+     * Cached value for key, computing it with loader on a miss and keeping it for ttl.
+     */
+    public <T> T get(AnalyticsCacheRegion region, String key, Duration ttl, Callable<T> loader) {
+        EntryLoader<T> load = () -> compute(loader, ttl);
+        return readFresh(region, key, load);
+    }
+
+    /**
+     * Like {@link #get(AnalyticsCacheRegion, String, Duration, Callable)}, but on an in-memory miss the
+     * analytics_cache row for key is used if it is younger than ttl, and fresh results are written back to it.
+     */
+    public <T> T getPersistent(AnalyticsCacheRegion region, String key, Duration ttl, Class<T> type, Callable<T> loader) {
+        EntryLoader<T> load = () -> loadPersistent(region, key, ttl, type, loader, false);
+        return readFresh(region, key, load);
+    }
+
+    /**
+     * Cached value for key, stale or not. A stale value is returned immediately and a background refresh is
+     * started (unless one is already running); only a complete miss blocks on the loader.
+     */
+    public <T> AnalyticsCacheResult<T> getStaleWhileRevalidate(AnalyticsCacheRegion region, String key, Duration ttl,
+                                                              Callable<T> loader) {
+        EntryLoader<T> load = () -> compute(loader, ttl);
+        return readStaleWhileRevalidate(region, key, load, load);
+    }
+
+    /**
+     * Stale-while-revalidate read for a persistent region. After a restart a stale analytics_cache row is
+     * served (and refreshed in the background) rather than recomputed on the request thread.
+     */
+    public <T> AnalyticsCacheResult<T> getPersistentStaleWhileRevalidate(AnalyticsCacheRegion region, String key,
+                                                                        Duration ttl, Class<T> type, Callable<T> loader) {
+        return readStaleWhileRevalidate(region, key,
+                () -> loadPersistent(region, key, ttl, type, loader, true),
+                () -> loadPersistent(region, key, ttl, type, loader, false));
+    }
+
+    /**
+     * Replace the cached value for key (and its analytics_cache row for persistent regions).
+     */
+    public <T> void put(AnalyticsCacheRegion region, String key, Duration ttl, T value) {
+        AnalyticsCacheEntry<T> entry = new AnalyticsCacheEntry<>(value, Instant.now(), ttl);
+        asyncCache(region).put(key, CompletableFuture.completedFuture(entry));
+        if (region.isPersistent()) {
+            writeThrough(key, entry);
+        }
+    }
+
+    /**
+     * Recompute every task's key in parallel (at most analytics.cache.warmup-threads at once) and store the
+     * results, replacing whatever is cached. A key that is already being refreshed is not computed twice.
+     * Failures are logged and reported but do not stop the other keys.
+     * @return timing report for the run, also kept for {@link #stats()}
+     */
+    public Map<String, Object> warm(List<WarmupTask> tasks) {
+        Instant startedAt = Instant.now();
+        long runStart = System.nanoTime();
+        List<Map<String, Object>> keyReports = new ArrayList<>();
+        int failed = 0;
+
+        if (!tasks.isEmpty()) {
+            AtomicInteger threadCount = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(warmupThreads, tasks.size()), runnable -> {
+                Thread thread = new Thread(runnable, "analytics-warmup-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<Map<String, Object>>> futures = new ArrayList<>();
+                for (WarmupTask task : tasks) {
+                    futures.add(pool.submit(() -> warmOne(task)));
+                }
+                for (Future<Map<String, Object>> future : futures) {
+                    Map<String, Object> keyReport = future.get();
+                    if (!"ok".equals(keyReport.get("status"))) {
+                        failed++;
+                    }
+                    keyReports.add(keyReport);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Analytics warmup interrupted after {} of {} keys", keyReports.size(), tasks.size());
+            } catch (ExecutionException e) {
+                logger.error("Analytics warmup failed: {}", e.getMessage(), e);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        long totalMillis = (System.nanoTime() - runStart) / 1_000_000;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", startedAt.toString());
+        report.put("durationMillis", totalMillis);
+        report.put("keys", tasks.size());
+        report.put("failed", failed);
+        report.put("timings", keyReports);
+        lastWarmup = report;
+        logger.info("Analytics warmup finished: {} keys, {} failed, {} ms", tasks.size(), failed, totalMillis);
+        return report;
+    }
+
+    /**
+     * Hit/miss/load statistics per region.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (AnalyticsCacheRegion region : AnalyticsCacheRegion.values()) {
+            AsyncCache<Object, Object> cache = asyncCache(region);
+            CacheStats stats = cache.synchronous().stats();
+            RegionCounters regionCounters = counters.get(region);
+
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("size", cache.synchronous().estimatedSize());
+            regionStats.put("maximumSize", region.getMaximumSize());
+            regionStats.put("defaultTtlSeconds", region.getDefaultTtl().toSeconds());
+            regionStats.put("staleWindowSeconds", region.getStaleWindow().toSeconds());
+            regionStats.put("hits", stats.hitCount());
+            regionStats.put("misses", stats.missCount());
+            regionStats.put("hitRate", stats.hitRate());
+            regionStats.put("coalescedWaits", regionCounters.coalesced.sum());
+            regionStats.put("loadSuccesses", stats.loadSuccessCount());
+            regionStats.put("loadFailures", stats.loadFailureCount());
+            regionStats.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+            regionStats.put("totalLoadMillis", stats.totalLoadTime() / 1_000_000);
+            regionStats.put("staleServed", regionCounters.staleServed.sum());
+            regionStats.put("refreshes", regionCounters.refreshes.sum());
+            regionStats.put("refreshFailures", regionCounters.refreshFailures.sum());
+            regionStats.put("averageRefreshMillis", averageRefresh(regionCounters).toMillis());
+            regionStats.put("uncacheableResults", regionCounters.uncacheable.sum());
+            regionStats.put("evictions", stats.evictionCount());
+            if (region.isPersistent()) {
+                regionStats.put("storeHits", regionCounters.storeHits.sum());
+                regionStats.put("storeMisses", regionCounters.storeMisses.sum());
+            }
+            result.put(region.getCacheName(), regionStats);
+        }
+        result.put("refreshesInFlight", refreshes.size());
+        result.put("lastWarmup", lastWarmup);
+        return result;
+    }
+
+    private Map<String, Object> warmOne(WarmupTask task) {
+        long start = System.nanoTime();
+        String status = "ok";
+        try {
+            warmKey(task.region(), task.key(), task.ttl(), task.loader());
+        } catch (Exception e) {
+            status = "failed: " + e.getMessage();
+            logger.warn("Warmup failed for {} key={}: {}", task.region().getCacheName(), task.key(), e.getMessage());
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Warmed {} key={} in {} ms", task.region().getCacheName(), task.key(), millis);
+
+        Map<String, Object> keyReport = new LinkedHashMap<>();
+        keyReport.put("region", task.region().getCacheName());
+        keyReport.put("key", task.key());
+        keyReport.put("millis", millis);
+        keyReport.put("status", status);
+        return keyReport;
+    }
+
+    private <T> void warmKey(AnalyticsCacheRegion region, String key, Duration ttl, Callable<T> loader) {
+        reload(region, key, () -> {
+            // Always recompute; a persistent region's row is overwritten rather than consulted
+            AnalyticsCacheEntry<T> entry = compute(loader, ttl);
+            if (region.isPersistent() && isCacheable(entry.getValue())) {
+                writeThrough(key, entry);
+            }
+            return entry;
+        });
+    }
+
+    private <T> T readFresh(AnalyticsCacheRegion region, String key, EntryLoader<T> load) {
+        Lookup<T> lookup = getEntry(region, key, load);
+        if (lookup.loadedHere() || lookup.entry().isFresh()) {
+            return lookup.entry().getValue();
+        }
+        return reload(region, key, load).getValue();
+    }
+
+    private <T> AnalyticsCacheResult<T> readStaleWhileRevalidate(AnalyticsCacheRegion region, String key,
+                                                                EntryLoader<T> initialLoad, EntryLoader<T> refreshLoad) {
+        AnalyticsCacheEntry<T> entry = getEntry(region, key, initialLoad).entry();
+        if (entry.isFresh()) {
+            return new AnalyticsCacheResult<>(entry.getValue(), entry.getComputedAt(), false, null);
+        }
+        counters.get(region).staleServed.increment();
+        Instant refreshExpectedAt = refreshInBackground(region, key, refreshLoad);
+        return new AnalyticsCacheResult<>(entry.getValue(), entry.getComputedAt(), true, refreshExpectedAt);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Lookup<T> getEntry(AnalyticsCacheRegion region, String key, EntryLoader<T> entryLoader) {
+        AsyncCache<Object, Object> cache = asyncCache(region);
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        CompletableFuture<Object> future = cache.get(key, (k, executor) -> pending);
+
+        if (future != pending) {
+            if (!future.isDone()) {
+                counters.get(region).coalesced.increment();
+            }
+            return new Lookup<>((AnalyticsCacheEntry<T>) join(future), false);
+        }
+
+        try {
+            AnalyticsCacheEntry<T> entry = entryLoader.load();
+            if (!isCacheable(entry.getValue())) {
+                // Hand the result to anyone already waiting, but drop it from the cache first
+                counters.get(region).uncacheable.increment();
+                cache.asMap().remove(key, pending);
+            }
+            pending.complete(entry);
+            return new Lookup<>(entry, true);
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Recompute key on the calling thread, or wait for the refresh that is already running.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> AnalyticsCacheEntry<T> reload(AnalyticsCacheRegion region, String key, EntryLoader<T> loader) {
+        String refreshKey = refreshKey(region, key);
+        RefreshTask task = new RefreshTask();
+        RefreshTask running = refreshes.putIfAbsent(refreshKey, task);
+        if (running != null) {
+            counters.get(region).coalesced.increment();
+            return (AnalyticsCacheEntry<T>) join(running.future);
+        }
+        return runRefresh(region, key, loader, refreshKey, task);
+    }
+
+    /**
+     * Start a background refresh of key unless one is already running.
+     * @return when fresher data is expected, or null if the refresh could not be scheduled
+     */
+    private <T> Instant refreshInBackground(AnalyticsCacheRegion region, String key, EntryLoader<T> loader) {
+        String refreshKey = refreshKey(region, key);
+        RefreshTask task = new RefreshTask();
+        RefreshTask running = refreshes.putIfAbsent(refreshKey, task);
+        if (running != null) {
+            return running.startedAt.plus(estimatedRefreshTime(region));
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    runRefresh(region, key, loader, refreshKey, task);
+                } catch (Exception e) {
+                    logger.warn("Background refresh failed for {} key={}: {}", region.getCacheName(), key, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshes.remove(refreshKey, task);
+            task.future.completeExceptionally(e);
+            return null;
+        }
+        return task.startedAt.plus(estimatedRefreshTime(region));
+    }
+
+    private <T> AnalyticsCacheEntry<T> runRefresh(AnalyticsCacheRegion region, String key, EntryLoader<T> loader,
+                                                  String refreshKey, RefreshTask task) {
+        RegionCounters regionCounters = counters.get(region);
+        long startNanos = System.nanoTime();
+        try {
+            AnalyticsCacheEntry<T> entry = loader.load();
+            if (isCacheable(entry.getValue())) {
+                asyncCache(region).put(key, CompletableFuture.completedFuture(entry));
+            } else {
+                regionCounters.uncacheable.increment();
+            }
+            regionCounters.refreshes.increment();
+            regionCounters.refreshNanos.add(System.nanoTime() - startNanos);
+            task.future.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            regionCounters.refreshFailures.increment();
+            task.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshes.remove(refreshKey, task);
+        }
+    }
+
+    private Duration estimatedRefreshTime(AnalyticsCacheRegion region) {
+        RegionCounters regionCounters = counters.get(region);
+        Duration estimate = regionCounters.refreshes.sum() > 0
+                ? averageRefresh(regionCounters)
+                : Duration.ofNanos((long) asyncCache(region).synchronous().stats().averageLoadPenalty());
+        return estimate.compareTo(MIN_REFRESH_ESTIMATE) < 0 ? MIN_REFRESH_ESTIMATE : estimate;
+    }
+
+    private Duration averageRefresh(RegionCounters regionCounters) {
+        long count = regionCounters.refreshes.sum();
+        return count > 0 ? Duration.ofNanos(regionCounters.refreshNanos.sum() / count) : Duration.ZERO;
+    }
+
+    private <T> AnalyticsCacheEntry<T> compute(Callable<T> loader, Duration ttl) {
+        Instant startedAt = Instant.now();
+        T value = transactionTemplate.execute(status -> {
+            try {
+                return loader.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        });
+        return new AnalyticsCacheEntry<>(value, startedAt, ttl);
+    }
+
+    /**
+     * Load key from its analytics_cache row if that is fresh (or, with allowStale, still inside the stale
+     * window), otherwise compute it and write the result back.
+     */
+    private <T> AnalyticsCacheEntry<T> loadPersistent(AnalyticsCacheRegion region, String key, Duration ttl,
+                                                      Class<T> type, Callable<T> loader, boolean allowStale) {
+        RegionCounters regionCounters = counters.get(region);
+        try {
+            AnalyticsCache row = analyticsCacheRepository.findById(key).orElse(null);
+            if (row != null && row.getLastUpdated() != null && row.getAnalyticsData() != null) {
+                Instant computedAt = row.getLastUpdated().atZone(ZoneId.systemDefault()).toInstant();
+                Duration usableFor = allowStale ? ttl.plus(region.getStaleWindow()) : ttl;
+                if (computedAt.plus(usableFor).isAfter(Instant.now())) {
+                    T value = objectMapper.readValue(row.getAnalyticsData(), type);
+                    regionCounters.storeHits.increment();
+                    logger.debug("Loaded analytics cache key={} from analytics_cache", key);
+                    return new AnalyticsCacheEntry<>(value, computedAt, ttl);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read analytics_cache row for key={}: {}", key, e.getMessage());
+        }
+        regionCounters.storeMisses.increment();
+
+        AnalyticsCacheEntry<T> entry = compute(loader, ttl);
+        if (isCacheable(entry.getValue())) {
+            writeThrough(key, entry);
+        }
+        return entry;
+    }
+
+    private void writeThrough(String key, AnalyticsCacheEntry<?> entry) {
+        try {
+            AnalyticsCache row = analyticsCacheRepository.findById(key).orElse(new AnalyticsCache());
+            row.setCacheKey(key);
+            row.setAnalyticsData(objectMapper.writeValueAsString(entry.getValue()));
+            row.setLastUpdated(LocalDateTime.ofInstant(entry.getComputedAt(), ZoneId.systemDefault()));
+            analyticsCacheRepository.save(row);
+        } catch (Exception e) {
+            logger.warn("Could not write analytics_cache row for key={}: {}", key, e.getMessage());
+        }
+    }
+
+    private AsyncCache<Object, Object> asyncCache(AnalyticsCacheRegion region) {
+        CaffeineCache cache = (CaffeineCache) cacheManager.getCache(region.getCacheName());
+        if (cache == null) {
+            throw new IllegalStateException("Analytics cache not registered: " + region.getCacheName());
+        }
+        return cache.getAsyncCache();
+    }
+
+    private static String refreshKey(AnalyticsCacheRegion region, String key) {
+        return region.getCacheName() + ":" + key;
+    }
+
+    /**
+     * Error maps and non-2xx responses are returned to the caller but never cached.
+     */
+    static boolean isCacheable(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof ResponseEntity<?> response) {
+            return response.getStatusCode().is2xxSuccessful()
+                    && (response.getBody() == null || isCacheable(response.getBody()));
+        }
+        if (value instanceof Map<?, ?> map) {
+            return !map.containsKey("error");
+        }
+        return true;
+    }
+
+    private static Object join(CompletableFuture<?> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause != null ? cause.getMessage() : "Analytics computation failed", cause);
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryLoader<T> {
+        AnalyticsCacheEntry<T> load();
+    }
+
+    private record Lookup<T>(AnalyticsCacheEntry<T> entry, boolean loadedHere) {
+    }
+
+    private static class RefreshTask {
+        final CompletableFuture<AnalyticsCacheEntry<?>> future = new CompletableFuture<>();
+        final Instant startedAt = Instant.now();
+    }
+
+    private static class RegionCounters {
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder uncacheable = new LongAdder();
+        final LongAdder storeHits = new LongAdder();
+        final LongAdder storeMisses = new LongAdder();
+        final LongAdder staleServed = new LongAdder();
+        final LongAdder refreshes = new LongAdder();
+        final LongAdder refreshFailures = new LongAdder();
+        final LongAdder refreshNanos = new LongAdder();
+    }
+}
@@ -0,0 +1,17 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+/**
+ * Published whenever a ledger row is written. {@code epochSecond} is the earliest point in time
+ * whose aggregates the write can change, so listeners can recompute from that day forward.
+ */
+public class LedgerChangedEvent {
+    private final long epochSecond;
+
+    public LedgerChangedEvent(long epochSecond) {
+        this.epochSecond = epochSecond;
+    }
+
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+}
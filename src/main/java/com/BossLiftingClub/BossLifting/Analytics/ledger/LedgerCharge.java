@@ -0,0 +1,67 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Local copy of a Stripe charge. Amounts are stored in cents and {@code created}
+ * is the Stripe epoch-second timestamp so range filters match the Stripe API.
+ */
+@Entity
+@Table(name = "stripe_ledger_charges", indexes = {
+        @Index(name = "idx_ledger_charges_created", columnList = "created"),
+        @Index(name = "idx_ledger_charges_customer", columnList = "customer_id"),
+        @Index(name = "idx_ledger_charges_invoice", columnList = "invoice_id")
+})
+@Data
+@NoArgsConstructor
+public class LedgerCharge {
+    @Id
+    @Column(name = "id", length = 255)
+    private String id;
+
+    @Column(name = "customer_id")
+    private String customerId;
+
+    @Column(name = "invoice_id")
+    private String invoiceId;
+
+    @Column(name = "amount", nullable = false)
+    private Long amount;
+
+    @Column(name = "amount_refunded")
+    private Long amountRefunded;
+
+    @Column(name = "currency", length = 10)
+    private String currency;
+
+    @Column(name = "status", length = 50)
+    private String status; // succeeded, pending, failed
+
+    @Column(name = "paid", nullable = false)
+    private Boolean paid;
+
+    @Column(name = "refunded", nullable = false)
+    private Boolean refunded;
+
+    @Column(name = "billing_name")
+    private String billingName;
+
+    @Column(name = "created", nullable = false)
+    private Long created;
+
+    @Column(name = "stripe_account_id")
+    private String stripeAccountId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
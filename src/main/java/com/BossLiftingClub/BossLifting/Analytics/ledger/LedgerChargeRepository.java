@@ -0,0 +1,49 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LedgerChargeRepository extends JpaRepository<LedgerCharge, String> {
+
+    /**
+     * Net revenue in cents: paid charges that have not been fully refunded, created in [start, end].
+     */
+    @Query("SELECT COALESCE(SUM(c.amount), 0) FROM LedgerCharge c " +
+           "WHERE c.paid = true AND c.refunded = false AND c.created >= :start AND c.created <= :end")
+    Long sumNetRevenue(@Param("start") long start, @Param("end") long end);
+
+    /**
+     * (created, amount) pairs for net-revenue charges in range made by a business's members, oldest first.
+     * Used for hourly chart bucketing.
+     */
+    @Query("SELECT c.created, c.amount FROM LedgerCharge c, UserBusiness ub " +
+           "WHERE ub.stripeId = c.customerId AND ub.business.id = :businessId " +
+           "AND c.paid = true AND c.refunded = false AND c.created >= :start AND c.created <= :end " +
+           "ORDER BY c.created")
+    List<Object[]> findNetRevenuePointsForBusiness(@Param("businessId") Long businessId,
+                                                   @Param("start") long start, @Param("end") long end);
+
+    /**
+     * Most recent successful charges since the given time, newest first.
+     */
+    @Query("SELECT c FROM LedgerCharge c WHERE c.paid = true AND c.status = 'succeeded' AND c.created >= :since " +
+           "ORDER BY c.created DESC")
+    List<LedgerCharge> findRecentSucceeded(@Param("since") long since, Pageable pageable);
+
+    /**
+     * Charges in [start, end] with a customer, as [customerId, amount, status, paid, created].
+     * Used by the daily metrics rollup.
+     */
+    @Query("SELECT c.customerId, c.amount, c.status, c.paid, c.created FROM LedgerCharge c " +
+           "WHERE c.customerId IS NOT NULL AND c.created >= :start AND c.created <= :end")
+    List<Object[]> findRollupRows(@Param("start") long start, @Param("end") long end);
+
+    @Query("SELECT MIN(c.created) FROM LedgerCharge c")
+    Long findEarliestCreated();
+}
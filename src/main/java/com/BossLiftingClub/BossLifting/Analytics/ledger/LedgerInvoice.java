@@ -0,0 +1,60 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Local copy of a Stripe invoice header. Line items live in {@link LedgerInvoiceLine}.
+ */
+@Entity
+@Table(name = "stripe_ledger_invoices", indexes = {
+        @Index(name = "idx_ledger_invoices_status_created", columnList = "status, created"),
+        @Index(name = "idx_ledger_invoices_customer", columnList = "customer_id"),
+        @Index(name = "idx_ledger_invoices_charge", columnList = "charge_id")
+})
+@Data
+@NoArgsConstructor
+public class LedgerInvoice {
+    @Id
+    @Column(name = "id", length = 255)
+    private String id;
+
+    @Column(name = "customer_id")
+    private String customerId;
+
+    @Column(name = "customer_name")
+    private String customerName;
+
+    @Column(name = "subscription_id")
+    private String subscriptionId;
+
+    @Column(name = "charge_id")
+    private String chargeId;
+
+    @Column(name = "status", length = 50)
+    private String status; // draft, open, paid, uncollectible, void
+
+    @Column(name = "amount_due")
+    private Long amountDue;
+
+    @Column(name = "amount_paid")
+    private Long amountPaid;
+
+    @Column(name = "created", nullable = false)
+    private Long created;
+
+    @Column(name = "stripe_account_id")
+    private String stripeAccountId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,30 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "stripe_ledger_invoice_lines", indexes = {
+        @Index(name = "idx_ledger_invoice_lines_invoice", columnList = "invoice_id"),
+        @Index(name = "idx_ledger_invoice_lines_price", columnList = "price_id")
+})
+@Data
+@NoArgsConstructor
+public class LedgerInvoiceLine {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "invoice_id", nullable = false)
+    private String invoiceId;
+
+    @Column(name = "stripe_line_id")
+    private String stripeLineId;
+
+    @Column(name = "price_id")
+    private String priceId;
+
+    @Column(name = "amount", nullable = false)
+    private Long amount;
+}
@@ -0,0 +1,49 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerInvoiceLineRepository extends JpaRepository<LedgerInvoiceLine, Long> {
+
+    /**
+     * Line totals (cents) of members' paid invoices created in [start, end], grouped as [priceId, sum].
+     * Invoices whose charge has a refund are left out.
+     */
+    @Query("SELECT l.priceId, SUM(l.amount) FROM LedgerInvoiceLine l, LedgerInvoice i " +
+           "WHERE l.invoiceId = i.id AND i.status = 'paid' AND i.created >= :start AND i.created <= :end " +
+           "AND i.customerId IN (SELECT u.userStripeMemberId FROM User u) " +
+           "AND NOT EXISTS (SELECT r.id FROM LedgerRefund r WHERE r.chargeId = i.chargeId) " +
+           "GROUP BY l.priceId")
+    List<Object[]> sumPaidByPrice(@Param("start") long start, @Param("end") long end);
+
+    /**
+     * Distinct members with a paid, unrefunded invoice line on one of the given prices.
+     */
+    @Query("SELECT COUNT(DISTINCT i.customerId) FROM LedgerInvoiceLine l, LedgerInvoice i " +
+           "WHERE l.invoiceId = i.id AND i.status = 'paid' AND l.priceId IN :priceIds " +
+           "AND i.customerId IN (SELECT u.userStripeMemberId FROM User u) " +
+           "AND NOT EXISTS (SELECT r.id FROM LedgerRefund r WHERE r.chargeId = i.chargeId)")
+    long countPaidCustomers(@Param("priceIds") Collection<String> priceIds);
+
+    /**
+     * Lines of members' invoices in the given statuses created in [start, end], grouped as [priceId, count, sum].
+     */
+    @Query("SELECT l.priceId, COUNT(l), SUM(l.amount) FROM LedgerInvoiceLine l, LedgerInvoice i " +
+           "WHERE l.invoiceId = i.id AND i.status IN :statuses AND i.created >= :start AND i.created <= :end " +
+           "AND i.customerId IN (SELECT u.userStripeMemberId FROM User u) " +
+           "GROUP BY l.priceId")
+    List<Object[]> summarizeByPrice(@Param("statuses") Collection<String> statuses,
+                                    @Param("start") long start,
+                                    @Param("end") long end);
+
+    @Modifying
+    @Query("DELETE FROM LedgerInvoiceLine l WHERE l.invoiceId = :invoiceId")
+    void deleteByInvoiceId(@Param("invoiceId") String invoiceId);
+}
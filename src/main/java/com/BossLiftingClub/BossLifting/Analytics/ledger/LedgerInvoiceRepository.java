@@ -0,0 +1,32 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerInvoiceRepository extends JpaRepository<LedgerInvoice, String> {
+
+    /**
+     * Count and total amount due (cents) of invoices in the given statuses created in [start, end].
+     * Returns a single row: [count, sum].
+     */
+    @Query("SELECT COUNT(i), COALESCE(SUM(i.amountDue), 0) FROM LedgerInvoice i " +
+           "WHERE i.status IN :statuses AND i.created >= :start AND i.created <= :end")
+    List<Object[]> summarizeByStatus(@Param("statuses") Collection<String> statuses,
+                                     @Param("start") long start,
+                                     @Param("end") long end);
+
+    /**
+     * Most recent invoices in the given statuses since the given time, newest first.
+     */
+    @Query("SELECT i FROM LedgerInvoice i WHERE i.status IN :statuses AND i.created >= :since ORDER BY i.created DESC")
+    List<LedgerInvoice> findRecentByStatus(@Param("statuses") Collection<String> statuses,
+                                           @Param("since") long since,
+                                           Pageable pageable);
+}
@@ -0,0 +1,51 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stripe_ledger_refunds", indexes = {
+        @Index(name = "idx_ledger_refunds_created", columnList = "created"),
+        @Index(name = "idx_ledger_refunds_charge", columnList = "charge_id"),
+        @Index(name = "idx_ledger_refunds_customer", columnList = "customer_id")
+})
+@Data
+@NoArgsConstructor
+public class LedgerRefund {
+    @Id
+    @Column(name = "id", length = 255)
+    private String id;
+
+    @Column(name = "charge_id")
+    private String chargeId;
+
+    @Column(name = "customer_id")
+    private String customerId; // Copied from the charge so refunds can be filtered without a Stripe lookup
+
+    @Column(name = "amount", nullable = false)
+    private Long amount;
+
+    @Column(name = "status", length = 50)
+    private String status;
+
+    @Column(name = "reason", length = 100)
+    private String reason;
+
+    @Column(name = "created", nullable = false)
+    private Long created;
+
+    @Column(name = "stripe_account_id")
+    private String stripeAccountId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
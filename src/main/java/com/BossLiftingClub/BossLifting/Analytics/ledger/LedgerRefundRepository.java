@@ -0,0 +1,34 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LedgerRefundRepository extends JpaRepository<LedgerRefund, String> {
+
+    /**
+     * Count and total refunded amount (cents) for refunds created in [start, end].
+     * Returns a single row: [count, sum].
+     */
+    @Query("SELECT COUNT(r), COALESCE(SUM(r.amount), 0) FROM LedgerRefund r WHERE r.created >= :start AND r.created <= :end")
+    List<Object[]> summarize(@Param("start") long start, @Param("end") long end);
+
+    @Query("SELECT r FROM LedgerRefund r WHERE r.created >= :start AND r.created <= :end ORDER BY r.created DESC")
+    List<LedgerRefund> findByCreatedBetween(@Param("start") long start, @Param("end") long end);
+
+    /**
+     * Members' refunds created in [start, end] against a paid invoice, grouped by the invoice's line prices as
+     * [priceId, count, sum]. Each line of the refunded invoice counts the whole refund amount.
+     */
+    @Query("SELECT l.priceId, COUNT(l), SUM(r.amount) FROM LedgerRefund r, LedgerInvoice i, LedgerInvoiceLine l " +
+           "WHERE i.chargeId = r.chargeId AND l.invoiceId = i.id AND i.status = 'paid' " +
+           "AND r.created >= :start AND r.created <= :end " +
+           "AND r.customerId IN (SELECT u.userStripeMemberId FROM User u) " +
+           "AND i.customerId IN (SELECT u.userStripeMemberId FROM User u) " +
+           "GROUP BY l.priceId")
+    List<Object[]> summarizeByPrice(@Param("start") long start, @Param("end") long end);
+}
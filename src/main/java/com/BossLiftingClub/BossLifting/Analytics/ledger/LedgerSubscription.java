@@ -0,0 +1,61 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Local copy of a Stripe subscription. Items (price, interval, amount) live in
+ * {@link LedgerSubscriptionItem}.
+ */
+@Entity
+@Table(name = "stripe_ledger_subscriptions", indexes = {
+        @Index(name = "idx_ledger_subscriptions_customer", columnList = "customer_id"),
+        @Index(name = "idx_ledger_subscriptions_status", columnList = "status"),
+        @Index(name = "idx_ledger_subscriptions_created", columnList = "created")
+})
+@Data
+@NoArgsConstructor
+public class LedgerSubscription {
+    @Id
+    @Column(name = "id", length = 255)
+    private String id;
+
+    @Column(name = "customer_id")
+    private String customerId;
+
+    @Column(name = "status", length = 50)
+    private String status;
+
+    @Column(name = "created", nullable = false)
+    private Long created;
+
+    @Column(name = "start_date")
+    private Long startDate;
+
+    @Column(name = "canceled_at")
+    private Long canceledAt;
+
+    @Column(name = "current_period_start")
+    private Long currentPeriodStart;
+
+    @Column(name = "current_period_end")
+    private Long currentPeriodEnd;
+
+    @Column(name = "cancel_at_period_end")
+    private Boolean cancelAtPeriodEnd;
+
+    @Column(name = "stripe_account_id")
+    private String stripeAccountId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
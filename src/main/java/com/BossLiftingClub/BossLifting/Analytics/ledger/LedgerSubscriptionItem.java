@@ -0,0 +1,39 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "stripe_ledger_subscription_items", indexes = {
+        @Index(name = "idx_ledger_subscription_items_subscription", columnList = "subscription_id"),
+        @Index(name = "idx_ledger_subscription_items_price", columnList = "price_id")
+})
+@Data
+@NoArgsConstructor
+public class LedgerSubscriptionItem {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "subscription_id", nullable = false)
+    private String subscriptionId;
+
+    @Column(name = "stripe_item_id")
+    private String stripeItemId;
+
+    @Column(name = "price_id")
+    private String priceId;
+
+    @Column(name = "unit_amount")
+    private Long unitAmount;
+
+    @Column(name = "recurring_interval", length = 20)
+    private String recurringInterval; // day, week, month, year
+
+    @Column(name = "recurring_interval_count")
+    private Long recurringIntervalCount;
+
+    @Column(name = "quantity")
+    private Long quantity;
+}
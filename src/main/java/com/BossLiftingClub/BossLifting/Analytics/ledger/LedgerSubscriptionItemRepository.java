@@ -0,0 +1,52 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerSubscriptionItemRepository extends JpaRepository<LedgerSubscriptionItem, Long> {
+
+    /**
+     * Monthly subscription items as [subscriptionId, unitAmount]. Used by the daily metrics rollup.
+     */
+    @Query("SELECT i.subscriptionId, i.unitAmount FROM LedgerSubscriptionItem i " +
+           "WHERE i.recurringInterval = 'month' AND i.unitAmount IS NOT NULL")
+    List<Object[]> findMonthlyUnitAmounts();
+
+    @Query("SELECT DISTINCT i.priceId FROM LedgerSubscriptionItem i WHERE i.priceId IS NOT NULL")
+    List<String> findDistinctPriceIds();
+
+    /**
+     * Unit amounts (cents) of items on the given prices, on members' subscriptions active at the given time,
+     * grouped as [recurringInterval, sum].
+     */
+    @Query("SELECT i.recurringInterval, SUM(i.unitAmount) FROM LedgerSubscriptionItem i, LedgerSubscription s " +
+           "WHERE s.id = i.subscriptionId AND i.priceId IN :priceIds AND i.unitAmount IS NOT NULL " +
+           "AND s.customerId IN (SELECT u.userStripeMemberId FROM User u) " +
+           "AND COALESCE(s.startDate, s.created) <= :at AND (s.canceledAt IS NULL OR s.canceledAt > :at) " +
+           "GROUP BY i.recurringInterval")
+    List<Object[]> sumActiveUnitAmountsByInterval(@Param("priceIds") Collection<String> priceIds,
+                                                  @Param("at") long at);
+
+    /**
+     * Unit amounts (cents) of items on the given prices, on members' active subscriptions whose current period
+     * ends in (after, until].
+     */
+    @Query("SELECT COALESCE(SUM(i.unitAmount), 0) FROM LedgerSubscriptionItem i, LedgerSubscription s " +
+           "WHERE s.id = i.subscriptionId AND i.priceId IN :priceIds AND s.status = 'active' " +
+           "AND s.customerId IN (SELECT u.userStripeMemberId FROM User u) " +
+           "AND s.currentPeriodEnd > :after AND s.currentPeriodEnd <= :until")
+    Long sumRenewingUnitAmounts(@Param("priceIds") Collection<String> priceIds,
+                                @Param("after") long after,
+                                @Param("until") long until);
+
+    @Modifying
+    @Query("DELETE FROM LedgerSubscriptionItem i WHERE i.subscriptionId = :subscriptionId")
+    void deleteBySubscriptionId(@Param("subscriptionId") String subscriptionId);
+}
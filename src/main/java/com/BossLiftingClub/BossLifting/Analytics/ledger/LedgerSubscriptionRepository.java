@@ -0,0 +1,33 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerSubscriptionRepository extends JpaRepository<LedgerSubscription, String> {
+
+    List<LedgerSubscription> findByCustomerIdIsNotNull();
+
+    /**
+     * Members' subscriptions with an item on one of the given prices, counted for [start, end].
+     * Returns a single row: [activeAtStart, canceled, started, activeAtEnd].
+     */
+    @Query("SELECT " +
+           "SUM(CASE WHEN COALESCE(s.startDate, s.created) <= :start AND (s.canceledAt IS NULL OR s.canceledAt > :start) THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN s.canceledAt >= :start AND s.canceledAt <= :end THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN COALESCE(s.startDate, s.created) >= :start AND COALESCE(s.startDate, s.created) <= :end THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN COALESCE(s.startDate, s.created) <= :end AND (s.canceledAt IS NULL OR s.canceledAt > :end) THEN 1 ELSE 0 END) " +
+           "FROM LedgerSubscription s WHERE s.customerId IN (SELECT u.userStripeMemberId FROM User u) " +
+           "AND EXISTS (SELECT i.id FROM LedgerSubscriptionItem i WHERE i.subscriptionId = s.id AND i.priceId IN :priceIds)")
+    List<Object[]> countForPeriod(@Param("priceIds") Collection<String> priceIds,
+                                  @Param("start") long start,
+                                  @Param("end") long end);
+
+    @Query("SELECT MIN(s.created) FROM LedgerSubscription s")
+    Long findEarliestCreated();
+}
@@ -0,0 +1,184 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import com.BossLiftingClub.BossLifting.Stripe.StripeBulkFetcher;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.HasId;
+import com.stripe.model.Invoice;
+import com.stripe.model.Refund;
+import com.stripe.model.Subscription;
+import com.stripe.param.ChargeListParams;
+import com.stripe.param.InvoiceListParams;
+import com.stripe.param.RefundListParams;
+import com.stripe.param.SubscriptionListParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One-time import of historical Stripe data into the local ledger. Runs automatically on
+ * startup when the ledger is empty; afterwards webhooks keep it current. Can also be
+ * re-run from POST /api/analytics/ledger/backfill, which is safe because every write is an upsert.
+ */
+@Service
+public class StripeLedgerBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeLedgerBackfillService.class);
+
+    private final StripeLedgerService ledgerService;
+    private final StripeBulkFetcher bulkFetcher;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Map<String, Object> lastResult;
+
+    @Value("${stripe.ledger.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    public StripeLedgerBackfillService(StripeLedgerService ledgerService, StripeBulkFetcher bulkFetcher) {
+        this.ledgerService = ledgerService;
+        this.bulkFetcher = bulkFetcher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            if (ledgerService.isEmpty()) {
+                logger.info("Stripe ledger is empty, starting one-time backfill");
+                startAsync();
+            }
+        } catch (Exception e) {
+            logger.error("Could not check Stripe ledger state: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start a backfill on a background thread.
+     * @return false if a backfill is already running
+     */
+    public boolean startAsync() {
+        // Claimed here rather than on the thread, so two concurrent starts cannot both report success
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Thread thread = new Thread(this::runBackfill, "stripe-ledger-backfill");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Map<String, Object> getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Page through every charge, invoice, refund and subscription on the platform account
+     * and upsert them into the ledger. Refunds are listed with their charge expanded so the
+     * customer can be attributed without a Charge.retrieve per refund.
+     */
+    public Map<String, Object> backfill() {
+        if (!running.compareAndSet(false, true)) {
+            return Map.of("success", false, "message", "Backfill already running");
+        }
+        return runBackfill();
+    }
+
+    /**
+     * The backfill itself; the caller has set {@code running}, which is cleared when it ends.
+     */
+    private Map<String, Object> runBackfill() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("startedAt", LocalDateTime.now().toString());
+        long startMillis = System.currentTimeMillis();
+        int charges = 0, invoices = 0, refunds = 0, subscriptions = 0, errors = 0;
+        try {
+            int[] counts = importAll("charge", cursor -> Charge.list(ChargeListParams.builder()
+                    .setLimit(100L)
+                    .setStartingAfter(cursor)
+                    .build()), charge -> ledgerService.recordCharge(charge, null));
+            charges = counts[0];
+            errors += counts[1];
+
+            counts = importAll("invoice", cursor -> Invoice.list(InvoiceListParams.builder()
+                    .setLimit(100L)
+                    .setStartingAfter(cursor)
+                    .build()), invoice -> ledgerService.recordInvoice(invoice, null));
+            invoices = counts[0];
+            errors += counts[1];
+
+            counts = importAll("refund", cursor -> Refund.list(RefundListParams.builder()
+                    .setLimit(100L)
+                    .addExpand("data.charge")
+                    .setStartingAfter(cursor)
+                    .build()), refund -> ledgerService.recordRefund(refund, null));
+            refunds = counts[0];
+            errors += counts[1];
+
+            counts = importAll("subscription", cursor -> Subscription.list(SubscriptionListParams.builder()
+                    .setStatus(SubscriptionListParams.Status.ALL)
+                    .setLimit(100L)
+                    .setStartingAfter(cursor)
+                    .build()), subscription -> ledgerService.recordSubscription(subscription, null));
+            subscriptions = counts[0];
+            errors += counts[1];
+
+            result.put("success", true);
+        } catch (Exception e) {
+            logger.error("Stripe ledger backfill aborted: {}", e.getMessage(), e);
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        } finally {
+            result.put("charges", charges);
+            result.put("invoices", invoices);
+            result.put("refunds", refunds);
+            result.put("subscriptions", subscriptions);
+            result.put("errors", errors);
+            result.put("durationMs", System.currentTimeMillis() - startMillis);
+            lastResult = result;
+            running.set(false);
+        }
+        logger.info("Stripe ledger backfill finished: {}", result);
+        return result;
+    }
+
+    /**
+     * Import one Stripe list through the bulk fetcher, recording each object as its page arrives.
+     * @return {imported, failed}
+     */
+    private <T extends HasId> int[] importAll(String label, StripeBulkFetcher.PageFetcher<T> fetcher, Consumer<T> recorder)
+            throws StripeException {
+        int[] counts = new int[2];
+        bulkFetcher.forEachPage(null, fetcher, page -> {
+            for (T item : page) {
+                try {
+                    recorder.accept(item);
+                    counts[0]++;
+                } catch (Exception e) {
+                    counts[1]++;
+                    logger.warn("Ledger backfill failed for {} {}: {}", label, item.getId(), e.getMessage());
+                }
+            }
+        });
+        logger.info("Ledger backfill: {} {}s", counts[0], label);
+        return counts;
+    }
+}
@@ -0,0 +1,50 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics/ledger")
+public class StripeLedgerController {
+
+    private final StripeLedgerService ledgerService;
+    private final StripeLedgerBackfillService backfillService;
+
+    public StripeLedgerController(StripeLedgerService ledgerService, StripeLedgerBackfillService backfillService) {
+        this.ledgerService = ledgerService;
+        this.backfillService = backfillService;
+    }
+
+    /**
+     * Re-import all Stripe charges, invoices, refunds and subscriptions into the ledger
+     * POST /api/analytics/ledger/backfill
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<?> backfill() {
+        if (!backfillService.startAsync()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Backfill already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("started", true));
+    }
+
+    /**
+     * Ledger row counts and the outcome of the last backfill
+     * GET /api/analytics/ledger/status
+     */
+    @GetMapping("/status")
+    public ResponseEntity<?> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", backfillService.isRunning());
+        status.put("counts", ledgerService.counts());
+        status.put("lastBackfill", backfillService.getLastResult());
+        return ResponseEntity.ok(status);
+    }
+}
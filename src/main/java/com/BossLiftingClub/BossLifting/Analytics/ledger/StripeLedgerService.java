@@ -0,0 +1,398 @@
+package com.BossLiftingClub.BossLifting.Analytics.ledger;
+
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
+import com.stripe.model.Invoice;
+import com.stripe.model.InvoiceLineItem;
+import com.stripe.model.Refund;
+import com.stripe.model.StripeObject;
+import com.stripe.model.Subscription;
+import com.stripe.model.SubscriptionItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the local Stripe ledger (charges, invoices, refunds, subscriptions) and
+ * answers the analytics aggregations that used to page through the Stripe API.
+ *
+ * Rows are upserted from webhook payloads and from {@link StripeLedgerBackfillService};
+ * each write replaces the stored snapshot of the Stripe object.
+ */
+@Service
+public class StripeLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeLedgerService.class);
+
+    public static final List<String> FAILED_INVOICE_STATUSES = List.of("open", "uncollectible");
+
+    private final LedgerChargeRepository chargeRepository;
+    private final LedgerInvoiceRepository invoiceRepository;
+    private final LedgerInvoiceLineRepository invoiceLineRepository;
+    private final LedgerRefundRepository refundRepository;
+    private final LedgerSubscriptionRepository subscriptionRepository;
+    private final LedgerSubscriptionItemRepository subscriptionItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public StripeLedgerService(LedgerChargeRepository chargeRepository,
+                               LedgerInvoiceRepository invoiceRepository,
+                               LedgerInvoiceLineRepository invoiceLineRepository,
+                               LedgerRefundRepository refundRepository,
+                               LedgerSubscriptionRepository subscriptionRepository,
+                               LedgerSubscriptionItemRepository subscriptionItemRepository,
+                               ApplicationEventPublisher eventPublisher) {
+        this.chargeRepository = chargeRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.invoiceLineRepository = invoiceLineRepository;
+        this.refundRepository = refundRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionItemRepository = subscriptionItemRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // ---------------------------------------------------------------------
+    // Writes
+    // ---------------------------------------------------------------------
+
+    /**
+     * Apply the object carried by a Stripe webhook event to the ledger.
+     * Events whose object is not a charge, invoice, refund or subscription are ignored.
+     */
+    @Transactional
+    public void recordEvent(Event event) {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        if (object == null) {
+            logger.debug("Ledger skipped event {}: data object could not be deserialized", event.getId());
+            return;
+        }
+        String stripeAccountId = event.getAccount();
+        if (object instanceof Charge charge) {
+            recordCharge(charge, stripeAccountId);
+            if (charge.getRefunds() != null && charge.getRefunds().getData() != null) {
+                for (Refund refund : charge.getRefunds().getData()) {
+                    recordRefund(refund, stripeAccountId);
+                }
+            }
+        } else if (object instanceof Invoice invoice) {
+            recordInvoice(invoice, stripeAccountId);
+        } else if (object instanceof Refund refund) {
+            recordRefund(refund, stripeAccountId);
+        } else if (object instanceof Subscription subscription) {
+            recordSubscription(subscription, stripeAccountId);
+        }
+    }
+
+    @Transactional
+    public void recordCharge(Charge charge, String stripeAccountId) {
+        LedgerCharge row = chargeRepository.findById(charge.getId()).orElseGet(LedgerCharge::new);
+        row.setId(charge.getId());
+        row.setCustomerId(charge.getCustomer());
+        row.setInvoiceId(charge.getInvoice());
+        row.setAmount(charge.getAmount() != null ? charge.getAmount() : 0L);
+        row.setAmountRefunded(charge.getAmountRefunded());
+        row.setCurrency(charge.getCurrency());
+        row.setStatus(charge.getStatus());
+        row.setPaid(Boolean.TRUE.equals(charge.getPaid()));
+        row.setRefunded(Boolean.TRUE.equals(charge.getRefunded()));
+        row.setBillingName(charge.getBillingDetails() != null ? charge.getBillingDetails().getName() : null);
+        row.setCreated(charge.getCreated());
+        row.setStripeAccountId(stripeAccountId);
+        chargeRepository.save(row);
+        publishChange(row.getCreated());
+    }
+
+    @Transactional
+    public void recordInvoice(Invoice invoice, String stripeAccountId) {
+        LedgerInvoice row = invoiceRepository.findById(invoice.getId()).orElseGet(LedgerInvoice::new);
+        row.setId(invoice.getId());
+        row.setCustomerId(invoice.getCustomer());
+        row.setCustomerName(invoice.getCustomerName());
+        row.setSubscriptionId(invoice.getSubscription());
+        row.setChargeId(invoice.getCharge());
+        row.setStatus(invoice.getStatus());
+        row.setAmountDue(invoice.getAmountDue());
+        row.setAmountPaid(invoice.getAmountPaid());
+        row.setCreated(invoice.getCreated());
+        row.setStripeAccountId(stripeAccountId);
+        invoiceRepository.save(row);
+
+        if (invoice.getLines() == null || invoice.getLines().getData() == null) {
+            return;
+        }
+        invoiceLineRepository.deleteByInvoiceId(invoice.getId());
+        List<LedgerInvoiceLine> lines = new ArrayList<>();
+        for (InvoiceLineItem item : invoice.getLines().getData()) {
+            LedgerInvoiceLine line = new LedgerInvoiceLine();
+            line.setInvoiceId(invoice.getId());
+            line.setStripeLineId(item.getId());
+            line.setPriceId(item.getPrice() != null ? item.getPrice().getId() : null);
+            line.setAmount(item.getAmount() != null ? item.getAmount() : 0L);
+            lines.add(line);
+        }
+        invoiceLineRepository.saveAll(lines);
+    }
+
+    @Transactional
+    public void recordRefund(Refund refund, String stripeAccountId) {
+        LedgerRefund row = refundRepository.findById(refund.getId()).orElseGet(LedgerRefund::new);
+        row.setId(refund.getId());
+        row.setChargeId(refund.getCharge());
+        row.setAmount(refund.getAmount() != null ? refund.getAmount() : 0L);
+        row.setStatus(refund.getStatus());
+        row.setReason(refund.getReason());
+        row.setCreated(refund.getCreated());
+        row.setStripeAccountId(stripeAccountId);
+
+        // Prefer the expanded charge, then the charge we already hold locally
+        String customerId = refund.getChargeObject() != null ? refund.getChargeObject().getCustomer() : null;
+        if (customerId == null && refund.getCharge() != null) {
+            customerId = chargeRepository.findById(refund.getCharge()).map(LedgerCharge::getCustomerId).orElse(null);
+        }
+        if (customerId != null) {
+            row.setCustomerId(customerId);
+        }
+        refundRepository.save(row);
+        publishChange(row.getCreated());
+    }
+
+    @Transactional
+    public void recordSubscription(Subscription subscription, String stripeAccountId) {
+        LedgerSubscription row = subscriptionRepository.findById(subscription.getId()).orElseGet(LedgerSubscription::new);
+        row.setId(subscription.getId());
+        row.setCustomerId(subscription.getCustomer());
+        row.setStatus(subscription.getStatus());
+        row.setCreated(subscription.getCreated());
+        row.setStartDate(subscription.getStartDate());
+        row.setCanceledAt(subscription.getCanceledAt());
+        row.setCurrentPeriodStart(subscription.getCurrentPeriodStart());
+        row.setCurrentPeriodEnd(subscription.getCurrentPeriodEnd());
+        row.setCancelAtPeriodEnd(subscription.getCancelAtPeriodEnd());
+        row.setStripeAccountId(stripeAccountId);
+        subscriptionRepository.save(row);
+        // Status, items and cancellation all feed every day the subscription has existed
+        publishChange(row.getCreated());
+
+        if (subscription.getItems() == null || subscription.getItems().getData() == null) {
+            return;
+        }
+        subscriptionItemRepository.deleteBySubscriptionId(subscription.getId());
+        List<LedgerSubscriptionItem> items = new ArrayList<>();
+        for (SubscriptionItem item : subscription.getItems().getData()) {
+            LedgerSubscriptionItem itemRow = new LedgerSubscriptionItem();
+            itemRow.setSubscriptionId(subscription.getId());
+            itemRow.setStripeItemId(item.getId());
+            itemRow.setQuantity(item.getQuantity());
+            if (item.getPrice() != null) {
+                itemRow.setPriceId(item.getPrice().getId());
+                itemRow.setUnitAmount(item.getPrice().getUnitAmount());
+                if (item.getPrice().getRecurring() != null) {
+                    itemRow.setRecurringInterval(item.getPrice().getRecurring().getInterval());
+                    itemRow.setRecurringIntervalCount(item.getPrice().getRecurring().getIntervalCount());
+                }
+            }
+            items.add(itemRow);
+        }
+        subscriptionItemRepository.saveAll(items);
+    }
+
+    private void publishChange(Long epochSecond) {
+        if (epochSecond != null) {
+            eventPublisher.publishEvent(new LedgerChangedEvent(epochSecond));
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Reads
+    // ---------------------------------------------------------------------
+
+    /**
+     * True when no Stripe data has been recorded yet (used to trigger the one-time backfill).
+     */
+    @Transactional(readOnly = true)
+    public boolean isEmpty() {
+        return chargeRepository.count() == 0 && invoiceRepository.count() == 0 && subscriptionRepository.count() == 0;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Long> counts() {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("charges", chargeRepository.count());
+        counts.put("invoices", invoiceRepository.count());
+        counts.put("refunds", refundRepository.count());
+        counts.put("subscriptions", subscriptionRepository.count());
+        return counts;
+    }
+
+    /**
+     * Net revenue in dollars (paid, not refunded charges). A null start means all time.
+     */
+    @Transactional(readOnly = true)
+    public double sumNetRevenue(LocalDateTime start, LocalDateTime end) {
+        Long cents = chargeRepository.sumNetRevenue(toEpochOrMin(start), toEpochOrMax(end));
+        return cents != null ? cents / 100.0 : 0.0;
+    }
+
+    /**
+     * Open and uncollectible invoices created in range as {count, amount}.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> summarizeFailedPayments(LocalDateTime start, LocalDateTime end) {
+        return toSummary(invoiceRepository.summarizeByStatus(FAILED_INVOICE_STATUSES, toEpochOrMin(start), toEpochOrMax(end)));
+    }
+
+    /**
+     * Refunds created in range as {count, amount}.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> summarizeRefunds(LocalDateTime start, LocalDateTime end) {
+        return toSummary(refundRepository.summarize(toEpochOrMin(start), toEpochOrMax(end)));
+    }
+
+    /**
+     * (created, amount) net-revenue points for charges made by one business's members.
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> findNetRevenuePointsForBusiness(Long businessId, long startEpoch, long endEpoch) {
+        return chargeRepository.findNetRevenuePointsForBusiness(businessId, startEpoch, endEpoch);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LedgerRefund> findRefunds(long startEpoch, long endEpoch) {
+        return refundRepository.findByCreatedBetween(startEpoch, endEpoch);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LedgerCharge> findRecentSucceededCharges(long sinceEpoch, int limit) {
+        return chargeRepository.findRecentSucceeded(sinceEpoch, PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<LedgerInvoice> findRecentFailedInvoices(long sinceEpoch, int limit) {
+        return invoiceRepository.findRecentByStatus(FAILED_INVOICE_STATUSES, sinceEpoch, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Members' paid, unrefunded invoice-line totals for invoices created in [start, end], as [priceId, cents].
+     * Members are Stripe customers that have a user row.
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> sumMemberPaidInvoiceLinesByPrice(long startEpoch, long endEpoch) {
+        return invoiceLineRepository.sumPaidByPrice(startEpoch, endEpoch);
+    }
+
+    /**
+     * Number of members that ever paid (and were not refunded) an invoice line on one of the given prices.
+     */
+    @Transactional(readOnly = true)
+    public long countMemberPayingCustomers(Collection<String> priceIds) {
+        return priceIds.isEmpty() ? 0 : invoiceLineRepository.countPaidCustomers(priceIds);
+    }
+
+    /**
+     * Lines of members' open and uncollectible invoices created in [start, end], as [priceId, count, cents].
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> summarizeMemberFailedInvoiceLinesByPrice(long startEpoch, long endEpoch) {
+        return invoiceLineRepository.summarizeByPrice(FAILED_INVOICE_STATUSES, startEpoch, endEpoch);
+    }
+
+    /**
+     * Members' refunds created in [start, end], by the line prices of the refunded paid invoice, as
+     * [priceId, count, cents].
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> summarizeMemberRefundsByPrice(long startEpoch, long endEpoch) {
+        return refundRepository.summarizeByPrice(startEpoch, endEpoch);
+    }
+
+    @Transactional(readOnly = true)
+    public List<String> findSubscriptionItemPriceIds() {
+        return subscriptionItemRepository.findDistinctPriceIds();
+    }
+
+    /**
+     * Members' subscriptions with an item on one of the given prices, counted for [start, end] as
+     * {activeAtStart, canceled, started, activeAtEnd}.
+     */
+    @Transactional(readOnly = true)
+    public long[] countMemberSubscriptions(Collection<String> priceIds, long startEpoch, long endEpoch) {
+        long[] counts = new long[4];
+        if (priceIds.isEmpty()) {
+            return counts;
+        }
+        List<Object[]> rows = subscriptionRepository.countForPeriod(priceIds, startEpoch, endEpoch);
+        if (!rows.isEmpty() && rows.get(0) != null) {
+            Object[] row = rows.get(0);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = row[i] != null ? ((Number) row[i]).longValue() : 0;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * MRR in dollars of items on the given prices, on members' subscriptions active at the given time.
+     * Yearly items count for a twelfth of their amount.
+     */
+    @Transactional(readOnly = true)
+    public double sumMemberMrr(Collection<String> priceIds, long atEpoch) {
+        if (priceIds.isEmpty()) {
+            return 0.0;
+        }
+        double mrr = 0.0;
+        for (Object[] row : subscriptionItemRepository.sumActiveUnitAmountsByInterval(priceIds, atEpoch)) {
+            double dollars = ((Number) row[1]).longValue() / 100.0;
+            mrr += "year".equals(row[0]) ? dollars / 12 : dollars;
+        }
+        return mrr;
+    }
+
+    /**
+     * Dollars due on the given prices from members' active subscriptions renewing in (after, until].
+     */
+    @Transactional(readOnly = true)
+    public double sumMemberRenewals(Collection<String> priceIds, long afterEpoch, long untilEpoch) {
+        if (priceIds.isEmpty()) {
+            return 0.0;
+        }
+        Long cents = subscriptionItemRepository.sumRenewingUnitAmounts(priceIds, afterEpoch, untilEpoch);
+        return cents != null ? cents / 100.0 : 0.0;
+    }
+
+    private Map<String, Object> toSummary(List<Object[]> rows) {
+        long count = 0;
+        long cents = 0;
+        if (rows != null && !rows.isEmpty() && rows.get(0) != null) {
+            Object[] row = rows.get(0);
+            count = row[0] != null ? ((Number) row[0]).longValue() : 0;
+            cents = row[1] != null ? ((Number) row[1]).longValue() : 0;
+        }
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("count", (int) count);
+        summary.put("amount", cents / 100.0);
+        return summary;
+    }
+
+    public static long toEpoch(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static long toEpochOrMin(LocalDateTime dateTime) {
+        return dateTime != null ? toEpoch(dateTime) : 0L;
+    }
+
+    private static long toEpochOrMax(LocalDateTime dateTime) {
+        return dateTime != null ? toEpoch(dateTime) : Long.MAX_VALUE;
+    }
+}
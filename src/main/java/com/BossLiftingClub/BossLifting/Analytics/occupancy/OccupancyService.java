@@ -0,0 +1,285 @@
+package com.BossLiftingClub.BossLifting.Analytics.occupancy;
+
+import com.BossLiftingClub.BossLifting.User.SignInLog.SignInRecordedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live occupancy and traffic heatmaps per business, kept in memory and updated as scans arrive.
+ *
+ * Occupancy is estimated with exponential decay: every check-in adds one person, and each person present
+ * leaves with a mean stay of {@code occupancy.average-visit-duration}, so the estimate is
+ * sum(exp(-(now - t) / duration)) over all check-ins t. That only needs the running value and the time it
+ * was last updated. Check-ins within the last visit duration are also counted exactly.
+ *
+ * The heatmap counts check-ins per hour over the last {@code occupancy.heatmap.weeks} weeks, totaled by
+ * weekday and hour of day. Each scan increments its hour; hours that fall out of the window are
+ * subtracted by a scheduled purge. Both are rebuilt from sign_in_logs once at startup, and only the
+ * startup rebuild reads that table.
+ */
+@Service
+public class OccupancyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccupancyService.class);
+
+    private static final String HOURLY_COUNTS_SQL =
+            "SELECT business_id, CAST(sign_in_time AS DATE) AS visit_day, EXTRACT(HOUR FROM sign_in_time) AS visit_hour, " +
+            "COUNT(*) AS visits FROM sign_in_logs " +
+            "WHERE business_id IS NOT NULL AND sign_in_time >= ? AND sign_in_time < ? " +
+            "GROUP BY business_id, CAST(sign_in_time AS DATE), EXTRACT(HOUR FROM sign_in_time)";
+
+    private static final String RECENT_SCANS_SQL =
+            "SELECT business_id, sign_in_time FROM sign_in_logs " +
+            "WHERE business_id IS NOT NULL AND sign_in_time >= ? AND sign_in_time < ?";
+
+    // Scans older than this many visit durations contribute under 0.1% to the estimate
+    private static final int DECAY_HORIZON = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration averageVisit;
+    private final int heatmapWeeks;
+    private final Map<Long, BusinessTraffic> traffic = new ConcurrentHashMap<>();
+
+    public OccupancyService(JdbcTemplate jdbcTemplate,
+                            @Value("${occupancy.average-visit-duration:75m}") Duration averageVisit,
+                            @Value("${occupancy.heatmap.weeks:8}") int heatmapWeeks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.averageVisit = averageVisit.isZero() || averageVisit.isNegative() ? Duration.ofMinutes(75) : averageVisit;
+        this.heatmapWeeks = Math.max(1, heatmapWeeks);
+    }
+
+    @EventListener
+    public void onSignInRecorded(SignInRecordedEvent event) {
+        if (event.getBusinessId() == null || event.getSignInTime() == null) {
+            return;
+        }
+        trafficFor(event.getBusinessId()).checkIn(event.getSignInTime());
+    }
+
+    /**
+     * Load the heatmap window and the scans that still count toward occupancy. Scans recorded from now on
+     * arrive as events, so the queries stop at the moment the rebuild starts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now();
+        try {
+            int[] rows = new int[2];
+            jdbcTemplate.query(HOURLY_COUNTS_SQL, rs -> {
+                LocalDate day = rs.getDate("visit_day").toLocalDate();
+                LocalDateTime hour = day.atTime(rs.getInt("visit_hour"), 0);
+                trafficFor(rs.getLong("business_id")).addToHour(hour, rs.getLong("visits"));
+                rows[0]++;
+            }, Timestamp.valueOf(heatmapStart(cutoff)), Timestamp.valueOf(cutoff));
+
+            jdbcTemplate.query(RECENT_SCANS_SQL, rs -> {
+                trafficFor(rs.getLong("business_id")).arrive(rs.getTimestamp("sign_in_time").toLocalDateTime());
+                rows[1]++;
+            }, Timestamp.valueOf(cutoff.minus(averageVisit.multipliedBy(DECAY_HORIZON))), Timestamp.valueOf(cutoff));
+
+            logger.info("Occupancy rebuilt for {} businesses from {} hourly buckets and {} recent scans in {} ms",
+                    traffic.size(), rows[0], rows[1], System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            // Live scans still accumulate; the heatmap just starts from an empty window
+            logger.error("Failed to rebuild occupancy from sign-in logs: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Subtract hours that have left the heatmap window.
+     */
+    @Scheduled(fixedDelayString = "${occupancy.heatmap.purge-interval-ms:600000}")
+    public void purgeExpiredHours() {
+        LocalDateTime start = heatmapStart(LocalDateTime.now());
+        traffic.values().forEach(t -> t.expireBefore(start));
+    }
+
+    /** Estimated people on site now, plus exact check-ins within the last visit duration. */
+    public Map<String, Object> getOccupancy(long businessId) {
+        LocalDateTime now = LocalDateTime.now();
+        BusinessTraffic t = traffic.get(businessId);
+        double estimate = t != null ? t.estimateAt(now) : 0;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("businessId", businessId);
+        result.put("currentOccupancy", (int) Math.round(estimate));
+        result.put("estimatedOccupancy", Math.round(estimate * 10) / 10.0);
+        result.put("checkInsWithinAverageVisit", t != null ? t.checkInsSince(now.minus(averageVisit)) : 0);
+        result.put("averageVisitMinutes", averageVisit.toMinutes());
+        result.put("lastCheckIn", t != null ? t.lastCheckIn() : null);
+        result.put("asOf", now);
+        return result;
+    }
+
+    /**
+     * Check-ins by weekday and hour over the heatmap window: totals, averages per week, and the busiest hours.
+     */
+    public Map<String, Object> getHeatmap(long businessId) {
+        BusinessTraffic t = traffic.get(businessId);
+        long[][] totals = t != null ? t.totals() : new long[7][24];
+
+        List<Map<String, Object>> days = new ArrayList<>(7);
+        List<Map<String, Object>> cells = new ArrayList<>();
+        long total = 0;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            long[] hours = totals[day.getValue() - 1];
+            double[] averages = new double[24];
+            long dayTotal = 0;
+            for (int hour = 0; hour < 24; hour++) {
+                averages[hour] = Math.round(hours[hour] * 10.0 / heatmapWeeks) / 10.0;
+                dayTotal += hours[hour];
+                if (hours[hour] > 0) {
+                    Map<String, Object> cell = new LinkedHashMap<>();
+                    cell.put("dayOfWeek", day.name());
+                    cell.put("hour", hour);
+                    cell.put("total", hours[hour]);
+                    cell.put("averagePerWeek", averages[hour]);
+                    cells.add(cell);
+                }
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("dayOfWeek", day.name());
+            row.put("totals", hours);
+            row.put("averagePerWeek", averages);
+            row.put("total", dayTotal);
+            days.add(row);
+            total += dayTotal;
+        }
+        cells.sort(Comparator.comparingLong((Map<String, Object> cell) -> (Long) cell.get("total")).reversed());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("businessId", businessId);
+        result.put("weeks", heatmapWeeks);
+        result.put("windowStart", heatmapStart(LocalDateTime.now()));
+        result.put("totalCheckIns", total);
+        result.put("days", days);
+        result.put("peakHours", cells.subList(0, Math.min(5, cells.size())));
+        return result;
+    }
+
+    private BusinessTraffic trafficFor(long businessId) {
+        return traffic.computeIfAbsent(businessId, id -> new BusinessTraffic(averageVisit));
+    }
+
+    private LocalDateTime heatmapStart(LocalDateTime now) {
+        return now.truncatedTo(ChronoUnit.HOURS).minusWeeks(heatmapWeeks).plusHours(1);
+    }
+
+    /** Occupancy and hourly counts for one business. All access is synchronized on the instance. */
+    private static final class BusinessTraffic {
+        private final double visitMillis;
+        private final Duration averageVisit;
+        private final Deque<LocalDateTime> recentCheckIns = new ArrayDeque<>();
+        private final TreeMap<LocalDateTime, Long> hourly = new TreeMap<>();
+        private final long[][] totals = new long[7][24];
+        private double decayed;
+        private long decayedAtMillis;
+        private LocalDateTime lastCheckIn;
+
+        BusinessTraffic(Duration averageVisit) {
+            this.averageVisit = averageVisit;
+            this.visitMillis = averageVisit.toMillis();
+        }
+
+        synchronized void checkIn(LocalDateTime time) {
+            arrive(time);
+            addToHour(time.truncatedTo(ChronoUnit.HOURS), 1);
+        }
+
+        /** Add one person to the occupancy estimate. */
+        synchronized void arrive(LocalDateTime time) {
+            long at = toMillis(time);
+            if (decayedAtMillis == 0 || at >= decayedAtMillis) {
+                decayed = decayed * decay(at - decayedAtMillis) + 1;
+                decayedAtMillis = at;
+            } else {
+                // Arrived before the last update; decay it to that point instead
+                decayed += decay(decayedAtMillis - at);
+            }
+            if (lastCheckIn == null || time.isAfter(lastCheckIn)) {
+                lastCheckIn = time;
+            }
+            recentCheckIns.addLast(time);
+            trimRecent(time.minus(averageVisit));
+        }
+
+        synchronized void addToHour(LocalDateTime hour, long visits) {
+            hourly.merge(hour, visits, Long::sum);
+            totals[hour.getDayOfWeek().getValue() - 1][hour.getHour()] += visits;
+        }
+
+        synchronized void expireBefore(LocalDateTime start) {
+            Map<LocalDateTime, Long> expired = hourly.headMap(start);
+            expired.forEach((hour, visits) -> totals[hour.getDayOfWeek().getValue() - 1][hour.getHour()] -= visits);
+            expired.clear();
+        }
+
+        synchronized double estimateAt(LocalDateTime now) {
+            if (decayedAtMillis == 0) {
+                return 0;
+            }
+            return decayed * decay(Math.max(0, toMillis(now) - decayedAtMillis));
+        }
+
+        synchronized int checkInsSince(LocalDateTime since) {
+            trimRecent(since);
+            int count = 0;
+            for (LocalDateTime time : recentCheckIns) {
+                if (!time.isBefore(since)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        synchronized LocalDateTime lastCheckIn() {
+            return lastCheckIn;
+        }
+
+        synchronized long[][] totals() {
+            long[][] copy = new long[7][];
+            for (int day = 0; day < 7; day++) {
+                copy[day] = totals[day].clone();
+            }
+            return copy;
+        }
+
+        private void trimRecent(LocalDateTime since) {
+            // Check-ins arrive roughly in order; an early straggler is counted until it reaches the head
+            while (!recentCheckIns.isEmpty() && recentCheckIns.peekFirst().isBefore(since)) {
+                recentCheckIns.pollFirst();
+            }
+        }
+
+        private double decay(long elapsedMillis) {
+            return Math.exp(-elapsedMillis / visitMillis);
+        }
+
+        private static long toMillis(LocalDateTime time) {
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.BossLiftingClub.BossLifting.Analytics.rollup;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One business's metrics for one (UTC) day. Money columns are in cents, like the Stripe ledger.
+ * Rows are written by {@link DailyMetricsRollupService} and serve the analytics charts.
+ */
+@Entity
+@Table(name = "daily_business_metrics", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_business_metrics_business_date", columnNames = {"business_id", "metric_date"})
+})
+@Data
+@NoArgsConstructor
+public class DailyBusinessMetric {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Column(name = "metric_date", nullable = false)
+    private LocalDate metricDate;
+
+    @Column(name = "gross_revenue", nullable = false)
+    private Long grossRevenue = 0L;
+
+    @Column(name = "refunds", nullable = false)
+    private Long refunds = 0L;
+
+    @Column(name = "mrr", nullable = false)
+    private Long mrr = 0L;
+
+    @Column(name = "active_members", nullable = false)
+    private Integer activeMembers = 0;
+
+    @Column(name = "total_members", nullable = false)
+    private Integer totalMembers = 0;
+
+    @Column(name = "new_members", nullable = false)
+    private Integer newMembers = 0;
+
+    @Column(name = "churned_members", nullable = false)
+    private Integer churnedMembers = 0;
+
+    @Column(name = "failed_payments", nullable = false)
+    private Integer failedPayments = 0;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public DailyBusinessMetric(Long businessId, LocalDate metricDate) {
+        this.businessId = businessId;
+        this.metricDate = metricDate;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
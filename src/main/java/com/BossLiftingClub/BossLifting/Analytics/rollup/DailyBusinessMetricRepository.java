@@ -0,0 +1,20 @@
+package com.BossLiftingClub.BossLifting.Analytics.rollup;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyBusinessMetricRepository extends JpaRepository<DailyBusinessMetric, Long> {
+
+    List<DailyBusinessMetric> findByBusinessIdAndMetricDateBetweenOrderByMetricDate(Long businessId, LocalDate start, LocalDate end);
+
+    List<DailyBusinessMetric> findByMetricDateBetween(LocalDate start, LocalDate end);
+
+    @Query("SELECT MIN(m.metricDate) FROM DailyBusinessMetric m WHERE m.businessId = :businessId")
+    LocalDate findEarliestMetricDate(@Param("businessId") Long businessId);
+}
@@ -0,0 +1,418 @@
+package com.BossLiftingClub.BossLifting.Analytics.rollup;
+
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerChangedEvent;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerChargeRepository;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerRefund;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerRefundRepository;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerSubscription;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerSubscriptionItemRepository;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.LedgerSubscriptionRepository;
+import com.BossLiftingClub.BossLifting.Business.Business;
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Maintains {@code daily_business_metrics}: one row per business per UTC day with gross revenue,
+ * refunds, MRR, active/total/new/churned members and failed payments, all computed from the local
+ * Stripe ledger and the member table.
+ *
+ * Today's rows are refreshed periodically and yesterday's are closed out just after midnight.
+ * Ledger writes (late webhooks, backfills) mark the affected day dirty so the next refresh
+ * recomputes from that day forward; MRR and member counts carry over, so later days are redone too.
+ */
+@Service
+public class DailyMetricsRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyMetricsRollupService.class);
+
+    // Zone of the rollup's days; chart ranges read from the rollup must be built in this zone too
+    public static final ZoneOffset ZONE = ZoneOffset.UTC;
+
+    // Subscriptions that never became active contribute nothing
+    private static final Set<String> NEVER_STARTED_STATUSES = Set.of("incomplete", "incomplete_expired");
+    // Not canceled, but not currently billing either
+    private static final Set<String> SUSPENDED_STATUSES = Set.of("unpaid", "paused");
+
+    private final DailyBusinessMetricRepository metricRepository;
+    private final LedgerChargeRepository chargeRepository;
+    private final LedgerRefundRepository refundRepository;
+    private final LedgerSubscriptionRepository subscriptionRepository;
+    private final LedgerSubscriptionItemRepository subscriptionItemRepository;
+    private final UserBusinessRepository userBusinessRepository;
+    private final BusinessRepository businessRepository;
+
+    // Earliest day touched since the last refresh; null when only today needs refreshing
+    private final AtomicReference<LocalDate> dirtyFrom = new AtomicReference<>();
+
+    public DailyMetricsRollupService(DailyBusinessMetricRepository metricRepository,
+                                     LedgerChargeRepository chargeRepository,
+                                     LedgerRefundRepository refundRepository,
+                                     LedgerSubscriptionRepository subscriptionRepository,
+                                     LedgerSubscriptionItemRepository subscriptionItemRepository,
+                                     UserBusinessRepository userBusinessRepository,
+                                     BusinessRepository businessRepository) {
+        this.metricRepository = metricRepository;
+        this.chargeRepository = chargeRepository;
+        this.refundRepository = refundRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionItemRepository = subscriptionItemRepository;
+        this.userBusinessRepository = userBusinessRepository;
+        this.businessRepository = businessRepository;
+    }
+
+    // After commit, so a refresh that runs in between cannot miss the change and then clear the dirty mark
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLedgerChanged(LedgerChangedEvent event) {
+        markDirty(toDay(event.getEpochSecond()));
+    }
+
+    /**
+     * Make the next refresh recompute from {@code day} through today.
+     */
+    public void markDirty(LocalDate day) {
+        dirtyFrom.accumulateAndGet(day, (current, candidate) ->
+                current == null || candidate.isBefore(current) ? candidate : current);
+    }
+
+    /**
+     * Build the full history on first start (or after the table was cleared).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleInitialBuild() {
+        try {
+            if (metricRepository.count() == 0) {
+                LocalDate earliest = findEarliestDataDay();
+                if (earliest != null) {
+                    logger.info("Daily metrics table is empty - scheduling rollup from {}", earliest);
+                    markDirty(earliest);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Could not check daily metrics state: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * End-of-day job: recompute yesterday once it is complete.
+     */
+    @Scheduled(cron = "0 5 0 * * ?", zone = "UTC")
+    public void closePreviousDay() {
+        markDirty(LocalDate.now(ZONE).minusDays(1));
+        refreshQuietly();
+    }
+
+    /**
+     * Keep today's rows current and apply corrections from late webhooks.
+     */
+    @Scheduled(fixedDelayString = "${analytics.rollup.refresh-interval-ms:900000}",
+               initialDelayString = "${analytics.rollup.initial-delay-ms:60000}")
+    public void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("Daily metrics refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recompute from the earliest dirty day (or today) through today.
+     * @return number of rows written
+     */
+    public synchronized int refresh() {
+        LocalDate today = LocalDate.now(ZONE);
+        LocalDate from = dirtyFrom.getAndSet(null);
+        if (from == null || from.isAfter(today)) {
+            from = today;
+        }
+        try {
+            return rollup(from, today);
+        } catch (RuntimeException e) {
+            markDirty(from);
+            throw e;
+        }
+    }
+
+    public List<DailyBusinessMetric> findMetrics(Long businessId, LocalDate from, LocalDate to) {
+        return metricRepository.findByBusinessIdAndMetricDateBetweenOrderByMetricDate(businessId, from, to);
+    }
+
+    public LocalDate findEarliestMetricDate(Long businessId) {
+        return metricRepository.findEarliestMetricDate(businessId);
+    }
+
+    /**
+     * Recompute and upsert every business's rows for [from, to].
+     * @return number of rows written
+     */
+    public synchronized int rollup(LocalDate from, LocalDate to) {
+        long startMillis = System.currentTimeMillis();
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        long firstDay = from.toEpochDay();
+        long lastDay = to.toEpochDay();
+        long startEpoch = from.atStartOfDay(ZONE).toEpochSecond();
+        long endEpoch = to.plusDays(1).atStartOfDay(ZONE).toEpochSecond() - 1;
+
+        Map<Long, Series> seriesByBusiness = new HashMap<>();
+        for (Business business : businessRepository.findAll()) {
+            seriesByBusiness.put(business.getId(), new Series(days));
+        }
+
+        Map<String, List<Series>> seriesByCustomer = new HashMap<>();
+        for (Object[] row : userBusinessRepository.findStripeCustomerBusinessIds()) {
+            Series series = seriesByBusiness.get((Long) row[1]);
+            if (series != null) {
+                seriesByCustomer.computeIfAbsent((String) row[0], k -> new ArrayList<>()).add(series);
+            }
+        }
+
+        // Revenue and failed payments, by charge day
+        for (Object[] row : chargeRepository.findRollupRows(startEpoch, endEpoch)) {
+            List<Series> targets = seriesByCustomer.get((String) row[0]);
+            if (targets == null) {
+                continue;
+            }
+            long amount = ((Number) row[1]).longValue();
+            String status = (String) row[2];
+            boolean paid = Boolean.TRUE.equals(row[3]);
+            int index = (int) (toDay(((Number) row[4]).longValue()).toEpochDay() - firstDay);
+            for (Series series : targets) {
+                if (paid && "succeeded".equals(status)) {
+                    series.grossRevenue[index] += amount;
+                } else if ("failed".equals(status)) {
+                    series.failedPayments[index]++;
+                }
+            }
+        }
+
+        // Refunds, by refund day
+        for (LedgerRefund refund : refundRepository.findByCreatedBetween(startEpoch, endEpoch)) {
+            List<Series> targets = refund.getCustomerId() != null ? seriesByCustomer.get(refund.getCustomerId()) : null;
+            if (targets == null || "failed".equals(refund.getStatus()) || "canceled".equals(refund.getStatus())) {
+                continue;
+            }
+            int index = (int) (toDay(refund.getCreated()).toEpochDay() - firstDay);
+            for (Series series : targets) {
+                series.refunds[index] += refund.getAmount();
+            }
+        }
+
+        // New and total members, by join day
+        for (Object[] row : userBusinessRepository.findBusinessIdAndCreatedAt()) {
+            Series series = seriesByBusiness.get((Long) row[0]);
+            if (series == null) {
+                continue;
+            }
+            LocalDate joined = toRollupTime((LocalDateTime) row[1]).toLocalDate();
+            if (joined.isBefore(from)) {
+                series.membersBefore++;
+            } else if (!joined.isAfter(to)) {
+                series.newMembers[(int) (joined.toEpochDay() - firstDay)]++;
+            }
+        }
+
+        // MRR and active/churned members from each subscription's active span [startDay, endDay)
+        Map<String, Long> monthlyAmountBySubscription = new HashMap<>();
+        for (Object[] row : subscriptionItemRepository.findMonthlyUnitAmounts()) {
+            monthlyAmountBySubscription.merge((String) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+
+        long nowEpoch = Instant.now().getEpochSecond();
+        Map<String, List<long[]>> spansByCustomer = new HashMap<>();
+        for (LedgerSubscription subscription : subscriptionRepository.findByCustomerIdIsNotNull()) {
+            List<Series> targets = seriesByCustomer.get(subscription.getCustomerId());
+            if (targets == null || subscription.getStatus() == null
+                    || NEVER_STARTED_STATUSES.contains(subscription.getStatus())) {
+                continue;
+            }
+            long startDay = toDay(subscription.getCreated()).toEpochDay();
+            Long endedAt = endedAt(subscription, nowEpoch);
+            long endDay = endedAt != null ? toDay(endedAt).toEpochDay() : Long.MAX_VALUE;
+            if (endDay <= startDay) {
+                continue;
+            }
+            spansByCustomer.computeIfAbsent(subscription.getCustomerId(), k -> new ArrayList<>())
+                    .add(new long[]{startDay, endDay});
+
+            Long monthlyAmount = monthlyAmountBySubscription.get(subscription.getId());
+            if (monthlyAmount != null) {
+                for (Series series : targets) {
+                    addOverRange(series.mrrDelta, firstDay, lastDay, startDay, endDay, monthlyAmount);
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<long[]>> entry : spansByCustomer.entrySet()) {
+            List<long[]> spans = mergeSpans(entry.getValue());
+            for (Series series : seriesByCustomer.get(entry.getKey())) {
+                for (long[] span : spans) {
+                    addOverRange(series.activeDelta, firstDay, lastDay, span[0], span[1], 1);
+                    // Coverage ending means the member churned that day
+                    if (span[1] >= firstDay && span[1] <= lastDay) {
+                        series.churnedMembers[(int) (span[1] - firstDay)]++;
+                    }
+                }
+            }
+        }
+
+        Map<String, DailyBusinessMetric> existing = new HashMap<>();
+        for (DailyBusinessMetric metric : metricRepository.findByMetricDateBetween(from, to)) {
+            existing.put(metric.getBusinessId() + ":" + metric.getMetricDate(), metric);
+        }
+
+        List<DailyBusinessMetric> rows = new ArrayList<>();
+        for (Map.Entry<Long, Series> entry : seriesByBusiness.entrySet()) {
+            Long businessId = entry.getKey();
+            Series series = entry.getValue();
+            long mrr = 0;
+            long active = 0;
+            long total = series.membersBefore;
+            for (int i = 0; i < days; i++) {
+                mrr += series.mrrDelta[i];
+                active += series.activeDelta[i];
+                total += series.newMembers[i];
+
+                LocalDate date = from.plusDays(i);
+                DailyBusinessMetric row = existing.get(businessId + ":" + date);
+                if (row == null) {
+                    row = new DailyBusinessMetric(businessId, date);
+                }
+                row.setGrossRevenue(series.grossRevenue[i]);
+                row.setRefunds(series.refunds[i]);
+                row.setMrr(mrr);
+                row.setActiveMembers((int) active);
+                row.setTotalMembers((int) total);
+                row.setNewMembers(series.newMembers[i]);
+                row.setChurnedMembers(series.churnedMembers[i]);
+                row.setFailedPayments(series.failedPayments[i]);
+                rows.add(row);
+            }
+        }
+        metricRepository.saveAll(rows);
+
+        logger.info("Daily metrics rollup {}..{}: {} rows for {} businesses in {}ms",
+                from, to, rows.size(), seriesByBusiness.size(), System.currentTimeMillis() - startMillis);
+        return rows.size();
+    }
+
+    /**
+     * When a subscription stopped counting, or null while it is still running. Subscriptions canceled
+     * at period end keep counting until that period ends.
+     */
+    private Long endedAt(LedgerSubscription subscription, long nowEpoch) {
+        String status = subscription.getStatus();
+        if ("canceled".equals(status)) {
+            if (Boolean.TRUE.equals(subscription.getCancelAtPeriodEnd()) && subscription.getCurrentPeriodEnd() != null) {
+                return subscription.getCurrentPeriodEnd();
+            }
+            return subscription.getCanceledAt() != null ? subscription.getCanceledAt() : subscription.getCurrentPeriodEnd();
+        }
+        if (status != null && SUSPENDED_STATUSES.contains(status)) {
+            return nowEpoch;
+        }
+        return null;
+    }
+
+    private LocalDate findEarliestDataDay() {
+        LocalDate earliest = null;
+        Long charge = chargeRepository.findEarliestCreated();
+        Long subscription = subscriptionRepository.findEarliestCreated();
+        LocalDateTime member = userBusinessRepository.findEarliestCreatedAt();
+        for (LocalDate candidate : new LocalDate[]{
+                charge != null ? toDay(charge) : null,
+                subscription != null ? toDay(subscription) : null,
+                member != null ? toRollupTime(member).toLocalDate() : null}) {
+            if (candidate != null && (earliest == null || candidate.isBefore(earliest))) {
+                earliest = candidate;
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * A server-local timestamp, as JPA reads {@code LocalDateTime} columns, in {@link #ZONE}.
+     */
+    public static LocalDateTime toRollupTime(LocalDateTime serverTime) {
+        return serverTime.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZONE).toLocalDateTime();
+    }
+
+    /**
+     * A {@link #ZONE} timestamp as server-local time, for querying {@code LocalDateTime} columns.
+     */
+    public static LocalDateTime toServerTime(LocalDateTime rollupTime) {
+        return rollupTime.atZone(ZONE).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    private static LocalDate toDay(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZONE).toLocalDate();
+    }
+
+    /**
+     * Add {@code value} to every day of [start, end) that falls inside [firstDay, lastDay], as a difference array.
+     */
+    private static void addOverRange(long[] delta, long firstDay, long lastDay, long start, long end, long value) {
+        long first = Math.max(start, firstDay);
+        long last = Math.min(end, lastDay + 1);
+        if (first >= last) {
+            return;
+        }
+        delta[(int) (first - firstDay)] += value;
+        delta[(int) (last - firstDay)] -= value;
+    }
+
+    private static List<long[]> mergeSpans(List<long[]> spans) {
+        spans.sort(Comparator.comparingLong(span -> span[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] span : spans) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && span[0] <= last[1]) {
+                last[1] = Math.max(last[1], span[1]);
+            } else {
+                merged.add(new long[]{span[0], span[1]});
+            }
+        }
+        return merged;
+    }
+
+    private static final class Series {
+        final long[] grossRevenue;
+        final long[] refunds;
+        final long[] mrrDelta;
+        final long[] activeDelta;
+        final int[] newMembers;
+        final int[] churnedMembers;
+        final int[] failedPayments;
+        long membersBefore;
+
+        Series(int days) {
+            grossRevenue = new long[days];
+            refunds = new long[days];
+            mrrDelta = new long[days + 1];
+            activeDelta = new long[days + 1];
+            newMembers = new int[days];
+            churnedMembers = new int[days];
+            failedPayments = new int[days];
+        }
+    }
+}
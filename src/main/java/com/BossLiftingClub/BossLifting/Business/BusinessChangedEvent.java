@@ -0,0 +1,17 @@
+package com.BossLiftingClub.BossLifting.Business;
+
+/**
+ * Published when a business is updated or deleted. Listeners caching business details drop them once the
+ * change has committed and reload from the database on next use.
+ */
+public class BusinessChangedEvent {
+    private final Long businessId;
+
+    public BusinessChangedEvent(Long businessId) {
+        this.businessId = businessId;
+    }
+
+    public Long getBusinessId() {
+        return businessId;
+    }
+}
@@ -1,17 +1,15 @@
 package com.BossLiftingClub.BossLifting.Business;
 
+import com.BossLiftingClub.BossLifting.Email.BulkEmail.BulkEmailService;
 import com.BossLiftingClub.BossLifting.Email.EmailService;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusiness;
-import com.BossLiftingClub.BossLifting.Stripe.StripeService;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessMembership;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessRepository;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService;
 import com.BossLiftingClub.BossLifting.User.User;
 import com.BossLiftingClub.BossLifting.User.UserDTO;
 import com.BossLiftingClub.BossLifting.User.UserRepository;
-import com.BossLiftingClub.BossLifting.User.SignInLog.SignInLog;
-import com.BossLiftingClub.BossLifting.User.SignInLog.SignInLogRepository;
-import com.stripe.exception.StripeException;
+import com.BossLiftingClub.BossLifting.User.SignInLog.ScanInService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +18,8 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -48,6 +48,9 @@ public class BusinessController {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private BulkEmailService bulkEmailService;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -55,10 +58,10 @@ public class BusinessController {
     private UserBusinessRepository userBusinessRepository;
 
     @Autowired
-    private StripeService stripeService;
+    private ScanInService scanInService;
 
     @Autowired
-    private SignInLogRepository signInLogRepository;
+    private PlatformTransactionManager transactionManager;
 
     @PostMapping
     public ResponseEntity<?> createBusiness(@Valid @RequestBody BusinessDTO businessDTO) {
@@ -198,12 +201,16 @@ public class BusinessController {
     }
 
     /**
-     * Process a QR/barcode scan: look up user by entryQrcodeToken, record scan-in log (5-min cooldown),
-     * and return full member for the selected business. Frontend uses this to set the selected user.
+     * Process a QR/barcode scan: decide it from the in-memory scan-in index (5-min cooldown), queue the
+     * scan-in log, and return the member's name and status. The full member (as from
+     * GET /members/{userBusinessId}) is only built when includeMember=true. A scanner retrying a request
+     * sends the same Idempotency-Key and gets the first result back without a second log row.
      */
     @PostMapping("/{businessTag}/scan-in")
-    @org.springframework.transaction.annotation.Transactional
-    public ResponseEntity<?> processScanIn(@PathVariable String businessTag, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> processScanIn(@PathVariable String businessTag,
+                                           @RequestParam(defaultValue = "false") boolean includeMember,
+                                           @RequestHeader(value = "Idempotency-Key", required = false) String scanKey,
+                                           @RequestBody Map<String, Object> body) {
         try {
             Object tokenObj = body != null ? body.get("qrCodeToken") : null;
             if (tokenObj == null || tokenObj.toString().trim().isEmpty()) {
@@ -211,39 +218,61 @@ public class BusinessController {
             }
             String rawInput = tokenObj.toString().trim();
             String token = extractTokenFromScan(rawInput);
-
-            Optional<User> userOpt = userRepository.findByEntryQrcodeToken(token);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found for this QR code"));
+            if (scanKey != null && scanKey.length() > 64) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Idempotency-Key must be at most 64 characters"));
             }
 
-            Optional<UserBusiness> ubOpt = userBusinessRepository.findByUserIdAndBusinessTag(userOpt.get().getId(), businessTag);
-            if (ubOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Member not found in this business"));
+            ScanInService.ScanResult scan = scanInService.scan(businessTag, token, scanKey);
+            switch (scan.outcome()) {
+                case UNKNOWN_TOKEN:
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found for this QR code"));
+                case NOT_A_MEMBER:
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Member not found in this business"));
+                case COOLDOWN:
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                            "error", "Scan already recorded. Please wait 5 minutes before scanning again.",
+                            "code", "COOLDOWN"
+                    ));
+                default:
+                    break;
             }
 
-            // 5-minute cooldown to prevent double scans
-            LocalDateTime fiveMinutesAgo = LocalDateTime.now().minusMinutes(5);
-            List<SignInLog> recentLogs = signInLogRepository.findRecentByUserId(userOpt.get().getId(), fiveMinutesAgo);
-            if (!recentLogs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
-                        "error", "Scan already recorded. Please wait 5 minutes before scanning again.",
-                        "code", "COOLDOWN"
-                ));
+            if (includeMember) {
+                Map<String, Object> member = new TransactionTemplate(transactionManager).execute(tx ->
+                        userBusinessRepository.findByIdAndBusinessTag(scan.member().userBusinessId(), businessTag)
+                                .map(this::buildFullMemberMap)
+                                .orElse(null));
+                if (member != null) {
+                    member.put("scanTime", scan.scanTime());
+                    return ResponseEntity.ok(member);
+                }
             }
 
-            SignInLog log = new SignInLog();
-            log.setUser(userOpt.get());
-            log.setSignInTime(LocalDateTime.now());
-            signInLogRepository.save(log);
-
-            return ResponseEntity.ok(buildFullMemberMap(ubOpt.get()));
+            Map<String, Object> result = new HashMap<>();
+            result.put("userId", scan.user().userId());
+            result.put("userBusinessId", scan.member().userBusinessId());
+            result.put("firstName", scan.user().firstName());
+            result.put("lastName", scan.user().lastName());
+            String calculatedStatus = scan.member().calculatedStatus() != null ? scan.member().calculatedStatus() : "Inactive";
+            result.put("status", calculatedStatus);
+            result.put("calculatedStatus", calculatedStatus);
+            result.put("calculatedUserType", scan.member().calculatedUserType() != null ? scan.member().calculatedUserType() : "Member");
+            result.put("scanTime", scan.scanTime());
+            return ResponseEntity.ok(result);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Scan failed: " + e.getMessage()));
         }
     }
 
+    /**
+     * Scan-in index size and hit rate
+     */
+    @GetMapping("/scan-in/stats")
+    public ResponseEntity<?> getScanInStats() {
+        return ResponseEntity.ok(scanInService.getStats());
+    }
+
     /** Extract token from scan result - handles plain token or URL containing token */
     private static String extractTokenFromScan(String raw) {
         if (raw == null || raw.isEmpty()) return raw;
@@ -289,37 +318,12 @@ public class BusinessController {
                     m.put("title", ubm.getMembership().getTitle());
                     m.put("price", ubm.getMembership().getPrice());
                     m.put("chargeInterval", ubm.getMembership().getChargeInterval());
-                    m.put("status", ubm.getStatus());
-                    Object anchorDate = ubm.getAnchorDate();
-                    // Enrich with Stripe current_period_start when available (source of truth for billing)
-                    Object endDate = ubm.getEndDate();
-                    if (ubm.getStripeSubscriptionId() != null && !ubm.getStripeSubscriptionId().isEmpty()) {
-                        try {
-                            Map<String, Object> stripeDetails = stripeService.retrieveSubscriptionDetails(ubm.getStripeSubscriptionId(), null);
-                            Object stripeAnchor = stripeDetails.get("currentPeriodStart");
-                            if (stripeAnchor != null) anchorDate = stripeAnchor;
-                            Object stripeStatus = stripeDetails.get("status");
-                            if (stripeStatus != null) m.put("status", mapStripeStatusToDisplay((String) stripeStatus));
-                            Boolean cancelAtPeriodEnd = (Boolean) stripeDetails.get("cancelAtPeriodEnd");
-                            if (Boolean.TRUE.equals(cancelAtPeriodEnd)) {
-                                Object stripeCancelAt = stripeDetails.get("cancelAt");
-                                if (stripeCancelAt != null) {
-                                    endDate = stripeCancelAt;
-                                } else {
-                                    Object periodEnd = stripeDetails.get("currentPeriodEnd");
-                                    if (periodEnd != null) endDate = periodEnd;
-                                }
-                                m.put("status", "CANCELLING");
-                            } else {
-                                Object stripeCancelAt = stripeDetails.get("cancelAt");
-                                if (stripeCancelAt != null) endDate = stripeCancelAt;
-                            }
-                        } catch (StripeException e) {
-                            // Fall back to DB values if Stripe fetch fails
-                        }
-                    }
+                    // Billing anchor comes from the stored Stripe current_period_start once the subscription has synced
+                    Object anchorDate = ubm.getSubscriptionSyncedAt() != null && ubm.getCurrentPeriodStart() != null
+                            ? ubm.getCurrentPeriodStart()
+                            : ubm.getAnchorDate();
                     m.put("anchorDate", anchorDate);
-                    m.put("endDate", endDate);
+                    putSubscriptionState(ubm, m);
                     m.put("stripeSubscriptionId", ubm.getStripeSubscriptionId());
                     m.put("pauseStartDate", ubm.getPauseStartDate());
                     m.put("pauseEndDate", ubm.getPauseEndDate());
@@ -362,6 +366,28 @@ public class BusinessController {
         return member;
     }
 
+    /**
+     * Put a membership's display status and end date, taken from the Stripe subscription state stored on it.
+     * That state is kept current by subscription webhooks and the sync job, so no Stripe call is made here;
+     * memberships that have not synced yet show their own status and end date.
+     */
+    private static void putSubscriptionState(UserBusinessMembership ubm, Map<String, Object> m) {
+        String status = ubm.getStatus();
+        Object endDate = ubm.getEndDate();
+        if (ubm.getSubscriptionSyncedAt() != null) {
+            if (ubm.getStripeStatus() != null) status = mapStripeStatusToDisplay(ubm.getStripeStatus());
+            if (Boolean.TRUE.equals(ubm.getCancelAtPeriodEnd())) {
+                LocalDateTime cancelDate = ubm.getCancelAt() != null ? ubm.getCancelAt() : ubm.getCurrentPeriodEnd();
+                if (cancelDate != null) endDate = cancelDate;
+                status = "CANCELLING";
+            } else if (ubm.getCancelAt() != null) {
+                endDate = ubm.getCancelAt();
+            }
+        }
+        m.put("status", status);
+        m.put("endDate", endDate);
+    }
+
     private static String mapStripeStatusToDisplay(String stripeStatus) {
         if (stripeStatus == null) return "INACTIVE";
         switch (stripeStatus.toLowerCase()) {
@@ -413,7 +439,7 @@ public class BusinessController {
                             }
                         }
 
-                        // Map memberships from UserBusinessMembership junction table (enrich from Stripe for cancel status/date)
+                        // Map memberships from UserBusinessMembership junction table (cancel status/date from the stored Stripe subscription state)
                         List<Map<String, Object>> memberships = ub.getUserBusinessMemberships().stream()
                                 .map(ubm -> {
                                     Map<String, Object> membershipData = new java.util.HashMap<>();
@@ -422,27 +448,8 @@ public class BusinessController {
                                     membershipData.put("title", ubm.getMembership().getTitle());
                                     membershipData.put("price", ubm.getMembership().getPrice());
                                     membershipData.put("chargeInterval", ubm.getMembership().getChargeInterval());
-                                    String status = ubm.getStatus();
-                                    Object endDate = ubm.getEndDate();
-                                    if (ubm.getStripeSubscriptionId() != null && !ubm.getStripeSubscriptionId().isEmpty()) {
-                                        try {
-                                            Map<String, Object> stripeDetails = stripeService.retrieveSubscriptionDetails(ubm.getStripeSubscriptionId(), null);
-                                            Object stripeStatus = stripeDetails.get("status");
-                                            if (stripeStatus != null) status = mapStripeStatusToDisplay((String) stripeStatus);
-                                            Boolean cancelAtPeriodEnd = (Boolean) stripeDetails.get("cancelAtPeriodEnd");
-                                            if (Boolean.TRUE.equals(cancelAtPeriodEnd)) {
-                                                Object stripeCancelAt = stripeDetails.get("cancelAt");
-                                                endDate = stripeCancelAt != null ? stripeCancelAt : stripeDetails.get("currentPeriodEnd");
-                                                status = "CANCELLING";
-                                            } else {
-                                                Object stripeCancelAt = stripeDetails.get("cancelAt");
-                                                if (stripeCancelAt != null) endDate = stripeCancelAt;
-                                            }
-                                        } catch (StripeException e) { /* fallback to DB */ }
-                                    }
-                                    membershipData.put("status", status);
                                     membershipData.put("anchorDate", ubm.getAnchorDate());
-                                    membershipData.put("endDate", endDate);
+                                    putSubscriptionState(ubm, membershipData);
                                     membershipData.put("stripeSubscriptionId", ubm.getStripeSubscriptionId());
                                     membershipData.put("pauseStartDate", ubm.getPauseStartDate());
                                     membershipData.put("pauseEndDate", ubm.getPauseEndDate());
@@ -510,56 +517,52 @@ public class BusinessController {
         }
     }
 
-    /**
-     * Update the status of a user-business relationship
-     */
     @Autowired
-    private com.BossLiftingClub.BossLifting.User.BusinessUser.StripeSyncService stripeSyncService;
+    private com.BossLiftingClub.BossLifting.User.BusinessUser.MemberStatusRecalculationService memberStatusRecalculationService;
 
     /**
-     * Sync from Stripe and recalculate status for all members of a business
+     * Sync from Stripe and recalculate status for all members of a business, as a background job.
      * This will:
      * 1. Sync subscription statuses from Stripe (update/remove memberships based on Stripe state)
      * 2. Recalculate status for all members
+     * Poll GET /api/businesses/{businessTag}/recalculate-statuses/status for progress.
      */
     @PostMapping("/{businessTag}/recalculate-statuses")
     public ResponseEntity<?> recalculateAllMemberStatuses(@PathVariable String businessTag) {
         try {
-            // First, sync from Stripe to update memberships based on current Stripe state
-            Map<String, Object> syncResult = stripeSyncService.syncBusinessFromStripe(businessTag);
-            
-            if (!Boolean.TRUE.equals(syncResult.get("success"))) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(Map.of("error", syncResult.get("error") != null ? syncResult.get("error") : "Failed to sync from Stripe"));
+            var job = memberStatusRecalculationService.start(businessTag);
+            if (job.isEmpty()) {
+                Map<String, Object> body = new HashMap<>();
+                body.put("error", "Status recalculation already running for this business");
+                body.put("job", memberStatusRecalculationService.getLatestJob(businessTag).orElse(null));
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
             }
-            
-            // Then recalculate statuses for all members
-            List<UserBusiness> userBusinesses = userBusinessRepository.findAllByBusinessTag(businessTag);
-            
-            int recalculated = 0;
-            for (UserBusiness userBusiness : userBusinesses) {
-                try {
-                    userBusinessService.calculateAndUpdateStatus(userBusiness);
-                    recalculated++;
-                } catch (Exception e) {
-                    System.err.println("Error recalculating status for UserBusiness " + userBusiness.getId() + ": " + e.getMessage());
-                }
-            }
-            
-            return ResponseEntity.ok(Map.of(
+            return ResponseEntity.accepted().body(Map.of(
                     "success", true,
-                    "message", "Synced from Stripe and recalculated status for " + recalculated + " members",
-                    "synced", syncResult.get("synced"),
-                    "updated", syncResult.get("updated"),
-                    "recalculated", recalculated,
-                    "total", userBusinesses.size()
+                    "message", "Status recalculation started",
+                    "jobId", job.get().getId(),
+                    "job", job.get()
             ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Failed to sync and recalculate statuses: " + e.getMessage()));
+                    .body(Map.of("error", "Failed to start status recalculation: " + e.getMessage()));
         }
     }
 
+    /**
+     * Progress of the running or most recent status recalculation for a business
+     * GET /api/businesses/{businessTag}/recalculate-statuses/status
+     */
+    @GetMapping("/{businessTag}/recalculate-statuses/status")
+    public ResponseEntity<?> getRecalculationStatus(@PathVariable String businessTag) {
+        return memberStatusRecalculationService.getLatestJob(businessTag)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "No status recalculation has run for this business")));
+    }
+
     @PutMapping("/{businessTag}/members/{userId}/status")
     public ResponseEntity<?> updateMemberStatus(
             @PathVariable String businessTag,
@@ -745,7 +748,8 @@ public class BusinessController {
     }
 
     /**
-     * Send white-labeled emails to multiple members.
+     * Send white-labeled emails to multiple members. Queues a bulk email job and returns right away;
+     * follow it at GET /api/businesses/{businessTag}/email/jobs/{jobId}.
      */
     @PostMapping("/{businessTag}/email/send-bulk")
     public ResponseEntity<?> sendBulkEmail(
@@ -758,54 +762,20 @@ public class BusinessController {
             if (request.getSubject() == null || request.getSubject().trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "subject is required"));
             }
+            if (request.getSubject().length() > BulkEmailService.MAX_SUBJECT_LENGTH) {
+                return ResponseEntity.badRequest().body(Map.of("error",
+                        "subject must be at most " + BulkEmailService.MAX_SUBJECT_LENGTH + " characters"));
+            }
             if (request.getBody() == null || request.getBody().trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "body is required"));
             }
 
-            int successCount = 0;
-            int failCount = 0;
-            List<String> failedEmails = new java.util.ArrayList<>();
-
-            // Get business details once
-            BusinessDTO businessDTO = businessService.getBusinessByTag(businessTag);
-            String businessName = businessDTO.getTitle();
-            String businessReplyTo = businessDTO.getContactEmail();
-
-            if (businessReplyTo == null || businessReplyTo.isEmpty()) {
-                businessReplyTo = "noreply@recrev.com"; 
-            }
-
-            for (Long userBusinessId : request.getUserBusinessIds()) {
-                try {
-                    UserBusiness userBusiness = userBusinessService.getUserBusinessById(userBusinessId)
-                            .orElseThrow(() -> new EntityNotFoundException("Member not found with ID: " + userBusinessId));
-
-                    if (!userBusiness.getBusiness().getBusinessTag().equals(businessTag)) {
-                        failCount++;
-                        continue;
-                    }
-
-                    String recipientEmail = userBusiness.getUser().getEmail();
-                    if (recipientEmail == null || recipientEmail.isEmpty()) {
-                        failCount++;
-                        continue;
-                    }
-
-                    emailService.sendBlastEmail(recipientEmail, request.getSubject(), request.getBody(), businessName, businessReplyTo, businessDTO.getContactEmail());
-                    successCount++;
-                } catch (Exception e) {
-                    failCount++;
-                    failedEmails.add("ID " + userBusinessId + ": " + e.getMessage());
-                }
-            }
-
-            return ResponseEntity.ok(Map.of(
-                    "message", "Bulk email processing completed",
-                    "sent", successCount,
-                    "failed", failCount,
-                    "failedDetails", failedEmails
-            ));
+            Map<String, Object> job = bulkEmailService.queue(businessTag, request.getUserBusinessIds(),
+                    request.getSubject(), request.getBody());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to process bulk email: " + e.getMessage()));
         }
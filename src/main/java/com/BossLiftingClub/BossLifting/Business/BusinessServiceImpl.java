@@ -8,6 +8,7 @@ import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,6 +30,9 @@ public class BusinessServiceImpl implements BusinessService {
     @Autowired
     private StaffRepository staffRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public BusinessDTO createBusiness(BusinessDTO businessDTO) {
@@ -158,6 +162,7 @@ public class BusinessServiceImpl implements BusinessService {
         }
 
         Business savedBusiness = businessRepository.save(business);
+        eventPublisher.publishEvent(new BusinessChangedEvent(id));
         logger.info("Business updated successfully with ID: {}", id);
         return BusinessDTO.mapToBusinessDTO(savedBusiness);
     }
@@ -178,6 +183,7 @@ public class BusinessServiceImpl implements BusinessService {
             clientRepository.save(client);
         }
         businessRepository.deleteById(id);
+        eventPublisher.publishEvent(new BusinessChangedEvent(id));
         logger.info("Business deleted successfully with ID: {}", id);
     }
 
@@ -0,0 +1,96 @@
+package com.BossLiftingClub.BossLifting.Email.BulkEmail;
+
+import com.BossLiftingClub.BossLifting.Business.Business;
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Progress and results of a business's bulk email jobs. Jobs are created by
+ * POST /api/businesses/{businessTag}/email/send-bulk.
+ */
+@RestController
+@RequestMapping("/api/businesses/{businessTag}/email/jobs")
+public class BulkEmailController {
+
+    private final BulkEmailService bulkEmailService;
+    private final BusinessRepository businessRepository;
+
+    public BulkEmailController(BulkEmailService bulkEmailService, BusinessRepository businessRepository) {
+        this.bulkEmailService = bulkEmailService;
+        this.businessRepository = businessRepository;
+    }
+
+    /**
+     * The business's most recent jobs, newest first.
+     *
+     * GET /api/businesses/{businessTag}/email/jobs?limit=20
+     */
+    @GetMapping
+    public ResponseEntity<?> listJobs(@PathVariable String businessTag, @RequestParam(defaultValue = "20") int limit) {
+        Optional<Business> business = businessRepository.findByBusinessTag(businessTag);
+        if (business.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Business not found with tag: " + businessTag));
+        }
+        return ResponseEntity.ok(bulkEmailService.listJobs(business.get().getId(), limit));
+    }
+
+    /**
+     * Sent, failed, skipped and pending counts for one job.
+     *
+     * GET /api/businesses/{businessTag}/email/jobs/{jobId}
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getProgress(@PathVariable String businessTag, @PathVariable long jobId) {
+        if (!belongsToBusiness(jobId, businessTag)) {
+            return jobNotFound(jobId);
+        }
+        return ResponseEntity.ok(bulkEmailService.getProgress(jobId).orElseThrow());
+    }
+
+    /**
+     * Per-recipient results, optionally filtered by status (PENDING, SENDING, SENT, FAILED, SKIPPED).
+     *
+     * GET /api/businesses/{businessTag}/email/jobs/{jobId}/recipients?status=FAILED&limit=100
+     */
+    @GetMapping("/{jobId}/recipients")
+    public ResponseEntity<?> getRecipients(@PathVariable String businessTag, @PathVariable long jobId,
+                                           @RequestParam(required = false) String status,
+                                           @RequestParam(defaultValue = "100") int limit) {
+        if (!belongsToBusiness(jobId, businessTag)) {
+            return jobNotFound(jobId);
+        }
+        return ResponseEntity.ok(bulkEmailService.getRecipients(jobId, status != null ? status.toUpperCase() : null, limit));
+    }
+
+    /**
+     * Send a finished job again to the recipients it failed for. Recipients already sent are skipped.
+     *
+     * POST /api/businesses/{businessTag}/email/jobs/{jobId}/retry
+     */
+    @PostMapping("/{jobId}/retry")
+    public ResponseEntity<?> retry(@PathVariable String businessTag, @PathVariable long jobId) {
+        if (!belongsToBusiness(jobId, businessTag)) {
+            return jobNotFound(jobId);
+        }
+        if (!bulkEmailService.retry(jobId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Job " + jobId + " is still running"));
+        }
+        return ResponseEntity.accepted().body(bulkEmailService.getProgress(jobId).orElseThrow());
+    }
+
+    private boolean belongsToBusiness(long jobId, String businessTag) {
+        Optional<Business> business = businessRepository.findByBusinessTag(businessTag);
+        return business.isPresent() && bulkEmailService.findJob(jobId)
+                .map(job -> job.businessId() == business.get().getId())
+                .orElse(false);
+    }
+
+    private static ResponseEntity<?> jobNotFound(long jobId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Bulk email job not found: " + jobId));
+    }
+}
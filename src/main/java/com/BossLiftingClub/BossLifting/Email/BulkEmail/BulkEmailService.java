@@ -0,0 +1,492 @@
+package com.BossLiftingClub.BossLifting.Email.BulkEmail;
+
+import com.BossLiftingClub.BossLifting.Business.Business;
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import com.BossLiftingClub.BossLifting.Email.EmailService;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a business's email blast to many members in the background.
+ *
+ * Queuing a job resolves every recipient's address in one INSERT ... SELECT over user_business and users and
+ * stores a row per recipient, then returns. Jobs run one at a time on a job thread. Pending recipients are
+ * split into batches of {@code bulk-email.messages-per-connection}, each sent by one of
+ * {@code bulk-email.connections} sender threads. Sends are paced across all jobs at
+ * {@code bulk-email.messages-per-second} so the blast stays inside the mail provider's limits: a batch goes
+ * out in bursts of at most one second's worth of messages, each over a single SMTP connection, so no second
+ * carries more than the rate allows.
+ *
+ * Each recipient's outcome (SENT, FAILED with the error, or SKIPPED for members without an address) is
+ * written as its batch finishes; if a batch fails outright, its unfinished recipients are marked FAILED before
+ * the job completes. A retry resets only FAILED recipients, so members who already got the email do not get
+ * it again. Jobs interrupted by a restart resume on startup. Recipients whose batch was on
+ * the wire at the time are marked FAILED rather than resent, because their delivery is unknown.
+ */
+@Service
+public class BulkEmailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkEmailService.class);
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+    public static final String SKIPPED = "SKIPPED";
+
+    /** Length of bulk_email_jobs.subject. */
+    public static final int MAX_SUBJECT_LENGTH = 500;
+
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int INSERT_CHUNK_SIZE = 1000;
+    private static final String FALLBACK_REPLY_TO = "noreply@recrev.com";
+
+    private static final String INSERT_RECIPIENTS_SQL =
+            "INSERT INTO bulk_email_recipients (job_id, user_business_id, email, status, attempts, last_error) " +
+            "SELECT ?, ub.id, u.email, " +
+            "CASE WHEN u.email IS NULL OR u.email = '' THEN 'SKIPPED' ELSE 'PENDING' END, 0, " +
+            "CASE WHEN u.email IS NULL OR u.email = '' THEN 'No email address' ELSE NULL END " +
+            "FROM user_business ub JOIN users u ON u.id = ub.user_id " +
+            "WHERE ub.business_id = ? AND ub.id IN (%s)";
+
+    private static final String JOB_SQL =
+            "SELECT id, business_id, subject, body, status, requested, created_at, started_at, finished_at " +
+            "FROM bulk_email_jobs WHERE id = ?";
+
+    /** A job as stored, without its recipients. */
+    public record BulkEmailJob(long id, long businessId, String subject, String body, String status, int requested,
+                               LocalDateTime createdAt, LocalDateTime startedAt, LocalDateTime finishedAt) {}
+
+    private record Recipient(long id, String email) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailService emailService;
+    private final BusinessRepository businessRepository;
+    private final int messagesPerConnection;
+    private final int messagesPerBurst;
+    private final long sendIntervalNanos;
+    private final ExecutorService jobRunner;
+    private final ExecutorService senders;
+    private long nextSendSlot = System.nanoTime();
+
+    public BulkEmailService(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            EmailService emailService,
+                            BusinessRepository businessRepository,
+                            @Value("${bulk-email.connections:2}") int connections,
+                            @Value("${bulk-email.messages-per-connection:20}") int messagesPerConnection,
+                            @Value("${bulk-email.messages-per-second:5}") double messagesPerSecond) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.emailService = emailService;
+        this.businessRepository = businessRepository;
+        this.messagesPerConnection = Math.max(1, messagesPerConnection);
+        this.sendIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / (messagesPerSecond > 0 ? messagesPerSecond : 1));
+        this.messagesPerBurst = Math.min(this.messagesPerConnection, Math.max(1, (int) messagesPerSecond));
+        this.jobRunner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-email-jobs");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, connections), runnable -> {
+            Thread thread = new Thread(runnable, "bulk-email-smtp-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Resume jobs a restart interrupted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        try {
+            int unknown = jdbcTemplate.update("UPDATE bulk_email_recipients SET status = 'FAILED', " +
+                    "last_error = 'Interrupted while sending; delivery unknown' WHERE status = 'SENDING'");
+            List<Long> jobIds = jdbcTemplate.queryForList(
+                    "SELECT id FROM bulk_email_jobs WHERE status IN ('QUEUED', 'RUNNING') ORDER BY id", Long.class);
+            if (!jobIds.isEmpty()) {
+                logger.info("Resuming {} bulk email job(s); {} recipient(s) with unknown delivery marked failed",
+                        jobIds.size(), unknown);
+            }
+            jobIds.forEach(this::submit);
+        } catch (Exception e) {
+            logger.error("Could not resume bulk email jobs: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobRunner.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Create a job for the given members of the business and start sending in the background. Ids that are
+     * not members of the business are left out.
+     * @return the job's progress
+     * @throws IllegalArgumentException if no business has the tag
+     */
+    public Map<String, Object> queue(String businessTag, Collection<Long> userBusinessIds, String subject, String body) {
+        Business business = businessRepository.findByBusinessTag(businessTag)
+                .orElseThrow(() -> new IllegalArgumentException("Business not found with tag: " + businessTag));
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(userBusinessIds));
+        Long jobId = transactionTemplate.execute(status -> {
+            long id = insertJob(business.getId(), subject, body, ids.size());
+            for (int i = 0; i < ids.size(); i += INSERT_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(i, Math.min(i + INSERT_CHUNK_SIZE, ids.size()));
+                List<Object> args = new ArrayList<>(chunk.size() + 2);
+                args.add(id);
+                args.add(business.getId());
+                args.addAll(chunk);
+                jdbcTemplate.update(String.format(INSERT_RECIPIENTS_SQL, String.join(",", Collections.nCopies(chunk.size(), "?"))),
+                        args.toArray());
+            }
+            return id;
+        });
+        submit(jobId);
+        return getProgress(jobId).orElseThrow();
+    }
+
+    /**
+     * Send the job again to its FAILED recipients. Recipients already sent are not touched.
+     * @return false if the job is still running
+     */
+    public boolean retry(long jobId) {
+        Boolean reset = transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update("UPDATE bulk_email_jobs SET status = 'QUEUED', finished_at = NULL " +
+                    "WHERE id = ? AND status = 'COMPLETED'", jobId);
+            if (updated == 0) {
+                return false;
+            }
+            jdbcTemplate.update("UPDATE bulk_email_recipients SET status = 'PENDING' WHERE job_id = ? AND status = 'FAILED'",
+                    jobId);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(reset)) {
+            return false;
+        }
+        submit(jobId);
+        return true;
+    }
+
+    public Optional<BulkEmailJob> findJob(long jobId) {
+        return jdbcTemplate.query(JOB_SQL, (rs, rowNum) -> new BulkEmailJob(
+                rs.getLong("id"),
+                rs.getLong("business_id"),
+                rs.getString("subject"),
+                rs.getString("body"),
+                rs.getString("status"),
+                rs.getInt("requested"),
+                toLocalDateTime(rs.getTimestamp("created_at")),
+                toLocalDateTime(rs.getTimestamp("started_at")),
+                toLocalDateTime(rs.getTimestamp("finished_at"))), jobId).stream().findFirst();
+    }
+
+    /**
+     * The job with recipient counts per status.
+     */
+    public Optional<Map<String, Object>> getProgress(long jobId) {
+        return findJob(jobId).map(job -> {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (String status : List.of(PENDING, SENDING, SENT, FAILED, SKIPPED)) {
+                counts.put(status, 0);
+            }
+            jdbcTemplate.query("SELECT status, COUNT(*) AS total FROM bulk_email_recipients WHERE job_id = ? GROUP BY status",
+                    rs -> {
+                        counts.put(rs.getString("status"), rs.getInt("total"));
+                    }, jobId);
+            int recipients = counts.values().stream().mapToInt(Integer::intValue).sum();
+            int done = counts.get(SENT) + counts.get(FAILED) + counts.get(SKIPPED);
+
+            Map<String, Object> progress = new LinkedHashMap<>();
+            progress.put("jobId", job.id());
+            progress.put("status", job.status());
+            progress.put("subject", job.subject());
+            progress.put("requested", job.requested());
+            progress.put("recipients", recipients);
+            progress.put("notMembers", job.requested() - recipients);
+            progress.put("sent", counts.get(SENT));
+            progress.put("failed", counts.get(FAILED));
+            progress.put("skipped", counts.get(SKIPPED));
+            progress.put("pending", counts.get(PENDING) + counts.get(SENDING));
+            progress.put("percentComplete", recipients == 0 ? 100 : done * 100 / recipients);
+            progress.put("createdAt", job.createdAt());
+            progress.put("startedAt", job.startedAt());
+            progress.put("finishedAt", job.finishedAt());
+            return progress;
+        });
+    }
+
+    /**
+     * The business's most recent jobs with their progress, newest first.
+     */
+    public List<Map<String, Object>> listJobs(long businessId, int limit) {
+        List<Long> jobIds = jdbcTemplate.queryForList(
+                "SELECT id FROM bulk_email_jobs WHERE business_id = ? ORDER BY id DESC LIMIT ?", Long.class,
+                businessId, Math.min(Math.max(1, limit), 100));
+        List<Map<String, Object>> jobs = new ArrayList<>(jobIds.size());
+        for (Long jobId : jobIds) {
+            getProgress(jobId).ifPresent(jobs::add);
+        }
+        return jobs;
+    }
+
+    /**
+     * The job's recipients, optionally only those with the given status.
+     */
+    public List<Map<String, Object>> getRecipients(long jobId, String status, int limit) {
+        int max = Math.min(Math.max(1, limit), 1000);
+        if (status == null) {
+            return jdbcTemplate.queryForList("SELECT user_business_id, email, status, attempts, last_error, sent_at " +
+                    "FROM bulk_email_recipients WHERE job_id = ? ORDER BY id LIMIT ?", jobId, max);
+        }
+        return jdbcTemplate.queryForList("SELECT user_business_id, email, status, attempts, last_error, sent_at " +
+                "FROM bulk_email_recipients WHERE job_id = ? AND status = ? ORDER BY id LIMIT ?", jobId, status, max);
+    }
+
+    private long insertJob(long businessId, String subject, String body, int requested) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO bulk_email_jobs (business_id, subject, body, status, requested, created_at) " +
+                    "VALUES (?, ?, ?, 'QUEUED', ?, ?)", new String[] { "id" });
+            ps.setLong(1, businessId);
+            ps.setString(2, subject);
+            ps.setString(3, body);
+            ps.setInt(4, requested);
+            ps.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    private void submit(long jobId) {
+        jobRunner.submit(() -> run(jobId));
+    }
+
+    /**
+     * Run a job on the job thread. A job that fails outright is completed with its unfinished recipients
+     * FAILED, so it can be retried instead of staying RUNNING until the next restart.
+     */
+    private void run(long jobId) {
+        try {
+            sendJob(jobId);
+        } catch (Exception e) {
+            logger.error("Bulk email job {} failed: {}", jobId, e.getMessage(), e);
+            try {
+                failUnfinishedRecipients(jobId);
+                finish(jobId);
+            } catch (Exception finishError) {
+                logger.error("Could not complete failed bulk email job {}: {}", jobId, finishError.getMessage(), finishError);
+            }
+        }
+    }
+
+    private void sendJob(long jobId) {
+        Optional<BulkEmailJob> found = findJob(jobId);
+        if (found.isEmpty()) {
+            return;
+        }
+        BulkEmailJob job = found.get();
+        Business business = businessRepository.findById(job.businessId()).orElse(null);
+        if (business == null) {
+            logger.warn("Bulk email job {} belongs to a deleted business; dropping it", jobId);
+            finish(jobId);
+            return;
+        }
+        String replyTo = business.getContactEmail() != null && !business.getContactEmail().isEmpty()
+                ? business.getContactEmail()
+                : FALLBACK_REPLY_TO;
+        jdbcTemplate.update("UPDATE bulk_email_jobs SET status = 'RUNNING', started_at = COALESCE(started_at, ?) WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now()), jobId);
+
+        List<Recipient> recipients = jdbcTemplate.query(
+                "SELECT id, email FROM bulk_email_recipients WHERE job_id = ? AND status = 'PENDING' ORDER BY id",
+                (rs, rowNum) -> new Recipient(rs.getLong("id"), rs.getString("email")), jobId);
+        logger.info("Bulk email job {} for business '{}': sending to {} recipient(s)", jobId, business.getTitle(),
+                recipients.size());
+
+        List<Future<?>> batches = new ArrayList<>();
+        for (int i = 0; i < recipients.size(); i += messagesPerConnection) {
+            List<Recipient> batch = recipients.subList(i, Math.min(i + messagesPerConnection, recipients.size()));
+            batches.add(senders.submit(() -> sendBatch(job, batch, business.getTitle(), replyTo,
+                    business.getContactEmail())));
+        }
+        boolean batchFailed = false;
+        for (Future<?> batch : batches) {
+            try {
+                batch.get();
+            } catch (ExecutionException e) {
+                batchFailed = true;
+                logger.error("Bulk email batch for job {} failed: {}", jobId, e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                // Shutting down; the job resumes on the next startup
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (batchFailed) {
+            failUnfinishedRecipients(jobId);
+        }
+        finish(jobId);
+        logger.info("Bulk email job {} finished: {}", jobId, getProgress(jobId).orElse(Map.of()));
+    }
+
+    /**
+     * Mark recipients a failed batch or job left behind as FAILED, so the job does not complete with recipients
+     * that a retry cannot reach. Those left SENDING may have received the email; their delivery is unknown.
+     */
+    private void failUnfinishedRecipients(long jobId) {
+        int unknown = jdbcTemplate.update("UPDATE bulk_email_recipients SET status = 'FAILED', " +
+                "last_error = 'Failed while sending; delivery unknown' WHERE job_id = ? AND status = 'SENDING'", jobId);
+        int unsent = jdbcTemplate.update("UPDATE bulk_email_recipients SET status = 'FAILED', " +
+                "last_error = 'Failed before sending' WHERE job_id = ? AND status = 'PENDING'", jobId);
+        if (unknown + unsent > 0) {
+            logger.warn("Bulk email job {}: {} recipient(s) with unknown delivery and {} unsent marked failed",
+                    jobId, unknown, unsent);
+        }
+    }
+
+    private void finish(long jobId) {
+        jdbcTemplate.update("UPDATE bulk_email_jobs SET status = 'COMPLETED', finished_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now()), jobId);
+    }
+
+    /**
+     * Send one batch in rate-sized bursts and record each recipient's outcome.
+     */
+    private void sendBatch(BulkEmailJob job, List<Recipient> batch, String businessName, String replyTo, String contactEmail) {
+        Map<MimeMessage, Recipient> messages = new IdentityHashMap<>();
+        List<MimeMessage> ordered = new ArrayList<>(batch.size());
+        Map<Recipient, String> failures = new LinkedHashMap<>();
+        for (Recipient recipient : batch) {
+            try {
+                MimeMessage message = emailService.createBlastMessage(recipient.email(), job.subject(), job.body(),
+                        businessName, replyTo, contactEmail);
+                messages.put(message, recipient);
+                ordered.add(message);
+            } catch (Exception e) {
+                failures.put(recipient, describe(e));
+            }
+        }
+
+        for (int i = 0; i < ordered.size(); i += messagesPerBurst) {
+            sendBurst(ordered.subList(i, Math.min(i + messagesPerBurst, ordered.size())), messages, failures);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> sent = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        for (Recipient recipient : batch) {
+            String error = failures.get(recipient);
+            if (error == null) {
+                sent.add(new Object[] { now, recipient.id() });
+            } else {
+                failed.add(new Object[] { error, recipient.id() });
+            }
+        }
+        if (!sent.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE bulk_email_recipients SET status = 'SENT', sent_at = ?, last_error = NULL WHERE id = ?",
+                    sent);
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE bulk_email_recipients SET status = 'FAILED', last_error = ? WHERE id = ?",
+                    failed);
+            logger.warn("Bulk email job {}: {} of {} message(s) in batch failed", job.id(), failed.size(), batch.size());
+        }
+    }
+
+    /**
+     * Wait for the burst's send slots, then send it over a single SMTP connection. Failed recipients are
+     * added to {@code failures}.
+     */
+    private void sendBurst(List<MimeMessage> burst, Map<MimeMessage, Recipient> messages, Map<Recipient, String> failures) {
+        awaitSendSlots(burst.size());
+        List<Object[]> sending = burst.stream().map(message -> new Object[] { messages.get(message).id() }).toList();
+        jdbcTemplate.batchUpdate("UPDATE bulk_email_recipients SET status = 'SENDING', attempts = attempts + 1 WHERE id = ?",
+                sending);
+        try {
+            emailService.sendAll(burst.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                burst.forEach(message -> failures.put(messages.get(message), describe(e)));
+            }
+            e.getFailedMessages().forEach((message, error) -> {
+                Recipient recipient = messages.get(message);
+                if (recipient != null) {
+                    failures.put(recipient, describe(error));
+                }
+            });
+        } catch (Exception e) {
+            burst.forEach(message -> failures.put(messages.get(message), describe(e)));
+        }
+    }
+
+    /**
+     * Block until {@code count} messages fit in the send rate shared by every connection.
+     */
+    private void awaitSendSlots(int count) {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextSendSlot);
+            nextSendSlot = start + count * sendIntervalNanos;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting to send bulk email", e);
+            }
+        }
+    }
+
+    private static String describe(Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -1,5 +1,6 @@
 package com.BossLiftingClub.BossLifting.Email;
 
+import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,35 +74,7 @@ public class EmailService {
      */
     public void sendBlastEmail(String to, String subject, String body, String businessName, String businessReplyTo, String contactEmail) {
         try {
-            MimeMessage mimeMessage = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            
-            // Append contact email footer if provided
-            String emailBody = body;
-            if (contactEmail != null && !contactEmail.trim().isEmpty()) {
-                String footer = "<br><br><hr style='border: none; border-top: 1px solid #e0e0e0; margin: 20px 0;'><p style='color: #666; font-size: 12px;'>If you have any questions, please contact <a href='mailto:" + contactEmail + "'>" + contactEmail + "</a></p>";
-                emailBody = body + footer;
-            }
-            
-            helper.setText(emailBody, true); // Enable HTML
-
-            // Set From: "Business Name <system@email.com>"
-            try {
-                helper.setFrom(systemEmail, businessName);
-            } catch (UnsupportedEncodingException e) {
-                logger.warn("Failed to set custom sender name '{}', falling back to system email only.", businessName);
-                helper.setFrom(systemEmail);
-            }
-
-            // Set Reply-To: "business@email.com"
-            if (businessReplyTo != null && !businessReplyTo.isEmpty()) {
-                helper.setReplyTo(businessReplyTo);
-            }
-
-            mailSender.send(mimeMessage);
+            mailSender.send(createBlastMessage(to, subject, body, businessName, businessReplyTo, contactEmail));
             logger.info("Blast email sent to {} for business '{}'", to, businessName);
 
         } catch (Exception e) {
@@ -109,4 +82,55 @@ public class EmailService {
             throw new RuntimeException("Failed to send blast email: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Builds a white-labeled blast email without sending it.
+     *
+     * @param to Recipient email address
+     * @param subject Email subject
+     * @param body Email body (supports HTML)
+     * @param businessName The name of the business to appear as the sender name
+     * @param businessReplyTo The email address for replies
+     * @param contactEmail The contact email to include in footer (optional)
+     */
+    public MimeMessage createBlastMessage(String to, String subject, String body, String businessName, String businessReplyTo, String contactEmail)
+            throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+
+        helper.setTo(to);
+        helper.setSubject(subject);
+
+        // Append contact email footer if provided
+        String emailBody = body;
+        if (contactEmail != null && !contactEmail.trim().isEmpty()) {
+            String footer = "<br><br><hr style='border: none; border-top: 1px solid #e0e0e0; margin: 20px 0;'><p style='color: #666; font-size: 12px;'>If you have any questions, please contact <a href='mailto:" + contactEmail + "'>" + contactEmail + "</a></p>";
+            emailBody = body + footer;
+        }
+
+        helper.setText(emailBody, true); // Enable HTML
+
+        // Set From: "Business Name <system@email.com>"
+        try {
+            helper.setFrom(systemEmail, businessName);
+        } catch (UnsupportedEncodingException e) {
+            logger.warn("Failed to set custom sender name '{}', falling back to system email only.", businessName);
+            helper.setFrom(systemEmail);
+        }
+
+        // Set Reply-To: "business@email.com"
+        if (businessReplyTo != null && !businessReplyTo.isEmpty()) {
+            helper.setReplyTo(businessReplyTo);
+        }
+        return mimeMessage;
+    }
+
+    /**
+     * Sends prepared messages over a single SMTP connection instead of one connection per message.
+     *
+     * @throws org.springframework.mail.MailSendException listing the messages that failed; the rest were sent
+     */
+    public void sendAll(MimeMessage... messages) {
+        mailSender.send(messages);
+    }
 }
\ No newline at end of file
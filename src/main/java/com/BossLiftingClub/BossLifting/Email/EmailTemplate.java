@@ -0,0 +1,112 @@
+package com.BossLiftingClub.BossLifting.Email;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An email template split once into literal text and variable slots, so rendering is only appending.
+ *
+ * {@code {{name}}} is replaced with the variable's value, HTML-escaped when the template is HTML;
+ * {@code {{{name}}}} inserts the value as is, for fragments the caller has already built. Every variable
+ * the template uses must be supplied; a null value renders as an empty string.
+ */
+public final class EmailTemplate {
+
+    private final String name;
+    private final boolean html;
+    private final String[] literals;
+    private final String[] variables;
+    private final boolean[] raw;
+    private final int literalLength;
+
+    private EmailTemplate(String name, boolean html, String[] literals, String[] variables, boolean[] raw) {
+        this.name = name;
+        this.html = html;
+        this.literals = literals;
+        this.variables = variables;
+        this.raw = raw;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parse template source.
+     * @throws IllegalArgumentException if a variable is never closed
+     */
+    public static EmailTemplate compile(String name, String source, boolean html) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            boolean triple = source.startsWith("{{{", open);
+            String closing = triple ? "}}}" : "}}";
+            int close = source.indexOf(closing, open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed variable in email template " + name + " at offset " + open);
+            }
+            literals.add(source.substring(position, open));
+            variables.add(source.substring(open + (triple ? 3 : 2), close).trim());
+            raw.add(triple);
+            position = close + closing.length();
+        }
+        literals.add(source.substring(position));
+
+        boolean[] rawFlags = new boolean[raw.size()];
+        for (int i = 0; i < rawFlags.length; i++) {
+            rawFlags[i] = raw.get(i);
+        }
+        return new EmailTemplate(name, html, literals.toArray(new String[0]), variables.toArray(new String[0]), rawFlags);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Substitute the variables.
+     * @throws IllegalArgumentException if a variable the template uses is missing from {@code values}
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(literalLength + variables.length * 32);
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]);
+            if (!values.containsKey(variables[i])) {
+                throw new IllegalArgumentException("No value for '" + variables[i] + "' in email template " + name);
+            }
+            Object value = values.get(variables[i]);
+            if (value == null) {
+                continue;
+            }
+            if (html && !raw[i]) {
+                escapeHtml(value.toString(), out);
+            } else {
+                out.append(value);
+            }
+        }
+        out.append(literals[variables.length]);
+        return out.toString();
+    }
+
+    private static void escapeHtml(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
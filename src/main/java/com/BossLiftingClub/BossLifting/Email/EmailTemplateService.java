@@ -0,0 +1,129 @@
+package com.BossLiftingClub.BossLifting.Email;
+
+import com.BossLiftingClub.BossLifting.Business.Business;
+import com.BossLiftingClub.BossLifting.Business.BusinessChangedEvent;
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders transactional emails from the templates in {@code classpath:email-templates/}.
+ *
+ * Each template is read and compiled into an {@link EmailTemplate} the first time it is used and kept for
+ * the life of the process, so a send only substitutes variables. Templates ending in .html escape their
+ * variables; .txt templates do not.
+ *
+ * A business's name and contact email are cached by id for {@code email.branding-cache.ttl}, so
+ * notifications do not reload the business per recipient. Business updates evict the entry once they have
+ * committed; a load that overlapped an eviction may have read the old row, so it drops what it cached.
+ */
+@Service
+public class EmailTemplateService {
+
+    private static final String TEMPLATE_ROOT = "email-templates/";
+
+    /** The business details emails are signed with. Either may be null; use the *Or accessors for fallbacks. */
+    public record EmailBranding(String businessName, String contactEmail) {
+        public String businessNameOr(String fallback) {
+            return businessName != null && !businessName.isEmpty() ? businessName : fallback;
+        }
+
+        public String contactEmailOr(String fallback) {
+            return contactEmail != null && !contactEmail.isEmpty() ? contactEmail : fallback;
+        }
+    }
+
+    private final BusinessRepository businessRepository;
+    private final Map<String, EmailTemplate> templates = new ConcurrentHashMap<>();
+    private final Cache<Long, EmailBranding> brandingCache;
+    // Bumped before every eviction, so a load that overlapped one can tell its result may be stale
+    private final AtomicLong brandingGeneration = new AtomicLong();
+
+    public EmailTemplateService(BusinessRepository businessRepository,
+                                @Value("${email.branding-cache.ttl:1h}") Duration brandingTtl) {
+        this.businessRepository = businessRepository;
+        this.brandingCache = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(brandingTtl)
+                .build();
+    }
+
+    /**
+     * Render a template with the given variables.
+     * @throws IllegalArgumentException if the template uses a variable missing from {@code values}
+     */
+    public String render(String templateName, Map<String, ?> values) {
+        return getTemplate(templateName).render(values);
+    }
+
+    public EmailTemplate getTemplate(String templateName) {
+        return templates.computeIfAbsent(templateName, this::load);
+    }
+
+    /**
+     * The business's branding, from the cache when possible.
+     */
+    public Optional<EmailBranding> getBranding(Long businessId) {
+        EmailBranding branding = brandingCache.getIfPresent(businessId);
+        if (branding != null) {
+            return Optional.of(branding);
+        }
+        long loadGeneration = brandingGeneration.get();
+        Optional<EmailBranding> loaded = businessRepository.findById(businessId).map(EmailTemplateService::brandingOf);
+        if (loaded.isPresent()) {
+            brandingCache.put(businessId, loaded.get());
+            // Checked after caching: an eviction that ran before the put bumped the generation first
+            if (brandingGeneration.get() != loadGeneration) {
+                brandingCache.invalidate(businessId);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * The branding of a business already loaded by the caller. Not cached, since the caller's entity may be stale.
+     */
+    public EmailBranding getBranding(Business business) {
+        return brandingOf(business);
+    }
+
+    public void evictBranding(Long businessId) {
+        brandingGeneration.incrementAndGet();
+        brandingCache.invalidate(businessId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBusinessChanged(BusinessChangedEvent event) {
+        if (event.getBusinessId() != null) {
+            evictBranding(event.getBusinessId());
+        }
+    }
+
+    private static EmailBranding brandingOf(Business business) {
+        return new EmailBranding(business.getTitle(), business.getContactEmail());
+    }
+
+    private EmailTemplate load(String templateName) {
+        ClassPathResource resource = new ClassPathResource(TEMPLATE_ROOT + templateName);
+        try (InputStream in = resource.getInputStream()) {
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return EmailTemplate.compile(templateName, source, templateName.endsWith(".html"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Email template not found: " + templateName, e);
+        }
+    }
+}
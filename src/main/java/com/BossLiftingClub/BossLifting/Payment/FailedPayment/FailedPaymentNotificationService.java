@@ -1,8 +1,8 @@
 package com.BossLiftingClub.BossLifting.Payment.FailedPayment;
 
-import com.BossLiftingClub.BossLifting.Business.Business;
-import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
 import com.BossLiftingClub.BossLifting.Email.EmailService;
+import com.BossLiftingClub.BossLifting.Email.EmailTemplateService;
+import com.BossLiftingClub.BossLifting.Email.EmailTemplateService.EmailBranding;
 import com.BossLiftingClub.BossLifting.User.User;
 import com.BossLiftingClub.BossLifting.User.UserRepository;
 import org.slf4j.Logger;
@@ -11,12 +11,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 public class FailedPaymentNotificationService {
     
     private static final Logger logger = LoggerFactory.getLogger(FailedPaymentNotificationService.class);
+
+    private static final DateTimeFormatter RETRY_DATE_FORMAT = DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' h:mm a");
     
     @Autowired
     private EmailService emailService;
@@ -25,7 +30,7 @@ public class FailedPaymentNotificationService {
     private UserRepository userRepository;
     
     @Autowired
-    private BusinessRepository businessRepository;
+    private EmailTemplateService emailTemplateService;
     
     /**
      * Send immediate notification when payment fails
@@ -35,13 +40,13 @@ public class FailedPaymentNotificationService {
             User user = userRepository.findById(attempt.getUserId())
                     .orElseThrow(() -> new RuntimeException("User not found: " + attempt.getUserId()));
             
-            Business business = businessRepository.findById(attempt.getBusinessId())
+            EmailBranding business = emailTemplateService.getBranding(attempt.getBusinessId())
                     .orElseThrow(() -> new RuntimeException("Business not found: " + attempt.getBusinessId()));
             
             String subject = "Payment Failed - Action Required";
             String body = buildInitialFailureEmail(user, business, attempt);
             
-            emailService.sendEmail(user.getEmail(), subject, body, business.getContactEmail());
+            emailService.sendEmail(user.getEmail(), subject, body, business.contactEmail());
             logger.info("Sent initial failure notification to user: {}", user.getEmail());
         } catch (Exception e) {
             logger.error("Failed to send initial failure notification: {}", e.getMessage(), e);
@@ -67,13 +72,13 @@ public class FailedPaymentNotificationService {
             User user = userRepository.findById(attempt.getUserId())
                     .orElseThrow(() -> new RuntimeException("User not found: " + attempt.getUserId()));
             
-            Business business = businessRepository.findById(attempt.getBusinessId())
+            EmailBranding business = emailTemplateService.getBranding(attempt.getBusinessId())
                     .orElseThrow(() -> new RuntimeException("Business not found: " + attempt.getBusinessId()));
             
             String subject = "Payment Successful - Thank You!";
             String body = buildRetrySuccessEmail(user, business, attempt);
             
-            emailService.sendEmail(user.getEmail(), subject, body, business.getContactEmail());
+            emailService.sendEmail(user.getEmail(), subject, body, business.contactEmail());
             logger.info("Sent retry success notification to user: {}", user.getEmail());
         } catch (Exception e) {
             logger.error("Failed to send retry success notification: {}", e.getMessage(), e);
@@ -88,91 +93,49 @@ public class FailedPaymentNotificationService {
             User user = userRepository.findById(attempt.getUserId())
                     .orElseThrow(() -> new RuntimeException("User not found: " + attempt.getUserId()));
             
-            Business business = businessRepository.findById(attempt.getBusinessId())
+            EmailBranding business = emailTemplateService.getBranding(attempt.getBusinessId())
                     .orElseThrow(() -> new RuntimeException("Business not found: " + attempt.getBusinessId()));
             
             String subject = "Urgent: Payment Failed - Membership at Risk";
             String body = buildRetryExhaustedEmail(user, business, attempt);
             
-            emailService.sendEmail(user.getEmail(), subject, body, business.getContactEmail());
+            emailService.sendEmail(user.getEmail(), subject, body, business.contactEmail());
             logger.info("Sent retry exhausted notification to user: {}", user.getEmail());
         } catch (Exception e) {
             logger.error("Failed to send retry exhausted notification: {}", e.getMessage(), e);
         }
     }
     
-    private String buildInitialFailureEmail(User user, Business business, FailedPaymentAttempt attempt) {
-        return String.format(
-            "Hello %s,\n\n" +
-            "We were unable to process your payment of $%.2f for %s.\n\n" +
-            "Failure Reason: %s\n\n" +
-            "We will automatically retry this payment. Please ensure your payment method is up to date.\n\n" +
-            "Next retry: %s\n\n" +
-            "To update your payment method, please log in to your account or contact us.\n\n" +
-            "Thank you,\n" +
-            "%s Team",
-            user.getFirstName(),
-            attempt.getAmount().doubleValue(),
-            business.getTitle(),
-            attempt.getFailureReason() != null ? attempt.getFailureReason() : "Payment method issue",
-            attempt.getNextRetryDate() != null ? attempt.getNextRetryDate().format(DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' h:mm a")) : "Within 24 hours",
-            business.getTitle()
-        );
+    private String buildInitialFailureEmail(User user, EmailBranding business, FailedPaymentAttempt attempt) {
+        Map<String, Object> values = baseValues(user, business, attempt);
+        values.put("failureReason", attempt.getFailureReason() != null ? attempt.getFailureReason() : "Payment method issue");
+        values.put("nextRetry", attempt.getNextRetryDate() != null ? attempt.getNextRetryDate().format(RETRY_DATE_FORMAT) : "Within 24 hours");
+        return emailTemplateService.render("failed-payment-initial.txt", values);
     }
     
-    private String buildPreRetryEmail(User user, Business business, FailedPaymentAttempt attempt) {
-        return String.format(
-            "Hello %s,\n\n" +
-            "We will attempt to process your payment of $%.2f for %s within the next 24 hours.\n\n" +
-            "This is retry attempt #%d of %d.\n\n" +
-            "Please ensure your payment method is up to date to avoid any service interruptions.\n\n" +
-            "To update your payment method, please log in to your account.\n\n" +
-            "Thank you,\n" +
-            "%s Team",
-            user.getFirstName(),
-            attempt.getAmount().doubleValue(),
-            business.getTitle(),
-            attempt.getRetryAttemptCount() + 1,
-            attempt.getMaxRetryAttempts(),
-            business.getTitle()
-        );
+    private String buildPreRetryEmail(User user, EmailBranding business, FailedPaymentAttempt attempt) {
+        Map<String, Object> values = baseValues(user, business, attempt);
+        values.put("attemptNumber", attempt.getRetryAttemptCount() + 1);
+        values.put("maxAttempts", attempt.getMaxRetryAttempts());
+        return emailTemplateService.render("failed-payment-pre-retry.txt", values);
     }
     
-    private String buildRetrySuccessEmail(User user, Business business, FailedPaymentAttempt attempt) {
-        return String.format(
-            "Hello %s,\n\n" +
-            "Great news! We successfully processed your payment of $%.2f for %s.\n\n" +
-            "Your membership remains active and in good standing.\n\n" +
-            "Thank you for your prompt attention to this matter.\n\n" +
-            "Best regards,\n" +
-            "%s Team",
-            user.getFirstName(),
-            attempt.getAmount().doubleValue(),
-            business.getTitle(),
-            business.getTitle()
-        );
+    private String buildRetrySuccessEmail(User user, EmailBranding business, FailedPaymentAttempt attempt) {
+        return emailTemplateService.render("failed-payment-retry-success.txt", baseValues(user, business, attempt));
     }
     
-    private String buildRetryExhaustedEmail(User user, Business business, FailedPaymentAttempt attempt) {
-        return String.format(
-            "Hello %s,\n\n" +
-            "URGENT: We were unable to process your payment of $%.2f for %s after %d attempts.\n\n" +
-            "Failure Reason: %s\n\n" +
-            "Your membership may be at risk of suspension. Please update your payment method immediately to avoid service interruption.\n\n" +
-            "To update your payment method:\n" +
-            "1. Log in to your account\n" +
-            "2. Go to Payment Methods\n" +
-            "3. Add or update your payment method\n\n" +
-            "If you have any questions, please contact us immediately.\n\n" +
-            "Thank you,\n" +
-            "%s Team",
-            user.getFirstName(),
-            attempt.getAmount().doubleValue(),
-            business.getTitle(),
-            attempt.getRetryAttemptCount(),
-            attempt.getFailureReason() != null ? attempt.getFailureReason() : "Payment method issue",
-            business.getTitle()
-        );
+    private String buildRetryExhaustedEmail(User user, EmailBranding business, FailedPaymentAttempt attempt) {
+        Map<String, Object> values = baseValues(user, business, attempt);
+        values.put("attempts", attempt.getRetryAttemptCount());
+        values.put("failureReason", attempt.getFailureReason() != null ? attempt.getFailureReason() : "Payment method issue");
+        return emailTemplateService.render("failed-payment-retry-exhausted.txt", values);
     }
-}
 
+    private static Map<String, Object> baseValues(User user, EmailBranding business, FailedPaymentAttempt attempt) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("firstName", user.getFirstName());
+        values.put("amount", attempt.getAmount().setScale(2, RoundingMode.HALF_UP).toPlainString());
+        values.put("businessName", business.businessName());
+        return values;
+    }
+}
@@ -1,10 +1,13 @@
 package com.BossLiftingClub.BossLifting.Payment;
 
+import com.BossLiftingClub.BossLifting.Analytics.ledger.StripeLedgerService;
 import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.Stripe.StripeService;
+import com.BossLiftingClub.BossLifting.Stripe.WebhookInbox.WebhookInboxService;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusiness;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessRepository;
 import com.stripe.exception.StripeException;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +44,20 @@ public class PaymentController {
     @Autowired
     private com.BossLiftingClub.BossLifting.Payment.FailedPayment.FailedPaymentRetryService failedPaymentRetryService;
 
+    @Autowired
+    private StripeLedgerService stripeLedgerService;
+
+    @Autowired
+    private PaymentMethodStatusService paymentMethodStatusService;
+
+    @Autowired
+    private WebhookInboxService webhookInboxService;
+
+    @PostConstruct
+    public void registerWebhookHandler() {
+        webhookInboxService.registerHandler(WebhookInboxService.SOURCE_CONNECTED, this::processConnectedAccountEvent);
+    }
+
     /**
      * Check if a user has a default payment method
      */
@@ -63,7 +80,8 @@ public class PaymentController {
                 return ResponseEntity.ok(Map.of("hasPaymentMethod", false));
             }
 
-            boolean hasPaymentMethod = stripeService.hasDefaultPaymentMethod(stripeCustomerId, null);
+            // Stored state, refreshed from Stripe only when missing or stale
+            boolean hasPaymentMethod = paymentMethodStatusService.hasPaymentMethod(userBusiness);
 
             return ResponseEntity.ok(Map.of("hasPaymentMethod", hasPaymentMethod));
         } catch (Exception e) {
@@ -169,6 +187,14 @@ public class PaymentController {
                 System.err.println("⚠️  Warning: Failed to detach old payment methods: " + e.getMessage());
             }
 
+            // The stored payment-method state is out of date now
+            try {
+                paymentMethodStatusService.refresh(stripeCustomerId);
+                userBusiness = userBusinessRepository.findById(userBusinessId).orElse(userBusiness);
+            } catch (com.stripe.exception.StripeException e) {
+                System.err.println("⚠️  Warning: Failed to refresh stored payment method state: " + e.getMessage());
+            }
+
             // Recalculate user status after payment method is added
             try {
                 com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService userBusinessService =
@@ -422,7 +448,8 @@ public class PaymentController {
 
     /**
      * Webhook endpoint for connected account Stripe events
-     * Handles subscription lifecycle events to keep database in sync with Stripe
+     * Handles subscription lifecycle events to keep database in sync with Stripe. Events are stored in the
+     * webhook inbox and processed by {@link #processConnectedAccountEvent} after the response.
      */
     @PostMapping("/webhook-connected")
     public ResponseEntity<String> handleConnectedAccountWebhook(
@@ -431,62 +458,76 @@ public class PaymentController {
             @RequestHeader(value = "Stripe-Account", required = false) String stripeAccountId
     ) {
         try {
-            // Extract Stripe account ID from payload
-            com.google.gson.JsonObject jsonObject = com.google.gson.JsonParser.parseString(payload).getAsJsonObject();
-            if (jsonObject.has("account")) {
-                stripeAccountId = jsonObject.get("account").getAsString();
-            }
+            WebhookInboxService.ReceiveResult result =
+                    webhookInboxService.receive(WebhookInboxService.SOURCE_CONNECTED, payload, stripeAccountId);
+            return ResponseEntity.ok(result.stored() ? "Webhook received" : "Event already received");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Error storing webhook: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Webhook processing failed: " + e.getMessage());
+        }
+    }
 
-            System.out.println("📨 Received webhook for account: " + stripeAccountId);
+    /**
+     * Process a connected account event, once taken from the webhook inbox
+     */
+    public void processConnectedAccountEvent(com.stripe.model.Event event, String stripeAccountId) {
+        String eventType = event.getType();
 
-            // Parse the event
-            com.stripe.model.Event event = com.stripe.model.Event.GSON.fromJson(payload, com.stripe.model.Event.class);
-            String eventType = event.getType();
+        System.out.println("📨 Processing webhook for account: " + stripeAccountId);
+        System.out.println("🔔 Event type: " + eventType);
 
-            System.out.println("🔔 Event type: " + eventType);
+        // Keep the local Stripe ledger (used by analytics) current
+        try {
+            stripeLedgerService.recordEvent(event);
+        } catch (Exception e) {
+            System.err.println("⚠️ Failed to record event in Stripe ledger: " + e.getMessage());
+        }
 
-            // Get UserBusinessService
-            com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService userBusinessService =
-                    applicationContext.getBean(com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService.class);
+        // Get UserBusinessService
+        com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService userBusinessService =
+                applicationContext.getBean(com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService.class);
 
-            switch (eventType) {
-                case "checkout.session.completed":
-                    handleCheckoutSessionCompleted(event, stripeAccountId);
-                    break;
+        switch (eventType) {
+            case "checkout.session.completed":
+                handleCheckoutSessionCompleted(event, stripeAccountId);
+                break;
 
-                case "customer.subscription.updated":
-                    handleSubscriptionUpdated(event, userBusinessService);
-                    break;
+            case "customer.subscription.updated":
+                handleSubscriptionUpdated(event, userBusinessService);
+                break;
 
-                case "customer.subscription.deleted":
-                    handleSubscriptionDeleted(event, userBusinessService);
-                    break;
+            case "customer.subscription.deleted":
+                handleSubscriptionDeleted(event, userBusinessService);
+                break;
 
-                case "customer.subscription.paused":
-                    handleSubscriptionPaused(event, userBusinessService);
-                    break;
+            case "customer.subscription.paused":
+                handleSubscriptionPaused(event, userBusinessService);
+                break;
 
-                case "customer.subscription.resumed":
-                    handleSubscriptionResumed(event, userBusinessService);
-                    break;
+            case "customer.subscription.resumed":
+                handleSubscriptionResumed(event, userBusinessService);
+                break;
 
-                case "invoice.payment_failed":
-                    handlePaymentFailed(event, userBusinessService);
-                    break;
+            case "invoice.payment_failed":
+                handlePaymentFailed(event, userBusinessService);
+                break;
 
-                case "invoice.payment_succeeded":
-                    handlePaymentSucceeded(event, userBusinessService);
-                    break;
+            case "invoice.payment_succeeded":
+                handlePaymentSucceeded(event, userBusinessService);
+                break;
 
-                default:
-                    System.out.println("ℹ️  Unhandled event type: " + eventType);
-            }
+            case "payment_method.attached":
+            case "payment_method.detached":
+            case "customer.updated":
+            case "setup_intent.succeeded":
+                handlePaymentMethodEvent(event, userBusinessService);
+                break;
 
-            return ResponseEntity.ok("Webhook processed: " + eventType);
-        } catch (Exception e) {
-            System.err.println("❌ Error processing webhook: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(500).body("Webhook processing failed: " + e.getMessage());
+            default:
+                System.out.println("ℹ️  Unhandled event type: " + eventType);
         }
     }
 
@@ -541,6 +582,25 @@ public class PaymentController {
         }
     }
 
+    /**
+     * Handle payment_method.attached/detached, customer.updated and setup_intent.succeeded - keep the
+     * stored payment-method state current and recalculate status for members whose answer changed
+     */
+    private void handlePaymentMethodEvent(com.stripe.model.Event event,
+            com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService userBusinessService) {
+        try {
+            List<UserBusiness> changed = paymentMethodStatusService.handleEvent(event);
+            for (UserBusiness userBusiness : changed) {
+                userBusinessService.calculateAndUpdateStatus(userBusiness);
+            }
+            if (!changed.isEmpty()) {
+                System.out.println("✅ Payment method state changed for " + changed.size() + " member(s) after " + event.getType());
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error in handlePaymentMethodEvent: " + e.getMessage());
+        }
+    }
+
     /**
      * Handle customer.subscription.updated - Update membership status based on Stripe state
      */
@@ -557,6 +617,9 @@ public class PaymentController {
 
             System.out.println("📝 Subscription updated: " + subscriptionId + " -> " + status);
 
+            // Keep the locally stored period/cancel/pause state current for member lists and scan-in
+            userBusinessService.recordStripeSubscription(subscription);
+
             // Find the membership by Stripe subscription ID
             com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessMembership membership =
                     findMembershipByStripeSubscriptionId(subscriptionId);
@@ -667,6 +730,8 @@ public class PaymentController {
             String subscriptionId = subscription.getId();
             System.out.println("⏸️  Subscription paused: " + subscriptionId);
 
+            userBusinessService.recordStripeSubscription(subscription);
+
             com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessMembership membership =
                     findMembershipByStripeSubscriptionId(subscriptionId);
 
@@ -706,6 +771,8 @@ public class PaymentController {
             String subscriptionId = subscription.getId();
             System.out.println("▶️  Subscription resumed: " + subscriptionId);
 
+            userBusinessService.recordStripeSubscription(subscription);
+
             com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessMembership membership =
                     findMembershipByStripeSubscriptionId(subscriptionId);
 
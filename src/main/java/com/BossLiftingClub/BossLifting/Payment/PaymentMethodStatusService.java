@@ -0,0 +1,193 @@
+package com.BossLiftingClub.BossLifting.Payment;
+
+import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusiness;
+import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessRepository;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Customer;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentMethod;
+import com.stripe.model.PaymentMethodCollection;
+import com.stripe.model.SetupIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.param.CustomerRetrieveParams;
+import com.stripe.param.PaymentMethodListParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Whether a member's Stripe customer has a usable payment method, answered from the copy stored on
+ * {@link UserBusiness}. Payment-method and customer webhooks keep that copy current; Stripe is only asked
+ * when a member has never been checked or the stored answer is older than
+ * {@code stripe.payment-method.max-age}. "Has a payment method" means the same as
+ * {@code StripeService.hasDefaultPaymentMethod}: a default payment method, or else any attached card.
+ */
+@Service
+public class PaymentMethodStatusService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentMethodStatusService.class);
+
+    /** What Stripe says about a customer's payment methods. */
+    public record PaymentMethodState(boolean hasPaymentMethod, String cardFingerprint) {}
+
+    private final UserBusinessRepository userBusinessRepository;
+    private final Duration maxAge;
+
+    public PaymentMethodStatusService(UserBusinessRepository userBusinessRepository,
+                                      @Value("${stripe.payment-method.max-age:7d}") Duration maxAge) {
+        this.userBusinessRepository = userBusinessRepository;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Whether the member has a payment method. Uses the stored answer when it is fresh enough; otherwise
+     * asks Stripe and stores the result on the member. If Stripe cannot be reached the last known answer
+     * is used (no card if there is none).
+     */
+    @Transactional
+    public boolean hasPaymentMethod(UserBusiness userBusiness) {
+        String customerId = userBusiness.getStripeId();
+        if (!hasStripeCustomer(customerId)) {
+            return false;
+        }
+        if (isFresh(userBusiness.getHasPaymentMethod(), userBusiness.getPaymentMethodCheckedAt())) {
+            return userBusiness.getHasPaymentMethod();
+        }
+        try {
+            PaymentMethodState state = fetchFromStripe(customerId);
+            apply(userBusiness, state.hasPaymentMethod(), state.cardFingerprint());
+            userBusinessRepository.save(userBusiness);
+            return state.hasPaymentMethod();
+        } catch (StripeException e) {
+            logger.warn("Failed to check payment method for customer {}: {}", customerId, e.getMessage());
+            return Boolean.TRUE.equals(userBusiness.getHasPaymentMethod());
+        }
+    }
+
+    /**
+     * Whether a stored answer checked at {@code checkedAt} can still be used without asking Stripe
+     */
+    public boolean isFresh(Boolean hasPaymentMethod, LocalDateTime checkedAt) {
+        return hasPaymentMethod != null && checkedAt != null
+                && checkedAt.isAfter(LocalDateTime.now().minus(maxAge));
+    }
+
+    /**
+     * Re-read the customer's payment methods from Stripe and store the answer on every member using it
+     * @return the members whose answer changed
+     */
+    @Transactional
+    public List<UserBusiness> refresh(String customerId) throws StripeException {
+        PaymentMethodState state = fetchFromStripe(customerId);
+        return record(customerId, state.hasPaymentMethod(), state.cardFingerprint());
+    }
+
+    /**
+     * Keep the stored answer current from a Stripe webhook. Handles payment_method.attached,
+     * payment_method.detached, customer.updated and setup_intent.succeeded; other events are ignored.
+     * @return the members whose answer changed, so their status can be recalculated
+     */
+    @Transactional
+    public List<UserBusiness> handleEvent(Event event) throws StripeException {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        Map<String, Object> previous = event.getData() != null ? event.getData().getPreviousAttributes() : null;
+        switch (event.getType()) {
+            case "payment_method.attached":
+                // An attached card is not necessarily the default; customer.updated brings the default's fingerprint
+                if (object instanceof PaymentMethod paymentMethod && paymentMethod.getCustomer() != null) {
+                    return record(paymentMethod.getCustomer(), true, null);
+                }
+                return List.of();
+            case "payment_method.detached":
+                // The payment method no longer names its customer; the previous attributes still do
+                Object customerId = previous != null ? previous.get("customer") : null;
+                if (customerId instanceof String id && !id.isEmpty()) {
+                    return refresh(id);
+                }
+                return List.of();
+            case "customer.updated":
+                // Only a change to the default payment method (or legacy default source) can change the answer
+                if (object instanceof Customer customer && previous != null
+                        && (previous.containsKey("invoice_settings") || previous.containsKey("default_source"))) {
+                    return refresh(customer.getId());
+                }
+                return List.of();
+            case "setup_intent.succeeded":
+                if (object instanceof SetupIntent setupIntent && setupIntent.getCustomer() != null) {
+                    return record(setupIntent.getCustomer(), true, null);
+                }
+                return List.of();
+            default:
+                return List.of();
+        }
+    }
+
+    /**
+     * Ask Stripe directly: the customer with its default payment method expanded, and if there is no
+     * default, the first attached card.
+     */
+    public PaymentMethodState fetchFromStripe(String customerId) throws StripeException {
+        Customer customer = Customer.retrieve(customerId, CustomerRetrieveParams.builder()
+                .addExpand("invoice_settings.default_payment_method")
+                .build(), null);
+        if (Boolean.TRUE.equals(customer.getDeleted())) {
+            return new PaymentMethodState(false, null);
+        }
+        if (customer.getInvoiceSettings() != null && customer.getInvoiceSettings().getDefaultPaymentMethod() != null) {
+            return new PaymentMethodState(true, cardFingerprint(customer.getInvoiceSettings().getDefaultPaymentMethodObject()));
+        }
+        PaymentMethodCollection cards = PaymentMethod.list(PaymentMethodListParams.builder()
+                .setCustomer(customerId)
+                .setType(PaymentMethodListParams.Type.CARD)
+                .setLimit(1L)
+                .build());
+        if (cards.getData() != null && !cards.getData().isEmpty()) {
+            return new PaymentMethodState(true, cardFingerprint(cards.getData().get(0)));
+        }
+        return new PaymentMethodState(false, null);
+    }
+
+    public static String cardFingerprint(PaymentMethod paymentMethod) {
+        return paymentMethod != null && paymentMethod.getCard() != null ? paymentMethod.getCard().getFingerprint() : null;
+    }
+
+    /**
+     * Store an answer on every member using the customer. A null fingerprint keeps the stored one while
+     * the customer still has a payment method.
+     */
+    private List<UserBusiness> record(String customerId, boolean hasPaymentMethod, String fingerprint) {
+        List<UserBusiness> changed = new ArrayList<>();
+        for (UserBusiness userBusiness : userBusinessRepository.findByStripeId(customerId)) {
+            boolean wasKnown = userBusiness.getHasPaymentMethod() != null;
+            boolean had = Boolean.TRUE.equals(userBusiness.getHasPaymentMethod());
+            apply(userBusiness, hasPaymentMethod, fingerprint);
+            userBusinessRepository.save(userBusiness);
+            if (!wasKnown || had != hasPaymentMethod) {
+                changed.add(userBusiness);
+            }
+        }
+        return changed;
+    }
+
+    private static void apply(UserBusiness userBusiness, boolean hasPaymentMethod, String fingerprint) {
+        userBusiness.setHasPaymentMethod(hasPaymentMethod);
+        if (!hasPaymentMethod) {
+            userBusiness.setDefaultCardFingerprint(null);
+        } else if (fingerprint != null) {
+            userBusiness.setDefaultCardFingerprint(fingerprint);
+        }
+        userBusiness.setPaymentMethodCheckedAt(LocalDateTime.now());
+    }
+
+    private static boolean hasStripeCustomer(String stripeId) {
+        return stripeId != null && !stripeId.isEmpty() && !stripeId.equals("null");
+    }
+}
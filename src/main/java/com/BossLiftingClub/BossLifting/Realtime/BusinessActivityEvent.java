@@ -0,0 +1,32 @@
+package com.BossLiftingClub.BossLifting.Realtime;
+
+import java.util.Map;
+
+/**
+ * Something a business's front desk should see as it happens (a punch-card scan, a failed payment, a new
+ * member). Publish it with the ApplicationEventPublisher; {@link RealtimeEventHub} forwards it to the
+ * business's live subscribers once the publishing transaction commits.
+ */
+public class BusinessActivityEvent {
+    private final Long businessId;
+    private final String type;
+    private final Map<String, Object> data;
+
+    public BusinessActivityEvent(Long businessId, String type, Map<String, Object> data) {
+        this.businessId = businessId;
+        this.type = type;
+        this.data = data;
+    }
+
+    public Long getBusinessId() {
+        return businessId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Map<String, Object> getData() {
+        return data;
+    }
+}
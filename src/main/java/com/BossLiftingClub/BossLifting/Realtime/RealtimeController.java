@@ -0,0 +1,67 @@
+package com.BossLiftingClub.BossLifting.Realtime;
+
+import com.BossLiftingClub.BossLifting.Business.Business;
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/realtime")
+public class RealtimeController {
+
+    private final RealtimeEventHub realtimeEventHub;
+    private final BusinessRepository businessRepository;
+
+    public RealtimeController(RealtimeEventHub realtimeEventHub, BusinessRepository businessRepository) {
+        this.realtimeEventHub = realtimeEventHub;
+        this.businessRepository = businessRepository;
+    }
+
+    /**
+     * Live events for one business: scan-in, punch-card-scan, payment, payment-failed, new-member,
+     * wellhub-checkin.
+     * Reconnecting clients send Last-Event-ID (or lastEventId) to be replayed what they missed.
+     * GET /api/realtime/subscribe?businessTag={tag}
+     */
+    @GetMapping("/subscribe")
+    public ResponseEntity<?> subscribe(
+            @RequestParam(required = false) String businessTag,
+            @RequestParam(required = false) Long businessId,
+            @RequestParam(required = false) Long lastEventId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader) {
+        Optional<Business> business = businessId != null
+                ? businessRepository.findById(businessId)
+                : businessTag != null ? businessRepository.findByBusinessTag(businessTag) : Optional.empty();
+        if (business.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", "Business not found"));
+        }
+
+        Long resumeFrom = lastEventId;
+        if (lastEventIdHeader != null && !lastEventIdHeader.isBlank()) {
+            try {
+                resumeFrom = Long.parseLong(lastEventIdHeader.trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(Map.of("error", "Last-Event-ID must be a number"));
+            }
+        }
+        return ResponseEntity.ok(realtimeEventHub.subscribe(business.get().getId(), resumeFrom));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(realtimeEventHub.getStats());
+    }
+}
@@ -0,0 +1,288 @@
+package com.BossLiftingClub.BossLifting.Realtime;
+
+import com.BossLiftingClub.BossLifting.User.SignInLog.SignInRecordedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Business-scoped server-sent events for front-desk dashboards.
+ *
+ * Each business has a channel holding its live subscribers and its last {@code realtime.replay-size} events.
+ * Publishing never touches the network: the event is appended to the channel and offered to each
+ * subscriber's bounded buffer, and a dedicated executor drains each buffer to its emitter in order. A
+ * subscriber whose buffer fills up, or whose connection fails on send, is evicted; its client reconnects
+ * with Last-Event-ID and is replayed what it missed from the channel history. If the history no longer
+ * reaches back that far it gets a "resync" event first, so it knows to reload its view.
+ *
+ * Heartbeats go out every {@code realtime.heartbeat-interval-ms} so idle connections stay open through
+ * proxies and dead ones are found and evicted.
+ */
+@Service
+public class RealtimeEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeEventHub.class);
+
+    /** One event sent to a business's subscribers. {@code id} is null for events that are not replayed. */
+    public record RealtimeEvent(Long id, long businessId, String type, Object data, LocalDateTime createdAt) {}
+
+    private static final RealtimeEvent HEARTBEAT = new RealtimeEvent(null, 0, "heartbeat", null, null);
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    // Seeded from the clock so ids keep increasing across restarts
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+    private final ExecutorService executor;
+    private final int bufferSize;
+    private final int replaySize;
+    private final long emitterTimeoutMs;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong evictedSlow = new AtomicLong();
+    private final AtomicLong evictedDead = new AtomicLong();
+
+    public RealtimeEventHub(@Value("${realtime.subscriber-buffer:256}") int bufferSize,
+                            @Value("${realtime.replay-size:500}") int replaySize,
+                            @Value("${realtime.emitter-timeout:30m}") Duration emitterTimeout,
+                            @Value("${realtime.fanout-threads:2}") int threads) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.replaySize = Math.max(0, replaySize);
+        this.emitterTimeoutMs = emitterTimeout.toMillis();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "realtime-fanout-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> subscriber.close(null)));
+        executor.shutdownNow();
+    }
+
+    /**
+     * Open a stream of the business's events.
+     * @param lastEventId the last event id the client saw, or null for live events only
+     */
+    public SseEmitter subscribe(long businessId, Long lastEventId) {
+        Channel channel = channelFor(businessId);
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        // Room for a full replay on top of the live buffer
+        Subscriber subscriber = new Subscriber(channel, emitter, bufferSize + replaySize + 1);
+        emitter.onCompletion(() -> subscriber.close(null));
+        emitter.onTimeout(() -> subscriber.close(null));
+        emitter.onError(e -> subscriber.close(null));
+
+        synchronized (channel) {
+            if (lastEventId != null) {
+                RealtimeEvent oldest = channel.history.peekFirst();
+                if (oldest == null || oldest.id() > lastEventId + 1) {
+                    subscriber.queue.offer(new RealtimeEvent(null, businessId, "resync", Map.of("lastEventId", lastEventId),
+                            LocalDateTime.now()));
+                }
+                for (RealtimeEvent event : channel.history) {
+                    if (event.id() > lastEventId) {
+                        subscriber.queue.offer(event);
+                        replayed.incrementAndGet();
+                    }
+                }
+            }
+            channel.subscribers.add(subscriber);
+        }
+        subscriber.schedule();
+        return emitter;
+    }
+
+    /**
+     * Record an event for the business and queue it for every subscriber. Never blocks on a client.
+     */
+    public void publish(long businessId, String type, Object data) {
+        Channel channel = channelFor(businessId);
+        // Ids are assigned and queued under the channel lock so every subscriber sees them in order
+        synchronized (channel) {
+            RealtimeEvent event = new RealtimeEvent(sequence.incrementAndGet(), businessId, type, data, LocalDateTime.now());
+            if (replaySize > 0) {
+                channel.history.addLast(event);
+                while (channel.history.size() > replaySize) {
+                    channel.history.pollFirst();
+                }
+            }
+            for (Subscriber subscriber : channel.subscribers) {
+                if (!subscriber.offer(event)) {
+                    evictedSlow.incrementAndGet();
+                }
+            }
+        }
+        published.incrementAndGet();
+    }
+
+    @EventListener
+    public void onSignInRecorded(SignInRecordedEvent event) {
+        if (event.getBusinessId() == null) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("userId", event.getUserId());
+        data.put("signInTime", event.getSignInTime());
+        publish(event.getBusinessId(), "scan-in", data);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBusinessActivity(BusinessActivityEvent event) {
+        if (event.getBusinessId() == null || event.getType() == null) {
+            return;
+        }
+        publish(event.getBusinessId(), event.getType(), event.getData());
+    }
+
+    /**
+     * Send a heartbeat to every subscriber; connections that have gone away fail the send and are evicted.
+     */
+    @Scheduled(fixedDelayString = "${realtime.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int subscribers = 0;
+        for (Channel channel : channels.values()) {
+            subscribers += channel.subscribers.size();
+        }
+        stats.put("businesses", channels.size());
+        stats.put("subscribers", subscribers);
+        stats.put("published", published.get());
+        stats.put("delivered", delivered.get());
+        stats.put("replayed", replayed.get());
+        stats.put("evictedSlow", evictedSlow.get());
+        stats.put("evictedDead", evictedDead.get());
+        return stats;
+    }
+
+    private Channel channelFor(long businessId) {
+        return channels.computeIfAbsent(businessId, id -> new Channel());
+    }
+
+    private static final class Channel {
+        private final Deque<RealtimeEvent> history = new ArrayDeque<>();
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    }
+
+    /** One open emitter, its pending events, and whether a drain task is running for it. */
+    private final class Subscriber {
+        private final Channel channel;
+        private final SseEmitter emitter;
+        private final BlockingQueue<RealtimeEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(Channel channel, SseEmitter emitter, int capacity) {
+            this.channel = channel;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /** Queue an event; a full buffer evicts the subscriber. Returns false if it was not queued. */
+        boolean offer(RealtimeEvent event) {
+            if (closed) {
+                return true;
+            }
+            if (!queue.offer(event)) {
+                close(null);
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        void schedule() {
+            if (closed || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                close(null);
+            }
+        }
+
+        private void drain() {
+            try {
+                RealtimeEvent event;
+                while (!closed && (event = queue.poll()) != null) {
+                    send(event);
+                }
+            } catch (Exception e) {
+                evictedDead.incrementAndGet();
+                close(e);
+            } finally {
+                draining.set(false);
+            }
+            // An event queued after the last poll but before the flag was cleared would otherwise wait
+            if (!closed && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void send(RealtimeEvent event) throws Exception {
+            if (event == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                return;
+            }
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event.type()).data(event);
+            if (event.id() != null) {
+                builder.id(String.valueOf(event.id()));
+            }
+            emitter.send(builder);
+            delivered.incrementAndGet();
+        }
+
+        synchronized void close(Exception cause) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            channel.subscribers.remove(this);
+            queue.clear();
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                logger.debug("Closing realtime subscriber failed: {}", e.getMessage());
+            }
+            if (cause != null) {
+                logger.debug("Realtime subscriber dropped: {}", cause.getMessage());
+            }
+        }
+    }
+}
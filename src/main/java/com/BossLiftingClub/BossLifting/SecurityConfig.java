@@ -96,8 +96,8 @@ public class SecurityConfig {
         // Allowed headers
         config.setAllowedHeaders(List.of("*"));
 
-        // Expose headers (needed for JWT tokens in Authorization header)
-        config.setExposedHeaders(List.of("Authorization"));
+        // Expose headers (JWT tokens in Authorization, analytics data freshness)
+        config.setExposedHeaders(List.of("Authorization", "X-Data-Age", "X-Data-Stale", "X-Data-Refresh-Expected"));
 
         // Allow credentials (cookies, auth headers)
         config.setAllowCredentials(true);
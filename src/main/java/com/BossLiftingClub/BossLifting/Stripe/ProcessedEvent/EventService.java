@@ -1,24 +1,152 @@
 package com.BossLiftingClub.BossLifting.Stripe.ProcessedEvent;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Idempotency for Stripe events, shared by every webhook path.
+ *
+ * Claims are per source (the endpoint an event was delivered to), because Stripe delivers one event to
+ * every endpoint subscribed to its type and each endpoint's handler has its own work to do: a
+ * checkout.session.completed sent to both /webhook and /StripeSubscriptionHandler must run on both. The
+ * processed_event row is keyed by {@link #claimKey} ({@code source:eventId}).
+ *
+ * An event is processed by whoever inserts its processed_event row first: {@link #claim} is a plain insert
+ * on the primary key, so of two concurrent claims exactly one succeeds. A claim is released if processing
+ * fails, so the retry can claim it again.
+ *
+ * In front of the table sits a bounded in-memory set of claim keys this instance has recently received or
+ * claimed. Stripe redelivers an event when it did not see our acknowledgement in time, usually within
+ * minutes, and those redeliveries are answered from memory without a query.
+ *
+ * Rows older than {@code stripe.processed-events.retention-days} are deleted nightly; Stripe stops
+ * retrying an event after three days and only lists events from the last thirty.
+ */
 @Service
 public class EventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventService.class);
+
     private final ProcessedEventRepository processedEventRepository;
+    private final Cache<String, Boolean> recentEvents;
+    private final int retentionDays;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong claims = new AtomicLong();
+    private final AtomicLong rejectedClaims = new AtomicLong();
 
-    public EventService(ProcessedEventRepository processedEventRepository) {
+    public EventService(ProcessedEventRepository processedEventRepository,
+                        @Value("${stripe.processed-events.cache-size:100000}") long cacheSize,
+                        @Value("${stripe.processed-events.cache-ttl:72h}") Duration cacheTtl,
+                        @Value("${stripe.processed-events.retention-days:35}") int retentionDays) {
         this.processedEventRepository = processedEventRepository;
+        this.recentEvents = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+        this.retentionDays = Math.max(1, retentionDays);
+    }
+
+    /**
+     * The processed_event key of an event delivered to {@code source}.
+     */
+    public static String claimKey(String source, String eventId) {
+        return source + ":" + eventId;
+    }
+
+    /**
+     * The ids among {@code eventIds} that have been processed for {@code source}, in one query.
+     */
+    public Set<String> findProcessed(String source, Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Set.of();
+        }
+        List<String> keys = eventIds.stream().map(eventId -> claimKey(source, eventId)).toList();
+        Set<String> processed = new HashSet<>();
+        String prefix = source + ":";
+        for (String key : processedEventRepository.findProcessedIds(keys)) {
+            processed.add(key.substring(prefix.length()));
+        }
+        return processed;
+    }
+
+    /**
+     * Whether this instance has recently received or claimed the event for the source. Memory only; false
+     * means unknown.
+     */
+    public boolean isRecentlySeen(String source, String eventId) {
+        boolean seen = recentEvents.getIfPresent(claimKey(source, eventId)) != null;
+        if (seen) {
+            memoryHits.incrementAndGet();
+        }
+        return seen;
+    }
+
+    /** Remember a delivery so redeliveries are recognised without a query. */
+    public void recordDelivery(String source, String eventId) {
+        recentEvents.put(claimKey(source, eventId), Boolean.TRUE);
+    }
+
+    /**
+     * Atomically mark the event as being processed for the source.
+     * @return true if this caller claimed it, false if it was claimed before
+     */
+    public boolean claim(String source, String eventId) {
+        return insertClaim(claimKey(source, eventId));
+    }
+
+    /** Give up a claim after processing failed, so a retry can claim the event again. */
+    public void release(String source, String eventId) {
+        processedEventRepository.deleteClaim(claimKey(source, eventId));
+    }
+
+    private boolean insertClaim(String key) {
+        try {
+            processedEventRepository.insertClaim(key, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            rejectedClaims.incrementAndGet();
+            recentEvents.put(key, Boolean.TRUE);
+            return false;
+        }
+        claims.incrementAndGet();
+        recentEvents.put(key, Boolean.TRUE);
+        return true;
     }
 
-    public boolean isEventProcessed(String eventId) {
-        return processedEventRepository.existsByEventId(eventId);
+    /**
+     * Delete processed_event rows past the retention period.
+     */
+    @Scheduled(cron = "${stripe.processed-events.purge-cron:0 0 4 * * *}")
+    public void purgeExpired() {
+        int deleted = processedEventRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Deleted {} processed Stripe events older than {} days", deleted, retentionDays);
+        }
     }
 
-    @Transactional
-    public void markEventProcessed(String eventId) {
-        processedEventRepository.save(new ProcessedEvent(eventId, LocalDateTime.now()));
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recentEvents", recentEvents.estimatedSize());
+        stats.put("duplicatesAnsweredFromMemory", memoryHits.get());
+        stats.put("claims", claims.get());
+        stats.put("rejectedClaims", rejectedClaims.get());
+        stats.put("retentionDays", retentionDays);
+        return stats;
     }
-}
\ No newline at end of file
+}
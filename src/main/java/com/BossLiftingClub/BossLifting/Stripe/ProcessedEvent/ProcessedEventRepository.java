@@ -1,7 +1,36 @@
 package com.BossLiftingClub.BossLifting.Stripe.ProcessedEvent;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, String> {
     boolean existsByEventId(String eventId);
-}
\ No newline at end of file
+
+    @Query("SELECT p.eventId FROM ProcessedEvent p WHERE p.eventId IN :eventIds")
+    List<String> findProcessedIds(@Param("eventIds") Collection<String> eventIds);
+
+    /**
+     * Plain insert, so a second claim of the same id fails on the primary key instead of merging.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO processed_event (event_id, processed_at) VALUES (:eventId, :processedAt)", nativeQuery = true)
+    int insertClaim(@Param("eventId") String eventId, @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProcessedEvent p WHERE p.eventId = :eventId")
+    int deleteClaim(@Param("eventId") String eventId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProcessedEvent p WHERE p.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
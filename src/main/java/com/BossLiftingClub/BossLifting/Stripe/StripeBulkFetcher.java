@@ -0,0 +1,213 @@
+package com.BossLiftingClub.BossLifting.Stripe;
+
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.HasId;
+import com.stripe.model.StripeCollection;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pulls data out of Stripe in bulk. Account-wide listings are paged (with expansions so related
+ * objects come back inline instead of one retrieve per row), and calls that have to be made per id
+ * run on a small bounded pool. Every request, list pages included, takes a token from a shared
+ * bucket first so bulk jobs stay under Stripe's rate limit and leave headroom for live traffic.
+ */
+@Component
+public class StripeBulkFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeBulkFetcher.class);
+
+    private static final int MAX_RATE_LIMIT_RETRIES = 3;
+    private static final long RATE_LIMIT_BACKOFF_MS = 500;
+
+    /** One page of a Stripe list, starting after the given object id (null for the first page). */
+    @FunctionalInterface
+    public interface PageFetcher<T extends HasId> {
+        StripeCollection<T> fetch(String startingAfter) throws StripeException;
+    }
+
+    /** A Stripe call made for a single id. */
+    @FunctionalInterface
+    public interface StripeCall<I, R> {
+        R call(I id) throws StripeException;
+    }
+
+    @FunctionalInterface
+    public interface StripeRequest<R> {
+        R run() throws StripeException;
+    }
+
+    private final TokenBucket rateLimiter;
+    private final ExecutorService executor;
+
+    public StripeBulkFetcher(@Value("${stripe.bulk.max-concurrency:8}") int maxConcurrency,
+                             @Value("${stripe.bulk.requests-per-second:20}") double requestsPerSecond) {
+        this.rateLimiter = new TokenBucket(requestsPerSecond);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "stripe-bulk-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Walk a Stripe list page by page, handing each page to the consumer as it arrives.
+     * @param startingAfter id to resume after, or null to start from the newest object
+     * @return number of objects seen
+     */
+    public <T extends HasId> int forEachPage(String startingAfter, PageFetcher<T> fetcher, Consumer<List<T>> pageConsumer) throws StripeException {
+        String cursor = startingAfter;
+        int total = 0;
+        while (true) {
+            final String pageCursor = cursor;
+            StripeCollection<T> page = execute(() -> fetcher.fetch(pageCursor));
+            List<T> data = page.getData();
+            if (data == null || data.isEmpty()) {
+                break;
+            }
+            pageConsumer.accept(data);
+            total += data.size();
+            cursor = data.get(data.size() - 1).getId();
+            if (!Boolean.TRUE.equals(page.getHasMore())) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Collect every object of a Stripe list into memory. Prefer {@link #forEachPage} for lists
+     * that can grow without bound.
+     */
+    public <T extends HasId> List<T> listAll(PageFetcher<T> fetcher) throws StripeException {
+        List<T> all = new ArrayList<>();
+        forEachPage(null, fetcher, all::addAll);
+        return all;
+    }
+
+    /**
+     * Run a per-id Stripe call for each distinct id on the bounded pool.
+     * Ids whose call fails (or returns null) are logged and left out of the result.
+     */
+    public <I, R> Map<I, R> fetchEach(Collection<I> ids, StripeCall<I, R> call) {
+        Map<I, Future<R>> futures = new LinkedHashMap<>();
+        for (I id : new LinkedHashSet<>(ids)) {
+            futures.put(id, executor.submit(() -> execute(() -> call.call(id))));
+        }
+
+        Map<I, R> results = new LinkedHashMap<>();
+        for (Map.Entry<I, Future<R>> entry : futures.entrySet()) {
+            try {
+                R result = entry.getValue().get();
+                if (result != null) {
+                    results.put(entry.getKey(), result);
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.warn("Stripe call failed for {}: {}", entry.getKey(), cause.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Make a single rate-limited Stripe request, backing off and retrying when Stripe answers 429.
+     */
+    public <R> R execute(StripeRequest<R> request) throws StripeException {
+        int attempt = 0;
+        while (true) {
+            acquirePermit();
+            try {
+                return request.run();
+            } catch (RateLimitException e) {
+                if (++attempt > MAX_RATE_LIMIT_RETRIES) {
+                    throw e;
+                }
+                long backoff = RATE_LIMIT_BACKOFF_MS << (attempt - 1);
+                logger.warn("Stripe rate limit hit, retrying in {}ms (attempt {}/{})", backoff, attempt, MAX_RATE_LIMIT_RETRIES);
+                sleep(backoff);
+            }
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            rateLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Stripe rate limit", e);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off from Stripe rate limit", e);
+        }
+    }
+
+    /**
+     * Token bucket refilled continuously at the configured rate; holds up to one second of burst.
+     */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double tokensPerSecond) {
+            double rate = tokensPerSecond > 0 ? tokensPerSecond : 1;
+            this.capacity = Math.max(1, rate);
+            this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        void acquire() throws InterruptedException {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+                    lastRefill = now;
+                    if (tokens >= 1) {
+                        tokens -= 1;
+                        return;
+                    }
+                    waitNanos = (long) ((1 - tokens) / tokensPerNano);
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        }
+    }
+}
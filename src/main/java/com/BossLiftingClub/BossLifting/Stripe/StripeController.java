@@ -2,13 +2,18 @@ package com.BossLiftingClub.BossLifting.Stripe;
 
 import com.BossLiftingClub.BossLifting.Analytics.RecentActivity;
 import com.BossLiftingClub.BossLifting.Analytics.RecentActivityRepository;
+import com.BossLiftingClub.BossLifting.Analytics.ledger.StripeLedgerService;
 import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.Business.BusinessService;
 import com.BossLiftingClub.BossLifting.Email.EmailService;
+import com.BossLiftingClub.BossLifting.Email.EmailTemplateService;
+import com.BossLiftingClub.BossLifting.Payment.PaymentMethodStatusService;
 import com.BossLiftingClub.BossLifting.Promo.PromoDTO;
 import com.BossLiftingClub.BossLifting.Promo.PromoService;
+import com.BossLiftingClub.BossLifting.Realtime.BusinessActivityEvent;
 import com.BossLiftingClub.BossLifting.Stripe.ProcessedEvent.EventService;
 import com.BossLiftingClub.BossLifting.Stripe.Transfers.TransferService;
+import com.BossLiftingClub.BossLifting.Stripe.WebhookInbox.WebhookInboxService;
 import com.BossLiftingClub.BossLifting.User.*;
 import com.BossLiftingClub.BossLifting.User.UserTitles.UserTitles;
 import com.BossLiftingClub.BossLifting.User.UserTitles.UserTitlesRepository;
@@ -24,11 +29,13 @@ import com.stripe.model.*;
 import com.stripe.model.checkout.Session;
 import com.stripe.net.Webhook;
 import com.stripe.param.*;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mail.SimpleMailMessage;
@@ -38,6 +45,7 @@ import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
@@ -65,6 +73,11 @@ public class StripeController {
     private final FamilyInvitationRepository familyInvitationRepository;
     private final JavaMailSender mailSender;
     private final EmailService emailService;
+    private final StripeLedgerService stripeLedgerService;
+    private final PaymentMethodStatusService paymentMethodStatusService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WebhookInboxService webhookInboxService;
+    private final EmailTemplateService emailTemplateService;
 
     @Autowired
     public StripeController(EventService eventService, 
@@ -82,7 +95,12 @@ public class StripeController {
                             MembershipRepository membershipRepository,
                             FamilyInvitationRepository familyInvitationRepository,
                             JavaMailSender mailSender,
-                            EmailService emailService) {
+                            EmailService emailService,
+                            StripeLedgerService stripeLedgerService,
+                            PaymentMethodStatusService paymentMethodStatusService,
+                            ApplicationEventPublisher eventPublisher,
+                            WebhookInboxService webhookInboxService,
+                            EmailTemplateService emailTemplateService) {
         this.eventService = eventService;
         this.stripeService = stripeService;
         this.webhookSecret = webhookSecret;
@@ -98,6 +116,17 @@ public class StripeController {
         this.familyInvitationRepository = familyInvitationRepository;
         this.mailSender = mailSender;
         this.emailService = emailService;
+        this.stripeLedgerService = stripeLedgerService;
+        this.paymentMethodStatusService = paymentMethodStatusService;
+        this.eventPublisher = eventPublisher;
+        this.webhookInboxService = webhookInboxService;
+        this.emailTemplateService = emailTemplateService;
+    }
+
+    @PostConstruct
+    public void registerWebhookHandlers() {
+        webhookInboxService.registerHandler(WebhookInboxService.SOURCE_PLATFORM, (event, account) -> processWebhookEvent(event));
+        webhookInboxService.registerHandler(WebhookInboxService.SOURCE_SUBSCRIPTION, (event, account) -> processSubscriptionEvent(event));
     }
 
     public void sendOnboardingEmail(String customerId) throws StripeException {
@@ -126,16 +155,11 @@ public class StripeController {
         String businessContactEmail = "contact@cltliftingclub.com";
 
         String subject = "Welcome to " + businessName + "!";
-        String message = String.format(
-                "<p>Hey %s %s,</p>" +
-                        "<p>Welcome to the %s! 💪</p>" +
-                        "<p>You're all set to start tracking your progress and hitting your goals.</p>" +
-                        "<p>👉 Download the app here: <a href=\"https://apps.apple.com/us/app/clt-lifting-club/id6744620860\">Download on App Store</a></p>" +
-                        "<p>Log in using your phone number and password you signed up with.</p>" +
-                        "<p>Let’s get stronger together!</p>" +
-                        "<p>- The %s Team</p>",
-                firstName, lastName, businessName, businessName
-        );
+        Map<String, Object> values = new HashMap<>();
+        values.put("firstName", firstName);
+        values.put("lastName", lastName);
+        values.put("businessName", businessName);
+        String message = emailTemplateService.render("onboarding-welcome.html", values);
 
         try {
             emailService.sendBlastEmail(email, subject, message, businessName, businessContactEmail, businessContactEmail);
@@ -155,68 +179,87 @@ public class StripeController {
     public ResponseEntity<String> handleWebhook(
             @RequestBody String payload,
             @RequestHeader("Stripe-Signature") String sigHeader
-    ) throws Exception {
-        System.out.println(payload);
+    ) {
         try {
-            Event event = Webhook.constructEvent(payload, sigHeader, webhookSecret);
+            Webhook.constructEvent(payload, sigHeader, webhookSecret);
+        } catch (SignatureVerificationException e) {
+            return ResponseEntity.status(400).body("Invalid signature");
+        }
+        return acceptWebhook(WebhookInboxService.SOURCE_PLATFORM, payload);
+    }
 
-            // Handle checkout.session.completed (successful payment method setup)
-            if ("checkout.session.completed".equals(event.getType())) {
-                Session session = (Session) event.getDataObjectDeserializer().getObject().orElse(null);
-                if (session == null) {
-                    return ResponseEntity.status(400).body("Invalid session data");
-                }
+    /**
+     * Process an event delivered to /webhook, once taken from the webhook inbox.
+     */
+    public void processWebhookEvent(Event event) throws Exception {
+        // Handle checkout.session.completed (successful payment method setup)
+        if ("checkout.session.completed".equals(event.getType())) {
+            Session session = (Session) event.getDataObjectDeserializer().getObject().orElse(null);
+            if (session == null) {
+                System.err.println("Invalid session data in event " + event.getId());
+                return;
+            }
 
-                String customerId = session.getCustomer();
-                String mode = session.getMode();
+            String customerId = session.getCustomer();
+            String mode = session.getMode();
 
-                if ("setup".equals(mode)) {
-                    // Handle setup mode (from /signupWithCard)
-                    String setupIntentId = session.getSetupIntent();
-                    if (setupIntentId == null) {
-                        return ResponseEntity.status(400).body("No setup intent found in session");
-                    }
+            if ("setup".equals(mode)) {
+                // Handle setup mode (from /signupWithCard)
+                String setupIntentId = session.getSetupIntent();
+                if (setupIntentId == null) {
+                    System.err.println("No setup intent found in session " + session.getId());
+                    return;
+                }
 
-                    SetupIntent setupIntent = SetupIntent.retrieve(setupIntentId);
-                    String paymentMethodId = setupIntent.getPaymentMethod();
-                    if (paymentMethodId != null) {
-                        // Payment method provided, attach it and proceed
-                        stripeService.attachPaymentMethod(customerId, paymentMethodId);
-                        System.out.println("Payment method " + paymentMethodId + " set as default for customer " + customerId);
+                SetupIntent setupIntent = SetupIntent.retrieve(setupIntentId);
+                String paymentMethodId = setupIntent.getPaymentMethod();
+                if (paymentMethodId != null) {
+                    // Payment method provided, attach it and proceed
+                    stripeService.attachPaymentMethod(customerId, paymentMethodId);
+                    System.out.println("Payment method " + paymentMethodId + " set as default for customer " + customerId);
 
-                        // Create and save user
-                        User user = createUserFromSession(session, customerId);
-                        System.out.println("User created with ID: " + user.getId() + " for customer: " + customerId);
+                    // Create and save user
+                    User user = createUserFromSession(session, customerId);
+                    System.out.println("User created with ID: " + user.getId() + " for customer: " + customerId);
 
-                        // Create subscriptions
-                        createSubscriptions(customerId, paymentMethodId, user.getLockedInRate(), session.getMetadata().get("promoToken"));
-                        sendOnboardingEmail(customerId);
-                    } else {
-                        // No payment method provided, delete the Stripe customer
-                        System.out.println("No payment method attached in setup intent: " + setupIntentId);
-                        stripeService.deleteCustomer(customerId);
-                        System.out.println("Deleted Stripe customer " + customerId + " due to no payment method.");
-                        return ResponseEntity.status(400).body("No payment method found in setup intent");
-                    }
+                    // Create subscriptions
+                    createSubscriptions(customerId, paymentMethodId, user.getLockedInRate(), session.getMetadata().get("promoToken"));
+                    sendOnboardingEmail(customerId);
+                } else {
+                    // No payment method provided, delete the Stripe customer
+                    System.out.println("No payment method attached in setup intent: " + setupIntentId);
+                    stripeService.deleteCustomer(customerId);
+                    System.out.println("Deleted Stripe customer " + customerId + " due to no payment method.");
+                    return;
                 }
             }
+        }
 
-            // Handle checkout.session.expired (user canceled or session timed out)
-            if ("checkout.session.expired".equals(event.getType())) {
-                Session session = (Session) event.getDataObjectDeserializer().getObject().orElse(null);
-                if (session == null) {
-                    return ResponseEntity.status(400).body("Invalid session data");
-                }
-
-                String customerId = session.getCustomer();
-                stripeService.deleteCustomer(customerId);
-                System.out.println("Checkout session expired, deleted Stripe customer: " + customerId);
+        // Handle checkout.session.expired (user canceled or session timed out)
+        if ("checkout.session.expired".equals(event.getType())) {
+            Session session = (Session) event.getDataObjectDeserializer().getObject().orElse(null);
+            if (session == null) {
+                System.err.println("Invalid session data in event " + event.getId());
+                return;
             }
 
-            return ResponseEntity.ok("Webhook handled");
-        } catch (StripeException e) {
-            e.printStackTrace();
-            System.out.println("Webhook error: " + e.getMessage());
+            String customerId = session.getCustomer();
+            stripeService.deleteCustomer(customerId);
+            System.out.println("Checkout session expired, deleted Stripe customer: " + customerId);
+        }
+    }
+
+    /**
+     * Store a verified webhook in the inbox and acknowledge it. Only a failure to store it makes Stripe retry.
+     */
+    private ResponseEntity<String> acceptWebhook(String source, String payload) {
+        try {
+            WebhookInboxService.ReceiveResult result = webhookInboxService.receive(source, payload, null);
+            return ResponseEntity.ok(result.stored() ? "Webhook received" : "Event already received");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Failed to store {} webhook in the inbox: {}", source, e.getMessage(), e);
             return ResponseEntity.status(500).body("Webhook error: " + e.getMessage());
         }
     }
@@ -392,119 +435,162 @@ public class StripeController {
             String payload = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
 
             // Verify webhook signature
-            Event event = Webhook.constructEvent(payload, sigHeader, webhookSubscriptionSecret);
-
-            // Deserialize the event data object
-            EventDataObjectDeserializer dataObjectDeserializer = event.getDataObjectDeserializer();
-            if (!dataObjectDeserializer.getObject().isPresent()) {
-                return new ResponseEntity<>("Invalid event data", HttpStatus.BAD_REQUEST);
-            }
+            Webhook.constructEvent(payload, sigHeader, webhookSubscriptionSecret);
+            return acceptWebhook(WebhookInboxService.SOURCE_SUBSCRIPTION, payload);
+        } catch (SignatureVerificationException e) {
+            return new ResponseEntity<>("Invalid signature", HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            return new ResponseEntity<>("Webhook error: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 
-            String eventId = event.getId();
-            String eventType = event.getType();
+    /**
+     * Process an event delivered to /StripeSubscriptionHandler, once taken from the webhook inbox. The inbox
+     * has already claimed the event id through {@link EventService#claim}, so duplicates never get here.
+     */
+    public void processSubscriptionEvent(Event event) throws Exception {
+        // Deserialize the event data object
+        EventDataObjectDeserializer dataObjectDeserializer = event.getDataObjectDeserializer();
+        if (!dataObjectDeserializer.getObject().isPresent()) {
+            System.err.println("Invalid event data in event " + event.getId());
+            return;
+        }
 
-            // Check if event was already processed
-            if (eventService.isEventProcessed(eventId)) {
-                System.out.println("Event " + eventId + " already processed, skipping.");
-                return new ResponseEntity<>("Event already processed", HttpStatus.OK);
-            }
+        String eventId = event.getId();
+        String eventType = event.getType();
 
-            // Handle other event types
-            switch (eventType) {
-                case "customer.subscription.created":
-                    Subscription newSubscription = (Subscription) dataObjectDeserializer.getObject().get();
-                    String newCustomerId = newSubscription.getCustomer();
-                    String newStatus = newSubscription.getStatus();
-                    boolean isInGoodStanding = "active".equals(newStatus) || "trialing".equals(newStatus);
-                    userService.updateUserAfterPayment(newCustomerId, isInGoodStanding);
+        // Keep the local Stripe ledger (used by analytics) current
+        try {
+            stripeLedgerService.recordEvent(event);
+        } catch (Exception e) {
+            System.err.println("Failed to record event " + eventId + " in Stripe ledger: " + e.getMessage());
+        }
 
-                    // Create NEW_MEMBER recent activity
-                    try {
-                        // Check if already processed
-                        if (!recentActivityRepository.findByStripeEventId(eventId).isPresent()) {
-                            Customer newCustomer = Customer.retrieve(newCustomerId);
-                            String customerName = newCustomer.getName() != null ? newCustomer.getName() : "New Member";
-
-                            Long businessId = 1L; // Single-tenant: one business / platform
-
-                            RecentActivity activity = new RecentActivity();
-                            activity.setBusinessId(businessId);
-                            activity.setActivityType("NEW_MEMBER");
-                            activity.setDescription(customerName + " joined the business");
-                            activity.setCustomerName(customerName);
-                            activity.setStripeEventId(eventId);
-                            recentActivityRepository.save(activity);
-
-                            System.out.println("Created NEW_MEMBER activity for customer: " + customerName + " in business ID: " + businessId);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Failed to create NEW_MEMBER activity: " + e.getMessage());
+        // Handle other event types
+        switch (eventType) {
+            case "customer.subscription.created":
+                Subscription newSubscription = (Subscription) dataObjectDeserializer.getObject().get();
+                String newCustomerId = newSubscription.getCustomer();
+                String newStatus = newSubscription.getStatus();
+                boolean isInGoodStanding = "active".equals(newStatus) || "trialing".equals(newStatus);
+                userService.updateUserAfterPayment(newCustomerId, isInGoodStanding);
+                userBusinessService.recordStripeSubscription(newSubscription);
+
+                // Create NEW_MEMBER recent activity
+                try {
+                    // Check if already processed
+                    if (!recentActivityRepository.findByStripeEventId(eventId).isPresent()) {
+                        Customer newCustomer = Customer.retrieve(newCustomerId);
+                        String customerName = newCustomer.getName() != null ? newCustomer.getName() : "New Member";
+
+                        Long businessId = 1L; // Single-tenant: one business / platform
+
+                        RecentActivity activity = new RecentActivity();
+                        activity.setBusinessId(businessId);
+                        activity.setActivityType("NEW_MEMBER");
+                        activity.setDescription(customerName + " joined the business");
+                        activity.setCustomerName(customerName);
+                        activity.setStripeEventId(eventId);
+                        recentActivityRepository.save(activity);
+
+                        Map<String, Object> memberData = new LinkedHashMap<>();
+                        memberData.put("customerId", newCustomerId);
+                        memberData.put("customerName", customerName);
+                        memberData.put("subscriptionStatus", newStatus);
+                        eventPublisher.publishEvent(new BusinessActivityEvent(businessId, "new-member", memberData));
+
+                        System.out.println("Created NEW_MEMBER activity for customer: " + customerName + " in business ID: " + businessId);
                     }
-                    break;
+                } catch (Exception e) {
+                    System.err.println("Failed to create NEW_MEMBER activity: " + e.getMessage());
+                }
+                break;
 
-                case "customer.subscription.updated":
-                    Subscription subscription = (Subscription) dataObjectDeserializer.getObject().get();
-                    String customerId = subscription.getCustomer();
-                    String status = subscription.getStatus();
-                    boolean isInGoodStandingUpdated = "active".equals(status) || "trialing".equals(status);
-                    userService.updateUserAfterPayment(customerId, isInGoodStandingUpdated);
-                    break;
+            case "customer.subscription.updated":
+                Subscription subscription = (Subscription) dataObjectDeserializer.getObject().get();
+                String customerId = subscription.getCustomer();
+                String status = subscription.getStatus();
+                boolean isInGoodStandingUpdated = "active".equals(status) || "trialing".equals(status);
+                userService.updateUserAfterPayment(customerId, isInGoodStandingUpdated);
+                userBusinessService.recordStripeSubscription(subscription);
+                break;
 
-                case "charge.succeeded":
-                    Charge charge = (Charge) dataObjectDeserializer.getObject().get();
+            case "charge.succeeded":
+                Charge charge = (Charge) dataObjectDeserializer.getObject().get();
 
-                    // Create PAYMENT recent activity
-                    try {
-                        // Check if already processed
-                        if (!recentActivityRepository.findByStripeEventId(eventId).isPresent()) {
-                            String chargeCustomerId = charge.getCustomer();
-                            double amount = charge.getAmount() / 100.0;
-
-                            Customer chargeCustomer = Customer.retrieve(chargeCustomerId);
-                            String payerName = chargeCustomer.getName() != null ? chargeCustomer.getName() : "Customer";
-
-                            Long businessId = 1L; // Single-tenant: one business / platform
-
-                            RecentActivity activity = new RecentActivity();
-                            activity.setBusinessId(businessId);
-                            activity.setActivityType("PAYMENT");
-                            activity.setDescription("Payment received from " + payerName);
-                            activity.setAmount(amount);
-                            activity.setCustomerName(payerName);
-                            activity.setStripeEventId(eventId);
-                            recentActivityRepository.save(activity);
-
-                            System.out.println("Created PAYMENT activity: $" + amount + " from " + payerName + " in business ID: " + businessId);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Failed to create PAYMENT activity: " + e.getMessage());
+                // Create PAYMENT recent activity
+                try {
+                    // Check if already processed
+                    if (!recentActivityRepository.findByStripeEventId(eventId).isPresent()) {
+                        String chargeCustomerId = charge.getCustomer();
+                        double amount = charge.getAmount() / 100.0;
+
+                        Customer chargeCustomer = Customer.retrieve(chargeCustomerId);
+                        String payerName = chargeCustomer.getName() != null ? chargeCustomer.getName() : "Customer";
+
+                        Long businessId = 1L; // Single-tenant: one business / platform
+
+                        RecentActivity activity = new RecentActivity();
+                        activity.setBusinessId(businessId);
+                        activity.setActivityType("PAYMENT");
+                        activity.setDescription("Payment received from " + payerName);
+                        activity.setAmount(amount);
+                        activity.setCustomerName(payerName);
+                        activity.setStripeEventId(eventId);
+                        recentActivityRepository.save(activity);
+
+                        Map<String, Object> paymentData = new LinkedHashMap<>();
+                        paymentData.put("customerId", chargeCustomerId);
+                        paymentData.put("customerName", payerName);
+                        paymentData.put("amount", amount);
+                        eventPublisher.publishEvent(new BusinessActivityEvent(businessId, "payment", paymentData));
+
+                        System.out.println("Created PAYMENT activity: $" + amount + " from " + payerName + " in business ID: " + businessId);
                     }
-                    break;
+                } catch (Exception e) {
+                    System.err.println("Failed to create PAYMENT activity: " + e.getMessage());
+                }
+                break;
 
-                case "invoice.payment_failed":
-                    Invoice failedInvoice = (Invoice) dataObjectDeserializer.getObject().get();
-                    if (failedInvoice != null && failedInvoice.getSubscription() != null) {
-                        userService.updateUserAfterPayment(failedInvoice.getCustomer(), false);
-                    }
-                    break;
+            case "invoice.payment_failed":
+                Invoice failedInvoice = (Invoice) dataObjectDeserializer.getObject().get();
+                if (failedInvoice != null && failedInvoice.getSubscription() != null) {
+                    userService.updateUserAfterPayment(failedInvoice.getCustomer(), false);
+                }
+                if (failedInvoice != null) {
+                    Map<String, Object> failureData = new LinkedHashMap<>();
+                    failureData.put("customerId", failedInvoice.getCustomer());
+                    failureData.put("customerName", failedInvoice.getCustomerName());
+                    failureData.put("invoiceId", failedInvoice.getId());
+                    failureData.put("amountDue", failedInvoice.getAmountDue() != null ? failedInvoice.getAmountDue() / 100.0 : null);
+                    failureData.put("attemptCount", failedInvoice.getAttemptCount());
+                    // Single-tenant: one business / platform
+                    eventPublisher.publishEvent(new BusinessActivityEvent(1L, "payment-failed", failureData));
+                }
+                break;
 
-                case "customer.subscription.deleted":
-                    Subscription deletedSubscription = (Subscription) dataObjectDeserializer.getObject().get();
-                    userService.updateUserAfterPayment(deletedSubscription.getCustomer(), false);
-                    break;
+            case "customer.subscription.deleted":
+                Subscription deletedSubscription = (Subscription) dataObjectDeserializer.getObject().get();
+                userService.updateUserAfterPayment(deletedSubscription.getCustomer(), false);
+                userBusinessService.recordStripeSubscription(deletedSubscription);
+                break;
 
-                default:
-                    System.out.println("Unhandled event type: " + eventType + ", ID: " + eventId);
-            }
+            case "payment_method.attached":
+            case "payment_method.detached":
+            case "customer.updated":
+            case "setup_intent.succeeded":
+                // Keep the stored payment-method state current; members whose answer changed get a new status
+                try {
+                    for (UserBusiness changed : paymentMethodStatusService.handleEvent(event)) {
+                        userBusinessService.calculateAndUpdateStatus(changed);
+                    }
+                } catch (Exception e) {
+                    System.err.println("Failed to update payment method state for event " + eventId + ": " + e.getMessage());
+                }
+                break;
 
-            // Mark event as processed
-            eventService.markEventProcessed(eventId);
-            return new ResponseEntity<>("Webhook processed", HttpStatus.OK);
-        } catch (SignatureVerificationException e) {
-            return new ResponseEntity<>("Invalid signature", HttpStatus.BAD_REQUEST);
-        } catch (Exception e) {
-            System.err.println("Unexpected error: " + e.getMessage());
-            return new ResponseEntity<>("Webhook error: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            default:
+                System.out.println("Unhandled event type: " + eventType + ", ID: " + eventId);
         }
     }
 
@@ -1115,45 +1201,16 @@ public class StripeController {
                 frontendBaseUrl = "http://localhost:5173"; // Default to localhost for development
             }
             String inviteLink = frontendBaseUrl + "/signup?contract=Family&userId=" + userId;
-            String businessName = business.getTitle() != null ? business.getTitle() : "RecRev";
-            String businessContactEmail = business.getContactEmail() != null ? 
-                business.getContactEmail() : "support@recrev.com";
+            EmailTemplateService.EmailBranding branding = emailTemplateService.getBranding(business);
+            String businessName = branding.businessNameOr("RecRev");
+            String businessContactEmail = branding.contactEmailOr("support@recrev.com");
 
             String subject = "Join Your Family Plan - RecRev Portal";
-            // Escape any % characters in the values to prevent formatting errors
-            String escapedBusinessName = businessName.replace("%", "%%");
-            String escapedInviteLink = inviteLink.replace("%", "%%");
-            String escapedBusinessContactEmail = businessContactEmail.replace("%", "%%");
-            
-            String htmlContent = String.format(
-                "<body style=\"font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto; padding: 20px;\">" +
-                "<div style=\"background: linear-gradient(135deg, #1e293b 0%%, #334155 100%%); padding: 30px; border-radius: 10px; margin-bottom: 20px;\">" +
-                "<h1 style=\"color: white; margin: 0; font-size: 24px;\">RecRev Portal</h1>" +
-                "</div>" +
-                "<h2 style=\"color: #1e293b; margin-top: 0;\">You've Been Invited to Join a Family Plan</h2>" +
-                "<p>Dear Member,</p>" +
-                "<p>You've been invited to join a family plan for <strong>%s</strong>. As a family member, you'll have access to all the benefits of the family plan.</p>" +
-                "<p style=\"text-align: center; margin: 30px 0;\">" +
-                "<a href=\"%s\" style=\"background: linear-gradient(135deg, #10b981, #059669); color: #fff; padding: 15px 30px; text-decoration: none; border-radius: 8px; font-weight: 600; display: inline-block; box-shadow: 0 4px 15px rgba(16, 185, 129, 0.3);\">Complete Your Signup</a>" +
-                "</p>" +
-                "<p style=\"color: #64748b; font-size: 14px;\">Click the button above to create your account and join the family plan. You'll be redirected to our secure RecRev portal to complete the signup process.</p>" +
-                "<div style=\"background: #f1f5f9; padding: 15px; border-radius: 8px; margin: 20px 0;\">" +
-                "<p style=\"margin: 0; color: #475569; font-size: 14px;\"><strong>What's Next?</strong></p>" +
-                "<ul style=\"margin: 10px 0; padding-left: 20px; color: #64748b; font-size: 14px;\">" +
-                "<li>Click the button above to access the RecRev portal</li>" +
-                "<li>Create your account with your email address</li>" +
-                "<li>Set up your password</li>" +
-                "<li>Complete your profile setup</li>" +
-                "</ul>" +
-                "</div>" +
-                "<p style=\"color: #64748b; font-size: 14px;\">If you were not expecting this invitation or believe it was sent in error, please ignore this email or contact our support team at <a href=\"mailto:%s\" style=\"color: #3b82f6;\">%s</a>.</p>" +
-                "<p style=\"margin-top: 30px;\">Best regards,<br><strong>The %s Team</strong></p>" +
-                "<hr style=\"border: none; border-top: 1px solid #e2e8f0; margin: 30px 0;\">" +
-                "<p style=\"color: #94a3b8; font-size: 12px; text-align: center;\">This email was sent by RecRev Portal. Powered by RecRev.</p>" +
-                "</body>" +
-                "</html>",
-                escapedBusinessName, escapedInviteLink, escapedBusinessContactEmail, escapedBusinessContactEmail, escapedBusinessName
-            );
+            Map<String, Object> values = new HashMap<>();
+            values.put("businessName", businessName);
+            values.put("inviteLink", inviteLink);
+            values.put("contactEmail", businessContactEmail);
+            String htmlContent = emailTemplateService.render("family-invite.html", values);
 
             try {
                 emailService.sendBlastEmail(email, subject, htmlContent, businessName, businessContactEmail);
@@ -1303,92 +1360,40 @@ public class StripeController {
         List<String> successes = new ArrayList<>();
         List<String> failures = new ArrayList<>();
 
-        List<User> users = userRepository.findAll();
+        // Addresses come from our own users table in one query; no Stripe lookups per user
+        List<EmailRecipientProjection> recipients = userRepository.findAllEmailRecipients();
         
         // Note: This is a bulk email and might need to be careful about "UserBusiness" context
         // For now, assuming "CLT Lifting Club" default as this seems specific to an event
         String businessName = "CLT Lifting Club";
         String businessContactEmail = "contact@cltliftingclub.com";
 
-        for (User user : users) {
-            String stripeMemberId = user.getUserStripeMemberId();
+        // The body is the same for every recipient, so it is rendered once
+        Map<String, Object> values = new HashMap<>();
+        values.put("businessName", businessName);
+        values.put("contactEmail", businessContactEmail);
+        String htmlContent = emailTemplateService.render("social-event.html", values);
+        String subject = "Don’t Miss This! – " + businessName + " x Kingdom Kickbacks Social Event";
+
+        for (EmailRecipientProjection recipient : recipients) {
+            // Same audience as when addresses came from Stripe: only users with a Stripe customer
+            String stripeMemberId = recipient.getUserStripeMemberId();
             if (stripeMemberId == null || stripeMemberId.isEmpty()) {
-                failures.add("User ID " + user.getId() + ": No StripeMemberID found");
+                failures.add("User ID " + recipient.getId() + ": No StripeMemberID found");
+                continue;
+            }
+            String email = recipient.getEmail();
+            if (email == null || email.isEmpty()) {
+                failures.add("User ID " + recipient.getId() + ": No email on file");
                 continue;
             }
 
             try {
-                // Fetch email from Stripe
-                Customer customer = Customer.retrieve(stripeMemberId);
-                String email = customer.getEmail();
-                if (email == null || email.isEmpty()) {
-                    failures.add("User ID " + user.getId() + ": No email found in Stripe for " + stripeMemberId);
-                    continue;
-                }
+                emailService.sendBlastEmail(email, subject, htmlContent, businessName, businessContactEmail);
 
-                String htmlContent = """
-<!DOCTYPE html>
-<html>
-<head>
-    <style>
-        body { font-family: Arial, sans-serif; color: #333; }
-        .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-        .header { background-color: #f8f8f8; padding: 10px; text-align: center; }
-        .content { padding: 20px; }
-        .footer { font-size: 12px; color: #777; text-align: center; }
-        a.button {
-            display: inline-block;
-            padding: 10px 15px;
-            background-color: #007BFF;
-            color: white !important;
-            text-decoration: none;
-            border-radius: 5px;
-            font-weight: bold;
-        }
-        a.button:hover {
-            background-color: #0056b3;
-        }
-    </style>
-</head>
-<body>
-    <div class="container">
-        <div class="header">
-            <h2>%s</h2>
-        </div>
-        <div class="content">
-            <p>%s is teaming up with Kingdom Kickbacks for an epic Open Gym Social — a day packed with fitness, connections, and memories you won’t want to miss.</p>
-            <p><strong>Here’s what’s going down:</strong></p>
-            <ul>
-                <li>Food Truck: Smart Eats</li>
-                <li>Coffee Cart: Breezeway Coffee</li>
-                <li>Cold Plunge: Plunge House</li>
-                <li>Saunas to recover and recharge</li>
-                <li>Live DJ for the perfect workout vibe</li>
-                <li>Full Gym Access + fun fitness challenges</li>
-                <li><strong>FREE for you and your friends</strong></li>
-            </ul>
-            <p><strong>Date:</strong> Saturday, August 16th | 10 AM – 1 PM</p>
-            <p><strong>Location:</strong> CLT Lifting Club, 3100 South Boulevard, Charlotte, NC 28203</p>
-            <p><strong>Bonus:</strong> Post a workout or event hype photo/video on August 16th using #CLTLiftingClub and tag @CLTLiftingClub for your chance to win a free CLT tee.</p>
-            <p><a href="https://www.evite.com/signup-sheet/6025706806444032/?utm_campaign=send_sharable_link&utm_source=evitelink&utm_medium=sharable_invite" class="button">RSVP NOW</a> to let us know you’re coming, walk-ins are still welcome!</p>
-            <p>Let’s make this the best South End community event of the summer.</p>
-            <p>See you there,<br>The %s Team</p>
-        </div>
-        <div class="footer">
-            <p>%s | %s</p>
-        </div>
-    </div>
-</body>
-</html>
-""".formatted(businessName, businessName, businessName, businessName, businessContactEmail);
-
-                emailService.sendBlastEmail(email, "Don’t Miss This! – " + businessName + " x Kingdom Kickbacks Social Event", htmlContent, businessName, businessContactEmail);
-
-                successes.add("User ID " + user.getId() + ": Email sent to " + email);
-            } catch (StripeException e) {
-                failures.add("User ID " + user.getId() + ": Stripe error for " + stripeMemberId + " - " + e.getMessage());
+                successes.add("User ID " + recipient.getId() + ": Email sent to " + email);
             } catch (RuntimeException e) {
-                failures.add("User ID " + user.getId() + ": Email sending failed for " + stripeMemberId + " - " + e.getMessage());
+                failures.add("User ID " + recipient.getId() + ": Email sending failed for " + email + " - " + e.getMessage());
             }
         }
 
@@ -0,0 +1,12 @@
+package com.BossLiftingClub.BossLifting.Stripe.WebhookInbox;
+
+import com.stripe.model.Event;
+
+/**
+ * Processes one Stripe event taken from the webhook inbox. Throwing schedules a retry; returning marks the
+ * event done.
+ */
+@FunctionalInterface
+public interface WebhookHandler {
+    void handle(Event event, String stripeAccountId) throws Exception;
+}
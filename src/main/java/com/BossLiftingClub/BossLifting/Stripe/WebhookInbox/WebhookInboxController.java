@@ -0,0 +1,95 @@
+package com.BossLiftingClub.BossLifting.Stripe.WebhookInbox;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Monitoring, dead-letter handling and replay of missed events for the Stripe webhook inbox.
+ */
+@RestController
+@RequestMapping("/api/stripe/webhook-inbox")
+public class WebhookInboxController {
+
+    private final WebhookInboxService webhookInboxService;
+    private final WebhookReplayService webhookReplayService;
+
+    public WebhookInboxController(WebhookInboxService webhookInboxService, WebhookReplayService webhookReplayService) {
+        this.webhookInboxService = webhookInboxService;
+        this.webhookReplayService = webhookReplayService;
+    }
+
+    /**
+     * Events per status, processing lag and retry counts.
+     *
+     * GET /api/stripe/webhook-inbox/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(webhookInboxService.getStats());
+    }
+
+    /**
+     * Events that ran out of attempts, newest first.
+     *
+     * GET /api/stripe/webhook-inbox/dead?limit=50
+     */
+    @GetMapping("/dead")
+    public ResponseEntity<?> deadEvents(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(webhookInboxService.getDeadEvents(limit));
+    }
+
+    /**
+     * Queue a dead event again with a fresh set of attempts.
+     *
+     * POST /api/stripe/webhook-inbox/{id}/requeue
+     */
+    @PostMapping("/{id}/requeue")
+    public ResponseEntity<?> requeue(@PathVariable long id) {
+        if (!webhookInboxService.requeue(id)) {
+            return ResponseEntity.status(404).body(Map.of("error", "No dead webhook event with id " + id));
+        }
+        return ResponseEntity.ok(Map.of("requeued", id));
+    }
+
+    /**
+     * Replay Stripe events from a time range that were never processed, e.g. after an outage. Runs in the
+     * background; a dry run only reports what would be replayed. Pass stripeAccountId to replay a connected
+     * account's events, and types to override the event types replayed.
+     *
+     * POST /api/stripe/webhook-inbox/replay?from=2026-10-16T22:00:00&to=2026-10-16T23:30:00&dryRun=true
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<?> replay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestParam(required = false) String stripeAccountId,
+            @RequestParam(required = false) List<String> types) {
+        WebhookReplayService.ReplayRequest request =
+                new WebhookReplayService.ReplayRequest(from, to, stripeAccountId, types, dryRun);
+        try {
+            if (!webhookReplayService.startAsync(request)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Replay already running"));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.accepted().body(Map.of("started", true, "dryRun", dryRun));
+    }
+
+    /**
+     * Progress of the running replay and the summary of the last one.
+     *
+     * GET /api/stripe/webhook-inbox/replay
+     */
+    @GetMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replayStatus() {
+        return ResponseEntity.ok(webhookReplayService.getStatus());
+    }
+}
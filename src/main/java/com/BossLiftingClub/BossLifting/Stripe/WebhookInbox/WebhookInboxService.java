@@ -0,0 +1,576 @@
+package com.BossLiftingClub.BossLifting.Stripe.WebhookInbox;
+
+import com.BossLiftingClub.BossLifting.Stripe.ProcessedEvent.EventService;
+import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.model.Event;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable inbox for Stripe webhooks.
+ *
+ * Webhook endpoints verify the signature, hand the raw payload to {@link #receive} and answer Stripe right
+ * away; the event is processed later by the handler registered for its source. A redelivered event id is
+ * answered from {@link EventService}'s memory of recent events when possible, and otherwise recognised by
+ * the (source, event_id) unique key; it is not stored twice. Before its handler runs, an event is claimed
+ * for its source through {@link EventService#claim}, so each source's handler runs an event once however
+ * it arrived, e.g. live and again through a replay.
+ *
+ * A dispatcher thread picks due PENDING events in arrival order and shards them by Stripe customer (and
+ * connected account) onto {@code stripe.webhook-inbox.lanes} single-threaded lanes, so a customer's events
+ * run one at a time in order while different customers run in parallel. While one of a customer's events is
+ * running or waiting for a retry, their later events wait too. Events without a customer run independently.
+ *
+ * Stripe tends to send a customer's events in bursts (several customer.subscription.updated, then
+ * invoice.payment_succeeded and charge.succeeded within a second). A customer's events are only dispatched
+ * once the oldest has waited {@code coalesce-window}, and then all of them go to the lane as one burst.
+ * Within a burst only the latest customer.subscription.updated of each subscription runs; the ones it
+ * supersedes are marked done. Status recalculations requested while the burst runs are deferred
+ * ({@link UserBusinessService#beginDeferredStatusRecalculation}) and done once per member at the end.
+ *
+ * A failed event is retried with exponential backoff from {@code initial-backoff} up to {@code max-backoff};
+ * after {@code max-attempts} it is marked DEAD and stays in the table until requeued through
+ * {@link #requeue}. Events left PROCESSING by a crash are returned to PENDING after
+ * {@code processing-timeout}. DONE events are deleted after {@code retention-days}.
+ */
+@Service
+public class WebhookInboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookInboxService.class);
+
+    /** Sources: the endpoint an event was delivered to, which decides its handler. */
+    public static final String SOURCE_PLATFORM = "platform";
+    public static final String SOURCE_SUBSCRIPTION = "subscription";
+    public static final String SOURCE_CONNECTED = "connected";
+
+    public static final String PENDING = "PENDING";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String DONE = "DONE";
+    public static final String DEAD = "DEAD";
+
+    private static final int DISPATCH_BATCH = 500;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO webhook_inbox (source, event_id, event_type, stripe_account_id, ordering_key, event_created, " +
+            "payload, status, attempts, next_attempt_at, received_at) VALUES (?, ?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    private static final String SUBSCRIPTION_UPDATED = "customer.subscription.updated";
+
+    /**
+     * Due pending events after a cursor, in arrival order. An event waiting for a retry is left out together
+     * with every later event of its key, so they keep waiting behind it without filling the page.
+     */
+    private static final String DUE_SQL =
+            "SELECT id, ordering_key, received_at FROM webhook_inbox w WHERE w.status = 'PENDING' AND w.id > ? " +
+            "AND (w.next_attempt_at IS NULL OR w.next_attempt_at <= ?) " +
+            "AND NOT EXISTS (SELECT 1 FROM webhook_inbox h WHERE h.ordering_key = w.ordering_key " +
+            "AND h.status = 'PENDING' AND h.id < w.id AND h.next_attempt_at > ?) " +
+            "ORDER BY w.id LIMIT " + DISPATCH_BATCH;
+
+    private static final String CLAIM_SQL =
+            "UPDATE webhook_inbox SET status = 'PROCESSING', attempts = attempts + 1, started_at = ? " +
+            "WHERE id = ? AND status = 'PENDING'";
+
+    private static final String LOAD_SQL =
+            "SELECT id, source, event_id, event_type, event_created, stripe_account_id, payload, attempts, received_at " +
+            "FROM webhook_inbox WHERE id = ? AND status = 'PENDING'";
+
+    /** A stored event ready to run. {@code attempts} counts the run about to start. */
+    private record InboxEvent(long id, String source, String eventId, String eventType, long eventCreated,
+                              String stripeAccountId, String payload, int attempts, LocalDateTime receivedAt) {}
+
+    /** Outcome of storing a delivery: false for a redelivery of an event already in the inbox. */
+    public record ReceiveResult(boolean stored, String eventId) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final EventService eventService;
+    private final UserBusinessService userBusinessService;
+    private final Map<String, WebhookHandler> handlers = new ConcurrentHashMap<>();
+    private final Set<String> inFlightKeys = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeups = new Semaphore(0);
+    private final ExecutorService[] lanes;
+    private final Duration coalesceWindow;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration processingTimeout;
+    private final int retentionDays;
+    private final long pollIntervalMs;
+    private final Thread dispatcherThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong alreadyProcessed = new AtomicLong();
+    private final AtomicLong bursts = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong statusRecalculations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong totalHandlerMillis = new AtomicLong();
+    private volatile long lastLagMillis;
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    public WebhookInboxService(JdbcTemplate jdbcTemplate,
+                               ObjectMapper objectMapper,
+                               EventService eventService,
+                               UserBusinessService userBusinessService,
+                               @Value("${stripe.webhook-inbox.lanes:4}") int lanes,
+                               @Value("${stripe.webhook-inbox.coalesce-window:2s}") Duration coalesceWindow,
+                               @Value("${stripe.webhook-inbox.max-attempts:8}") int maxAttempts,
+                               @Value("${stripe.webhook-inbox.initial-backoff:30s}") Duration initialBackoff,
+                               @Value("${stripe.webhook-inbox.max-backoff:1h}") Duration maxBackoff,
+                               @Value("${stripe.webhook-inbox.processing-timeout:15m}") Duration processingTimeout,
+                               @Value("${stripe.webhook-inbox.retention-days:30}") int retentionDays,
+                               @Value("${stripe.webhook-inbox.poll-interval-ms:1000}") long pollIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventService = eventService;
+        this.userBusinessService = userBusinessService;
+        this.coalesceWindow = coalesceWindow;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.processingTimeout = processingTimeout;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.pollIntervalMs = Math.max(10, pollIntervalMs);
+        this.lanes = new ExecutorService[Math.max(1, lanes)];
+        for (int i = 0; i < this.lanes.length; i++) {
+            String name = "webhook-lane-" + (i + 1);
+            this.lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.dispatcherThread = new Thread(this::dispatchLoop, "webhook-dispatcher");
+        this.dispatcherThread.setDaemon(true);
+    }
+
+    /**
+     * Set the handler for events received from {@code source}. Handlers register at startup; events of a
+     * source without one stay in the inbox and are retried.
+     */
+    public void registerHandler(String source, WebhookHandler handler) {
+        handlers.put(source, handler);
+    }
+
+    /**
+     * Store a verified webhook payload for processing. Returns without running any handler.
+     * @param stripeAccountId connected account from the request, used when the payload does not name one
+     * @throws IllegalArgumentException if the payload is not a Stripe event
+     */
+    public ReceiveResult receive(String source, String payload, String stripeAccountId) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Webhook payload is not valid JSON", e);
+        }
+        String eventId = text(root, "id");
+        if (eventId == null) {
+            throw new IllegalArgumentException("Webhook payload has no event id");
+        }
+        if (eventService.isRecentlySeen(source, eventId)) {
+            duplicates.incrementAndGet();
+            return new ReceiveResult(false, eventId);
+        }
+        String account = text(root, "account") != null ? text(root, "account") : stripeAccountId;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.update(INSERT_SQL, source, eventId, text(root, "type"), account,
+                    orderingKey(root, account), root.path("created").isNumber() ? root.path("created").asLong() : null,
+                    payload, now, now);
+        } catch (DuplicateKeyException e) {
+            duplicates.incrementAndGet();
+            eventService.recordDelivery(source, eventId);
+            return new ReceiveResult(false, eventId);
+        }
+        eventService.recordDelivery(source, eventId);
+        received.incrementAndGet();
+        wakeups.release();
+        return new ReceiveResult(true, eventId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        recoverStuckEvents();
+        dispatcherThread.start();
+        logger.info("Webhook inbox started with {} lanes", lanes.length);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        wakeups.release();
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            // Events still running after this are picked up again as stuck PROCESSING rows
+            for (ExecutorService lane : lanes) {
+                lane.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Put events left PROCESSING longer than the processing timeout (e.g. by a crash) back in the queue.
+     */
+    @Scheduled(fixedDelayString = "${stripe.webhook-inbox.recovery-interval-ms:60000}")
+    public void recoverStuckEvents() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(processingTimeout));
+        List<Map<String, Object>> stuck = jdbcTemplate.queryForList(
+                "SELECT id, source, event_id FROM webhook_inbox WHERE status = 'PROCESSING' AND started_at < ?", cutoff);
+        for (Map<String, Object> row : stuck) {
+            // The interrupted run never finished, so its claim must not stop the retry
+            eventService.release((String) row.get("source"), (String) row.get("event_id"));
+            jdbcTemplate.update("UPDATE webhook_inbox SET status = 'PENDING', next_attempt_at = ? WHERE id = ? AND status = 'PROCESSING'",
+                    Timestamp.valueOf(LocalDateTime.now()), ((Number) row.get("id")).longValue());
+        }
+        if (!stuck.isEmpty()) {
+            logger.warn("Returned {} stuck webhook events to the inbox", stuck.size());
+            wakeups.release();
+        }
+    }
+
+    /**
+     * Delete processed events past the retention period. Dead events are kept for inspection.
+     */
+    @Scheduled(cron = "${stripe.webhook-inbox.purge-cron:0 50 3 * * *}")
+    public void purgeProcessedEvents() {
+        int deleted = jdbcTemplate.update("DELETE FROM webhook_inbox WHERE status = 'DONE' AND processed_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted > 0) {
+            logger.info("Deleted {} processed webhook events older than {} days", deleted, retentionDays);
+        }
+    }
+
+    /**
+     * Send a DEAD event back to the queue with a fresh set of attempts.
+     * @return false if no dead event has the id
+     */
+    public boolean requeue(long id) {
+        int updated = jdbcTemplate.update(
+                "UPDATE webhook_inbox SET status = 'PENDING', attempts = 0, next_attempt_at = ? WHERE id = ? AND status = 'DEAD'",
+                Timestamp.valueOf(LocalDateTime.now()), id);
+        if (updated > 0) {
+            wakeups.release();
+        }
+        return updated > 0;
+    }
+
+    public List<Map<String, Object>> getDeadEvents(int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT id, source, event_id, event_type, ordering_key, attempts, last_error, received_at, started_at " +
+                "FROM webhook_inbox WHERE status = 'DEAD' ORDER BY id DESC LIMIT ?", Math.min(Math.max(1, limit), 500));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("deduplication", eventService.getStats());
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) AS events FROM webhook_inbox GROUP BY status",
+                rs -> { byStatus.put(rs.getString("status"), rs.getLong("events")); });
+        stats.put("byStatus", byStatus);
+        Timestamp oldestPending = jdbcTemplate.queryForObject(
+                "SELECT MIN(received_at) FROM webhook_inbox WHERE status = 'PENDING'", Timestamp.class);
+        stats.put("oldestPendingAgeSeconds", oldestPending == null ? 0
+                : Duration.between(oldestPending.toLocalDateTime(), LocalDateTime.now()).getSeconds());
+        stats.put("customersInFlight", inFlightKeys.size());
+        stats.put("lanes", lanes.length);
+        stats.put("received", received.get());
+        stats.put("duplicateDeliveries", duplicates.get());
+        stats.put("processed", processed.get());
+        stats.put("alreadyProcessed", alreadyProcessed.get());
+        stats.put("bursts", bursts.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("statusRecalculations", statusRecalculations.get());
+        stats.put("failedAttempts", failures.get());
+        stats.put("deadLettered", deadLettered.get());
+        long runs = processed.get() + failures.get();
+        stats.put("averageHandlerMillis", runs == 0 ? 0 : totalHandlerMillis.get() / runs);
+        stats.put("lastLagMillis", lastLagMillis);
+        stats.put("maxLagMillis", maxLagMillis.get());
+        return stats;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                dispatchDueEvents();
+            } catch (Exception e) {
+                logger.error("Webhook dispatch failed: {}", e.getMessage(), e);
+            }
+            try {
+                wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeups.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Shard due events into bursts by key and hand them to the lanes. Pages past events of keys that are
+     * running or still gathering, so a busy customer cannot hold back everyone behind them.
+     */
+    private void dispatchDueEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+        LocalDateTime settledBefore = now.minus(coalesceWindow);
+        Map<String, List<Long>> burstsByKey = new LinkedHashMap<>();
+        Set<String> heldKeys = new HashSet<>();
+        long cursor = 0;
+        int dispatched = 0;
+        int pageSize;
+        do {
+            long[] lastId = {cursor};
+            int[] rows = {0};
+            jdbcTemplate.query(DUE_SQL, rs -> {
+                long id = rs.getLong("id");
+                lastId[0] = id;
+                rows[0]++;
+                String orderingKey = rs.getString("ordering_key");
+                String key = orderingKey != null ? orderingKey : "event:" + id;
+                if (heldKeys.contains(key)) {
+                    return;
+                }
+                List<Long> burst = burstsByKey.get(key);
+                // A burst starts at the key's oldest pending event, once it has had time to gather the rest
+                boolean gathering = burst == null && orderingKey != null
+                        && rs.getTimestamp("received_at").toLocalDateTime().isAfter(settledBefore);
+                if (inFlightKeys.contains(key) || gathering) {
+                    // Later events of the key wait behind this one
+                    heldKeys.add(key);
+                    burstsByKey.remove(key);
+                    return;
+                }
+                burstsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+            }, cursor, nowTimestamp, nowTimestamp);
+            cursor = lastId[0];
+            pageSize = rows[0];
+            dispatched = burstsByKey.values().stream().mapToInt(List::size).sum();
+        } while (pageSize == DISPATCH_BATCH && dispatched < DISPATCH_BATCH);
+
+        for (Map.Entry<String, List<Long>> entry : burstsByKey.entrySet()) {
+            String key = entry.getKey();
+            if (inFlightKeys.add(key)) {
+                lanes[Math.floorMod(key.hashCode(), lanes.length)].execute(() -> runBurst(key, entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Run one customer's due events in order on their lane. Stops at the first failure, leaving the rest
+     * pending behind its retry.
+     */
+    private void runBurst(String key, List<Long> ids) {
+        try {
+            List<InboxEvent> events = coalesce(load(ids));
+            bursts.incrementAndGet();
+            userBusinessService.beginDeferredStatusRecalculation();
+            try {
+                for (InboxEvent event : events) {
+                    int claimed = jdbcTemplate.update(CLAIM_SQL, Timestamp.valueOf(LocalDateTime.now()), event.id());
+                    if (claimed > 0 && !process(event)) {
+                        break;
+                    }
+                }
+            } finally {
+                recalculateDeferredStatuses(userBusinessService.endDeferredStatusRecalculation());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to run webhook events for {}: {}", key, e.getMessage(), e);
+        } finally {
+            inFlightKeys.remove(key);
+            wakeups.release();
+        }
+    }
+
+    private List<InboxEvent> load(List<Long> ids) {
+        List<InboxEvent> events = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            events.addAll(jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> new InboxEvent(rs.getLong("id"),
+                    rs.getString("source"), rs.getString("event_id"), rs.getString("event_type"),
+                    rs.getLong("event_created"), rs.getString("stripe_account_id"), rs.getString("payload"),
+                    rs.getInt("attempts") + 1, rs.getTimestamp("received_at").toLocalDateTime()), id));
+        }
+        return events;
+    }
+
+    /**
+     * Drop customer.subscription.updated events superseded by a later one for the same subscription in the
+     * burst. Each carries the full subscription, so the latest alone leaves the same state.
+     */
+    private List<InboxEvent> coalesce(List<InboxEvent> events) {
+        Map<String, InboxEvent> latest = new HashMap<>();
+        for (InboxEvent event : events) {
+            String subscriptionKey = subscriptionKey(event);
+            if (subscriptionKey != null) {
+                latest.merge(subscriptionKey, event, (a, b) ->
+                        b.eventCreated() > a.eventCreated() || (b.eventCreated() == a.eventCreated() && b.id() > a.id()) ? b : a);
+            }
+        }
+        List<InboxEvent> remaining = new ArrayList<>(events.size());
+        for (InboxEvent event : events) {
+            String subscriptionKey = subscriptionKey(event);
+            InboxEvent kept = subscriptionKey != null ? latest.get(subscriptionKey) : event;
+            if (kept == event) {
+                remaining.add(event);
+                continue;
+            }
+            int updated = jdbcTemplate.update(
+                    "UPDATE webhook_inbox SET status = 'DONE', processed_at = ?, last_error = ? WHERE id = ? AND status = 'PENDING'",
+                    Timestamp.valueOf(LocalDateTime.now()), "Coalesced into " + kept.eventId(), event.id());
+            if (updated > 0) {
+                // Claimed so a replay does not run it either
+                eventService.claim(event.source(), event.eventId());
+                coalesced.incrementAndGet();
+            }
+        }
+        return remaining;
+    }
+
+    private String subscriptionKey(InboxEvent event) {
+        if (!SUBSCRIPTION_UPDATED.equals(event.eventType())) {
+            return null;
+        }
+        try {
+            String subscriptionId = text(objectMapper.readTree(event.payload()).path("data").path("object"), "id");
+            return subscriptionId != null ? event.source() + ":" + subscriptionId : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void recalculateDeferredStatuses(Set<Long> userBusinessIds) {
+        for (Long userBusinessId : userBusinessIds) {
+            try {
+                userBusinessService.recalculateStatus(userBusinessId);
+                statusRecalculations.incrementAndGet();
+            } catch (Exception e) {
+                logger.error("Failed to recalculate status for user business {} after webhook burst: {}",
+                        userBusinessId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Run one claimed event. Returns false if it failed and was scheduled for a retry or dead-lettered.
+     */
+    private boolean process(InboxEvent inboxEvent) {
+        long started = System.currentTimeMillis();
+        boolean claimed = false;
+        try {
+            WebhookHandler handler = handlers.get(inboxEvent.source());
+            if (handler == null) {
+                throw new IllegalStateException("No webhook handler registered for source " + inboxEvent.source());
+            }
+            Event event = Event.GSON.fromJson(inboxEvent.payload(), Event.class);
+            if (!eventService.claim(inboxEvent.source(), inboxEvent.eventId())) {
+                jdbcTemplate.update("UPDATE webhook_inbox SET status = 'DONE', processed_at = ?, last_error = ? WHERE id = ?",
+                        Timestamp.valueOf(LocalDateTime.now()), "Already processed", inboxEvent.id());
+                alreadyProcessed.incrementAndGet();
+                return true;
+            }
+            claimed = true;
+            handler.handle(event, inboxEvent.stripeAccountId());
+
+            LocalDateTime finished = LocalDateTime.now();
+            jdbcTemplate.update("UPDATE webhook_inbox SET status = 'DONE', processed_at = ?, last_error = NULL WHERE id = ?",
+                    Timestamp.valueOf(finished), inboxEvent.id());
+            processed.incrementAndGet();
+            long lag = Duration.between(inboxEvent.receivedAt(), finished).toMillis();
+            lastLagMillis = lag;
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+            return true;
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            if (claimed) {
+                eventService.release(inboxEvent.source(), inboxEvent.eventId());
+            }
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (error.length() > MAX_ERROR_LENGTH) {
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            }
+            if (inboxEvent.attempts() >= maxAttempts) {
+                jdbcTemplate.update("UPDATE webhook_inbox SET status = 'DEAD', last_error = ? WHERE id = ?",
+                        error, inboxEvent.id());
+                deadLettered.incrementAndGet();
+                logger.error("Webhook event {} ({}) dead-lettered after {} attempts: {}",
+                        inboxEvent.eventId(), inboxEvent.source(), inboxEvent.attempts(), error, e);
+            } else {
+                LocalDateTime retryAt = LocalDateTime.now().plus(backoff(inboxEvent.attempts()));
+                jdbcTemplate.update("UPDATE webhook_inbox SET status = 'PENDING', next_attempt_at = ?, last_error = ? WHERE id = ?",
+                        Timestamp.valueOf(retryAt), error, inboxEvent.id());
+                logger.warn("Webhook event {} ({}) failed on attempt {}, retrying at {}: {}",
+                        inboxEvent.eventId(), inboxEvent.source(), inboxEvent.attempts(), retryAt, error);
+            }
+            return false;
+        } finally {
+            totalHandlerMillis.addAndGet(System.currentTimeMillis() - started);
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    /**
+     * Events of one customer (within one connected account) share a key and run in order.
+     */
+    static String orderingKey(JsonNode root, String account) {
+        JsonNode object = root.path("data").path("object");
+        String customer = "customer".equals(text(object, "object")) ? text(object, "id") : null;
+        if (customer == null) {
+            JsonNode customerNode = object.path("customer");
+            // Expanded customers arrive as objects
+            customer = customerNode.isObject() ? text(customerNode, "id") : text(object, "customer");
+        }
+        if (customer == null) {
+            return null;
+        }
+        return account != null ? account + ":" + customer : customer;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isTextual() ? value.asText() : null;
+    }
+}
@@ -0,0 +1,344 @@
+package com.BossLiftingClub.BossLifting.Stripe.WebhookInbox;
+
+import com.BossLiftingClub.BossLifting.Stripe.ProcessedEvent.EventService;
+import com.BossLiftingClub.BossLifting.Stripe.StripeBulkFetcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Event;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.EventListParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recovers webhooks missed while the backend was unreachable, e.g. during a deploy.
+ *
+ * A replay pages through Stripe's Event.list for a time range (Stripe keeps the last thirty days), through
+ * the rate-limited {@link StripeBulkFetcher}, and drops every event already processed for the source it
+ * would be delivered to.
+ * The rest are written to the webhook inbox oldest first, as if Stripe had just delivered them, so they run
+ * on the same handlers, per-customer lanes and retry policy as live webhooks. Enqueueing is paced at
+ * {@code stripe.webhook-replay.events-per-second} so a large replay does not crowd out live traffic or the
+ * Stripe calls the handlers themselves make.
+ *
+ * A dry run does the same listing and filtering and reports what would be replayed without writing anything.
+ */
+@Service
+public class WebhookReplayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookReplayService.class);
+
+    /** Event types the platform endpoints (/webhook and /StripeSubscriptionHandler) act on. */
+    static final List<String> PLATFORM_TYPES = List.of(
+            "checkout.session.completed", "checkout.session.expired",
+            "customer.subscription.created", "customer.subscription.updated", "customer.subscription.deleted",
+            "charge.succeeded", "invoice.payment_failed",
+            "payment_method.attached", "payment_method.detached", "customer.updated", "setup_intent.succeeded");
+
+    /** Event types the connected-account endpoint (/api/payment/webhook-connected) acts on. */
+    static final List<String> CONNECTED_TYPES = List.of(
+            "checkout.session.completed",
+            "customer.subscription.updated", "customer.subscription.deleted",
+            "customer.subscription.paused", "customer.subscription.resumed",
+            "invoice.payment_failed", "invoice.payment_succeeded",
+            "payment_method.attached", "payment_method.detached", "customer.updated", "setup_intent.succeeded");
+
+    /** Stripe accepts at most this many types in one Event.list filter. */
+    private static final int MAX_TYPES = 20;
+    private static final int SAMPLE_SIZE = 20;
+
+    /**
+     * What to replay. {@code stripeAccountId} lists a connected account's events instead of the platform's;
+     * {@code types} overrides the event types the handlers act on.
+     */
+    public record ReplayRequest(LocalDateTime from, LocalDateTime to, String stripeAccountId, List<String> types,
+                                boolean dryRun) {}
+
+    private final WebhookInboxService webhookInboxService;
+    private final EventService eventService;
+    private final StripeBulkFetcher bulkFetcher;
+    private final ObjectMapper objectMapper;
+    private final long enqueueIntervalNanos;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile ReplayJob currentJob;
+    private volatile Map<String, Object> lastResult;
+
+    public WebhookReplayService(WebhookInboxService webhookInboxService,
+                                EventService eventService,
+                                StripeBulkFetcher bulkFetcher,
+                                ObjectMapper objectMapper,
+                                @Value("${stripe.webhook-replay.events-per-second:20}") double eventsPerSecond) {
+        this.webhookInboxService = webhookInboxService;
+        this.eventService = eventService;
+        this.bulkFetcher = bulkFetcher;
+        this.objectMapper = objectMapper;
+        this.enqueueIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / (eventsPerSecond > 0 ? eventsPerSecond : 1));
+    }
+
+    /**
+     * Start a replay on a background thread.
+     * @return false if a replay is already running
+     * @throws IllegalArgumentException if the request is invalid
+     */
+    public boolean startAsync(ReplayRequest request) {
+        validate(request);
+        // Claimed here rather than on the thread, so two concurrent starts cannot both report success
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Thread thread = new Thread(() -> runReplay(request), "stripe-webhook-replay");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        ReplayJob job = currentJob;
+        status.put("running", running.get());
+        status.put("current", running.get() && job != null ? job.toMap() : null);
+        status.put("lastReplay", lastResult);
+        return status;
+    }
+
+    /**
+     * List the range's events, skip processed ones and enqueue the rest, or only count them on a dry run.
+     * @return the summary report, also kept as the last result
+     */
+    public Map<String, Object> replay(ReplayRequest request) {
+        validate(request);
+        if (!running.compareAndSet(false, true)) {
+            return Map.of("success", false, "message", "Replay already running");
+        }
+        return runReplay(request);
+    }
+
+    /**
+     * The replay itself; the caller has set {@code running}, which is cleared when it ends.
+     */
+    private Map<String, Object> runReplay(ReplayRequest request) {
+        ReplayJob job = new ReplayJob(request);
+        currentJob = job;
+        long startMillis = System.currentTimeMillis();
+        Map<String, Object> result = job.result;
+        try {
+            List<Event> missed = listMissedEvents(request, job);
+            // Event.list is newest first; the inbox runs a customer's events in the order they were stored
+            Collections.reverse(missed);
+            job.toReplay.set(missed.size());
+            result.put("customers", countCustomers(missed, request.stripeAccountId()));
+            result.put("sample", sample(missed));
+            if (!request.dryRun()) {
+                enqueue(missed, request, job);
+            }
+            result.put("success", true);
+        } catch (Exception e) {
+            logger.error("Stripe webhook replay aborted: {}", e.getMessage(), e);
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        } finally {
+            result.putAll(job.toMap());
+            result.put("durationMs", System.currentTimeMillis() - startMillis);
+            result.put("finishedAt", LocalDateTime.now().toString());
+            lastResult = result;
+            running.set(false);
+        }
+        logger.info("Stripe webhook replay finished: {}", result);
+        return result;
+    }
+
+    private List<Event> listMissedEvents(ReplayRequest request, ReplayJob job) throws StripeException {
+        ZoneId zone = ZoneId.systemDefault();
+        EventListParams.Created created = EventListParams.Created.builder()
+                .setGte(request.from().atZone(zone).toEpochSecond())
+                .setLte(request.to().atZone(zone).toEpochSecond())
+                .build();
+        List<String> types = typesFor(request);
+        RequestOptions options = request.stripeAccountId() != null
+                ? RequestOptions.builder().setStripeAccount(request.stripeAccountId()).build()
+                : null;
+
+        List<Event> missed = new ArrayList<>();
+        bulkFetcher.forEachPage(null, cursor -> Event.list(EventListParams.builder()
+                .setCreated(created)
+                .addAllType(types)
+                .setLimit(100L)
+                .setStartingAfter(cursor)
+                .build(), options), page -> {
+            // One lookup per source and page instead of one per event
+            Map<String, List<String>> idsBySource = new HashMap<>();
+            for (Event event : page) {
+                idsBySource.computeIfAbsent(sourceOf(event, request.stripeAccountId()), s -> new ArrayList<>()).add(event.getId());
+            }
+            Map<String, Set<String>> processed = new HashMap<>();
+            idsBySource.forEach((source, ids) -> processed.put(source, eventService.findProcessed(source, ids)));
+            for (Event event : page) {
+                job.scanned.incrementAndGet();
+                if (processed.get(sourceOf(event, request.stripeAccountId())).contains(event.getId())) {
+                    job.alreadyProcessed.incrementAndGet();
+                    continue;
+                }
+                job.byType.merge(event.getType(), 1, Integer::sum);
+                missed.add(event);
+            }
+        });
+        return missed;
+    }
+
+    private void enqueue(List<Event> events, ReplayRequest request, ReplayJob job) {
+        String account = request.stripeAccountId();
+        long nextSlot = System.nanoTime();
+        for (Event event : events) {
+            nextSlot = pace(nextSlot);
+            try {
+                WebhookInboxService.ReceiveResult received = webhookInboxService.receive(sourceOf(event, account),
+                        event.toJson(), account);
+                if (received.stored()) {
+                    job.enqueued.incrementAndGet();
+                } else {
+                    job.alreadyQueued.incrementAndGet();
+                }
+            } catch (Exception e) {
+                job.failed.incrementAndGet();
+                logger.warn("Could not enqueue replayed Stripe event {}: {}", event.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Wait for the next enqueue slot and return the one after it.
+     */
+    private long pace(long nextSlot) {
+        long now = System.nanoTime();
+        if (nextSlot > now) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nextSlot - now);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while replaying Stripe events", e);
+            }
+        }
+        return Math.max(now, nextSlot) + enqueueIntervalNanos;
+    }
+
+    /**
+     * The inbox source whose handler would have received the event live.
+     */
+    private static String sourceOf(Event event, String stripeAccountId) {
+        if (stripeAccountId != null) {
+            return WebhookInboxService.SOURCE_CONNECTED;
+        }
+        return event.getType() != null && event.getType().startsWith("checkout.session.")
+                ? WebhookInboxService.SOURCE_PLATFORM
+                : WebhookInboxService.SOURCE_SUBSCRIPTION;
+    }
+
+    private int countCustomers(List<Event> events, String stripeAccountId) {
+        Set<String> customers = new HashSet<>();
+        for (Event event : events) {
+            try {
+                String key = WebhookInboxService.orderingKey(objectMapper.readTree(event.toJson()), stripeAccountId);
+                if (key != null) {
+                    customers.add(key);
+                }
+            } catch (Exception e) {
+                // Only affects the count in the report
+            }
+        }
+        return customers.size();
+    }
+
+    private static List<Map<String, Object>> sample(List<Event> events) {
+        List<Map<String, Object>> sample = new ArrayList<>();
+        for (Event event : events.subList(0, Math.min(SAMPLE_SIZE, events.size()))) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", event.getId());
+            item.put("type", event.getType());
+            item.put("created", event.getCreated());
+            sample.add(item);
+        }
+        return sample;
+    }
+
+    private static List<String> typesFor(ReplayRequest request) {
+        if (request.types() != null && !request.types().isEmpty()) {
+            return request.types();
+        }
+        return request.stripeAccountId() != null ? CONNECTED_TYPES : PLATFORM_TYPES;
+    }
+
+    private static void validate(ReplayRequest request) {
+        if (request.from() == null || request.to() == null) {
+            throw new IllegalArgumentException("Both from and to are required");
+        }
+        if (!request.from().isBefore(request.to())) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (request.types() != null && request.types().size() > MAX_TYPES) {
+            throw new IllegalArgumentException("At most " + MAX_TYPES + " event types can be replayed at once");
+        }
+    }
+
+    /**
+     * Counters of one replay, readable while it runs.
+     */
+    private static final class ReplayJob {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        final AtomicInteger scanned = new AtomicInteger();
+        final AtomicInteger alreadyProcessed = new AtomicInteger();
+        final AtomicInteger toReplay = new AtomicInteger();
+        final AtomicInteger enqueued = new AtomicInteger();
+        final AtomicInteger alreadyQueued = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final Map<String, Integer> byType = Collections.synchronizedMap(new TreeMap<>());
+
+        ReplayJob(ReplayRequest request) {
+            result.put("startedAt", LocalDateTime.now().toString());
+            result.put("dryRun", request.dryRun());
+            result.put("from", request.from().toString());
+            result.put("to", request.to().toString());
+            result.put("stripeAccountId", request.stripeAccountId());
+            result.put("types", typesFor(request));
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("scanned", scanned.get());
+            map.put("alreadyProcessed", alreadyProcessed.get());
+            map.put("toReplay", toReplay.get());
+            map.put("enqueued", enqueued.get());
+            map.put("alreadyQueued", alreadyQueued.get());
+            map.put("failed", failed.get());
+            synchronized (byType) {
+                map.put("toReplayByType", new TreeMap<>(byType));
+            }
+            return map;
+        }
+    }
+}
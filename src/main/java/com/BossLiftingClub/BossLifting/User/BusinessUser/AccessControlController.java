@@ -47,4 +47,14 @@ public class AccessControlController {
         }
     }
 
+    /**
+     * Access-decision cache hit rate and invalidation counts.
+     *
+     * GET /api/access/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(accessControlService.getStats());
+    }
+
 }
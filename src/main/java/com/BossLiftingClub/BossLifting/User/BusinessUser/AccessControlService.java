@@ -4,14 +4,26 @@ import com.BossLiftingClub.BossLifting.User.User;
 import com.BossLiftingClub.BossLifting.User.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for checking user access based on Subscription status.
@@ -22,11 +34,42 @@ public class AccessControlService {
 
     private static final Logger logger = LoggerFactory.getLogger(AccessControlService.class);
 
-    @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private UserBusinessMembershipRepository membershipRepository;
+    // Subscription statuses that block the whole family, compared upper-cased
+    private static final Set<String> BLOCKING_STATUSES = Set.of("PAST_DUE", "CANCELED", "CANCELLED");
+
+    // Scope key for checks across all businesses
+    private static final String ALL_BUSINESSES = "";
+
+    /** A resolved verdict for one primary owner in one scope. {@code reason} is null when access is granted. */
+    private record Decision(boolean access, String reason) {}
+
+    private final UserRepository userRepository;
+    private final UserBusinessMembershipRepository membershipRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // userId -> primary owner id (the user itself when it has no parent)
+    private final Cache<Long, Long> ownerByUser;
+    // primary owner id -> businessTag (or ALL_BUSINESSES) -> verdict
+    private final Cache<Long, Map<String, Decision>> decisionsByOwner;
+    // Bumped before every invalidation, so a load that overlapped one can tell its result may be stale
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public AccessControlService(UserRepository userRepository,
+                                UserBusinessMembershipRepository membershipRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${access.cache.max-size:50000}") long maxSize,
+                                @Value("${access.cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.membershipRepository = membershipRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.ownerByUser = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+        this.decisionsByOwner = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+    }
 
     /**
      * Check if a user can enter the gym based on their Primary Owner's Subscription status.
@@ -35,73 +78,141 @@ public class AccessControlService {
      * - If user is a Dependent (has a parent), check the Primary Owner's subscription
      * - If user is a Primary Owner (no parent), check their own subscription
      * - Access is denied if ANY subscription status is 'past_due' or 'canceled'
+     *
+     * Verdicts are cached per Primary Owner and business, and resolving one member maps every member of
+     * the family to the owner, so a family checking in together is resolved once. Entries are dropped on
+     * {@link MemberAccessChangedEvent} and expire after {@code access.cache.ttl} regardless; a verdict loaded
+     * while an invalidation ran is returned but not kept.
      * 
      * @param userId The user ID to check access for
      * @param businessTag Optional: specific business to check. If null, checks all businesses.
      * @return Map with "access" (boolean) and "reason" (string) if denied
      */
-    @Transactional(readOnly = true)
     public Map<String, Object> checkAccess(Long userId, String businessTag) {
-        try {
-            // Find the user
-            Optional<User> userOpt = userRepository.findById(userId);
-            if (userOpt.isEmpty()) {
-                return createAccessResponse(false, "User not found");
+        String scope = businessTag != null && !businessTag.isEmpty() ? businessTag : ALL_BUSINESSES;
+        Long ownerId = ownerByUser.getIfPresent(userId);
+        if (ownerId != null) {
+            Map<String, Decision> decisions = decisionsByOwner.getIfPresent(ownerId);
+            Decision cached = decisions != null ? decisions.get(scope) : null;
+            if (cached != null) {
+                hits.incrementAndGet();
+                return createAccessResponse(cached.access(), cached.reason());
             }
+        }
+        misses.incrementAndGet();
 
-            User user = userOpt.get();
-            
-            // Determine the Primary Owner (the one who pays)
-            User primaryOwner = user;
-            if (user.getParent() != null) {
-                // This is a Dependent - use the Primary Owner's subscription
-                primaryOwner = user.getParent();
-                logger.debug("User {} is a Dependent, checking Primary Owner {} subscription", userId, primaryOwner.getId());
-            }
+        long loadGeneration = generation.get();
+        try {
+            Map<String, Object> response = readOnlyTransaction.execute(status -> resolve(userId, scope, loadGeneration));
+            return response != null ? response : createAccessResponse(false, "Error checking access");
+        } catch (Exception e) {
+            logger.error("Error checking access for user {}: {}", userId, e.getMessage(), e);
+            return createAccessResponse(false, "Error checking access: " + e.getMessage());
+        }
+    }
 
-            // Find all subscriptions (UserBusinessMembership) for the Primary Owner
-            List<UserBusinessMembership> subscriptions;
-            if (businessTag != null && !businessTag.isEmpty()) {
-                // Check specific business
-                subscriptions = membershipRepository.findActiveByUserIdAndBusinessTag(
-                    primaryOwner.getId(), businessTag);
-            } else {
-                // Check all businesses
-                subscriptions = membershipRepository.findByUserId(primaryOwner.getId());
-            }
+    private Map<String, Object> resolve(Long userId, String scope, long loadGeneration) {
+        // Find the user
+        Optional<User> userOpt = userRepository.findById(userId);
+        if (userOpt.isEmpty()) {
+            return createAccessResponse(false, "User not found");
+        }
 
-            // If no subscriptions found, deny access
-            if (subscriptions.isEmpty()) {
-                logger.debug("No subscriptions found for Primary Owner {}", primaryOwner.getId());
-                return createAccessResponse(false, "No active subscription found");
-            }
+        User user = userOpt.get();
+
+        // Determine the Primary Owner (the one who pays)
+        User primaryOwner = user;
+        if (user.getParent() != null) {
+            // This is a Dependent - use the Primary Owner's subscription
+            primaryOwner = user.getParent();
+            logger.debug("User {} is a Dependent, checking Primary Owner {} subscription", userId, primaryOwner.getId());
+        }
+
+        // Map the whole family to the owner so the other members skip this lookup
+        Long ownerId = primaryOwner.getId();
+        List<Long> familyIds = new ArrayList<>();
+        familyIds.add(userId);
+        familyIds.add(ownerId);
+        for (User dependent : primaryOwner.getChildren()) {
+            familyIds.add(dependent.getId());
+        }
+        Decision decision = decide(userId, ownerId, scope);
+
+        for (Long familyId : familyIds) {
+            ownerByUser.put(familyId, ownerId);
+        }
+        decisionsByOwner.get(ownerId, id -> new ConcurrentHashMap<>()).put(scope, decision);
+        // Checked after caching: an invalidation that ran before the puts bumped the generation first
+        if (generation.get() != loadGeneration) {
+            ownerByUser.invalidateAll(familyIds);
+            decisionsByOwner.invalidate(ownerId);
+        }
+        return createAccessResponse(decision.access(), decision.reason());
+    }
 
-            // Check each subscription status
-            for (UserBusinessMembership subscription : subscriptions) {
-                String status = subscription.getStatus();
-                
-                // Block access if subscription is past_due or canceled
-                if ("past_due".equalsIgnoreCase(status) || 
-                    "PAST_DUE".equalsIgnoreCase(status) ||
-                    "canceled".equalsIgnoreCase(status) || 
-                    "CANCELLED".equalsIgnoreCase(status) ||
-                    "CANCELED".equalsIgnoreCase(status)) {
-                    
-                    String reason = String.format("Family Account Delinquent: Subscription status is '%s'", status);
-                    logger.warn("Access denied for user {} (Primary Owner: {}): {}", 
-                        userId, primaryOwner.getId(), reason);
-                    return createAccessResponse(false, reason);
-                }
+    private Decision decide(Long userId, Long ownerId, String scope) {
+        // Find all subscriptions (UserBusinessMembership) for the Primary Owner
+        List<UserBusinessMembership> subscriptions;
+        if (!ALL_BUSINESSES.equals(scope)) {
+            // Check specific business
+            subscriptions = membershipRepository.findActiveByUserIdAndBusinessTag(ownerId, scope);
+        } else {
+            // Check all businesses
+            subscriptions = membershipRepository.findByUserId(ownerId);
+        }
+
+        // If no subscriptions found, deny access
+        if (subscriptions.isEmpty()) {
+            logger.debug("No subscriptions found for Primary Owner {}", ownerId);
+            return new Decision(false, "No active subscription found");
+        }
+
+        // Block access if any subscription is past_due or canceled
+        for (UserBusinessMembership subscription : subscriptions) {
+            String status = subscription.getStatus();
+            if (status != null && BLOCKING_STATUSES.contains(status.toUpperCase(Locale.ROOT))) {
+                String reason = String.format("Family Account Delinquent: Subscription status is '%s'", status);
+                logger.warn("Access denied for user {} (Primary Owner: {}): {}", userId, ownerId, reason);
+                return new Decision(false, reason);
             }
+        }
 
-            // All subscriptions are valid - grant access
-            logger.debug("Access granted for user {} (Primary Owner: {})", userId, primaryOwner.getId());
-            return createAccessResponse(true, null);
+        // All subscriptions are valid - grant access
+        logger.debug("Access granted for user {} (Primary Owner: {})", userId, ownerId);
+        return new Decision(true, null);
+    }
 
-        } catch (Exception e) {
-            logger.error("Error checking access for user {}: {}", userId, e.getMessage(), e);
-            return createAccessResponse(false, "Error checking access: " + e.getMessage());
+    /**
+     * Drop cached verdicts that the change could affect: the user's own, its family's (held under the
+     * owner), and the user's owner mapping in case it joined or left a family.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberAccessChanged(MemberAccessChangedEvent event) {
+        Long userId = event.getUserId();
+        if (userId == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        Long ownerId = ownerByUser.getIfPresent(userId);
+        ownerByUser.invalidate(userId);
+        decisionsByOwner.invalidate(userId);
+        if (ownerId != null) {
+            decisionsByOwner.invalidate(ownerId);
         }
+        invalidations.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("invalidations", invalidations.get());
+        stats.put("cachedUsers", ownerByUser.estimatedSize());
+        stats.put("cachedOwners", decisionsByOwner.estimatedSize());
+        return stats;
     }
 
     /**
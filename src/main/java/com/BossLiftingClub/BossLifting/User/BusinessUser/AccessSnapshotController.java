@@ -0,0 +1,83 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+import com.BossLiftingClub.BossLifting.Business.Business;
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Access snapshots for offline turnstiles. Each response is newline-delimited JSON: a header, one line per
+ * token hash, and a signed trailer (see {@link AccessSnapshotService}).
+ */
+@RestController
+@RequestMapping("/api/access-snapshots")
+public class AccessSnapshotController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final AccessSnapshotService accessSnapshotService;
+    private final BusinessRepository businessRepository;
+
+    public AccessSnapshotController(AccessSnapshotService accessSnapshotService, BusinessRepository businessRepository) {
+        this.accessSnapshotService = accessSnapshotService;
+        this.businessRepository = businessRepository;
+    }
+
+    /**
+     * Full snapshot of the business's allowed and denied tokens.
+     *
+     * GET /api/access-snapshots/{businessTag}
+     */
+    @GetMapping("/{businessTag}")
+    public ResponseEntity<?> snapshot(@PathVariable String businessTag) {
+        Optional<Business> business = businessRepository.findByBusinessTag(businessTag);
+        if (business.isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "Business not found with tag: " + businessTag));
+        }
+        StreamingResponseBody body = out -> accessSnapshotService.writeSnapshot(business.get(), out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Entries changed after version {@code since}, including revoked tokens.
+     *
+     * GET /api/access-snapshots/{businessTag}/delta?since={version}
+     */
+    @GetMapping("/{businessTag}/delta")
+    public ResponseEntity<?> delta(@PathVariable String businessTag, @RequestParam long since) {
+        if (since < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "since must not be negative"));
+        }
+        Optional<Business> business = businessRepository.findByBusinessTag(businessTag);
+        if (business.isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "Business not found with tag: " + businessTag));
+        }
+        StreamingResponseBody body = out -> accessSnapshotService.writeDelta(business.get(), since, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Public key that verifies snapshot signatures.
+     *
+     * GET /api/access-snapshots/public-key
+     */
+    @GetMapping("/public-key")
+    public ResponseEntity<Map<String, Object>> publicKey() {
+        return ResponseEntity.ok(accessSnapshotService.getPublicKey());
+    }
+
+    /**
+     * Users waiting to be recomputed and the last reconcile run.
+     *
+     * GET /api/access-snapshots/status
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(accessSnapshotService.getStatus());
+    }
+}
@@ -0,0 +1,492 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+import com.BossLiftingClub.BossLifting.Business.Business;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signed, versioned access snapshots for turnstiles that decide scans locally.
+ *
+ * access_snapshot_entries holds the current verdict for each (business, entry token hash): allowed, or
+ * denied with a reason. A member is allowed when their primary owner (themselves, or their parent for a
+ * dependent) has an ACTIVE membership in the business and a calculated status of "Active", which is the
+ * {@link AccessControlService} rule for one business combined with {@link MemberStatusRules}. Tokens are
+ * hashed as SHA-256 of "businessTag:token", so a snapshot neither exposes tokens nor matches across
+ * businesses.
+ *
+ * Every batch of changes to a business's entries gets the next version number of that business, and rows
+ * are never deleted: a token that no longer grants access keeps its row as denied with reason "Removed". A
+ * delta since version N is therefore just the rows with a higher version.
+ *
+ * Entries follow {@link MemberAccessChangedEvent}: changed users (and their dependents) are collected and
+ * recomputed every {@code access-snapshot.flush-interval-ms}. A reconcile pass over all users, a page at a
+ * time, runs at startup and nightly to catch writes that publish no event.
+ *
+ * Snapshots and deltas are streamed as newline-delimited JSON from a single repeatable-read transaction: a
+ * header line, one line per entry, and a trailer carrying the SHA-256 of everything before it and an
+ * Ed25519 signature over that digest. Memory use does not depend on the number of members.
+ */
+@Service
+public class AccessSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessSnapshotService.class);
+
+    static final String REMOVED = "Removed";
+    private static final String NO_SUBSCRIPTION = "No active subscription";
+    private static final String ALLOWED_STATUS = "Active";
+    private static final int CHUNK_SIZE = 500;
+    private static final int FETCH_SIZE = 1000;
+    // Hex characters of the SHA-256 kept per token (128 bits)
+    private static final int HASH_LENGTH = 32;
+
+    private static final String VERDICT_SQL =
+            "SELECT u.id AS user_id, u.entry_qrcode_token, ub.business_id, b.business_tag, " +
+            "oub.calculated_status AS owner_status, " +
+            "(SELECT COUNT(*) FROM user_business_membership m " +
+            " WHERE m.user_business_id = oub.id AND UPPER(m.status) = 'ACTIVE') AS active_memberships " +
+            "FROM users u " +
+            "JOIN user_business ub ON ub.user_id = u.id " +
+            "JOIN businesses b ON b.id = ub.business_id " +
+            "LEFT JOIN user_business oub ON oub.user_id = COALESCE(u.parent_id, u.id) AND oub.business_id = ub.business_id " +
+            "WHERE u.entry_qrcode_token IS NOT NULL AND b.business_tag IS NOT NULL AND u.id IN (%s)";
+
+    private static final String EXISTING_SQL =
+            "SELECT business_id, token_hash, user_id, allowed, reason FROM access_snapshot_entries WHERE user_id IN (%s)";
+
+    private static final String DEPENDENTS_SQL = "SELECT id FROM users WHERE parent_id IN (%s)";
+
+    private static final String USER_PAGE_SQL = "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT " + CHUNK_SIZE;
+
+    private static final String ORPHANED_USERS_SQL =
+            "SELECT DISTINCT e.user_id FROM access_snapshot_entries e " +
+            "WHERE e.allowed = TRUE AND NOT EXISTS (SELECT 1 FROM users u WHERE u.id = e.user_id)";
+
+    private static final String UPDATE_ENTRY_SQL =
+            "UPDATE access_snapshot_entries SET user_id = ?, allowed = ?, reason = ?, version = ?, updated_at = ? " +
+            "WHERE business_id = ? AND token_hash = ?";
+
+    private static final String INSERT_ENTRY_SQL =
+            "INSERT INTO access_snapshot_entries (user_id, allowed, reason, version, updated_at, business_id, token_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SNAPSHOT_SQL =
+            "SELECT token_hash, allowed, reason FROM access_snapshot_entries " +
+            "WHERE business_id = ? AND (allowed = TRUE OR reason IS NULL OR reason <> ?)";
+
+    private static final String DELTA_SQL =
+            "SELECT token_hash, allowed, reason FROM access_snapshot_entries " +
+            "WHERE business_id = ? AND version > ? ORDER BY version";
+
+    /** One computed or stored verdict. {@code reason} is null when access is allowed. */
+    private record Verdict(long businessId, String tokenHash, long userId, boolean allowed, String reason) {
+        String key() {
+            return businessId + ":" + tokenHash;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate snapshotTransaction;
+    private final Duration cooldown;
+    private final PrivateKey signingKey;
+    private final PublicKey verifyKey;
+    private final String keyId;
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, Object> lastReconcile = Map.of();
+
+    public AccessSnapshotService(JdbcTemplate jdbcTemplate,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${scan-in.cooldown:5m}") Duration cooldown,
+                                 @Value("${access-snapshot.private-key:}") String privateKey,
+                                 @Value("${access-snapshot.public-key:}") String publicKey) throws GeneralSecurityException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.cooldown = cooldown;
+
+        if (privateKey.isBlank() || publicKey.isBlank()) {
+            // Scanners must then fetch the public key again after every restart
+            logger.warn("access-snapshot.private-key/public-key not set; signing snapshots with a key generated for this run");
+            KeyPair pair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+            this.signingKey = pair.getPrivate();
+            this.verifyKey = pair.getPublic();
+        } else {
+            KeyFactory keyFactory = KeyFactory.getInstance("Ed25519");
+            this.signingKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKey.trim())));
+            this.verifyKey = keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKey.trim())));
+        }
+        this.keyId = HexFormat.of().formatHex(sha256().digest(verifyKey.getEncoded())).substring(0, 16);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberAccessChanged(MemberAccessChangedEvent event) {
+        if (event.getUserId() != null) {
+            dirtyUsers.add(event.getUserId());
+        }
+    }
+
+    /**
+     * Recompute the entries of users changed since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${access-snapshot.flush-interval-ms:5000}")
+    public void flushChangedUsers() {
+        if (dirtyUsers.isEmpty()) {
+            return;
+        }
+        List<Long> batch = new ArrayList<>();
+        for (Iterator<Long> it = dirtyUsers.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+        }
+        try {
+            refreshUsers(batch);
+        } catch (Exception e) {
+            // Try again on the next flush
+            dirtyUsers.addAll(batch);
+            logger.error("Failed to refresh access snapshot entries for {} users: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Recompute every user's entries, a page of users at a time, and revoke entries of deleted users.
+     */
+    @Scheduled(cron = "${access-snapshot.reconcile-cron:0 40 3 * * *}")
+    public void reconcile() {
+        long started = System.currentTimeMillis();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", LocalDateTime.now());
+        int changed = 0;
+        try {
+            long lastId = 0;
+            List<Long> page;
+            while (!(page = jdbcTemplate.queryForList(USER_PAGE_SQL, Long.class, lastId)).isEmpty()) {
+                synchronized (this) {
+                    changed += refreshChunk(page);
+                }
+                lastId = page.get(page.size() - 1);
+            }
+            changed += refreshUsers(jdbcTemplate.queryForList(ORPHANED_USERS_SQL, Long.class));
+            result.put("success", true);
+            logger.info("Access snapshot reconciled: {} entries changed in {} ms", changed, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("error", e.getMessage());
+            logger.error("Access snapshot reconcile failed: {}", e.getMessage(), e);
+        }
+        result.put("changedEntries", changed);
+        result.put("finishedAt", LocalDateTime.now());
+        lastReconcile = result;
+    }
+
+    /**
+     * Recompute the entries of the users and their dependents. Returns the number of entries changed.
+     */
+    public synchronized int refreshUsers(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        // Dependents inherit their owner's verdict
+        for (List<Long> chunk : chunks(new ArrayList<>(userIds))) {
+            ids.addAll(jdbcTemplate.queryForList(String.format(DEPENDENTS_SQL, placeholders(chunk.size())), Long.class,
+                    chunk.toArray()));
+        }
+        int changed = 0;
+        for (List<Long> chunk : chunks(new ArrayList<>(ids))) {
+            changed += refreshChunk(chunk);
+        }
+        return changed;
+    }
+
+    /** Current version of the business's entries; 0 before the first change. */
+    public long currentVersion(long businessId) {
+        List<Long> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM access_snapshot_versions WHERE business_id = ?", Long.class, businessId);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    /** Stream the business's full snapshot: every token with a verdict, revoked tokens left out. */
+    public void writeSnapshot(Business business, OutputStream out) throws IOException {
+        write(business, null, out);
+    }
+
+    /** Stream the entries changed after {@code sinceVersion}, revoked tokens included. */
+    public void writeDelta(Business business, long sinceVersion, OutputStream out) throws IOException {
+        write(business, sinceVersion, out);
+    }
+
+    public Map<String, Object> getPublicKey() {
+        Map<String, Object> key = new LinkedHashMap<>();
+        key.put("algorithm", "Ed25519");
+        key.put("keyId", keyId);
+        key.put("format", "X.509");
+        key.put("publicKey", Base64.getEncoder().encodeToString(verifyKey.getEncoded()));
+        return key;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("pendingUsers", dirtyUsers.size());
+        status.put("keyId", keyId);
+        status.put("lastReconcile", lastReconcile);
+        return status;
+    }
+
+    /** Token hash as stored and as scanners compute it. */
+    public static String tokenHash(String businessTag, String token) {
+        byte[] digest = sha256().digest((businessTag + ":" + token).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest).substring(0, HASH_LENGTH);
+    }
+
+    /** Null if the owner's state allows entry, otherwise why not. */
+    static String denyReason(String ownerStatus, int activeMemberships) {
+        if (activeMemberships == 0) {
+            return NO_SUBSCRIPTION;
+        }
+        if (!ALLOWED_STATUS.equalsIgnoreCase(ownerStatus)) {
+            return ownerStatus != null ? ownerStatus : NO_SUBSCRIPTION;
+        }
+        return null;
+    }
+
+    private int refreshChunk(List<Long> userIds) {
+        String in = placeholders(userIds.size());
+        Map<String, Verdict> computed = new HashMap<>();
+        jdbcTemplate.query(String.format(VERDICT_SQL, in), rs -> {
+            long businessId = rs.getLong("business_id");
+            String hash = tokenHash(rs.getString("business_tag"), rs.getString("entry_qrcode_token"));
+            String reason = denyReason(rs.getString("owner_status"), rs.getInt("active_memberships"));
+            Verdict verdict = new Verdict(businessId, hash, rs.getLong("user_id"), reason == null, reason);
+            computed.put(verdict.key(), verdict);
+        }, userIds.toArray());
+
+        Map<String, Verdict> existing = new HashMap<>();
+        jdbcTemplate.query(String.format(EXISTING_SQL, in), rs -> {
+            Verdict verdict = new Verdict(rs.getLong("business_id"), rs.getString("token_hash"), rs.getLong("user_id"),
+                    rs.getBoolean("allowed"), rs.getString("reason"));
+            existing.put(verdict.key(), verdict);
+        }, userIds.toArray());
+
+        Map<Long, List<Verdict>> changesByBusiness = new HashMap<>();
+        for (Verdict verdict : computed.values()) {
+            Verdict stored = existing.get(verdict.key());
+            if (stored == null || stored.allowed() != verdict.allowed() || stored.userId() != verdict.userId()
+                    || !Objects.equals(stored.reason(), verdict.reason())) {
+                changesByBusiness.computeIfAbsent(verdict.businessId(), id -> new ArrayList<>()).add(verdict);
+            }
+        }
+        for (Verdict stored : existing.values()) {
+            // Membership ended, token changed or user deleted
+            if (!computed.containsKey(stored.key()) && (stored.allowed() || !REMOVED.equals(stored.reason()))) {
+                changesByBusiness.computeIfAbsent(stored.businessId(), id -> new ArrayList<>())
+                        .add(new Verdict(stored.businessId(), stored.tokenHash(), stored.userId(), false, REMOVED));
+            }
+        }
+
+        int changed = 0;
+        for (Map.Entry<Long, List<Verdict>> entry : changesByBusiness.entrySet()) {
+            writeTransaction.executeWithoutResult(status -> apply(entry.getKey(), entry.getValue()));
+            changed += entry.getValue().size();
+        }
+        return changed;
+    }
+
+    /** Write one business's changed entries under a new version. */
+    private void apply(long businessId, List<Verdict> changes) {
+        long version = nextVersion(businessId);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_ENTRY_SQL, changes, changes.size(),
+                (ps, verdict) -> setEntryParameters(ps, verdict, version, now))[0];
+        List<Verdict> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                inserts.add(changes.get(i));
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, inserts, inserts.size(),
+                    (ps, verdict) -> setEntryParameters(ps, verdict, version, now));
+        }
+    }
+
+    private static void setEntryParameters(PreparedStatement ps, Verdict verdict, long version, Timestamp now)
+            throws SQLException {
+        ps.setLong(1, verdict.userId());
+        ps.setBoolean(2, verdict.allowed());
+        ps.setString(3, verdict.reason());
+        ps.setLong(4, version);
+        ps.setTimestamp(5, now);
+        ps.setLong(6, verdict.businessId());
+        ps.setString(7, verdict.tokenHash());
+    }
+
+    private long nextVersion(long businessId) {
+        int updated = jdbcTemplate.update(
+                "UPDATE access_snapshot_versions SET version = version + 1 WHERE business_id = ?", businessId);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO access_snapshot_versions (business_id, version) VALUES (?, 1)", businessId);
+            return 1;
+        }
+        return currentVersion(businessId);
+    }
+
+    private void write(Business business, Long sinceVersion, OutputStream rawOut) throws IOException {
+        MessageDigest digest = sha256();
+        BufferedOutputStream buffered = new BufferedOutputStream(rawOut, 16 * 1024);
+        DigestOutputStream out = new DigestOutputStream(buffered, digest);
+        long[] entries = new long[1];
+        try {
+            snapshotTransaction.executeWithoutResult(status -> {
+                long version = currentVersion(business.getId());
+                Map<String, Object> header = new LinkedHashMap<>();
+                header.put("type", sinceVersion == null ? "snapshot" : "delta");
+                header.put("businessId", business.getId());
+                header.put("businessTag", business.getBusinessTag());
+                header.put("version", version);
+                if (sinceVersion != null) {
+                    header.put("sinceVersion", sinceVersion);
+                    // The client is ahead of the server (e.g. restored database): it must take a full snapshot
+                    header.put("resetRequired", sinceVersion > version);
+                }
+                header.put("generatedAt", Instant.now().toString());
+                header.put("cooldownSeconds", cooldown.getSeconds());
+                header.put("tokenHash", "sha256(businessTag + \":\" + token), first " + HASH_LENGTH + " hex characters");
+                writeLine(out, header);
+
+                String sql = sinceVersion == null ? SNAPSHOT_SQL : DELTA_SQL;
+                Object second = sinceVersion == null ? REMOVED : sinceVersion;
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql);
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, business.getId());
+                    ps.setObject(2, second);
+                    return ps;
+                }, rs -> {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("h", rs.getString("token_hash"));
+                    line.put("a", rs.getBoolean("allowed"));
+                    String reason = rs.getString("reason");
+                    if (reason != null) {
+                        line.put("r", reason);
+                    }
+                    writeLine(out, line);
+                    entries[0]++;
+                });
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // The trailer signs everything before it and is not itself part of the digest
+        out.on(false);
+        byte[] contentDigest = digest.digest();
+        Map<String, Object> trailer = new LinkedHashMap<>();
+        trailer.put("type", "signature");
+        trailer.put("entries", entries[0]);
+        trailer.put("sha256", HexFormat.of().formatHex(contentDigest));
+        trailer.put("algorithm", "Ed25519");
+        trailer.put("keyId", keyId);
+        trailer.put("signature", sign(contentDigest));
+        writeLine(out, trailer);
+        out.flush();
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String sign(byte[] contentDigest) {
+        try {
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initSign(signingKey);
+            signature.update(contentDigest);
+            return Base64.getEncoder().encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign access snapshot", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+}
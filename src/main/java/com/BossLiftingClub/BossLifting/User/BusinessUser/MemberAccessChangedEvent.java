@@ -0,0 +1,18 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+/**
+ * Published whenever something that decides whether a user may check in changes: their stored member
+ * status, a membership or subscription in a business, their link to a primary owner, or the user itself
+ * being removed. Listeners holding per-user access state drop it and reload from the database on next use.
+ */
+public class MemberAccessChangedEvent {
+    private final Long userId;
+
+    public MemberAccessChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,125 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of one member status recalculation run for a business. Updated by the worker thread and
+ * read by the progress endpoint, so every field is safe to read while the job is running.
+ */
+public class MemberStatusRecalculationJob {
+
+    public enum Phase {
+        QUEUED, SYNCING, LOADING, PREFETCHING, EVALUATING, WRITING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String businessTag;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final AtomicInteger evaluated = new AtomicInteger();
+    private final AtomicInteger written = new AtomicInteger();
+
+    private volatile Phase phase = Phase.QUEUED;
+    private volatile int total;
+    private volatile int changed;
+    private volatile int customersCheckedInStripe;
+    private volatile int customersWithPaymentMethod;
+    private volatile Map<String, Object> syncResult;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public MemberStatusRecalculationJob(String businessTag) {
+        this.businessTag = businessTag;
+    }
+
+    public String getId() { return id; }
+    public String getBusinessTag() { return businessTag; }
+    public Phase getPhase() { return phase; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public String getError() { return error; }
+
+    /** Result of the Stripe subscription sync that runs before statuses are recalculated. */
+    public Map<String, Object> getSyncResult() { return syncResult; }
+
+    /** Members in the business. */
+    public int getTotal() { return total; }
+
+    /** Members whose status rules have been evaluated. */
+    public int getEvaluated() { return evaluated.get(); }
+
+    /** Members whose stored status, user type or delinquent flag changed. */
+    public int getChanged() { return changed; }
+
+    /** Changed members written back so far. */
+    public int getWritten() { return written.get(); }
+
+    /** Customers whose stored payment-method state was missing or stale and had to be checked in Stripe. */
+    public int getCustomersCheckedInStripe() { return customersCheckedInStripe; }
+    public int getCustomersWithPaymentMethod() { return customersWithPaymentMethod; }
+
+    public boolean isRunning() {
+        return phase != Phase.COMPLETED && phase != Phase.FAILED;
+    }
+
+    /** Rough completion across all phases, 0-100. */
+    public int getPercentComplete() {
+        switch (phase) {
+            case QUEUED: return 0;
+            case SYNCING: return 5;
+            case LOADING: return 40;
+            case PREFETCHING: return 45;
+            case EVALUATING: return 70 + (total == 0 ? 0 : 15 * evaluated.get() / total);
+            case WRITING: return 85 + (changed == 0 ? 0 : 15 * written.get() / changed);
+            default: return 100;
+        }
+    }
+
+    void start() {
+        startedAt = LocalDateTime.now();
+    }
+
+    void setPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    void setSyncResult(Map<String, Object> syncResult) {
+        this.syncResult = syncResult;
+    }
+
+    void setTotal(int total) {
+        this.total = total;
+    }
+
+    void setPaymentMethodCounts(int customersCheckedInStripe, int customersWithPaymentMethod) {
+        this.customersCheckedInStripe = customersCheckedInStripe;
+        this.customersWithPaymentMethod = customersWithPaymentMethod;
+    }
+
+    void incrementEvaluated() {
+        evaluated.incrementAndGet();
+    }
+
+    void setChanged(int changed) {
+        this.changed = changed;
+    }
+
+    void addWritten(int count) {
+        written.addAndGet(count);
+    }
+
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        phase = Phase.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        phase = Phase.FAILED;
+    }
+}
@@ -0,0 +1,340 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import com.BossLiftingClub.BossLifting.Payment.PaymentMethodStatusService;
+import com.BossLiftingClub.BossLifting.Payment.PaymentMethodStatusService.PaymentMethodState;
+import com.BossLiftingClub.BossLifting.Stripe.StripeBulkFetcher;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Customer;
+import com.stripe.model.PaymentMethod;
+import com.stripe.param.CustomerListParams;
+import com.stripe.param.PaymentMethodListParams;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recalculates the stored status of every member of a business as a background job.
+ *
+ * The per-member path ({@link UserBusinessService#calculateAndUpdateStatus}) loads and saves one member at
+ * a time. Here the business is synced from Stripe once, members and their membership statuses are read
+ * with two queries, and payment-method presence comes from the stored state. Customers whose stored state
+ * is missing or stale are prefetched on the bulk pool and their state written back: one lookup per stale
+ * customer, or, when most of the business's customers are stale, one customer list walk plus a card lookup
+ * only for customers without a default payment method. {@link MemberStatusRules}
+ * runs in memory, and only members whose result changed are written back with JDBC batch updates.
+ */
+@Service
+public class MemberStatusRecalculationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemberStatusRecalculationService.class);
+
+    private static final String LOAD_MEMBERS_SQL =
+            "SELECT ub.id, ub.user_id, ub.stripe_id, ub.is_paused, ub.is_delinquent, ub.calculated_status, ub.calculated_user_type, " +
+            "ub.has_payment_method, ub.payment_method_checked_at, " +
+            "CASE WHEN u.waiver_signed_date IS NULL THEN 0 ELSE 1 END AS has_waiver " +
+            "FROM user_business ub " +
+            "JOIN users u ON u.id = ub.user_id " +
+            "JOIN businesses b ON b.id = ub.business_id " +
+            "WHERE b.business_tag = ?";
+
+    private static final String LOAD_MEMBERSHIP_STATUSES_SQL =
+            "SELECT ubm.user_business_id, ubm.status " +
+            "FROM user_business_membership ubm " +
+            "JOIN user_business ub ON ub.id = ubm.user_business_id " +
+            "JOIN businesses b ON b.id = ub.business_id " +
+            "WHERE b.business_tag = ?";
+
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE user_business SET calculated_status = ?, calculated_user_type = ?, is_delinquent = ? WHERE id = ?";
+
+    private static final String UPDATE_PAYMENT_METHOD_SQL =
+            "UPDATE user_business SET has_payment_method = ?, default_card_fingerprint = ?, payment_method_checked_at = ? " +
+            "WHERE stripe_id = ?";
+
+    private final StripeSyncService stripeSyncService;
+    private final BusinessRepository businessRepository;
+    private final PaymentMethodStatusService paymentMethodStatusService;
+    private final StripeBulkFetcher bulkFetcher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final double customerWalkFraction;
+    private final ExecutorService executor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Latest job per business tag; at most one runs per business at a time
+    private final Map<String, MemberStatusRecalculationJob> jobs = new ConcurrentHashMap<>();
+
+    private record MemberRow(long id, long userId, String stripeId, boolean paused, boolean delinquent,
+                             String calculatedStatus, String calculatedUserType, boolean hasWaiver,
+                             Boolean hasPaymentMethod, LocalDateTime paymentMethodCheckedAt) {}
+
+    private record StatusUpdate(long id, long userId, MemberStatusRules.Result result) {}
+
+    public MemberStatusRecalculationService(StripeSyncService stripeSyncService,
+                                            BusinessRepository businessRepository,
+                                            PaymentMethodStatusService paymentMethodStatusService,
+                                            StripeBulkFetcher bulkFetcher,
+                                            JdbcTemplate jdbcTemplate,
+                                            PlatformTransactionManager transactionManager,
+                                            ApplicationEventPublisher eventPublisher,
+                                            @Value("${members.recalculation.batch-size:500}") int batchSize,
+                                            @Value("${members.recalculation.threads:2}") int threads,
+                                            @Value("${members.recalculation.customer-walk-fraction:0.5}") double customerWalkFraction) {
+        this.stripeSyncService = stripeSyncService;
+        this.businessRepository = businessRepository;
+        this.paymentMethodStatusService = paymentMethodStatusService;
+        this.bulkFetcher = bulkFetcher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+        this.customerWalkFraction = customerWalkFraction;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "member-recalc-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue a recalculation for the business.
+     * @return the new job, or empty if one is already running for this business
+     * @throws IllegalArgumentException if no business has the tag
+     */
+    public synchronized Optional<MemberStatusRecalculationJob> start(String businessTag) {
+        if (businessRepository.findByBusinessTag(businessTag).isEmpty()) {
+            throw new IllegalArgumentException("Business not found with tag: " + businessTag);
+        }
+        MemberStatusRecalculationJob current = jobs.get(businessTag);
+        if (current != null && current.isRunning()) {
+            return Optional.empty();
+        }
+        MemberStatusRecalculationJob job = new MemberStatusRecalculationJob(businessTag);
+        jobs.put(businessTag, job);
+        executor.submit(() -> run(job));
+        return Optional.of(job);
+    }
+
+    /**
+     * The running or most recent job for the business
+     */
+    public Optional<MemberStatusRecalculationJob> getLatestJob(String businessTag) {
+        return Optional.ofNullable(jobs.get(businessTag));
+    }
+
+    private void run(MemberStatusRecalculationJob job) {
+        String businessTag = job.getBusinessTag();
+        job.start();
+        long started = System.currentTimeMillis();
+        try {
+            job.setPhase(MemberStatusRecalculationJob.Phase.SYNCING);
+            Map<String, Object> syncResult = stripeSyncService.syncBusinessFromStripe(businessTag, false);
+            job.setSyncResult(syncResult);
+            if (!Boolean.TRUE.equals(syncResult.get("success"))) {
+                Object error = syncResult.get("error");
+                throw new IllegalStateException(error != null ? error.toString() : "Failed to sync from Stripe");
+            }
+
+            job.setPhase(MemberStatusRecalculationJob.Phase.LOADING);
+            List<MemberRow> members = loadMembers(businessTag);
+            Map<Long, List<String>> membershipStatuses = loadMembershipStatuses(businessTag);
+            job.setTotal(members.size());
+
+            job.setPhase(MemberStatusRecalculationJob.Phase.PREFETCHING);
+            Set<String> customerIds = new HashSet<>();
+            Set<String> staleCustomerIds = new HashSet<>();
+            for (MemberRow member : members) {
+                if (!hasStripeCustomer(member.stripeId())) {
+                    continue;
+                }
+                customerIds.add(member.stripeId());
+                if (!paymentMethodStatusService.isFresh(member.hasPaymentMethod(), member.paymentMethodCheckedAt())) {
+                    staleCustomerIds.add(member.stripeId());
+                }
+            }
+            Map<String, PaymentMethodState> fetched = staleCustomerIds.size() >= customerWalkFraction * customerIds.size()
+                    ? walkPaymentMethodStates(staleCustomerIds)
+                    : fetchPaymentMethodStates(staleCustomerIds);
+            writePaymentMethodStates(fetched);
+            Set<String> withPaymentMethod = new HashSet<>();
+            for (MemberRow member : members) {
+                if (!hasStripeCustomer(member.stripeId())) {
+                    continue;
+                }
+                PaymentMethodState state = fetched.get(member.stripeId());
+                // Customers whose lookup failed keep their last known answer
+                boolean has = state != null ? state.hasPaymentMethod() : Boolean.TRUE.equals(member.hasPaymentMethod());
+                if (has) {
+                    withPaymentMethod.add(member.stripeId());
+                }
+            }
+            job.setPaymentMethodCounts(staleCustomerIds.size(), withPaymentMethod.size());
+
+            job.setPhase(MemberStatusRecalculationJob.Phase.EVALUATING);
+            List<StatusUpdate> updates = new ArrayList<>();
+            for (MemberRow member : members) {
+                MemberStatusRules.Result result = MemberStatusRules.evaluate(
+                        hasStripeCustomer(member.stripeId()) && withPaymentMethod.contains(member.stripeId()),
+                        member.hasWaiver(),
+                        membershipStatuses.getOrDefault(member.id(), List.of()),
+                        member.paused(),
+                        member.delinquent());
+                // A PAST_DUE membership sets the delinquent flag; clearing it is left to the Stripe sync
+                boolean delinquent = member.delinquent() || result.delinquent();
+                if (!result.calculatedStatus().equals(member.calculatedStatus())
+                        || !result.calculatedUserType().equals(member.calculatedUserType())
+                        || delinquent != member.delinquent()) {
+                    updates.add(new StatusUpdate(member.id(), member.userId(), new MemberStatusRules.Result(
+                            result.calculatedStatus(), result.calculatedUserType(), delinquent)));
+                }
+                job.incrementEvaluated();
+            }
+            job.setChanged(updates.size());
+
+            job.setPhase(MemberStatusRecalculationJob.Phase.WRITING);
+            for (int i = 0; i < updates.size(); i += batchSize) {
+                List<StatusUpdate> batch = updates.subList(i, Math.min(i + batchSize, updates.size()));
+                transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, batch, batch.size(),
+                        (ps, update) -> {
+                            ps.setString(1, update.result().calculatedStatus());
+                            ps.setString(2, update.result().calculatedUserType());
+                            ps.setBoolean(3, update.result().delinquent());
+                            ps.setLong(4, update.id());
+                        }));
+                job.addWritten(batch.size());
+                for (StatusUpdate update : batch) {
+                    eventPublisher.publishEvent(new MemberAccessChangedEvent(update.userId()));
+                }
+            }
+
+            job.complete();
+            logger.info("Recalculated statuses for {} members of {} in {} ms: {} changed, {} customers checked in Stripe, {} with a payment method",
+                    members.size(), businessTag, System.currentTimeMillis() - started, updates.size(),
+                    staleCustomerIds.size(), withPaymentMethod.size());
+        } catch (Exception e) {
+            logger.error("Member status recalculation for {} failed: {}", businessTag, e.getMessage(), e);
+            job.fail(e.getMessage());
+        }
+    }
+
+    private List<MemberRow> loadMembers(String businessTag) {
+        return jdbcTemplate.query(LOAD_MEMBERS_SQL, (rs, rowNum) -> new MemberRow(
+                rs.getLong("id"),
+                rs.getLong("user_id"),
+                rs.getString("stripe_id"),
+                rs.getBoolean("is_paused"),
+                rs.getBoolean("is_delinquent"),
+                rs.getString("calculated_status"),
+                rs.getString("calculated_user_type"),
+                rs.getInt("has_waiver") == 1,
+                (Boolean) rs.getObject("has_payment_method"),
+                rs.getTimestamp("payment_method_checked_at") != null
+                        ? rs.getTimestamp("payment_method_checked_at").toLocalDateTime()
+                        : null), businessTag);
+    }
+
+    private Map<Long, List<String>> loadMembershipStatuses(String businessTag) {
+        Map<Long, List<String>> statuses = new HashMap<>();
+        jdbcTemplate.query(LOAD_MEMBERSHIP_STATUSES_SQL, rs -> {
+            statuses.computeIfAbsent(rs.getLong("user_business_id"), id -> new ArrayList<>()).add(rs.getString("status"));
+        }, businessTag);
+        return statuses;
+    }
+
+    /**
+     * Payment-method state for the customers, one {@link PaymentMethodStatusService#fetchFromStripe} each on
+     * the bulk pool. Customers whose lookup fails are left out.
+     */
+    private Map<String, PaymentMethodState> fetchPaymentMethodStates(Set<String> customerIds) {
+        return bulkFetcher.fetchEach(customerIds, paymentMethodStatusService::fetchFromStripe);
+    }
+
+    /**
+     * Payment-method state for the customers, by the same test as {@link PaymentMethodStatusService#fetchFromStripe}.
+     * Defaults (with their card fingerprint) come from one paged walk of the whole customer list, which is
+     * cheaper than per-customer lookups only when most customers are stale; customers without a default
+     * need a card lookup, and those run on the bulk pool. Customers whose lookup fails are left out.
+     */
+    private Map<String, PaymentMethodState> walkPaymentMethodStates(Set<String> customerIds) throws StripeException {
+        Map<String, PaymentMethodState> states = new HashMap<>();
+        if (customerIds.isEmpty()) {
+            return states;
+        }
+
+        bulkFetcher.forEachPage(null, cursor -> Customer.list(CustomerListParams.builder()
+                .setLimit(100L)
+                .setStartingAfter(cursor)
+                .addExpand("data.invoice_settings.default_payment_method")
+                .build()), page -> {
+            for (Customer customer : page) {
+                if (customerIds.contains(customer.getId())
+                        && customer.getInvoiceSettings() != null
+                        && customer.getInvoiceSettings().getDefaultPaymentMethod() != null) {
+                    states.put(customer.getId(), new PaymentMethodState(true,
+                            PaymentMethodStatusService.cardFingerprint(customer.getInvoiceSettings().getDefaultPaymentMethodObject())));
+                }
+            }
+        });
+
+        Set<String> withoutDefault = new HashSet<>(customerIds);
+        withoutDefault.removeAll(states.keySet());
+        states.putAll(bulkFetcher.fetchEach(withoutDefault, customerId -> {
+            List<PaymentMethod> cards = PaymentMethod.list(PaymentMethodListParams.builder()
+                    .setCustomer(customerId)
+                    .setType(PaymentMethodListParams.Type.CARD)
+                    .setLimit(1L)
+                    .build()).getData();
+            return cards == null || cards.isEmpty()
+                    ? new PaymentMethodState(false, null)
+                    : new PaymentMethodState(true, PaymentMethodStatusService.cardFingerprint(cards.get(0)));
+        }));
+        return states;
+    }
+
+    private void writePaymentMethodStates(Map<String, PaymentMethodState> states) {
+        List<Map.Entry<String, PaymentMethodState>> entries = new ArrayList<>(states.entrySet());
+        Timestamp checkedAt = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < entries.size(); i += batchSize) {
+            List<Map.Entry<String, PaymentMethodState>> batch = entries.subList(i, Math.min(i + batchSize, entries.size()));
+            transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.batchUpdate(UPDATE_PAYMENT_METHOD_SQL, batch, batch.size(),
+                    (ps, entry) -> {
+                        ps.setBoolean(1, entry.getValue().hasPaymentMethod());
+                        ps.setString(2, entry.getValue().cardFingerprint());
+                        ps.setTimestamp(3, checkedAt);
+                        ps.setString(4, entry.getKey());
+                    }));
+        }
+    }
+
+    private static boolean hasStripeCustomer(String stripeId) {
+        return stripeId != null && !stripeId.isEmpty() && !stripeId.equals("null");
+    }
+}
@@ -0,0 +1,84 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+import java.util.Collection;
+
+/**
+ * The member status rules, evaluated purely in memory so they can be applied to one member or to a
+ * whole business in bulk. Mirrors the frontend calculateMemberStatus function.
+ *
+ * Rules:
+ * 1. Waiver Required: Always override if waiver not signed
+ * 2. Cancelled: All memberships cancelled (takes precedence over everything except waiver)
+ * 3. Free User: NO card AND waiver signed AND no memberships = Inactive
+ * 4. Pending: Has card + No memberships + Never had memberships
+ * 5. Paused: Any membership is paused
+ * 6. Delinquent: isDelinquent = true (or any membership PAST_DUE) AND has memberships
+ * 7. Active: Has active membership(s)
+ * 8. Inactive: Default fallback
+ */
+public final class MemberStatusRules {
+
+    /**
+     * Outcome of the rules. {@code delinquent} is the isDelinquent flag to store, which a PAST_DUE
+     * membership forces on.
+     */
+    public record Result(String calculatedStatus, String calculatedUserType, boolean delinquent) {}
+
+    private MemberStatusRules() {
+    }
+
+    public static Result evaluate(boolean hasCard, boolean hasWaiver, Collection<String> membershipStatuses,
+                                  boolean isPaused, boolean isDelinquent) {
+        boolean hasMemberships = membershipStatuses != null && !membershipStatuses.isEmpty();
+
+        // RULE 1: Check waiver first - if no waiver, ALWAYS show "Waiver Required"
+        if (!hasWaiver) {
+            return new Result("Waiver Required", !hasCard ? "Free User" : "Member", isDelinquent);
+        }
+
+        // RULE 2: Check if all memberships are cancelled FIRST
+        if (hasMemberships) {
+            boolean allCanceled = membershipStatuses.stream()
+                    .allMatch(s -> "CANCELLED".equalsIgnoreCase(s) || "CANCELED".equalsIgnoreCase(s));
+            if (allCanceled) {
+                return new Result("Canceled", "Member", isDelinquent);
+            }
+        }
+
+        // RULE 3: Free User - NO card AND waiver signed AND no memberships
+        if (!hasCard && !hasMemberships) {
+            return new Result("Inactive", "Free User", isDelinquent);
+        }
+
+        // RULE 4: Pending - Has card + No memberships
+        if (hasCard && !hasMemberships) {
+            return new Result("Pending", "Member", isDelinquent);
+        }
+
+        // Has card and memberships - check other membership statuses
+        if (hasCard) {
+            // RULE 5: Check if user is paused (from isPaused flag)
+            if (isPaused) {
+                return new Result("Paused / On Hold", "Member", isDelinquent);
+            }
+
+            // RULE 5.5: Any membership PAST_DUE (mirrors Stripe past_due status) also sets isDelinquent
+            if (membershipStatuses.stream().anyMatch("PAST_DUE"::equalsIgnoreCase)) {
+                return new Result("Delinquent", "Member", true);
+            }
+
+            // RULE 6: Check if user is delinquent
+            if (isDelinquent) {
+                return new Result("Delinquent", "Member", true);
+            }
+
+            // RULE 7: Has active membership(s)
+            if (membershipStatuses.stream().anyMatch("ACTIVE"::equalsIgnoreCase)) {
+                return new Result("Active", "Member", isDelinquent);
+            }
+        }
+
+        // RULE 8: Default fallback
+        return new Result("Inactive", hasCard ? "Member" : "Free User", isDelinquent);
+    }
+}
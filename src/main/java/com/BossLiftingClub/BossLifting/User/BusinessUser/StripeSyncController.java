@@ -0,0 +1,45 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller for the daily Stripe subscription status sync.
+ */
+@RestController
+@RequestMapping("/api/stripe-sync")
+public class StripeSyncController {
+
+    @Autowired
+    private StripeSyncService stripeSyncService;
+
+    /**
+     * Start a subscription status sync now instead of waiting for the nightly run
+     * POST /api/stripe-sync/subscriptions
+     */
+    @PostMapping("/subscriptions")
+    public ResponseEntity<?> runSubscriptionSync() {
+        if (!stripeSyncService.startSubscriptionSyncAsync()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Subscription sync already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("started", true));
+    }
+
+    /**
+     * Progress of the current or last subscription status sync (mode, watermark, chunk counts)
+     * GET /api/stripe-sync/subscriptions/status
+     */
+    @GetMapping("/subscriptions/status")
+    public ResponseEntity<?> getSubscriptionSyncStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", stripeSyncService.isSubscriptionSyncRunning());
+        status.put("state", stripeSyncService.getSubscriptionSyncState().orElse(null));
+        return ResponseEntity.ok(status);
+    }
+}
@@ -1,14 +1,20 @@
 package com.BossLiftingClub.BossLifting.User.BusinessUser;
 
+import com.BossLiftingClub.BossLifting.Analytics.ledger.StripeLedgerService;
 import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import com.BossLiftingClub.BossLifting.Stripe.StripeBulkFetcher;
 import com.BossLiftingClub.BossLifting.Stripe.StripeService;
 import com.BossLiftingClub.BossLifting.User.Membership.Membership;
 import com.BossLiftingClub.BossLifting.User.Membership.MembershipRepository;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
+import com.stripe.model.Event;
+import com.stripe.model.EventDataObjectDeserializer;
 import com.stripe.model.Product;
+import com.stripe.model.StripeObject;
 import com.stripe.model.Subscription;
+import com.stripe.param.EventListParams;
 import com.stripe.param.SubscriptionListParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,13 +22,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Service
 public class StripeSyncService {
@@ -47,9 +65,37 @@ public class StripeSyncService {
     @Autowired
     private StripeService stripeService;
 
+    @Autowired
+    private UserBusinessMembershipRepository userBusinessMembershipRepository;
+
+    @Autowired
+    private StripeSyncStateRepository syncStateRepository;
+
+    @Autowired
+    private StripeLedgerService stripeLedgerService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StripeBulkFetcher bulkFetcher;
+
+    @Value("${stripe.sync.chunk-size:100}")
+    private int chunkSize;
+
+    private static final String SUBSCRIPTION_SYNC = "subscription_status";
+
+    // Stripe keeps events for 30 days; older watermarks fall back to a full pass
+    private static final long EVENT_RETENTION_SECONDS = 29L * 24 * 60 * 60;
+
+    private final AtomicBoolean subscriptionSyncRunning = new AtomicBoolean(false);
+
+    private TransactionTemplate transactionTemplate;
+
     @PostConstruct
     public void initStripe() {
         Stripe.apiKey = stripeApiKey;
+        transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -59,6 +105,16 @@ public class StripeSyncService {
      */
     @Transactional
     public Map<String, Object> syncBusinessFromStripe(String businessTag) {
+        return syncBusinessFromStripe(businessTag, true);
+    }
+
+    /**
+     * Sync subscription statuses from Stripe for a specific business
+     * @param recalculate false when the caller recalculates every member's status itself afterwards,
+     *                    so changed members are not recalculated (and their cards checked) twice
+     */
+    @Transactional
+    public Map<String, Object> syncBusinessFromStripe(String businessTag, boolean recalculate) {
         Map<String, Object> result = new java.util.HashMap<>();
         int synced = 0;
         int updated = 0;
@@ -73,6 +129,42 @@ public class StripeSyncService {
             List<UserBusiness> userBusinesses = userBusinessRepository.findByBusinessId(business.getId());
             logger.info("Syncing {} user-business relationships for business {}", userBusinesses.size(), businessTag);
             
+            com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
+                    ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
+                    : null;
+            
+            // Fetch every member's subscriptions up front on the bounded Stripe pool instead of one
+            // sequential round-trip per member; customers whose fetch fails are skipped below
+            List<String> customerIds = userBusinesses.stream()
+                    .map(UserBusiness::getStripeId)
+                    .filter(id -> id != null && !id.isEmpty())
+                    .toList();
+            Map<String, List<Subscription>> subscriptionsByCustomer = bulkFetcher.fetchEach(customerIds, customerId -> {
+                SubscriptionListParams params = SubscriptionListParams.builder()
+                        .setCustomer(customerId)
+                        .setStatus(SubscriptionListParams.Status.ALL)
+                        .setLimit(100L)
+                        .build();
+                return (requestOptions != null
+                        ? Subscription.list(params, requestOptions)
+                        : Subscription.list(params)).getData();
+            });
+            
+            // Each product is looked up once, not once per subscription
+            Set<String> productIds = new HashSet<>();
+            for (List<Subscription> customerSubscriptions : subscriptionsByCustomer.values()) {
+                for (Subscription stripeSub : customerSubscriptions) {
+                    if (stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()
+                            && stripeSub.getItems().getData().get(0).getPrice() != null
+                            && stripeSub.getItems().getData().get(0).getPrice().getProduct() != null) {
+                        productIds.add(stripeSub.getItems().getData().get(0).getPrice().getProduct());
+                    }
+                }
+            }
+            Map<String, String> productNames = bulkFetcher.fetchEach(productIds, productId -> (requestOptions != null
+                    ? Product.retrieve(productId, requestOptions)
+                    : Product.retrieve(productId)).getName());
+            
             for (UserBusiness userBusiness : userBusinesses) {
                 try {
                     String stripeCustomerId = userBusiness.getStripeId();
@@ -81,25 +173,19 @@ public class StripeSyncService {
                         continue;
                     }
                     
-                    com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                            ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                            : null;
-                    
-                    SubscriptionListParams params = SubscriptionListParams.builder()
-                            .setCustomer(stripeCustomerId)
-                            .setStatus(SubscriptionListParams.Status.ALL)
-                            .setLimit(100L)
-                            .build();
-                    
-                    com.stripe.model.SubscriptionCollection subscriptions = requestOptions != null
-                            ? Subscription.list(params, requestOptions)
-                            : Subscription.list(params);
+                    List<Subscription> subscriptions = subscriptionsByCustomer.get(stripeCustomerId);
+                    if (subscriptions == null) {
+                        logger.error("Error syncing subscriptions for UserBusiness {}: could not fetch subscriptions for {}", 
+                                userBusiness.getId(), stripeCustomerId);
+                        errors++;
+                        continue;
+                    }
                     
                     boolean needsRecalculation = false;
                     boolean hasPastDueSubscription = false;
                     
                     // Compare each Stripe subscription with database memberships
-                    for (Subscription stripeSub : subscriptions.getData()) {
+                    for (Subscription stripeSub : subscriptions) {
                         String stripeSubscriptionId = stripeSub.getId();
                         String stripeStatus = stripeSub.getStatus();
                         
@@ -114,12 +200,7 @@ public class StripeSyncService {
                                 // Get product name
                                 String productId = item.getPrice().getProduct();
                                 if (productId != null) {
-                                    try {
-                                        Product product = requestOptions != null ? Product.retrieve(productId, requestOptions) : Product.retrieve(productId);
-                                        productNameRef[0] = product.getName();
-                                    } catch (Exception e) {
-                                        logger.warn("Could not retrieve product {}: {}", productId, e.getMessage());
-                                    }
+                                    productNameRef[0] = productNames.get(productId);
                                 }
                                 
                                 // Get price
@@ -165,17 +246,13 @@ public class StripeSyncService {
                                 needsRecalculation = true;
                                 updated++;
                             }
-                            // Sync anchor date from Stripe current_period_start
-                            try {
-                                java.util.Map<String, Object> details = stripeService.retrieveSubscriptionDetails(stripeSubscriptionId, stripeAccountId);
-                                Object periodStart = details.get("currentPeriodStart");
-                                if (periodStart instanceof LocalDateTime) {
-                                    membership.setAnchorDate((LocalDateTime) periodStart);
-                                    userBusinessRepository.save(userBusiness);
-                                }
-                            } catch (Exception ex) {
-                                logger.debug("Could not sync anchor from Stripe for membership {}: {}", membership.getId(), ex.getMessage());
+                            // Sync anchor date and the local subscription snapshot (already on the listed subscription)
+                            if (stripeSub.getCurrentPeriodStart() != null) {
+                                membership.setAnchorDate(LocalDateTime.ofEpochSecond(
+                                        stripeSub.getCurrentPeriodStart(), 0, java.time.ZoneOffset.UTC));
                             }
+                            userBusinessService.applyStripeSubscription(membership, stripeSub);
+                            userBusinessRepository.save(userBusiness);
                             
                             // Update price if it changed (both actualPrice and membership price if names match)
                             if (stripePrice != null && membership.getMembership() != null) {
@@ -241,6 +318,7 @@ public class StripeSyncService {
                                 newMembership.setAnchorDate(LocalDateTime.now());
                                 newMembership.setCreatedAt(LocalDateTime.now());
                                 newMembership.setUpdatedAt(LocalDateTime.now());
+                                userBusinessService.applyStripeSubscription(newMembership, stripeSub);
                                 
                                 userBusiness.addMembership(newMembership);
                                 userBusiness.setHasEverHadMembership(true);
@@ -275,6 +353,7 @@ public class StripeSyncService {
                                 newUserMembership.setAnchorDate(LocalDateTime.now());
                                 newUserMembership.setCreatedAt(LocalDateTime.now());
                                 newUserMembership.setUpdatedAt(LocalDateTime.now());
+                                userBusinessService.applyStripeSubscription(newUserMembership, stripeSub);
                                 
                                 userBusiness.addMembership(newUserMembership);
                                 userBusiness.setHasEverHadMembership(true);
@@ -287,7 +366,7 @@ public class StripeSyncService {
                     }
                     
                     // Check for subscriptions that were deleted in Stripe but still exist in database
-                    List<String> stripeSubscriptionIds = subscriptions.getData().stream()
+                    List<String> stripeSubscriptionIds = subscriptions.stream()
                             .map(Subscription::getId)
                             .collect(java.util.stream.Collectors.toList());
                     
@@ -329,15 +408,13 @@ public class StripeSyncService {
                     // the member will have "Active" status
                     if (needsRecalculation) {
                         userBusinessRepository.save(userBusiness);
-                        userBusinessService.calculateAndUpdateStatus(userBusiness);
+                        if (recalculate) {
+                            userBusinessService.calculateAndUpdateStatus(userBusiness);
+                        }
                     }
                     
                     synced++;
                     
-                } catch (com.stripe.exception.StripeException e) {
-                    logger.error("Error syncing subscriptions for UserBusiness {}: {}", 
-                            userBusiness.getId(), e.getMessage());
-                    errors++;
                 } catch (Exception e) {
                     logger.error("Unexpected error syncing UserBusiness {}: {}", 
                             userBusiness.getId(), e.getMessage(), e);
@@ -362,146 +439,268 @@ public class StripeSyncService {
 
     /**
      * Daily scheduled job to sync subscription statuses from Stripe
-     * Runs at 3 AM every day
+     * Runs at 3 AM every day. Only subscriptions that changed since the stored watermark are
+     * applied (via Stripe events); without a usable watermark a single account-wide subscription
+     * listing is used instead. Changes are committed in chunks together with the checkpoint, so
+     * a run that dies part-way resumes from the last committed chunk.
      */
     @Scheduled(cron = "0 0 3 * * ?")
-    @Transactional
     public void syncSubscriptionStatusesFromStripe() {
-        logger.info("Starting daily Stripe subscription status sync...");
-        
+        if (!subscriptionSyncRunning.compareAndSet(false, true)) {
+            logger.warn("Stripe subscription sync already running, skipping");
+            return;
+        }
+        runSubscriptionSync();
+    }
+
+    /**
+     * The subscription sync itself; the caller has set {@code subscriptionSyncRunning}, which is cleared
+     * when it ends.
+     */
+    private void runSubscriptionSync() {
         try {
-            // Get all businesses
-            List<Business> businesses = businessRepository.findAll();
-            logger.info("Found {} businesses to sync", businesses.size());
-            
-            int totalSynced = 0;
-            int totalUpdated = 0;
-            int totalErrors = 0;
-            
-            for (Business business : businesses) {
-                String stripeAccountId = null; // Single-tenant: platform account only
+            StripeSyncState state = syncStateRepository.findById(SUBSCRIPTION_SYNC)
+                    .orElseGet(() -> new StripeSyncState(SUBSCRIPTION_SYNC));
+            long now = Instant.now().getEpochSecond();
 
-                List<UserBusiness> userBusinesses = userBusinessRepository.findByBusinessId(business.getId());
-                logger.debug("Found {} user-business relationships for business {}", userBusinesses.size(), business.getId());
+            // An unfinished full pass picks up after its last committed page
+            boolean resumeFull = "FULL".equals(state.getMode())
+                    && !"COMPLETED".equals(state.getStatus())
+                    && state.getRunStartedEpoch() != null;
+            boolean incremental = !resumeFull
+                    && state.getWatermark() != null
+                    && now - state.getWatermark() < EVENT_RETENTION_SECONDS;
 
-                for (UserBusiness userBusiness : userBusinesses) {
-                    try {
-                        String stripeCustomerId = userBusiness.getStripeId();
+            if (!resumeFull) {
+                state.setRunStartedEpoch(now);
+                state.setCursor(null);
+                state.setChunksProcessed(0);
+                state.setItemsProcessed(0);
+                state.setItemsUpdated(0);
+                state.setErrors(0);
+                state.setStartedAt(LocalDateTime.now());
+            }
+            state.setMode(incremental ? "INCREMENTAL" : "FULL");
+            state.setStatus("RUNNING");
+            state.setMessage(resumeFull ? "Resumed after subscription " + state.getCursor() : null);
+            state.setFinishedAt(null);
+            state.setLastProgressAt(LocalDateTime.now());
+            syncStateRepository.save(state);
 
-                        if (stripeCustomerId == null || stripeCustomerId.isEmpty()) {
-                            continue;
-                        }
+            logger.info("Starting Stripe subscription status sync (mode={}, watermark={}, cursor={})",
+                    state.getMode(), state.getWatermark(), state.getCursor());
 
-                        com.stripe.net.RequestOptions requestOptions = (stripeAccountId != null && !stripeAccountId.isEmpty())
-                                ? com.stripe.net.RequestOptions.builder().setStripeAccount(stripeAccountId).build()
-                                : null;
-                        
-                        SubscriptionListParams params = SubscriptionListParams.builder()
-                                .setCustomer(stripeCustomerId)
-                                .setStatus(SubscriptionListParams.Status.ALL)
-                                .setLimit(100L)
-                                .build();
-                        
-                        com.stripe.model.SubscriptionCollection subscriptions = requestOptions != null
-                                ? Subscription.list(params, requestOptions)
-                                : Subscription.list(params);
-                        
-                        // Track if we need to recalculate status
-                        boolean needsRecalculation = false;
-                        boolean hasPastDueSubscription = false;
-                        
-                        // Compare each Stripe subscription with database memberships
-                        for (Subscription stripeSub : subscriptions.getData()) {
-                            String stripeSubscriptionId = stripeSub.getId();
-                            String stripeStatus = stripeSub.getStatus();
-                            
-                            // Check if subscription is past_due
-                            if ("past_due".equalsIgnoreCase(stripeStatus) || "unpaid".equalsIgnoreCase(stripeStatus)) {
-                                hasPastDueSubscription = true;
-                            }
-                            
-                            // Find matching membership in database
-                            UserBusinessMembership membership = userBusiness.getUserBusinessMemberships().stream()
-                                    .filter(m -> stripeSubscriptionId.equals(m.getStripeSubscriptionId()))
-                                    .findFirst()
-                                    .orElse(null);
-                            
-                            if (membership != null) {
-                                // Map Stripe status to our status
-                                String dbStatus = mapStripeStatusToDbStatus(stripeStatus);
-                                
-                                // Check if status needs updating
-                                if (!dbStatus.equalsIgnoreCase(membership.getStatus())) {
-                                    logger.info("Updating membership {} status from {} to {} (Stripe: {})", 
-                                            membership.getId(), membership.getStatus(), dbStatus, stripeStatus);
-                                    
-                                    userBusinessService.updateUserBusinessMembershipById(
-                                            membership.getId(), dbStatus, null, null, null);
-                                    needsRecalculation = true;
-                                    totalUpdated++;
-                                }
-                                
-                                // Update isPaused flag based on Stripe subscription pause status
-                                boolean isPausedInStripe = "paused".equalsIgnoreCase(stripeStatus) || 
-                                                           stripeSub.getPauseCollection() != null;
-                                boolean isPausedInDb = userBusiness.getIsPaused() != null && userBusiness.getIsPaused();
-                                
-                                if (isPausedInStripe != isPausedInDb) {
-                                    userBusiness.setIsPaused(isPausedInStripe);
-                                    userBusinessRepository.save(userBusiness);
-                                    needsRecalculation = true;
-                                    logger.info("Updated isPaused flag for UserBusiness {} to {}", 
-                                            userBusiness.getId(), isPausedInStripe);
-                                }
-                            }
-                        }
-                        
-                        // Update isDelinquent flag based on past_due subscriptions
-                        if (hasPastDueSubscription) {
-                            if (userBusiness.getIsDelinquent() == null || !userBusiness.getIsDelinquent()) {
-                                logger.info("Setting isDelinquent=true for UserBusiness {} - has past_due subscription", 
-                                        userBusiness.getId());
-                                userBusiness.setIsDelinquent(true);
-                                needsRecalculation = true;
-                            }
-                        } else {
-                            // All subscriptions are up to date - clear delinquent flag
-                            // This will allow the member to have "Active" status again
-                            if (userBusiness.getIsDelinquent() != null && userBusiness.getIsDelinquent()) {
-                                logger.info("Clearing isDelinquent for UserBusiness {} - all subscriptions are up to date", 
-                                        userBusiness.getId());
-                                userBusiness.setIsDelinquent(false);
-                                needsRecalculation = true;
-                            }
-                        }
-                        
-                        // Recalculate status - if all payments are up to date and memberships are active,
-                        // the member will have "Active" status
-                        if (needsRecalculation) {
-                            userBusinessRepository.save(userBusiness);
-                            userBusinessService.calculateAndUpdateStatus(userBusiness);
-                        }
-                        
-                        totalSynced++;
-                        
-                    } catch (StripeException e) {
-                        logger.error("Error syncing subscriptions for UserBusiness {}: {}", 
-                                userBusiness.getId(), e.getMessage());
-                        totalErrors++;
-                    } catch (Exception e) {
-                        logger.error("Unexpected error syncing UserBusiness {}: {}", 
-                                userBusiness.getId(), e.getMessage(), e);
-                        totalErrors++;
-                    }
-                }
+            if (incremental) {
+                runIncrementalSync(state);
+            } else {
+                runFullSync(state);
             }
-            
-            logger.info("Completed daily Stripe sync: {} synced, {} updated, {} errors", 
-                    totalSynced, totalUpdated, totalErrors);
-            
+
+            state.setStatus("COMPLETED");
+            state.setFinishedAt(LocalDateTime.now());
+            syncStateRepository.save(state);
+
+            logger.info("Completed Stripe sync: {} chunks, {} subscriptions, {} updated",
+                    state.getChunksProcessed(), state.getItemsProcessed(), state.getItemsUpdated());
+
         } catch (Exception e) {
             logger.error("Error in daily Stripe sync job: {}", e.getMessage(), e);
+            // Reload so counters reflect only committed chunks
+            syncStateRepository.findById(SUBSCRIPTION_SYNC).ifPresent(failed -> {
+                failed.setStatus("FAILED");
+                failed.setErrors((failed.getErrors() != null ? failed.getErrors() : 0) + 1);
+                failed.setMessage(e.getMessage());
+                failed.setFinishedAt(LocalDateTime.now());
+                syncStateRepository.save(failed);
+            });
+        } finally {
+            subscriptionSyncRunning.set(false);
+        }
+    }
+
+    /**
+     * Run the subscription sync on a background thread.
+     * @return false if a sync is already running
+     */
+    public boolean startSubscriptionSyncAsync() {
+        // Claimed here rather than on the thread, so two concurrent starts cannot both report success
+        if (!subscriptionSyncRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Thread thread = new Thread(this::runSubscriptionSync, "stripe-subscription-sync");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            subscriptionSyncRunning.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public boolean isSubscriptionSyncRunning() {
+        return subscriptionSyncRunning.get();
+    }
+
+    public Optional<StripeSyncState> getSubscriptionSyncState() {
+        return syncStateRepository.findById(SUBSCRIPTION_SYNC);
+    }
+
+    /**
+     * Apply customer.subscription.* events created since the watermark. Only the latest snapshot of
+     * each subscription is applied, in order of its last event, and the watermark advances with
+     * every committed chunk.
+     */
+    private void runIncrementalSync(StripeSyncState state) throws StripeException {
+        // Events are returned newest first, so the first event seen per subscription is its current state
+        Map<String, Subscription> latest = new HashMap<>();
+        Map<String, Long> latestEventTime = new HashMap<>();
+        long since = state.getWatermark();
+        bulkFetcher.forEachPage(null, cursor -> Event.list(EventListParams.builder()
+                .setType("customer.subscription.*")
+                .setCreated(EventListParams.Created.builder().setGte(since).build())
+                .setLimit(100L)
+                .setStartingAfter(cursor)
+                .build()), page -> {
+            for (Event event : page) {
+                Subscription subscription = extractSubscription(event);
+                if (subscription == null || latest.containsKey(subscription.getId())) {
+                    continue;
+                }
+                latest.put(subscription.getId(), subscription);
+                latestEventTime.put(subscription.getId(), event.getCreated());
+            }
+        });
+
+        List<String> ordered = new ArrayList<>(latest.keySet());
+        ordered.sort(Comparator.comparing(latestEventTime::get));
+        logger.info("Found {} subscriptions changed since {}", ordered.size(), state.getWatermark());
+
+        for (int i = 0; i < ordered.size(); i += chunkSize) {
+            List<String> ids = ordered.subList(i, Math.min(i + chunkSize, ordered.size()));
+            List<Subscription> chunk = ids.stream().map(latest::get).toList();
+            long chunkWatermark = latestEventTime.get(ids.get(ids.size() - 1));
+            applyChunk(state, chunk, s -> s.setWatermark(chunkWatermark));
+        }
+
+        long runStarted = state.getRunStartedEpoch();
+        if (state.getWatermark() == null || state.getWatermark() < runStarted) {
+            state.setWatermark(runStarted);
+        }
+    }
+
+    /**
+     * Walk every subscription on the account page by page, committing the page cursor with each
+     * chunk. Once finished, the watermark is set to when the pass started so the next run only
+     * needs events.
+     */
+    private void runFullSync(StripeSyncState state) throws StripeException {
+        long pageSize = Math.min(chunkSize, 100);
+        bulkFetcher.forEachPage(state.getCursor(), cursor -> Subscription.list(SubscriptionListParams.builder()
+                .setStatus(SubscriptionListParams.Status.ALL)
+                .setLimit(pageSize)
+                .setStartingAfter(cursor)
+                .build()), page -> {
+            String nextCursor = page.get(page.size() - 1).getId();
+            applyChunk(state, page, s -> s.setCursor(nextCursor));
+        });
+
+        state.setWatermark(state.getRunStartedEpoch());
+        state.setCursor(null);
+    }
+
+    /**
+     * Apply one chunk of Stripe subscriptions in its own transaction. The checkpoint is written in
+     * the same transaction, so either the chunk and its progress commit together or neither does.
+     */
+    private void applyChunk(StripeSyncState state, List<Subscription> subscriptions, Consumer<StripeSyncState> checkpoint) {
+        Integer updated = transactionTemplate.execute(tx -> {
+            List<String> subscriptionIds = subscriptions.stream().map(Subscription::getId).toList();
+            Map<String, UserBusinessMembership> bySubscription = new HashMap<>();
+            for (UserBusinessMembership membership : userBusinessMembershipRepository.findByStripeSubscriptionIdIn(subscriptionIds)) {
+                bySubscription.put(membership.getStripeSubscriptionId(), membership);
+            }
+
+            int chunkUpdated = 0;
+            Map<Long, UserBusiness> touched = new LinkedHashMap<>();
+            Set<Long> changed = new HashSet<>();
+
+            for (Subscription stripeSub : subscriptions) {
+                stripeLedgerService.recordSubscription(stripeSub, null);
+
+                UserBusinessMembership membership = bySubscription.get(stripeSub.getId());
+                if (membership == null) {
+                    continue;
+                }
+
+                UserBusiness userBusiness = membership.getUserBusiness();
+                touched.putIfAbsent(userBusiness.getId(), userBusiness);
+
+                String stripeStatus = stripeSub.getStatus();
+                String dbStatus = mapStripeStatusToDbStatus(stripeStatus);
+                if (!dbStatus.equalsIgnoreCase(membership.getStatus())) {
+                    logger.info("Updating membership {} status from {} to {} (Stripe: {})",
+                            membership.getId(), membership.getStatus(), dbStatus, stripeStatus);
+                    membership.setStatus(dbStatus);
+                    changed.add(userBusiness.getId());
+                    chunkUpdated++;
+                }
+                userBusinessService.applyStripeSubscription(membership, stripeSub);
+                userBusinessMembershipRepository.save(membership);
+            }
+
+            // Flags and calculated status are settled once per member, not once per subscription, and from all
+            // of the member's memberships: their other subscriptions may be in another chunk or unchanged
+            for (UserBusiness userBusiness : touched.values()) {
+                boolean needsRecalculation = changed.contains(userBusiness.getId());
+
+                boolean isPaused = userBusiness.getUserBusinessMemberships().stream()
+                        .anyMatch(m -> m.getStripeSubscriptionId() != null
+                                && ("paused".equalsIgnoreCase(m.getStripeStatus()) || m.getPauseCollectionBehavior() != null));
+                if (isPaused != Boolean.TRUE.equals(userBusiness.getIsPaused())) {
+                    userBusiness.setIsPaused(isPaused);
+                    needsRecalculation = true;
+                }
+
+                boolean isDelinquent = userBusiness.getUserBusinessMemberships().stream()
+                        .anyMatch(m -> "PAST_DUE".equalsIgnoreCase(m.getStatus()));
+                if (isDelinquent != Boolean.TRUE.equals(userBusiness.getIsDelinquent())) {
+                    userBusiness.setIsDelinquent(isDelinquent);
+                    needsRecalculation = true;
+                }
+
+                if (needsRecalculation) {
+                    userBusinessRepository.save(userBusiness);
+                    userBusinessService.calculateAndUpdateStatus(userBusiness);
+                }
+            }
+
+            checkpoint.accept(state);
+            state.setChunksProcessed(state.getChunksProcessed() + 1);
+            state.setItemsProcessed(state.getItemsProcessed() + subscriptions.size());
+            state.setItemsUpdated(state.getItemsUpdated() + chunkUpdated);
+            state.setLastProgressAt(LocalDateTime.now());
+            syncStateRepository.save(state);
+            return chunkUpdated;
+        });
+
+        logger.info("Stripe sync chunk {} committed: {} subscriptions, {} updated ({} processed so far)",
+                state.getChunksProcessed(), subscriptions.size(), updated, state.getItemsProcessed());
+    }
+
+    private Subscription extractSubscription(Event event) {
+        EventDataObjectDeserializer deserializer = event.getDataObjectDeserializer();
+        StripeObject object = deserializer.getObject().orElse(null);
+        if (object == null) {
+            // Event was rendered with a different API version than the library; parse it anyway
+            try {
+                object = deserializer.deserializeUnsafe();
+            } catch (Exception e) {
+                logger.warn("Could not deserialize event {}: {}", event.getId(), e.getMessage());
+                return null;
+            }
         }
+        return object instanceof Subscription subscription ? subscription : null;
     }
     
     /**
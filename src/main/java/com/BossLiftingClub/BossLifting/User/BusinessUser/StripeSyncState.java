@@ -0,0 +1,65 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint for a Stripe sync job. The watermark (epoch seconds) marks how far Stripe
+ * events have been applied; the cursor is the last subscription id committed during a
+ * full account-wide pass so an interrupted run can resume where it stopped.
+ */
+@Entity
+@Table(name = "stripe_sync_state")
+@Data
+@NoArgsConstructor
+public class StripeSyncState {
+    @Id
+    @Column(name = "sync_name", length = 100)
+    private String syncName;
+
+    @Column(name = "mode", length = 20)
+    private String mode; // INCREMENTAL or FULL
+
+    @Column(name = "status", length = 20)
+    private String status; // RUNNING, COMPLETED, FAILED
+
+    @Column(name = "watermark")
+    private Long watermark;
+
+    @Column(name = "cursor_id")
+    private String cursor;
+
+    @Column(name = "run_started_epoch")
+    private Long runStartedEpoch;
+
+    @Column(name = "chunks_processed")
+    private Integer chunksProcessed = 0;
+
+    @Column(name = "items_processed")
+    private Integer itemsProcessed = 0;
+
+    @Column(name = "items_updated")
+    private Integer itemsUpdated = 0;
+
+    @Column(name = "errors")
+    private Integer errors = 0;
+
+    @Column(name = "message", length = 1000)
+    private String message;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "last_progress_at")
+    private LocalDateTime lastProgressAt;
+
+    public StripeSyncState(String syncName) {
+        this.syncName = syncName;
+    }
+}
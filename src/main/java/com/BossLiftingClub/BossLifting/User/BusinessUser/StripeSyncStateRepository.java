@@ -0,0 +1,8 @@
+package com.BossLiftingClub.BossLifting.User.BusinessUser;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StripeSyncStateRepository extends JpaRepository<StripeSyncState, String> {
+}
@@ -55,6 +55,16 @@ public class UserBusiness {
     @Column(name = "calculated_user_type")
     private String calculatedUserType;
 
+    // Local copy of whether the Stripe customer has a usable card, kept fresh by payment-method webhooks
+    @Column(name = "has_payment_method")
+    private Boolean hasPaymentMethod;
+
+    @Column(name = "default_card_fingerprint")
+    private String defaultCardFingerprint;
+
+    @Column(name = "payment_method_checked_at")
+    private LocalDateTime paymentMethodCheckedAt;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
@@ -175,6 +185,30 @@ public class UserBusiness {
         this.calculatedUserType = calculatedUserType;
     }
 
+    public Boolean getHasPaymentMethod() {
+        return hasPaymentMethod;
+    }
+
+    public void setHasPaymentMethod(Boolean hasPaymentMethod) {
+        this.hasPaymentMethod = hasPaymentMethod;
+    }
+
+    public String getDefaultCardFingerprint() {
+        return defaultCardFingerprint;
+    }
+
+    public void setDefaultCardFingerprint(String defaultCardFingerprint) {
+        this.defaultCardFingerprint = defaultCardFingerprint;
+    }
+
+    public LocalDateTime getPaymentMethodCheckedAt() {
+        return paymentMethodCheckedAt;
+    }
+
+    public void setPaymentMethodCheckedAt(LocalDateTime paymentMethodCheckedAt) {
+        this.paymentMethodCheckedAt = paymentMethodCheckedAt;
+    }
+
     public void addMembership(UserBusinessMembership membership) {
         userBusinessMemberships.add(membership);
         membership.setUserBusiness(this);
@@ -75,9 +75,38 @@ public class UserBusinessMembership {
     @Column(name = "punches_expiry_date")
     private LocalDateTime punchesExpiryDate;
 
+    // Last redeemed punch; only written by the conditional redemption update
+    @Column(name = "last_punch_at")
+    private LocalDateTime lastPunchAt;
+
     @Column(name = "processing_fee_paid", precision = 10, scale = 2)
     private BigDecimal processingFeePaid;
 
+    // Local copy of the Stripe subscription, kept fresh by subscription webhooks and the sync job
+    @Column(name = "stripe_status", length = 50)
+    private String stripeStatus;
+
+    @Column(name = "current_period_start")
+    private LocalDateTime currentPeriodStart;
+
+    @Column(name = "current_period_end")
+    private LocalDateTime currentPeriodEnd;
+
+    @Column(name = "cancel_at")
+    private LocalDateTime cancelAt;
+
+    @Column(name = "cancel_at_period_end")
+    private Boolean cancelAtPeriodEnd = false;
+
+    @Column(name = "pause_collection_behavior", length = 50)
+    private String pauseCollectionBehavior; // null when collection is not paused
+
+    @Column(name = "pause_resumes_at")
+    private LocalDateTime pauseResumesAt;
+
+    @Column(name = "subscription_synced_at")
+    private LocalDateTime subscriptionSyncedAt; // When the fields above were last taken from Stripe
+
     // Constructors
     public UserBusinessMembership() {
         this.createdAt = LocalDateTime.now();
@@ -250,6 +279,14 @@ public class UserBusinessMembership {
         this.punchesExpiryDate = punchesExpiryDate;
     }
 
+    public LocalDateTime getLastPunchAt() {
+        return lastPunchAt;
+    }
+
+    public void setLastPunchAt(LocalDateTime lastPunchAt) {
+        this.lastPunchAt = lastPunchAt;
+    }
+
     public BigDecimal getProcessingFeePaid() {
         return processingFeePaid;
     }
@@ -257,4 +294,68 @@ public class UserBusinessMembership {
     public void setProcessingFeePaid(BigDecimal processingFeePaid) {
         this.processingFeePaid = processingFeePaid;
     }
+
+    public String getStripeStatus() {
+        return stripeStatus;
+    }
+
+    public void setStripeStatus(String stripeStatus) {
+        this.stripeStatus = stripeStatus;
+    }
+
+    public LocalDateTime getCurrentPeriodStart() {
+        return currentPeriodStart;
+    }
+
+    public void setCurrentPeriodStart(LocalDateTime currentPeriodStart) {
+        this.currentPeriodStart = currentPeriodStart;
+    }
+
+    public LocalDateTime getCurrentPeriodEnd() {
+        return currentPeriodEnd;
+    }
+
+    public void setCurrentPeriodEnd(LocalDateTime currentPeriodEnd) {
+        this.currentPeriodEnd = currentPeriodEnd;
+    }
+
+    public LocalDateTime getCancelAt() {
+        return cancelAt;
+    }
+
+    public void setCancelAt(LocalDateTime cancelAt) {
+        this.cancelAt = cancelAt;
+    }
+
+    public Boolean getCancelAtPeriodEnd() {
+        return cancelAtPeriodEnd;
+    }
+
+    public void setCancelAtPeriodEnd(Boolean cancelAtPeriodEnd) {
+        this.cancelAtPeriodEnd = cancelAtPeriodEnd;
+    }
+
+    public String getPauseCollectionBehavior() {
+        return pauseCollectionBehavior;
+    }
+
+    public void setPauseCollectionBehavior(String pauseCollectionBehavior) {
+        this.pauseCollectionBehavior = pauseCollectionBehavior;
+    }
+
+    public LocalDateTime getPauseResumesAt() {
+        return pauseResumesAt;
+    }
+
+    public void setPauseResumesAt(LocalDateTime pauseResumesAt) {
+        this.pauseResumesAt = pauseResumesAt;
+    }
+
+    public LocalDateTime getSubscriptionSyncedAt() {
+        return subscriptionSyncedAt;
+    }
+
+    public void setSubscriptionSyncedAt(LocalDateTime subscriptionSyncedAt) {
+        this.subscriptionSyncedAt = subscriptionSyncedAt;
+    }
 }
@@ -1,10 +1,13 @@
 package com.BossLiftingClub.BossLifting.User.BusinessUser;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +18,14 @@ public interface UserBusinessMembershipRepository extends JpaRepository<UserBusi
      * Find membership by Stripe subscription ID
      */
     Optional<UserBusinessMembership> findByStripeSubscriptionId(String stripeSubscriptionId);
+
+    /**
+     * Find memberships for a batch of Stripe subscription IDs, with their user-business loaded
+     */
+    @Query("SELECT ubm FROM UserBusinessMembership ubm " +
+           "JOIN FETCH ubm.userBusiness ub " +
+           "WHERE ubm.stripeSubscriptionId IN :subscriptionIds")
+    List<UserBusinessMembership> findByStripeSubscriptionIdIn(@Param("subscriptionIds") Collection<String> subscriptionIds);
     
     /**
      * Find all memberships for a user-business relationship
@@ -40,4 +51,17 @@ public interface UserBusinessMembershipRepository extends JpaRepository<UserBusi
            "JOIN FETCH ub.business b " +
            "WHERE u.id = :userId AND b.businessTag = :businessTag AND ubm.status = 'ACTIVE'")
     List<UserBusinessMembership> findActiveByUserIdAndBusinessTag(@Param("userId") Long userId, @Param("businessTag") String businessTag);
+
+    /**
+     * Redeem one punch if the card has punches left, has not expired and was not punched after windowStart.
+     * A single conditional update, so concurrent scans of one card serialize on its row and at most one
+     * of them succeeds. Returns the number of rows updated (0 or 1).
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE UserBusinessMembership ubm " +
+           "SET ubm.punchesRemaining = ubm.punchesRemaining - 1, ubm.lastPunchAt = :now " +
+           "WHERE ubm.id = :id AND ubm.punchesRemaining > 0 " +
+           "AND (ubm.punchesExpiryDate IS NULL OR ubm.punchesExpiryDate >= :now) " +
+           "AND (ubm.lastPunchAt IS NULL OR ubm.lastPunchAt <= :windowStart)")
+    int redeemPunch(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("windowStart") LocalDateTime windowStart);
 }
@@ -125,4 +125,31 @@ public interface UserBusinessRepository extends JpaRepository<UserBusiness, Long
             "WHERE ub.business_id = :businessId AND LOWER(ubm.status) = 'active'",
             nativeQuery = true)
     double sumMrrByBusinessId(@Param("businessId") long businessId);
+
+    /**
+     * (stripeId, businessId) for every member with a Stripe customer. Used to attribute ledger rows to businesses.
+     */
+    @Query("SELECT ub.stripeId, ub.business.id FROM UserBusiness ub WHERE ub.stripeId IS NOT NULL AND ub.stripeId <> ''")
+    List<Object[]> findStripeCustomerBusinessIds();
+
+    /**
+     * (businessId, createdAt) for every member. Used by the daily metrics rollup.
+     */
+    @Query("SELECT ub.business.id, ub.createdAt FROM UserBusiness ub WHERE ub.createdAt IS NOT NULL")
+    List<Object[]> findBusinessIdAndCreatedAt();
+
+    @Query("SELECT MIN(ub.createdAt) FROM UserBusiness ub")
+    LocalDateTime findEarliestCreatedAt();
+
+    /**
+     * Join times of members who joined a business within [start, end].
+     */
+    @Query("SELECT ub.createdAt FROM UserBusiness ub WHERE ub.business.id = :businessId " +
+           "AND ub.createdAt >= :start AND ub.createdAt <= :end")
+    List<LocalDateTime> findCreatedAtByBusinessIdBetween(@Param("businessId") Long businessId,
+                                                         @Param("start") LocalDateTime start,
+                                                         @Param("end") LocalDateTime end);
+
+    @Query("SELECT COUNT(ub) FROM UserBusiness ub WHERE ub.business.id = :businessId AND ub.createdAt < :before")
+    long countByBusinessIdCreatedBefore(@Param("businessId") Long businessId, @Param("before") LocalDateTime before);
 }
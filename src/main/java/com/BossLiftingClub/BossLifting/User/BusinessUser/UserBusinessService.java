@@ -3,6 +3,8 @@ package com.BossLiftingClub.BossLifting.User.BusinessUser;
 import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
 import com.BossLiftingClub.BossLifting.Email.EmailService;
+import com.BossLiftingClub.BossLifting.Email.EmailTemplateService;
+import com.BossLiftingClub.BossLifting.Payment.PaymentMethodStatusService;
 import com.BossLiftingClub.BossLifting.Stripe.StripeService;
 import com.BossLiftingClub.BossLifting.User.Membership.Membership;
 import com.BossLiftingClub.BossLifting.User.Membership.MembershipRepository;
@@ -15,9 +17,11 @@ import com.BossLiftingClub.BossLifting.Promo.PromoRepository;
 import com.BossLiftingClub.BossLifting.User.User;
 import com.BossLiftingClub.BossLifting.User.UserRepository;
 import com.stripe.exception.StripeException;
+import com.stripe.model.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,8 +29,13 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class UserBusinessService {
@@ -34,6 +43,9 @@ public class UserBusinessService {
     private static final Logger logger = LoggerFactory.getLogger(UserBusinessService.class);
     private static final BigDecimal ZERO_DOLLARS = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
 
+    // Set on a thread while a burst of webhook events runs; status recalculations are collected instead of run
+    private static final ThreadLocal<Set<Long>> deferredRecalculations = new ThreadLocal<>();
+
     @Autowired
     private UserBusinessRepository userBusinessRepository;
 
@@ -55,6 +67,9 @@ public class UserBusinessService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private EmailTemplateService emailTemplateService;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -67,6 +82,15 @@ public class UserBusinessService {
     @Autowired
     private PromoRepository promoRepository;
 
+    @Autowired
+    private UserBusinessMembershipRepository userBusinessMembershipRepository;
+
+    @Autowired
+    private PaymentMethodStatusService paymentMethodStatusService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Create a new user-business relationship
      */
@@ -146,6 +170,7 @@ public class UserBusinessService {
                 .orElseThrow(() -> new RuntimeException("User-business relationship not found"));
 
         userBusinessRepository.delete(userBusiness);
+        eventPublisher.publishEvent(new MemberAccessChangedEvent(userId));
     }
 
     /**
@@ -375,6 +400,9 @@ public class UserBusinessService {
 
         // Save and return
         userBusinessRepository.save(userBusiness);
+        if (status != null) {
+            eventPublisher.publishEvent(new MemberAccessChangedEvent(userId));
+        }
         return membership;
     }
     private static final Logger log = LoggerFactory.getLogger(MembershipService.class);
@@ -651,66 +679,24 @@ public class UserBusinessService {
             return;
         }
         
-        String businessName = business.getTitle() != null ? business.getTitle() : "CLT Lifting Club";
-        String businessContactEmail = business.getContactEmail() != null ? business.getContactEmail() : "contact@cltliftingclub.com";
+        EmailTemplateService.EmailBranding branding = emailTemplateService.getBranding(business);
+        String businessName = branding.businessNameOr("CLT Lifting Club");
+        String businessContactEmail = branding.contactEmailOr("contact@cltliftingclub.com");
         
         // Generate a temporary password (user can change it later)
         String tempPassword = "userpass1"; // This is the default password they already have
         
         String subject = "Welcome to " + businessName + " - Your Account Details";
-        String htmlContent = String.format(
-            "<!DOCTYPE html>" +
-            "<html>" +
-            "<head>" +
-            "<style>" +
-            "body { font-family: Arial, sans-serif; color: #333; line-height: 1.6; }" +
-            ".container { max-width: 600px; margin: 0 auto; padding: 20px; }" +
-            ".header { background-color: #f8f8f8; padding: 20px; text-align: center; border-radius: 5px 5px 0 0; }" +
-            ".content { padding: 20px; background-color: #fff; border: 1px solid #ddd; border-top: none; }" +
-            ".credentials { background-color: #f0f0f0; padding: 15px; border-radius: 5px; margin: 20px 0; }" +
-            ".credential-item { margin: 10px 0; }" +
-            ".label { font-weight: bold; color: #555; }" +
-            ".value { color: #333; font-family: monospace; }" +
-            ".button { display: inline-block; padding: 12px 24px; background-color: #007BFF; color: white !important; text-decoration: none; border-radius: 5px; font-weight: bold; margin: 20px 0; }" +
-            ".footer { font-size: 12px; color: #777; text-align: center; margin-top: 20px; padding-top: 20px; border-top: 1px solid #ddd; }" +
-            "</style>" +
-            "</head>" +
-            "<body>" +
-            "<div class=\"container\">" +
-            "<div class=\"header\">" +
-            "<h2>Welcome to %s!</h2>" +
-            "</div>" +
-            "<div class=\"content\">" +
-            "<p>Hello %s,</p>" +
-            "<p>Your account has been created! Here are your login credentials:</p>" +
-            "<div class=\"credentials\">" +
-            "<div class=\"credential-item\">" +
-            "<span class=\"label\">Email:</span> <span class=\"value\">%s</span>" +
-            "</div>" +
-            "<div class=\"credential-item\">" +
-            "<span class=\"label\">Password:</span> <span class=\"value\">%s</span>" +
-            "</div>" +
-            "%s" + // Phone number if available
-            "</div>" +
-            "<p><strong>Important:</strong> Please change your password after your first login for security.</p>" +
-            "<p>You can now log in to your account and manage your membership.</p>" +
-            "<p>If you have any questions, please contact us at %s.</p>" +
-            "<p>Welcome aboard!</p>" +
-            "</div>" +
-            "<div class=\"footer\">" +
-            "<p>This is an automated message. Please do not reply to this email.</p>" +
-            "</div>" +
-            "</div>" +
-            "</body>" +
-            "</html>",
-            businessName,
-            user.getFirstName() != null ? user.getFirstName() : "Member",
-            user.getEmail(),
-            tempPassword,
-            user.getPhoneNumber() != null ? 
-                String.format("<div class=\"credential-item\"><span class=\"label\">Phone:</span> <span class=\"value\">%s</span></div>", user.getPhoneNumber()) : "",
-            businessContactEmail
-        );
+        Map<String, Object> values = new HashMap<>();
+        values.put("businessName", businessName);
+        values.put("firstName", user.getFirstName() != null ? user.getFirstName() : "Member");
+        values.put("email", user.getEmail());
+        values.put("password", tempPassword);
+        values.put("phoneRow", user.getPhoneNumber() != null
+                ? emailTemplateService.render("onboarding-phone-row.html", Map.of("phoneNumber", user.getPhoneNumber()))
+                : "");
+        values.put("contactEmail", businessContactEmail);
+        String htmlContent = emailTemplateService.render("onboarding-credentials.html", values);
         
         emailService.sendBlastEmail(user.getEmail(), subject, htmlContent, businessName, businessContactEmail, businessContactEmail);
         logger.info("Onboarding email sent to user {} ({})", user.getId(), user.getEmail());
@@ -810,6 +796,49 @@ public class UserBusinessService {
                 .orElseThrow(() -> new RuntimeException("Membership not found with id: " + id));
     }
 
+    /**
+     * Copy a Stripe subscription's status, billing period, cancellation and pause state onto the membership,
+     * so member lists and scan-in can be served from the database. Does not save.
+     */
+    public void applyStripeSubscription(UserBusinessMembership membership, Subscription subscription) {
+        membership.setStripeStatus(subscription.getStatus());
+        membership.setCurrentPeriodStart(toLocalDateTime(subscription.getCurrentPeriodStart()));
+        membership.setCurrentPeriodEnd(toLocalDateTime(subscription.getCurrentPeriodEnd()));
+        membership.setCancelAt(toLocalDateTime(subscription.getCancelAt()));
+        membership.setCancelAtPeriodEnd(Boolean.TRUE.equals(subscription.getCancelAtPeriodEnd()));
+        if (subscription.getPauseCollection() != null) {
+            membership.setPauseCollectionBehavior(subscription.getPauseCollection().getBehavior());
+            membership.setPauseResumesAt(toLocalDateTime(subscription.getPauseCollection().getResumesAt()));
+        } else {
+            membership.setPauseCollectionBehavior(null);
+            membership.setPauseResumesAt(null);
+        }
+        membership.setSubscriptionSyncedAt(LocalDateTime.now());
+    }
+
+    /**
+     * Store the latest state of a Stripe subscription on the membership that owns it
+     * @return false if no membership references the subscription
+     */
+    @Transactional
+    public boolean recordStripeSubscription(Subscription subscription) {
+        if (subscription == null || subscription.getId() == null) {
+            return false;
+        }
+        Optional<UserBusinessMembership> membership = userBusinessMembershipRepository.findByStripeSubscriptionId(subscription.getId());
+        if (membership.isEmpty()) {
+            return false;
+        }
+        applyStripeSubscription(membership.get(), subscription);
+        userBusinessMembershipRepository.save(membership.get());
+        eventPublisher.publishEvent(new MemberAccessChangedEvent(membership.get().getUserBusiness().getUser().getId()));
+        return true;
+    }
+
+    private static LocalDateTime toLocalDateTime(Long epochSecond) {
+        return epochSecond != null ? LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC) : null;
+    }
+
     /**
      * Remove a UserBusinessMembership by its ID
      * @param userBusinessMembershipId The ID of the membership to remove
@@ -834,6 +863,7 @@ public class UserBusinessService {
                     LocalDateTime periodEnd = stripeService.cancelSubscriptionAtPeriodEnd(stripeSubscriptionId, null);
                     membership.setStatus("CANCELLING");
                     membership.setEndDate(periodEnd);
+                    membership.setCancelAtPeriodEnd(true);
                     System.out.println("Scheduled Stripe subscription cancellation: " + stripeSubscriptionId + " at period end: " + periodEnd);
 
                     userBusinessRepository.save(userBusiness);
@@ -899,6 +929,7 @@ public class UserBusinessService {
                     LocalDateTime periodEnd = stripeService.cancelSubscriptionAtPeriodEnd(stripeSubscriptionId, null);
                     membership.setStatus("CANCELLING");
                     membership.setEndDate(periodEnd);
+                    membership.setCancelAtPeriodEnd(true);
                     userBusinessRepository.save(userBusiness);
                     return membership;
                 case "skip_1":
@@ -925,6 +956,7 @@ public class UserBusinessService {
                     stripeService.cancelSubscriptionAtDate(stripeSubscriptionId, customCancelDate, null);
                     membership.setStatus("CANCELLING");
                     membership.setEndDate(customCancelDate);
+                    membership.setCancelAt(customCancelDate);
                     userBusinessRepository.save(userBusiness);
                     return membership;
                 default:
@@ -1079,6 +1111,7 @@ public class UserBusinessService {
 
         UserBusiness userBusiness = membership.getUserBusiness();
         userBusinessRepository.save(userBusiness);
+        eventPublisher.publishEvent(new MemberAccessChangedEvent(userBusiness.getUser().getId()));
 
         return membership;
     }
@@ -1133,6 +1166,7 @@ public class UserBusinessService {
         // Save
         UserBusiness userBusiness = membership.getUserBusiness();
         userBusinessRepository.save(userBusiness);
+        eventPublisher.publishEvent(new MemberAccessChangedEvent(userBusiness.getUser().getId()));
 
         return membership;
     }
@@ -1236,159 +1270,59 @@ public class UserBusinessService {
     }
 
     /**
-     * Calculate and update the status and user type for a UserBusiness relationship
-     * This method implements the same logic as the frontend calculateMemberStatus function
-     * 
-     * Rules:
-     * 1. Waiver Required: Always override if waiver not signed
-     * 2. Cancelled: All memberships cancelled (takes precedence over everything except waiver)
-     * 3. Free User: NO card AND waiver signed AND no memberships = Inactive
-     * 4. Pending: Has card + No memberships + Never had memberships
-     * 5. Paused: Any membership is paused
-     * 6. Delinquent: isDelinquent = true AND has memberships
-     * 7. Active: Has active membership(s)
-     * 8. Inactive: Default fallback
+     * Calculate and update the status and user type for a UserBusiness relationship.
+     * The rules themselves live in {@link MemberStatusRules}. Card presence comes from the stored
+     * payment-method state, so Stripe is only asked when that is missing or stale.
      */
     @Transactional
     public void calculateAndUpdateStatus(UserBusiness userBusiness) {
-        User user = userBusiness.getUser();
-        
-        // Check if user has a card/payment method - actually check Stripe for default payment method
-        boolean hasCard = false;
-        String stripeCustomerId = userBusiness.getStripeId();
-        if (stripeCustomerId != null && !stripeCustomerId.isEmpty() && !stripeCustomerId.equals("null")) {
-            try {
-                hasCard = stripeService.hasDefaultPaymentMethod(stripeCustomerId, null);
-            } catch (Exception e) {
-                // If check fails, default to false (no card)
-                logger.warn("Failed to check payment method for customer {}: {}", stripeCustomerId, e.getMessage());
-                hasCard = false;
-            }
-        }
-        
-        // Check if waiver is signed
-        boolean hasWaiver = user.getWaiverSignedDate() != null;
-        
-        // Get memberships
-        List<UserBusinessMembership> memberships = userBusiness.getUserBusinessMemberships();
-        boolean hasMemberships = memberships != null && !memberships.isEmpty();
-        
-        // Get flags
-        Boolean isDelinquent = userBusiness.getIsDelinquent();
-        boolean isDelinquentFlag = isDelinquent != null && isDelinquent;
-        Boolean isPaused = userBusiness.getIsPaused();
-        boolean isPausedFlag = isPaused != null && isPaused;
-        
-        String calculatedStatus;
-        String calculatedUserType;
-        
-        // RULE 1: Check waiver first - if no waiver, ALWAYS show "Waiver Required"
-        if (!hasWaiver) {
-            calculatedStatus = "Waiver Required";
-            calculatedUserType = !hasCard ? "Free User" : "Member";
-            userBusiness.setCalculatedStatus(calculatedStatus);
-            userBusiness.setCalculatedUserType(calculatedUserType);
-            userBusinessRepository.save(userBusiness);
+        Set<Long> deferred = deferredRecalculations.get();
+        if (deferred != null && userBusiness.getId() != null) {
+            deferred.add(userBusiness.getId());
             return;
         }
+        User user = userBusiness.getUser();
         
-        // Waiver is signed - continue with status determination
+        boolean hasCard = paymentMethodStatusService.hasPaymentMethod(userBusiness);
         
-        // RULE 2: Check if all memberships are cancelled FIRST
-        if (hasMemberships && memberships != null) {
-            boolean allCanceled = memberships.stream()
-                    .allMatch(m -> "CANCELLED".equalsIgnoreCase(m.getStatus()) || 
-                                 "CANCELED".equalsIgnoreCase(m.getStatus()));
-            
-            if (allCanceled) {
-                calculatedStatus = "Canceled";
-                calculatedUserType = "Member";
-                userBusiness.setCalculatedStatus(calculatedStatus);
-                userBusiness.setCalculatedUserType(calculatedUserType);
-                userBusinessRepository.save(userBusiness);
-                return;
-            }
-        }
+        List<String> membershipStatuses = userBusiness.getUserBusinessMemberships() == null
+                ? List.of()
+                : userBusiness.getUserBusinessMemberships().stream().map(UserBusinessMembership::getStatus).toList();
         
-        // RULE 3: Free User - NO card AND waiver signed AND no memberships
-        if (!hasCard && !hasMemberships) {
-            calculatedStatus = "Inactive";
-            calculatedUserType = "Free User";
-            userBusiness.setCalculatedStatus(calculatedStatus);
-            userBusiness.setCalculatedUserType(calculatedUserType);
-            userBusinessRepository.save(userBusiness);
-            return;
-        }
-        
-        // Has card but NO membership
-        if (hasCard && !hasMemberships) {
-            // RULE 4: Pending - Has card + No memberships
-            calculatedStatus = "Pending";
-            calculatedUserType = "Member";
-            userBusiness.setCalculatedStatus(calculatedStatus);
-            userBusiness.setCalculatedUserType(calculatedUserType);
-            userBusinessRepository.save(userBusiness);
-            return;
-        }
+        MemberStatusRules.Result result = MemberStatusRules.evaluate(
+                hasCard,
+                user.getWaiverSignedDate() != null,
+                membershipStatuses,
+                Boolean.TRUE.equals(userBusiness.getIsPaused()),
+                Boolean.TRUE.equals(userBusiness.getIsDelinquent()));
         
-        // Has card and memberships - check other membership statuses
-        if (hasCard && hasMemberships && memberships != null) {
-            // RULE 5: Check if user is paused (from isPaused flag)
-            if (isPausedFlag) {
-                calculatedStatus = "Paused / On Hold";
-                calculatedUserType = "Member";
-                userBusiness.setCalculatedStatus(calculatedStatus);
-                userBusiness.setCalculatedUserType(calculatedUserType);
-                userBusinessRepository.save(userBusiness);
-                return;
-            }
-            
-            // RULE 5.5: Check if any membership is PAST_DUE (mirrors Stripe past_due status)
-            boolean hasPastDueMembership = memberships.stream()
-                    .anyMatch(m -> "PAST_DUE".equalsIgnoreCase(m.getStatus()));
-            
-            if (hasPastDueMembership) {
-                calculatedStatus = "Delinquent";
-                calculatedUserType = "Member";
-                userBusiness.setIsDelinquent(true); // Ensure isDelinquent is set
-                userBusiness.setCalculatedStatus(calculatedStatus);
-                userBusiness.setCalculatedUserType(calculatedUserType);
-                userBusinessRepository.save(userBusiness);
-                return;
-            }
-            
-            // RULE 6: Check if user is delinquent
-            if (isDelinquentFlag) {
-                calculatedStatus = "Delinquent";
-                calculatedUserType = "Member";
-                userBusiness.setCalculatedStatus(calculatedStatus);
-                userBusiness.setCalculatedUserType(calculatedUserType);
-                userBusinessRepository.save(userBusiness);
-                return;
-            }
-            
-            // RULE 7: Has active membership(s)
-            boolean hasActiveMembership = memberships.stream()
-                    .anyMatch(m -> "ACTIVE".equalsIgnoreCase(m.getStatus()));
-            
-            if (hasActiveMembership) {
-                calculatedStatus = "Active";
-                calculatedUserType = "Member";
-                userBusiness.setCalculatedStatus(calculatedStatus);
-                userBusiness.setCalculatedUserType(calculatedUserType);
-                userBusinessRepository.save(userBusiness);
-                return;
-            }
+        if (result.delinquent() && !Boolean.TRUE.equals(userBusiness.getIsDelinquent())) {
+            userBusiness.setIsDelinquent(true); // A PAST_DUE membership marks the member delinquent
         }
-        
-        // Default fallback
-        calculatedStatus = "Inactive";
-        calculatedUserType = hasCard ? "Member" : "Free User";
-        userBusiness.setCalculatedStatus(calculatedStatus);
-        userBusiness.setCalculatedUserType(calculatedUserType);
+        userBusiness.setCalculatedStatus(result.calculatedStatus());
+        userBusiness.setCalculatedUserType(result.calculatedUserType());
         userBusinessRepository.save(userBusiness);
+        eventPublisher.publishEvent(new MemberAccessChangedEvent(user.getId()));
     }
     
+    /**
+     * Collect, rather than run, the status recalculations requested on this thread until
+     * {@link #endDeferredStatusRecalculation}. Lets a burst of webhook events for one member recalculate once.
+     */
+    public void beginDeferredStatusRecalculation() {
+        deferredRecalculations.set(new LinkedHashSet<>());
+    }
+
+    /**
+     * Stop collecting on this thread and return the UserBusiness ids whose status the caller must now
+     * recalculate, e.g. with {@link #recalculateStatus}.
+     */
+    public Set<Long> endDeferredStatusRecalculation() {
+        Set<Long> deferred = deferredRecalculations.get();
+        deferredRecalculations.remove();
+        return deferred != null ? deferred : Set.of();
+    }
+
     /**
      * Convenience method to recalculate status for a UserBusiness by ID
      */
@@ -0,0 +1,10 @@
+package com.BossLiftingClub.BossLifting.User;
+
+/**
+ * Just what a bulk send needs per user, without loading the entity graph.
+ */
+public interface EmailRecipientProjection {
+    Long getId();
+    String getEmail();
+    String getUserStripeMemberId();
+}
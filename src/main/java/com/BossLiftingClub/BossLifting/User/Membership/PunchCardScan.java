@@ -23,6 +23,10 @@ public class PunchCardScan {
     @Column(name = "scanned_at", nullable = false)
     private LocalDateTime scannedAt = LocalDateTime.now();
 
+    // Duplicate-window bucket of scannedAt; unique per membership, so one card is redeemed at most once per bucket
+    @Column(name = "scan_window")
+    private Long scanWindow;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -47,4 +51,12 @@ public class PunchCardScan {
     public void setScannedAt(LocalDateTime scannedAt) {
         this.scannedAt = scannedAt;
     }
+
+    public Long getScanWindow() {
+        return scanWindow;
+    }
+
+    public void setScanWindow(Long scanWindow) {
+        this.scanWindow = scanWindow;
+    }
 }
@@ -1,24 +1,42 @@
 package com.BossLiftingClub.BossLifting.User.Membership;
 
+import com.BossLiftingClub.BossLifting.Realtime.BusinessActivityEvent;
+import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusiness;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessMembership;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessMembershipRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 public class PunchCardScanService {
+    private static final Duration DUPLICATE_WINDOW = Duration.ofHours(1);
+
     @Autowired
     private PunchCardScanRepository punchCardScanRepository;
 
     @Autowired
     private UserBusinessMembershipRepository userBusinessMembershipRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
-     * Process a punch card scan with double-scan protection (1 hour window)
+     * Process a punch card scan with double-scan protection (1 hour window).
+     *
+     * The punch is taken by one conditional update that checks the remaining punches, the expiry date and
+     * the last punch time together, so concurrent scans of the same card cannot both pass the checks or
+     * lose a decrement. The scan row carries its hour bucket under a unique (membership, bucket)
+     * constraint as a second guard; two redemptions at least an hour apart always fall in different buckets.
+     *
      * @param membershipId The UserBusinessMembership ID
      * @return true if scan was successful, false if it was a duplicate within 1 hour
      */
@@ -33,22 +51,25 @@ public class PunchCardScanService {
             throw new RuntimeException("This is not a punch card membership");
         }
 
-        // Check if punches are remaining
-        if (membership.getPunchesRemaining() == null || membership.getPunchesRemaining() <= 0) {
-            throw new RuntimeException("No punches remaining on this card");
-        }
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        int redeemed = userBusinessMembershipRepository.redeemPunch(membershipId, now, now.minus(DUPLICATE_WINDOW));
 
-        // Check if card has expired
-        if (membership.getPunchesExpiryDate() != null && 
-            membership.getPunchesExpiryDate().isBefore(LocalDateTime.now())) {
-            throw new RuntimeException("This punch card has expired");
-        }
+        // The update cleared the persistence context; this reads the row as it is now
+        membership = userBusinessMembershipRepository.findById(membershipId)
+                .orElseThrow(() -> new RuntimeException("Membership not found"));
 
-        // Double-scan protection: Check for scans within the last hour
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-        List<PunchCardScan> recentScans = punchCardScanRepository.findRecentScans(membershipId, oneHourAgo);
+        if (redeemed == 0) {
+            // Check if punches are remaining
+            if (membership.getPunchesRemaining() == null || membership.getPunchesRemaining() <= 0) {
+                throw new RuntimeException("No punches remaining on this card");
+            }
+
+            // Check if card has expired
+            if (membership.getPunchesExpiryDate() != null &&
+                membership.getPunchesExpiryDate().isBefore(now)) {
+                throw new RuntimeException("This punch card has expired");
+            }
 
-        if (!recentScans.isEmpty()) {
             // Duplicate scan within 1 hour - don't process
             return false;
         }
@@ -56,14 +77,27 @@ public class PunchCardScanService {
         // Record the scan
         PunchCardScan scan = new PunchCardScan();
         scan.setUserBusinessMembership(membership);
-        scan.setScannedAt(LocalDateTime.now());
-        punchCardScanRepository.save(scan);
+        scan.setScannedAt(now);
+        scan.setScanWindow(scanWindow(now));
+        punchCardScanRepository.saveAndFlush(scan);
+
+        int remaining = membership.getPunchesRemaining();
 
-        // Decrement punch count
-        int remaining = membership.getPunchesRemaining() - 1;
-        membership.setPunchesRemaining(remaining);
-        userBusinessMembershipRepository.save(membership);
+        UserBusiness userBusiness = membership.getUserBusiness();
+        if (userBusiness != null && userBusiness.getBusiness() != null) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("userId", userBusiness.getUser() != null ? userBusiness.getUser().getId() : null);
+            data.put("membershipId", membershipId);
+            data.put("punchesRemaining", remaining);
+            data.put("scannedAt", scan.getScannedAt());
+            eventPublisher.publishEvent(new BusinessActivityEvent(userBusiness.getBusiness().getId(), "punch-card-scan", data));
+        }
 
         return true;
     }
+
+    /** Index of the duplicate window containing the time, counted on the wall clock. */
+    static long scanWindow(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), DUPLICATE_WINDOW.getSeconds());
+    }
 }
@@ -1,6 +1,7 @@
 package com.BossLiftingClub.BossLifting.User.PotentialUser;
 
 import com.BossLiftingClub.BossLifting.Email.EmailService;
+import com.BossLiftingClub.BossLifting.Email.EmailTemplateService;
 import com.BossLiftingClub.BossLifting.Promo.Promo;
 import com.BossLiftingClub.BossLifting.Promo.PromoRepository;
 import com.BossLiftingClub.BossLifting.User.FirebaseService;
@@ -159,6 +160,9 @@ class PotentialUserController {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private EmailTemplateService emailTemplateService;
+
     @Autowired
     private PotentialUserRepository potentialUserRepository;
 
@@ -219,6 +223,13 @@ class PotentialUserController {
         String businessName = "CLT Lifting Club";
         String businessContactEmail = "contact@cltliftingclub.com";
 
+        // The body is the same for every recipient, so it is rendered once
+        Map<String, Object> values = new HashMap<>();
+        values.put("businessName", businessName);
+        values.put("contactEmail", businessContactEmail);
+        String htmlContent = emailTemplateService.render("social-event.html", values);
+        String subject = "Don't Miss This! – " + businessName + " x Kingdom Kickbacks Social Event";
+
         for (PotentialUser potentialUser : potentialUsers) {
             String email = potentialUser.getEmail();
             if (email == null || email.isEmpty()) {
@@ -227,63 +238,7 @@ class PotentialUserController {
             }
 
             try {
-                String htmlContent = """
-    <!DOCTYPE html>
-    <html>
-    <head>
-        <style>
-            body { font-family: Arial, sans-serif; color: #333; }
-            .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-            .header { background-color: #f8f8f8; padding: 10px; text-align: center; }
-            .content { padding: 20px; }
-            .footer { font-size: 12px; color: #777; text-align: center; }
-            a.button {
-                display: inline-block;
-                padding: 10px 15px;
-                background-color: #007BFF;
-                color: white !important;
-                text-decoration: none;
-                border-radius: 5px;
-                font-weight: bold;
-            }
-            a.button:hover {
-                background-color: #0056b3;
-            }
-        </style>
-    </head>
-    <body>
-        <div class="container">
-            <div class="header">
-                <h2>%s</h2>
-            </div>
-            <div class="content">
-                <p>%s is teaming up with Kingdom Kickbacks for an epic Open Gym Social — a day packed with fitness, connections, and memories you won’t want to miss.</p>
-                <p><strong>Here’s what’s going down:</strong></p>
-                <ul>
-                    <li>Food Truck: Smart Eats</li>
-                    <li>Coffee Cart: Breezeway Coffee</li>
-                    <li>Cold Plunge: Plunge House</li>
-                    <li>Saunas to recover and recharge</li>
-                    <li>Live DJ for the perfect workout vibe</li>
-                    <li>Full Gym Access + fun fitness challenges</li>
-                    <li><strong>FREE for you and your friends</strong></li>
-                </ul>
-                <p><strong>Date:</strong> Saturday, August 16th | 10 AM – 1 PM</p>
-                <p><strong>Location:</strong> CLT Lifting Club, 3100 South Boulevard, Charlotte, NC 28203</p>
-                <p><strong>Bonus:</strong> Post a workout or event hype photo/video on August 16th using #CLTLiftingClub and tag @CLTLiftingClub for your chance to win a free CLT tee.</p>
-                <p><a href="https://www.evite.com/signup-sheet/6025706806444032/?utm_campaign=send_sharable_link&utm_source=evitelink&utm_medium=sharable_invite" class="button">RSVP NOW</a> to let us know you’re coming, walk-ins are still welcome!</p>
-                <p>Let’s make this the best South End community event of the summer.</p>
-                <p>See you there,<br>The %s Team</p>
-            </div>
-            <div class="footer">
-                <p>%s | %s</p>
-            </div>
-        </div>
-    </body>
-    </html>
-    """.formatted(businessName, businessName, businessName, businessName, businessContactEmail);
-
-                emailService.sendBlastEmail(email, "Don't Miss This! – " + businessName + " x Kingdom Kickbacks Social Event", htmlContent, businessName, businessContactEmail, businessContactEmail);
+                emailService.sendBlastEmail(email, subject, htmlContent, businessName, businessContactEmail, businessContactEmail);
 
                 successes.add("PotentialUser ID " + potentialUser.getId() + ": Email sent to " + email);
             } catch (Exception e) {
@@ -1,6 +1,6 @@
 package com.BossLiftingClub.BossLifting.User.SignInLog;
 
-import com.BossLiftingClub.BossLifting.User.User;
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
 import com.BossLiftingClub.BossLifting.User.UserRepository;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -13,42 +13,106 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/scan-ins")
 public class ScanInController {
-    private final SignInLogRepository signInLogRepository;
     private final UserRepository userRepository;
+    private final SignInLogWriter signInLogWriter;
+    private final SignInHistoryService signInHistoryService;
+    private final SignInLogPartitionService signInLogPartitionService;
+    private final BusinessRepository businessRepository;
 
-    public ScanInController(SignInLogRepository signInLogRepository, UserRepository userRepository) {
-        this.signInLogRepository = signInLogRepository;
+    public ScanInController(UserRepository userRepository,
+                            SignInLogWriter signInLogWriter, SignInHistoryService signInHistoryService,
+                            SignInLogPartitionService signInLogPartitionService, BusinessRepository businessRepository) {
         this.userRepository = userRepository;
+        this.signInLogWriter = signInLogWriter;
+        this.signInHistoryService = signInHistoryService;
+        this.signInLogPartitionService = signInLogPartitionService;
+        this.businessRepository = businessRepository;
     }
 
+    /**
+     * Scan-ins of every business in [startDate, endDate], newest first, at most {@code limit} (capped at
+     * {@link SignInHistoryService#MAX_ALL_BUSINESSES_PAGE}) per request. Pass the last row's scanTime and id
+     * as beforeTime and beforeId to continue.
+     * @deprecated unscoped; use {@code /api/scan-ins/business/{businessTag}}
+     */
+    @Deprecated
     @GetMapping
     public List<SignInLogProjection> getScanIns(
             @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        return signInLogRepository.findAllWithFilters(start, end);
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "" + SignInHistoryService.MAX_ALL_BUSINESSES_PAGE) int limit) {
+        return signInHistoryService.allBusinessesPage(start, end, beforeTime, beforeId, limit);
+    }
+
+    /**
+     * One business's scan-ins in [startDate, endDate), newest first, one keyset page at a time. Pass
+     * nextCursor's beforeTime and beforeId from the previous page to continue.
+     */
+    @GetMapping("/business/{businessTag}")
+    public ResponseEntity<?> getBusinessScanIns(
+            @PathVariable String businessTag,
+            @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(signInHistoryService.businessPage(businessTag, start, end, beforeTime, beforeId, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
-     * Simulate a scan-in for a user
+     * Simulate a scan-in for a user. The row is written behind; an Idempotency-Key makes retries safe.
      */
     @PostMapping("/{userId}")
-    public ResponseEntity<?> createScanIn(@PathVariable Long userId) {
+    public ResponseEntity<?> createScanIn(@PathVariable Long userId,
+                                          @RequestParam(required = false) String businessTag,
+                                          @RequestHeader(value = "Idempotency-Key", required = false) String scanKey) {
         try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (!userRepository.existsById(userId)) {
+                throw new RuntimeException("User not found");
+            }
+            if (scanKey != null && scanKey.length() > 64) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Idempotency-Key must be at most 64 characters"));
+            }
 
-            SignInLog log = new SignInLog();
-            log.setUser(user);
-            log.setSignInTime(LocalDateTime.now());
-            signInLogRepository.save(log);
+            Long businessId = null;
+            if (businessTag != null) {
+                businessId = businessRepository.findByBusinessTag(businessTag)
+                        .orElseThrow(() -> new RuntimeException("Business not found"))
+                        .getId();
+            }
+
+            LocalDateTime signInTime = LocalDateTime.now();
+            signInLogWriter.submit(userId, businessId, signInTime, scanKey);
 
             return ResponseEntity.ok(Map.of(
                     "message", "Scan-in recorded successfully",
                     "userId", userId,
-                    "time", log.getSignInTime()
+                    "time", signInTime
             ));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Sign-in write-behind queue depth, throughput and backpressure counters
+     */
+    @GetMapping("/ingestion-stats")
+    public Map<String, Object> getIngestionStats() {
+        return signInLogWriter.getStats();
+    }
+
+    /**
+     * Partitions, retention policy and the last maintenance run
+     */
+    @GetMapping("/storage")
+    public Map<String, Object> getStorageStatus() {
+        return signInLogPartitionService.getStatus();
+    }
+}
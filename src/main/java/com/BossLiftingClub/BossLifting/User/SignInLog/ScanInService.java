@@ -0,0 +1,256 @@
+package com.BossLiftingClub.BossLifting.User.SignInLog;
+
+import com.BossLiftingClub.BossLifting.User.BusinessUser.MemberAccessChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Front-desk scan-in decided from memory.
+ *
+ * Members are indexed by entry QR token: user id, name, and for each business they belong to, the
+ * userBusinessId and stored status. The index is warmed from the database at startup, a token that is not
+ * indexed is loaded on first scan, and {@link MemberAccessChangedEvent} drops a user's entry so the next scan
+ * reloads it. The last scan time per user is kept alongside it for the cooldown; claiming a scan is atomic,
+ * so two turnstiles reading the same card at once record it only once. The sign-in log row is handed to
+ * {@link SignInLogWriter} after the response has been decided.
+ *
+ * A scan may carry a key (the scanner's idempotency key). A repeated key within the cooldown window gets
+ * the original result back instead of a cooldown rejection, and is not logged again.
+ *
+ * Unknown tokens are never cached, so a member created after warmup is found on their first scan, and an
+ * indexed user scanning at a business they are not indexed for is reloaded once before being turned away,
+ * so joining a business needs no invalidation.
+ */
+@Service
+public class ScanInService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanInService.class);
+
+    private static final String MEMBER_COLUMNS =
+            "SELECT u.id AS user_id, u.entry_qrcode_token, u.first_name, u.last_name, " +
+            "ub.id AS user_business_id, ub.business_id, b.business_tag, ub.calculated_status, ub.calculated_user_type " +
+            "FROM users u ";
+
+    private static final String LOAD_TOKEN_SQL = MEMBER_COLUMNS +
+            "LEFT JOIN user_business ub ON ub.user_id = u.id " +
+            "LEFT JOIN businesses b ON b.id = ub.business_id " +
+            "WHERE u.entry_qrcode_token = ?";
+
+    private static final String WARM_SQL = MEMBER_COLUMNS +
+            "JOIN user_business ub ON ub.user_id = u.id " +
+            "JOIN businesses b ON b.id = ub.business_id " +
+            "WHERE u.entry_qrcode_token IS NOT NULL";
+
+    private static final String RECENT_SCANS_SQL =
+            "SELECT user_id, MAX(sign_in_time) AS last_scan FROM sign_in_logs WHERE sign_in_time >= ? GROUP BY user_id";
+
+    public enum Outcome { ADMITTED, UNKNOWN_TOKEN, NOT_A_MEMBER, COOLDOWN }
+
+    /** A user's standing in one business. */
+    public record MemberAccess(long userBusinessId, long businessId, String calculatedStatus, String calculatedUserType) {}
+
+    /** Everything a scan needs to know about the owner of one entry token. */
+    public record IndexedUser(long userId, String firstName, String lastName, Map<String, MemberAccess> businesses) {}
+
+    /**
+     * Result of a scan. {@code user} is set unless the token is unknown, {@code member} only when the user
+     * belongs to the business. {@code scanTime} is the recorded scan, or on cooldown the earlier scan it hit.
+     */
+    public record ScanResult(Outcome outcome, IndexedUser user, MemberAccess member, LocalDateTime scanTime) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration cooldown;
+    private final Cache<String, IndexedUser> index;
+    private final Map<Long, String> tokensByUser = new ConcurrentHashMap<>();
+    private final Map<Long, LocalDateTime> lastScans = new ConcurrentHashMap<>();
+    private final Cache<String, ScanResult> resultsByScanKey;
+    private final SignInLogWriter signInLogWriter;
+
+    public ScanInService(JdbcTemplate jdbcTemplate,
+                         SignInLogWriter signInLogWriter,
+                         @Value("${scan-in.cooldown:5m}") Duration cooldown,
+                         @Value("${scan-in.index.max-size:100000}") long maxSize,
+                         @Value("${scan-in.index.max-age:30m}") Duration maxAge) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.signInLogWriter = signInLogWriter;
+        this.cooldown = cooldown;
+        this.resultsByScanKey = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(cooldown)
+                .build();
+        this.index = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxAge)
+                .removalListener((String token, IndexedUser user, RemovalCause cause) -> {
+                    if (user != null && cause.wasEvicted()) {
+                        tokensByUser.remove(user.userId(), token);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Load every member's token and the scans still inside the cooldown window.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        long started = System.currentTimeMillis();
+        try {
+            Map<String, IndexedUser> users = new HashMap<>();
+            jdbcTemplate.query(WARM_SQL, rs -> {
+                collectRow(users, rs);
+            });
+            users.forEach(this::put);
+
+            jdbcTemplate.query(RECENT_SCANS_SQL, rs -> {
+                lastScans.merge(rs.getLong("user_id"), rs.getTimestamp("last_scan").toLocalDateTime(),
+                        (a, b) -> a.isAfter(b) ? a : b);
+            }, Timestamp.valueOf(LocalDateTime.now().minus(cooldown)));
+
+            logger.info("Scan-in index warmed with {} tokens and {} recent scans in {} ms",
+                    users.size(), lastScans.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            // Scans still work; tokens are loaded one at a time as they are scanned
+            logger.error("Failed to warm scan-in index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decide a scan at the business and, if admitted, queue its sign-in log row.
+     * @param scanKey the scanner's idempotency key for this scan, or null
+     */
+    public ScanResult scan(String businessTag, String token, String scanKey) {
+        if (scanKey == null) {
+            return decide(businessTag, token, null);
+        }
+        // Concurrent retries of one key wait for the first to be decided
+        return resultsByScanKey.get(businessTag + ":" + scanKey, key -> decide(businessTag, token, scanKey));
+    }
+
+    private ScanResult decide(String businessTag, String token, String scanKey) {
+        IndexedUser user = index.getIfPresent(token);
+        boolean fromIndex = user != null;
+        if (!fromIndex) {
+            user = load(token);
+        }
+        if (user == null) {
+            return new ScanResult(Outcome.UNKNOWN_TOKEN, null, null, null);
+        }
+        MemberAccess member = user.businesses().get(businessTag);
+        if (member == null && fromIndex) {
+            user = load(token);
+            if (user == null) {
+                return new ScanResult(Outcome.UNKNOWN_TOKEN, null, null, null);
+            }
+            member = user.businesses().get(businessTag);
+        }
+        if (member == null) {
+            return new ScanResult(Outcome.NOT_A_MEMBER, user, null, null);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime windowStart = now.minus(cooldown);
+        boolean[] admitted = new boolean[1];
+        LocalDateTime lastScan = lastScans.compute(user.userId(), (id, last) -> {
+            if (last != null && last.isAfter(windowStart)) {
+                return last;
+            }
+            admitted[0] = true;
+            return now;
+        });
+        if (!admitted[0]) {
+            return new ScanResult(Outcome.COOLDOWN, user, member, lastScan);
+        }
+
+        signInLogWriter.submit(user.userId(), member.businessId(), now, scanKey);
+        return new ScanResult(Outcome.ADMITTED, user, member, now);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberAccessChanged(MemberAccessChangedEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        String token = tokensByUser.remove(event.getUserId());
+        if (token != null) {
+            index.invalidate(token);
+        }
+    }
+
+    /**
+     * Drop cooldown entries that can no longer block a scan.
+     */
+    @Scheduled(fixedDelayString = "${scan-in.cooldown-purge-interval-ms:60000}")
+    public void purgeExpiredCooldowns() {
+        LocalDateTime windowStart = LocalDateTime.now().minus(cooldown);
+        lastScans.values().removeIf(last -> !last.isAfter(windowStart));
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = index.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("indexedTokens", index.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("usersInCooldown", lastScans.size());
+        return result;
+    }
+
+    private IndexedUser load(String token) {
+        Map<String, IndexedUser> loaded = new HashMap<>();
+        jdbcTemplate.query(LOAD_TOKEN_SQL, rs -> {
+            collectRow(loaded, rs);
+        }, token);
+        IndexedUser user = loaded.get(token);
+        if (user != null) {
+            put(token, user);
+        } else {
+            index.invalidate(token);
+        }
+        return user;
+    }
+
+    private void put(String token, IndexedUser user) {
+        index.put(token, user);
+        tokensByUser.put(user.userId(), token);
+    }
+
+    /** Add one user/business row to the users being built, keyed by token. */
+    private static void collectRow(Map<String, IndexedUser> users, ResultSet rs) throws SQLException {
+        String token = rs.getString("entry_qrcode_token");
+        IndexedUser user = users.get(token);
+        if (user == null) {
+            user = new IndexedUser(rs.getLong("user_id"), rs.getString("first_name"), rs.getString("last_name"),
+                    new HashMap<>());
+            users.put(token, user);
+        }
+        String businessTag = rs.getString("business_tag");
+        if (businessTag != null) {
+            user.businesses().put(businessTag, new MemberAccess(rs.getLong("user_business_id"), rs.getLong("business_id"),
+                    rs.getString("calculated_status"), rs.getString("calculated_user_type")));
+        }
+    }
+}
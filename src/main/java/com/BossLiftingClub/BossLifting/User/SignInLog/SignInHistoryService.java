@@ -0,0 +1,189 @@
+package com.BossLiftingClub.BossLifting.User.SignInLog;
+
+import com.BossLiftingClub.BossLifting.Business.Business;
+import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded views of a user's sign-in history. Scan responses get the last few visits plus a visit count
+ * and current streak from aggregate queries; the full history is read a page at a time with a keyset
+ * cursor on (signInTime, id), so no request loads every row a member has ever created. A business's scans
+ * are paged the same way within a date range.
+ */
+@Service
+public class SignInHistoryService {
+
+    /** Hard cap on one page of the every-business scan list. */
+    public static final int MAX_ALL_BUSINESSES_PAGE = 1000;
+
+    private final SignInLogRepository signInLogRepository;
+    private final BusinessRepository businessRepository;
+    private final int recentVisits;
+    private final int streakMaxDays;
+
+    /** Recent visits (newest first), total visits and consecutive days with a visit up to today. */
+    public record VisitSummary(Set<SignInLogDto> recentVisits, long visitCount, int currentStreakDays) {}
+
+    public SignInHistoryService(SignInLogRepository signInLogRepository,
+                                BusinessRepository businessRepository,
+                                @Value("${sign-in.recent-visits:10}") int recentVisits,
+                                @Value("${sign-in.streak.max-days:365}") int streakMaxDays) {
+        this.signInLogRepository = signInLogRepository;
+        this.businessRepository = businessRepository;
+        this.recentVisits = Math.max(1, recentVisits);
+        this.streakMaxDays = Math.max(1, streakMaxDays);
+    }
+
+    /**
+     * Summarize the user's visits. {@code pendingScan}, if set, is a scan that has been queued but may not
+     * have been written yet; it is included even if it has not reached the table.
+     */
+    @Transactional(readOnly = true)
+    public VisitSummary summarize(Long userId, LocalDateTime pendingScan) {
+        long visitCount = signInLogRepository.countByUserId(userId);
+        List<SignInLog> recent = signInLogRepository.findByUserIdOrderBySignInTimeDescIdDesc(userId,
+                PageRequest.of(0, recentVisits));
+
+        Set<SignInLogDto> visits = new LinkedHashSet<>();
+        boolean pendingWritten = pendingScan == null
+                || recent.stream().anyMatch(log -> pendingScan.equals(log.getSignInTime()));
+        if (!pendingWritten) {
+            SignInLogDto pending = new SignInLogDto();
+            pending.setSignInTime(pendingScan);
+            visits.add(pending);
+            visitCount++;
+        }
+        for (SignInLog log : recent) {
+            if (visits.size() >= recentVisits) {
+                break;
+            }
+            visits.add(new SignInLogDto(log));
+        }
+
+        LocalDate today = LocalDate.now();
+        Set<LocalDate> days = new HashSet<>(signInLogRepository.findVisitDaysSince(userId,
+                today.minusDays(streakMaxDays).atStartOfDay()));
+        if (pendingScan != null) {
+            days.add(pendingScan.toLocalDate());
+        }
+        return new VisitSummary(visits, visitCount, currentStreak(days, today));
+    }
+
+    /**
+     * One page of the user's sign-ins, newest first. Pass the previous page's nextCursor values as
+     * beforeTime/beforeId to continue; both null starts from the newest.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> page(Long userId, LocalDateTime beforeTime, Long beforeId, int limit) {
+        int pageSize = Math.min(Math.max(1, limit), 500);
+        // One extra row tells whether another page exists
+        PageRequest request = PageRequest.of(0, pageSize + 1);
+        List<SignInLog> rows = beforeTime == null
+                ? signInLogRepository.findByUserIdOrderBySignInTimeDescIdDesc(userId, request)
+                : signInLogRepository.findPageBefore(userId, beforeTime, beforeId != null ? beforeId : Long.MAX_VALUE, request);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<SignInLog> page = hasMore ? rows.subList(0, pageSize) : rows;
+        List<Map<String, Object>> items = new ArrayList<>(page.size());
+        for (SignInLog log : page) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", log.getId());
+            item.put("signInTime", log.getSignInTime());
+            items.add(item);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("items", items);
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            SignInLog last = page.get(page.size() - 1);
+            Map<String, Object> nextCursor = new HashMap<>();
+            nextCursor.put("beforeTime", last.getSignInTime());
+            nextCursor.put("beforeId", last.getId());
+            result.put("nextCursor", nextCursor);
+        } else {
+            result.put("nextCursor", null);
+        }
+        return result;
+    }
+
+    /**
+     * One page of a business's scans in [start, end), newest first. Pass the previous page's nextCursor
+     * values as beforeTime/beforeId to continue.
+     * @throws IllegalArgumentException if no business has the tag
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> businessPage(String businessTag, LocalDateTime start, LocalDateTime end,
+                                            LocalDateTime beforeTime, Long beforeId, int limit) {
+        Business business = businessRepository.findByBusinessTag(businessTag)
+                .orElseThrow(() -> new IllegalArgumentException("Business not found with tag: " + businessTag));
+        int pageSize = Math.min(Math.max(1, limit), 500);
+        LocalDateTime from = start != null ? start : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime to = end != null ? end : LocalDateTime.now().plusDays(1);
+        boolean continuing = beforeTime != null && beforeTime.isBefore(to);
+        List<SignInLogProjection> rows = signInLogRepository.findBusinessPage(business.getId(), from,
+                continuing ? beforeTime : to,
+                continuing && beforeId != null ? beforeId : Long.MAX_VALUE,
+                pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<SignInLogProjection> page = hasMore ? rows.subList(0, pageSize) : rows;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("items", page);
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            SignInLogProjection last = page.get(page.size() - 1);
+            Map<String, Object> nextCursor = new HashMap<>();
+            nextCursor.put("beforeTime", last.getScanTime());
+            nextCursor.put("beforeId", last.getId());
+            result.put("nextCursor", nextCursor);
+        } else {
+            result.put("nextCursor", null);
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} (at most {@link #MAX_ALL_BUSINESSES_PAGE}) scans of every business in
+     * [start, end], newest first, continuing after the beforeTime/beforeId cursor when one is given.
+     */
+    @Transactional(readOnly = true)
+    public List<SignInLogProjection> allBusinessesPage(LocalDateTime start, LocalDateTime end,
+                                                       LocalDateTime beforeTime, Long beforeId, int limit) {
+        int pageSize = Math.min(Math.max(1, limit), MAX_ALL_BUSINESSES_PAGE);
+        LocalDateTime from = start != null ? start : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime to = end != null ? end : LocalDateTime.now().plusDays(1);
+        boolean continuing = beforeTime != null && !beforeTime.isAfter(to);
+        return signInLogRepository.findPage(from,
+                continuing ? beforeTime : to,
+                continuing && beforeId != null ? beforeId : Long.MAX_VALUE,
+                pageSize);
+    }
+
+    /**
+     * Consecutive days with a visit ending today, or ending yesterday if there is no visit today yet.
+     */
+    private static int currentStreak(Set<LocalDate> days, LocalDate today) {
+        LocalDate day = days.contains(today) ? today : today.minusDays(1);
+        int streak = 0;
+        while (days.contains(day)) {
+            streak++;
+            day = day.minusDays(1);
+        }
+        return streak;
+    }
+}
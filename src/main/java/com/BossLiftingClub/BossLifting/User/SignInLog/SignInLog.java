@@ -1,5 +1,6 @@
 package com.BossLiftingClub.BossLifting.User.SignInLog;
 
+import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.User.User;
 import jakarta.persistence.*;
 import jakarta.persistence.Id;
@@ -20,6 +21,15 @@ public class SignInLog {
     @Column(name = "sign_in_time", nullable = false)
     private LocalDateTime signInTime;
 
+    // Business the scan happened at; null for scans recorded without one (and rows from before it was kept)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "business_id")
+    private Business business;
+
+    // Idempotency key sent by the scanner; a retried request with the same key is not logged again
+    @Column(name = "scan_key", length = 64)
+    private String scanKey;
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -29,4 +39,10 @@ public class SignInLog {
 
     public LocalDateTime getSignInTime() { return signInTime; }
     public void setSignInTime(LocalDateTime signInTime) { this.signInTime = signInTime; }
+
+    public Business getBusiness() { return business; }
+    public void setBusiness(Business business) { this.business = business; }
+
+    public String getScanKey() { return scanKey; }
+    public void setScanKey(String scanKey) { this.scanKey = scanKey; }
 }
\ No newline at end of file
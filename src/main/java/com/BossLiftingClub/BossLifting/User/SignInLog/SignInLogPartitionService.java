@@ -0,0 +1,195 @@
+package com.BossLiftingClub.BossLifting.User.SignInLog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage upkeep for sign_in_logs.
+ *
+ * On PostgreSQL the table is range-partitioned by month on sign_in_time (see
+ * V20261024__partition_sign_in_logs_by_month.sql). This keeps partitions created
+ * {@code sign-in.partitions.months-ahead} months in advance so scans never land in the default partition,
+ * and applies the retention policy: once a month is older than {@code sign-in.retention.months}, its
+ * partition is detached and renamed sign_in_logs_archive_YYYY_MM (mode "archive"), or dropped (mode
+ * "drop"). Detached tables stay queryable for export but are out of every scan query's path.
+ *
+ * Where the table is not partitioned (H2 locally, or before the migration has run) retention deletes
+ * expired rows instead; archive mode then keeps them.
+ */
+@Service
+public class SignInLogPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignInLogPartitionService.class);
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String PARTITION_PREFIX = "sign_in_logs_";
+    private static final String ARCHIVE_PREFIX = "sign_in_logs_archive_";
+
+    private static final String IS_PARTITIONED_SQL =
+            "SELECT COUNT(*) FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid " +
+            "WHERE c.relname = 'sign_in_logs'";
+
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'sign_in_logs' ORDER BY c.relname";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean archive;
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public SignInLogPartitionService(JdbcTemplate jdbcTemplate,
+                                     @Value("${sign-in.partitions.months-ahead:3}") int monthsAhead,
+                                     @Value("${sign-in.retention.months:0}") int retentionMonths,
+                                     @Value("${sign-in.retention.mode:archive}") String retentionMode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionMonths = Math.max(0, retentionMonths);
+        this.archive = !"drop".equalsIgnoreCase(retentionMode);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain();
+    }
+
+    /**
+     * Create upcoming partitions and apply retention. Safe to run repeatedly.
+     */
+    @Scheduled(cron = "${sign-in.partitions.cron:0 20 3 * * *}")
+    public synchronized void maintain() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", LocalDateTime.now());
+        try {
+            boolean partitioned = isPartitioned();
+            result.put("partitioned", partitioned);
+            if (partitioned) {
+                result.put("created", createUpcomingPartitions());
+                result.put(archive ? "archived" : "dropped", applyPartitionRetention());
+            } else {
+                result.put("deletedRows", applyRowRetention());
+            }
+            result.put("success", true);
+        } catch (Exception e) {
+            logger.error("Sign-in log storage maintenance failed: {}", e.getMessage(), e);
+            result.put("success", false);
+            result.put("error", e.getMessage());
+        }
+        result.put("finishedAt", LocalDateTime.now());
+        lastRun = result;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("retentionMonths", retentionMonths);
+        status.put("retentionMode", archive ? "archive" : "drop");
+        status.put("monthsAhead", monthsAhead);
+        try {
+            if (isPartitioned()) {
+                status.put("partitions", jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class));
+            }
+        } catch (Exception e) {
+            status.put("error", e.getMessage());
+        }
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    private boolean isPartitioned() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (product == null || !product.toLowerCase().contains("postgres")) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Integer.class);
+        return count != null && count > 0;
+    }
+
+    private List<String> createUpcomingPartitions() {
+        List<String> created = new ArrayList<>();
+        List<String> existing = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++, month = month.plusMonths(1)) {
+            String name = PARTITION_PREFIX + month.format(SUFFIX);
+            if (existing.contains(name)) {
+                continue;
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF sign_in_logs " +
+                    "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            created.add(name);
+            logger.info("Created sign-in log partition {}", name);
+        }
+        return created;
+    }
+
+    private List<String> applyPartitionRetention() {
+        List<String> expired = new ArrayList<>();
+        if (retentionMonths == 0) {
+            return expired;
+        }
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class)) {
+            YearMonth month = parseMonth(name);
+            // Only whole months entirely before the cutoff; the default partition is never touched
+            if (month == null || !month.isBefore(cutoff)) {
+                continue;
+            }
+            if (archive) {
+                String archiveName = ARCHIVE_PREFIX + month.format(SUFFIX);
+                jdbcTemplate.execute("ALTER TABLE sign_in_logs DETACH PARTITION " + name);
+                jdbcTemplate.execute("ALTER TABLE " + name + " RENAME TO " + archiveName);
+                logger.info("Archived sign-in log partition {} as {}", name, archiveName);
+            } else {
+                jdbcTemplate.execute("ALTER TABLE sign_in_logs DETACH PARTITION " + name);
+                jdbcTemplate.execute("DROP TABLE " + name);
+                logger.info("Dropped sign-in log partition {}", name);
+            }
+            expired.add(name);
+        }
+        return expired;
+    }
+
+    private int applyRowRetention() {
+        if (retentionMonths == 0 || archive) {
+            return 0;
+        }
+        LocalDate cutoff = YearMonth.now().minusMonths(retentionMonths).atDay(1);
+        int deleted = jdbcTemplate.update("DELETE FROM sign_in_logs WHERE sign_in_time < ?",
+                Timestamp.valueOf(cutoff.atStartOfDay()));
+        if (deleted > 0) {
+            logger.info("Deleted {} sign-in log rows older than {}", deleted, cutoff);
+        }
+        return deleted;
+    }
+
+    private static YearMonth parseMonth(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.BossLiftingClub.BossLifting.User.SignInLog;
 
 import com.BossLiftingClub.BossLifting.User.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -21,13 +23,49 @@ public interface SignInLogRepository extends JpaRepository<SignInLog, Long>, Jpa
     @Query("SELECT l FROM SignInLog l WHERE l.user.id = :userId AND l.signInTime >= :since ORDER BY l.signInTime DESC")
     List<SignInLog> findRecentByUserId(@Param("userId") Long userId, @Param("since") LocalDateTime since);
 
+    List<SignInLog> findByUserIdOrderBySignInTimeDescIdDesc(Long userId, Pageable pageable);
+
+    long countByUserId(Long userId);
+
+    @Query("SELECT DISTINCT CAST(l.signInTime AS LocalDate) FROM SignInLog l WHERE l.user.id = :userId AND l.signInTime >= :since")
+    List<LocalDate> findVisitDaysSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+
+    // Keyset page: rows strictly after the (signInTime, id) cursor in newest-first order
+    @Query("SELECT l FROM SignInLog l WHERE l.user.id = :userId " +
+            "AND (l.signInTime < :beforeTime OR (l.signInTime = :beforeTime AND l.id < :beforeId)) " +
+            "ORDER BY l.signInTime DESC, l.id DESC")
+    List<SignInLog> findPageBefore(@Param("userId") Long userId, @Param("beforeTime") LocalDateTime beforeTime,
+                                   @Param("beforeId") Long beforeId, Pageable pageable);
+
+    // Keyset page of one business's scans in [start, beforeTime), newest first; served by (business_id, sign_in_time)
+    @Query(value = "SELECT sil.id, sil.sign_in_time AS scan_time, sil.user_id, " +
+            "CONCAT(u.first_name, ' ', u.last_name) AS username " +
+            "FROM sign_in_logs sil " +
+            "JOIN users u ON u.id = sil.user_id " +
+            "WHERE sil.business_id = :businessId " +
+            "AND sil.sign_in_time >= :start " +
+            "AND (sil.sign_in_time < :beforeTime OR (sil.sign_in_time = :beforeTime AND sil.id < :beforeId)) " +
+            "ORDER BY sil.sign_in_time DESC, sil.id DESC " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<SignInLogProjection> findBusinessPage(@Param("businessId") Long businessId,
+                                               @Param("start") LocalDateTime start,
+                                               @Param("beforeTime") LocalDateTime beforeTime,
+                                               @Param("beforeId") Long beforeId,
+                                               @Param("limit") int limit);
+
+    // Keyset page of every business's scans in [start, beforeTime), newest first; served by (sign_in_time, id)
     @Query(value = "SELECT sil.id, sil.sign_in_time AS scan_time, sil.user_id, " +
-            "(u.first_name || ' ' || u.last_name) AS username " +
+            "CONCAT(u.first_name, ' ', u.last_name) AS username " +
             "FROM sign_in_logs sil " +
             "JOIN users u ON u.id = sil.user_id " +
-            "WHERE sil.sign_in_time >= COALESCE(:start, '1970-01-01 00:00:00'::timestamp) " +
-            "AND sil.sign_in_time <= COALESCE(:end, '9999-12-31 23:59:59'::timestamp)",
+            "WHERE sil.sign_in_time >= :start " +
+            "AND (sil.sign_in_time < :beforeTime OR (sil.sign_in_time = :beforeTime AND sil.id < :beforeId)) " +
+            "ORDER BY sil.sign_in_time DESC, sil.id DESC " +
+            "LIMIT :limit",
             nativeQuery = true)
-    List<SignInLogProjection> findAllWithFilters(@Param("start") LocalDateTime start,
-                                                 @Param("end") LocalDateTime end);
+    List<SignInLogProjection> findPage(@Param("start") LocalDateTime start,
+                                       @Param("beforeTime") LocalDateTime beforeTime,
+                                       @Param("beforeId") Long beforeId,
+                                       @Param("limit") int limit);
 }
\ No newline at end of file
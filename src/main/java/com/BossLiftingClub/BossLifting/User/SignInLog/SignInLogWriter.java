@@ -0,0 +1,241 @@
+package com.BossLiftingClub.BossLifting.User.SignInLog;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind ingestion for sign_in_logs.
+ *
+ * Scan paths hand their rows to {@link #submit} and return without waiting on the database. A single
+ * writer thread drains the bounded queue and inserts with JDBC batches, flushing once
+ * {@code sign-in.writer.batch-size} rows are waiting or {@code sign-in.writer.flush-interval-ms} has passed
+ * since the first of them arrived. When the queue is full the caller inserts its own row synchronously,
+ * so a burst slows scans down rather than dropping them; those writes are counted as overflow.
+ *
+ * A row may carry a scan key (the turnstile's idempotency key). Keyed rows are only inserted if no row
+ * with that key was logged in the day before, so a retried request is logged once. The check is
+ * bounded in time so it only touches the newest partitions of the monthly-partitioned table, where
+ * scan_key cannot be a unique constraint on its own.
+ *
+ * {@link SignInRecordedEvent} is published by the writer for each row actually inserted, so a retried
+ * request counts toward occupancy and live feeds once, like it is logged once.
+ *
+ * On shutdown the writer stops taking new work and flushes everything still queued before the
+ * context closes.
+ */
+@Service
+public class SignInLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignInLogWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO sign_in_logs (user_id, business_id, sign_in_time, scan_key) " +
+            "SELECT ?, CAST(? AS BIGINT), CAST(? AS TIMESTAMP), CAST(? AS VARCHAR(64)) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM sign_in_logs WHERE scan_key = CAST(? AS VARCHAR(64)) " +
+            "AND sign_in_time >= CAST(? AS TIMESTAMP))";
+
+    /** One sign-in waiting to be written. {@code businessId} and {@code scanKey} may be null. */
+    public record PendingSignIn(long userId, Long businessId, LocalDateTime signInTime, String scanKey) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlockingQueue<PendingSignIn> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong overflowWrites = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private volatile long lastFlushMillis;
+
+    public SignInLogWriter(JdbcTemplate jdbcTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${sign-in.writer.queue-capacity:10000}") int queueCapacity,
+                           @Value("${sign-in.writer.batch-size:200}") int batchSize,
+                           @Value("${sign-in.writer.flush-interval-ms:250}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.writerThread = new Thread(this::drainLoop, "sign-in-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue a sign-in row; {@link SignInRecordedEvent} follows once it is written. Blocks on a synchronous
+     * insert only when the queue is full or the writer has already shut down.
+     */
+    public void submit(long userId, Long businessId, LocalDateTime signInTime, String scanKey) {
+        PendingSignIn signIn = new PendingSignIn(userId, businessId, signInTime, scanKey);
+        submitted.incrementAndGet();
+        if (running && queue.offer(signIn)) {
+            maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+            return;
+        }
+        overflowWrites.incrementAndGet();
+        write(List.of(signIn));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The writer notices within one flush interval; interrupting it could abort an insert in progress
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever the writer thread did not get to is flushed here
+        List<PendingSignIn> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            logger.info("Flushing {} queued sign-ins on shutdown", remaining.size());
+            write(remaining);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        stats.put("maxQueueDepth", maxQueueDepth.get());
+        stats.put("submitted", submitted.get());
+        stats.put("written", written.get());
+        stats.put("duplicatesSkipped", duplicates.get());
+        stats.put("overflowWrites", overflowWrites.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        return stats;
+    }
+
+    private void drainLoop() {
+        List<PendingSignIn> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingSignIn first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remainingNanos <= 0) {
+                        break;
+                    }
+                    PendingSignIn next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingSignIn> batch) {
+        long started = System.currentTimeMillis();
+        List<PendingSignIn> rows = withoutRepeatedKeys(batch);
+        try {
+            int[] counts = jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(),
+                    (ps, row) -> setParameters(ps, row))[0];
+            recordCounts(rows, counts);
+        } catch (Exception e) {
+            // One bad row (e.g. a user deleted since the scan) must not lose the rest of the batch
+            logger.warn("Sign-in batch of {} failed, retrying rows individually: {}", rows.size(), e.getMessage());
+            for (PendingSignIn row : rows) {
+                try {
+                    int count = jdbcTemplate.update(INSERT_SQL, ps -> setParameters(ps, row));
+                    recordCounts(List.of(row), new int[] { count });
+                } catch (Exception rowError) {
+                    failed.incrementAndGet();
+                    logger.error("Failed to record sign-in for user {} at {}: {}", row.userId(), row.signInTime(),
+                            rowError.getMessage());
+                }
+            }
+        }
+        duplicates.addAndGet(batch.size() - rows.size());
+        batches.incrementAndGet();
+        lastFlushMillis = System.currentTimeMillis() - started;
+    }
+
+    private static void setParameters(PreparedStatement ps, PendingSignIn row) throws SQLException {
+        ps.setLong(1, row.userId());
+        ps.setObject(2, row.businessId(), Types.BIGINT);
+        ps.setTimestamp(3, Timestamp.valueOf(row.signInTime()));
+        ps.setString(4, row.scanKey());
+        ps.setString(5, row.scanKey());
+        ps.setTimestamp(6, Timestamp.valueOf(row.signInTime().minusDays(1)));
+    }
+
+    /**
+     * Count the rows' outcomes and publish {@link SignInRecordedEvent} for those inserted. A count of 0 is a
+     * keyed row skipped as already logged.
+     */
+    private void recordCounts(List<PendingSignIn> rows, int[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+            // Drivers may report SUCCESS_NO_INFO (-2) for batched statements
+            written.incrementAndGet();
+            PendingSignIn row = rows.get(i);
+            try {
+                eventPublisher.publishEvent(new SignInRecordedEvent(row.userId(), row.businessId(), row.signInTime()));
+            } catch (Exception e) {
+                logger.warn("Sign-in listener failed for user {}: {}", row.userId(), e.getMessage());
+            }
+        }
+    }
+
+    private static List<PendingSignIn> withoutRepeatedKeys(List<PendingSignIn> batch) {
+        Set<String> keys = new HashSet<>();
+        List<PendingSignIn> rows = new ArrayList<>(batch.size());
+        for (PendingSignIn row : batch) {
+            if (row.scanKey() == null || keys.add(row.scanKey())) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
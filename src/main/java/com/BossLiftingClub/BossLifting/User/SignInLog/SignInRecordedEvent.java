@@ -0,0 +1,32 @@
+package com.BossLiftingClub.BossLifting.User.SignInLog;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when the write-behind writer has stored a sign-in; a retried scan skipped as a duplicate is not
+ * published again.
+ * {@code businessId} is null for scans recorded without a business.
+ */
+public class SignInRecordedEvent {
+    private final long userId;
+    private final Long businessId;
+    private final LocalDateTime signInTime;
+
+    public SignInRecordedEvent(long userId, Long businessId, LocalDateTime signInTime) {
+        this.userId = userId;
+        this.businessId = businessId;
+        this.signInTime = signInTime;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Long getBusinessId() {
+        return businessId;
+    }
+
+    public LocalDateTime getSignInTime() {
+        return signInTime;
+    }
+}
@@ -1,5 +1,6 @@
 package com.BossLiftingClub.BossLifting.User;
 
+import com.BossLiftingClub.BossLifting.User.BusinessUser.MemberAccessChangedEvent;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessCreateDTO;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService;
 import com.BossLiftingClub.BossLifting.User.FamilyInvitation;
@@ -7,6 +8,7 @@ import com.BossLiftingClub.BossLifting.User.FamilyInvitationRepository;
 import com.BossLiftingClub.BossLifting.User.PasswordAuth.JwtUtil;
 import com.BossLiftingClub.BossLifting.User.SignInLog.SignInLog;
 import com.BossLiftingClub.BossLifting.User.SignInLog.SignInLogRepository;
+import com.BossLiftingClub.BossLifting.User.SignInLog.SignInHistoryService;
 import com.stripe.model.Customer;
 import com.stripe.model.billingportal.Session;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,6 +20,8 @@ import org.checkerframework.checker.units.qual.A;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -50,11 +54,15 @@ public class UserController {
     @Autowired
     private SignInLogRepository signInLogRepository;
     @Autowired
+    private SignInHistoryService signInHistoryService;
+    @Autowired
     private UserBusinessService userBusinessService;
     @Autowired
     private PasswordEncoder passwordEncoder;
     @Autowired
     private FamilyInvitationRepository familyInvitationRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @Autowired
     public UserController(UserService userService, BarcodeService barcodeService, FirebaseService firebaseService) {
@@ -198,6 +206,7 @@ public class UserController {
             // Link the dependent to the primary owner
             dependent.setParent(primaryOwner);
             userRepository.save(dependent);
+            eventPublisher.publishEvent(new MemberAccessChangedEvent(dependentUserId));
 
             logger.info("Linked user {} as dependent to primary owner {}", dependentUserId, primaryOwnerId);
             return ResponseEntity.ok(Map.of(
@@ -236,6 +245,7 @@ public class UserController {
             // Unlink the dependent
             dependent.setParent(null);
             userRepository.save(dependent);
+            eventPublisher.publishEvent(new MemberAccessChangedEvent(dependentUserId));
 
             logger.info("Removed user {} as dependent from primary owner {}", dependentUserId, primaryOwnerId);
             return ResponseEntity.ok(Map.of("message", "Family member removed successfully"));
@@ -431,6 +441,21 @@ public class UserController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * A user's sign-in history, newest first, one keyset page at a time. Pass nextCursor's beforeTime and
+     * beforeId from the previous page to continue.
+     */
+    @GetMapping("/{id}/sign-ins")
+    public ResponseEntity<?> getSignIns(@PathVariable Long id,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+                                        @RequestParam(required = false) Long beforeId,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        if (!userRepository.existsById(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found"));
+        }
+        return ResponseEntity.ok(signInHistoryService.page(id, beforeTime, beforeId, limit));
+    }
+
     @GetMapping("/barcode/{barcode}")
     public ResponseEntity<UserDTO> getUserByBarcode(@PathVariable String barcode) throws Exception {
         UserDTO dto = userService.processBarcodeScan(barcode);
@@ -7,6 +7,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.BossLiftingClub.BossLifting.User.SignInLog.SignInLogDto;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.BossLiftingClub.BossLifting.User.UserTitles.UserTitles;
 import com.BossLiftingClub.BossLifting.User.Membership.Membership;
 
@@ -37,11 +38,24 @@ public class UserDTO {
     private Set<SignInLogDto> signInLogs;
     private List<String> clubTags;
 
+    // Set only on scan responses, where signInLogs holds just the most recent visits
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long visitCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer currentStreakDays;
+
     // New field for multiple memberships
     private List<Map<String, Object>> memberships;
     public UserDTO() {}
 
     public UserDTO(User user) {
+        this(user, true);
+    }
+
+    /**
+     * @param includeSignInLogs false to leave signInLogs unset instead of loading the user's whole history
+     */
+    public UserDTO(User user, boolean includeSignInLogs) {
         this.id = user.getId();
         this.firstName = user.getFirstName();
         this.lastName = user.getLastName();
@@ -64,7 +78,7 @@ public class UserDTO {
         this.childrenDto = user.getChildrenDto();
         this.referredById = user.getReferredBy() != null ? user.getReferredBy().getId() : null;
         this.membership = user.getMembership();
-        if (user.getSignInLogs() != null) {
+        if (includeSignInLogs && user.getSignInLogs() != null) {
             this.signInLogs = user.getSignInLogs().stream()
                     .map(SignInLogDto::new)
                     .collect(Collectors.toSet());
@@ -111,6 +125,22 @@ public class UserDTO {
         this.signInLogs = signInLogs;
     }
 
+    public Long getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(Long visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    public Integer getCurrentStreakDays() {
+        return currentStreakDays;
+    }
+
+    public void setCurrentStreakDays(Integer currentStreakDays) {
+        this.currentStreakDays = currentStreakDays;
+    }
+
     public String getPhoneNumber() {
         return phoneNumber;
     }
@@ -21,6 +21,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.userTitles")
     List<User> findAll();
 
+    @Query("SELECT u.id AS id, u.email AS email, u.userStripeMemberId AS userStripeMemberId FROM User u ORDER BY u.id")
+    List<EmailRecipientProjection> findAllEmailRecipients();
+
     @Query("UPDATE User u SET u.referralCode = :newReferralCode WHERE u.referralCode = :currentReferralCode")
     @Modifying
     int updateReferralCode(@Param("currentReferralCode") String currentReferralCode,
@@ -3,6 +3,7 @@ package com.BossLiftingClub.BossLifting.User;
 import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
 import com.BossLiftingClub.BossLifting.Stripe.StripeService;
+import com.BossLiftingClub.BossLifting.User.BusinessUser.MemberAccessChangedEvent;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusiness;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessMembership;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessRepository;
@@ -10,14 +11,15 @@ import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessCreateDTO;
 import com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService;
 import com.BossLiftingClub.BossLifting.User.Membership.Membership;
 import com.BossLiftingClub.BossLifting.User.Membership.MembershipRepository;
-import com.BossLiftingClub.BossLifting.User.SignInLog.SignInLog;
-import com.BossLiftingClub.BossLifting.User.SignInLog.SignInLogRepository;
+import com.BossLiftingClub.BossLifting.User.SignInLog.SignInHistoryService;
+import com.BossLiftingClub.BossLifting.User.SignInLog.SignInLogWriter;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Subscription;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.slf4j.Logger;
@@ -30,6 +32,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -43,7 +46,10 @@ public class UserServiceImpl implements UserService {
     private final PasswordEncoder passwordEncoder;
 
     @Autowired
-    private SignInLogRepository signInLogRepository;
+    private SignInLogWriter signInLogWriter;
+
+    @Autowired
+    private SignInHistoryService signInHistoryService;
 
     @Autowired
     private JavaMailSender mailSender;
@@ -63,6 +69,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserBusinessService userBusinessService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder) {
         this.userRepository = userRepository;
@@ -425,7 +434,9 @@ public class UserServiceImpl implements UserService {
         if (optionalUser.isPresent()) {
             User user = optionalUser.get();
             user.setIsInGoodStanding(standing); // Payment succeeded
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            eventPublisher.publishEvent(new MemberAccessChangedEvent(saved.getId()));
+            return saved;
         } else {
             throw new RuntimeException("User not found for Stripe customer ID: " + stripeCustomerId);
         }
@@ -446,6 +457,7 @@ public class UserServiceImpl implements UserService {
                 userRepository.save(parent);
             }
             userRepository.delete(userOpt.get());
+            eventPublisher.publishEvent(new MemberAccessChangedEvent(userOpt.get().getId()));
             return userOpt; // Return the deleted user
         }
         return Optional.empty(); // No user found
@@ -471,6 +483,7 @@ public class UserServiceImpl implements UserService {
                 userRepository.save(parent);
             }
             userRepository.delete(user);
+            eventPublisher.publishEvent(new MemberAccessChangedEvent(user.getId()));
             return Optional.of(user);
         }
 
@@ -526,6 +539,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public void deleteById(Long id) {
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new MemberAccessChangedEvent(id));
     }
 
     @Override
@@ -606,17 +620,17 @@ public class UserServiceImpl implements UserService {
         User user = getUserByBarcodeToken(barcode)
                 .orElseThrow(() -> new Exception("User not found"));
 
-        // Save sign-in log
-        SignInLog log = new SignInLog();
-        log.setUser(user);
-        log.setSignInTime(LocalDateTime.now());
-        signInLogRepository.save(log);
-
-        // Load user with sign-in logs initialized
-        User userWithLogs = userRepository.findByIdWithSignInLogs(user.getId())
-                .orElseThrow(() -> new Exception("User not found after saving log"));
-
-        return new UserDTO(userWithLogs);
+        // Queue sign-in log; it is written behind, so the summary counts it whether or not it has landed
+        LocalDateTime signInTime = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS); // as stored, so it matches once written
+        signInLogWriter.submit(user.getId(), null, signInTime, null);
+
+        // Only the last few visits plus aggregates - never the whole history
+        UserDTO dto = new UserDTO(user, false);
+        SignInHistoryService.VisitSummary visits = signInHistoryService.summarize(user.getId(), signInTime);
+        dto.setSignInLogs(visits.recentVisits());
+        dto.setVisitCount(visits.visitCount());
+        dto.setCurrentStreakDays(visits.currentStreakDays());
+        return dto;
     }
 
     @Override
@@ -677,6 +691,7 @@ public class UserServiceImpl implements UserService {
 
             // Store the subscription ID
             userBusinessMembership.setStripeSubscriptionId(subscription.getId());
+            userBusinessService.applyStripeSubscription(userBusinessMembership, subscription);
             System.out.println("Created Stripe subscription: " + subscription.getId() + " for membership " + membership.getId());
 
         } catch (StripeException e) {
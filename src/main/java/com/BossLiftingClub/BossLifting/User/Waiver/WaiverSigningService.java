@@ -3,6 +3,8 @@ package com.BossLiftingClub.BossLifting.User.Waiver;
 import com.BossLiftingClub.BossLifting.Business.Business;
 import com.BossLiftingClub.BossLifting.Business.BusinessRepository;
 import com.BossLiftingClub.BossLifting.Email.EmailService;
+import com.BossLiftingClub.BossLifting.Email.EmailTemplateService;
+import com.BossLiftingClub.BossLifting.Email.EmailTemplateService.EmailBranding;
 import com.BossLiftingClub.BossLifting.User.FirebaseService;
 import com.BossLiftingClub.BossLifting.User.User;
 import com.BossLiftingClub.BossLifting.User.UserRepository;
@@ -33,7 +35,9 @@ import java.net.URI;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -47,6 +51,7 @@ public class WaiverSigningService {
     private final BusinessRepository businessRepository;
     private final FirebaseService firebaseService;
     private final EmailService emailService;
+    private final EmailTemplateService emailTemplateService;
     private final com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService userBusinessService;
 
     @Value("${app.frontend.url:http://localhost:5173}")
@@ -58,6 +63,7 @@ public class WaiverSigningService {
                                 BusinessRepository businessRepository,
                                 FirebaseService firebaseService,
                                 EmailService emailService,
+                                EmailTemplateService emailTemplateService,
                                 com.BossLiftingClub.BossLifting.User.BusinessUser.UserBusinessService userBusinessService) {
         this.waiverTemplateRepository = waiverTemplateRepository;
         this.userWaiverRepository = userWaiverRepository;
@@ -65,6 +71,7 @@ public class WaiverSigningService {
         this.businessRepository = businessRepository;
         this.firebaseService = firebaseService;
         this.emailService = emailService;
+        this.emailTemplateService = emailTemplateService;
         this.userBusinessService = userBusinessService;
     }
 
@@ -73,7 +80,7 @@ public class WaiverSigningService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        Business business = businessRepository.findById(businessId)
+        EmailBranding branding = emailTemplateService.getBranding(businessId)
                 .orElseThrow(() -> new IllegalArgumentException("Business not found"));
 
         Optional<WaiverTemplate> templateOpt = waiverTemplateRepository
@@ -84,46 +91,14 @@ public class WaiverSigningService {
         }
 
         String waiverSignUrl = frontendUrl + "/waiver/sign/" + userId;
-        String businessName = business.getTitle() != null ? business.getTitle() : "the gym";
+        String businessName = branding.businessNameOr("the gym");
 
         String subject = "Please Sign Your Liability Waiver - " + businessName;
-        String htmlBody = String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; color: #333; line-height: 1.6; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #f8f8f8; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { padding: 20px; background-color: #ffffff; }
-                    .button { display: inline-block; padding: 12px 24px; background-color: #007BFF; color: white !important; text-decoration: none; border-radius: 5px; font-weight: bold; margin: 20px 0; }
-                    .button:hover { background-color: #0056b3; }
-                    .footer { font-size: 12px; color: #777; text-align: center; padding: 20px; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h2>%s</h2>
-                    </div>
-                    <div class="content">
-                        <p>Hello %s,</p>
-                        <p>Before you can access %s, you need to sign our liability waiver.</p>
-                        <p>Please click the button below to review and sign the waiver:</p>
-                        <p style="text-align: center;">
-                            <a href="%s" class="button">Sign Waiver</a>
-                        </p>
-                        <p>Or copy and paste this link into your browser:</p>
-                        <p style="word-break: break-all; color: #007BFF;">%s</p>
-                        <p>This link will expire in 30 days.</p>
-                    </div>
-                    <div class="footer">
-                        <p>If you did not expect this email, please ignore it.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """, businessName, user.getFirstName(), businessName, waiverSignUrl, waiverSignUrl);
+        Map<String, Object> values = new HashMap<>();
+        values.put("businessName", businessName);
+        values.put("firstName", user.getFirstName());
+        values.put("signUrl", waiverSignUrl);
+        String htmlBody = emailTemplateService.render("waiver-request.html", values);
 
         try {
             emailService.sendBlastEmail(
@@ -131,8 +106,8 @@ public class WaiverSigningService {
                     subject,
                     htmlBody,
                     businessName,
-                    business.getContactEmail(),
-                    business.getContactEmail()
+                    branding.contactEmail(),
+                    branding.contactEmail()
             );
             logger.info("Waiver email sent to user {} ({})", userId, user.getEmail());
         } catch (Exception e) {
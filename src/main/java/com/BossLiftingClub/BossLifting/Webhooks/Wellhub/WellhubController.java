@@ -1,6 +1,7 @@
 package com.BossLiftingClub.BossLifting.Webhooks.Wellhub;
 
 
+import com.BossLiftingClub.BossLifting.Realtime.RealtimeEventHub;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,11 +23,14 @@ public class WellhubController {
 
     private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
     private final WebClient webClient;
+    private final RealtimeEventHub realtimeEventHub;
 
     public WellhubController(
             @Value("${gympass.api.token:}") String apiToken,
-            @Value("${gympass.api.gym-id:}") String gymId
+            @Value("${gympass.api.gym-id:}") String gymId,
+            RealtimeEventHub realtimeEventHub
     ) {
+        this.realtimeEventHub = realtimeEventHub;
         this.webClient = WebClient.builder()
                 .baseUrl("https://apitesting.partners.gympass.com")
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
@@ -52,6 +56,9 @@ public class WellhubController {
     public ResponseEntity<String> handleNotifyOfUser(@RequestBody Map<String, Object> payload) {
         System.out.println("Received payload: " + payload);
 
+        // Business-scoped stream (single-tenant: one business / platform)
+        realtimeEventHub.publish(1L, "wellhub-checkin", payload);
+
         // Broadcast to frontend subscribers
         for (SseEmitter emitter : emitters) {
             try {
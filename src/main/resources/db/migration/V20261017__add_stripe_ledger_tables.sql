@@ -0,0 +1,98 @@
+-- Add Stripe ledger tables (charges, invoices, refunds, subscriptions) for local analytics aggregation
+CREATE TABLE IF NOT EXISTS stripe_ledger_charges (
+    id VARCHAR(255) PRIMARY KEY,
+    customer_id VARCHAR(255),
+    invoice_id VARCHAR(255),
+    amount BIGINT NOT NULL,
+    amount_refunded BIGINT,
+    currency VARCHAR(10),
+    status VARCHAR(50),
+    paid BOOLEAN NOT NULL,
+    refunded BOOLEAN NOT NULL,
+    billing_name VARCHAR(255),
+    created BIGINT NOT NULL,
+    stripe_account_id VARCHAR(255),
+    updated_at DATETIME NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_charges_created ON stripe_ledger_charges (created);
+CREATE INDEX IF NOT EXISTS idx_ledger_charges_customer ON stripe_ledger_charges (customer_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_charges_invoice ON stripe_ledger_charges (invoice_id);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_invoices (
+    id VARCHAR(255) PRIMARY KEY,
+    customer_id VARCHAR(255),
+    customer_name VARCHAR(255),
+    subscription_id VARCHAR(255),
+    charge_id VARCHAR(255),
+    status VARCHAR(50),
+    amount_due BIGINT,
+    amount_paid BIGINT,
+    created BIGINT NOT NULL,
+    stripe_account_id VARCHAR(255),
+    updated_at DATETIME NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_invoices_status_created ON stripe_ledger_invoices (status, created);
+CREATE INDEX IF NOT EXISTS idx_ledger_invoices_customer ON stripe_ledger_invoices (customer_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_invoices_charge ON stripe_ledger_invoices (charge_id);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_invoice_lines (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    invoice_id VARCHAR(255) NOT NULL,
+    stripe_line_id VARCHAR(255),
+    price_id VARCHAR(255),
+    amount BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_invoice_lines_invoice ON stripe_ledger_invoice_lines (invoice_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_invoice_lines_price ON stripe_ledger_invoice_lines (price_id);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_refunds (
+    id VARCHAR(255) PRIMARY KEY,
+    charge_id VARCHAR(255),
+    customer_id VARCHAR(255),
+    amount BIGINT NOT NULL,
+    status VARCHAR(50),
+    reason VARCHAR(100),
+    created BIGINT NOT NULL,
+    stripe_account_id VARCHAR(255),
+    updated_at DATETIME NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_refunds_created ON stripe_ledger_refunds (created);
+CREATE INDEX IF NOT EXISTS idx_ledger_refunds_charge ON stripe_ledger_refunds (charge_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_refunds_customer ON stripe_ledger_refunds (customer_id);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_subscriptions (
+    id VARCHAR(255) PRIMARY KEY,
+    customer_id VARCHAR(255),
+    status VARCHAR(50),
+    created BIGINT NOT NULL,
+    start_date BIGINT,
+    canceled_at BIGINT,
+    current_period_start BIGINT,
+    current_period_end BIGINT,
+    cancel_at_period_end BOOLEAN,
+    stripe_account_id VARCHAR(255),
+    updated_at DATETIME NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_subscriptions_customer ON stripe_ledger_subscriptions (customer_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_subscriptions_status ON stripe_ledger_subscriptions (status);
+CREATE INDEX IF NOT EXISTS idx_ledger_subscriptions_created ON stripe_ledger_subscriptions (created);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_subscription_items (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    subscription_id VARCHAR(255) NOT NULL,
+    stripe_item_id VARCHAR(255),
+    price_id VARCHAR(255),
+    unit_amount BIGINT,
+    recurring_interval VARCHAR(20),
+    recurring_interval_count BIGINT,
+    quantity BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_subscription_items_subscription ON stripe_ledger_subscription_items (subscription_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_subscription_items_price ON stripe_ledger_subscription_items (price_id);
+
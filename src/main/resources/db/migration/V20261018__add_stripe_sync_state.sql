@@ -0,0 +1,17 @@
+-- Add checkpoint table for the incremental Stripe subscription status sync
+CREATE TABLE IF NOT EXISTS stripe_sync_state (
+    sync_name VARCHAR(100) PRIMARY KEY,
+    mode VARCHAR(20),
+    status VARCHAR(20),
+    watermark BIGINT,
+    cursor_id VARCHAR(255),
+    run_started_epoch BIGINT,
+    chunks_processed INT,
+    items_processed INT,
+    items_updated INT,
+    errors INT,
+    message VARCHAR(1000),
+    started_at DATETIME,
+    finished_at DATETIME,
+    last_progress_at DATETIME
+);
@@ -0,0 +1,18 @@
+-- Add daily per-business metrics rollup table for analytics charts
+CREATE TABLE IF NOT EXISTS daily_business_metrics (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    business_id BIGINT NOT NULL,
+    metric_date DATE NOT NULL,
+    gross_revenue BIGINT DEFAULT 0 NOT NULL,
+    refunds BIGINT DEFAULT 0 NOT NULL,
+    mrr BIGINT DEFAULT 0 NOT NULL,
+    active_members INT DEFAULT 0 NOT NULL,
+    total_members INT DEFAULT 0 NOT NULL,
+    new_members INT DEFAULT 0 NOT NULL,
+    churned_members INT DEFAULT 0 NOT NULL,
+    failed_payments INT DEFAULT 0 NOT NULL,
+    updated_at DATETIME NOT NULL,
+    CONSTRAINT uk_daily_business_metrics_business_date UNIQUE (business_id, metric_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_daily_business_metrics_date ON daily_business_metrics (metric_date);
@@ -0,0 +1,10 @@
+-- Add a local copy of each membership's Stripe subscription state
+-- Kept fresh by subscription webhooks and the sync job so member lists never call Stripe
+ALTER TABLE user_business_membership ADD COLUMN stripe_status VARCHAR(50);
+ALTER TABLE user_business_membership ADD COLUMN current_period_start TIMESTAMP;
+ALTER TABLE user_business_membership ADD COLUMN current_period_end TIMESTAMP;
+ALTER TABLE user_business_membership ADD COLUMN cancel_at TIMESTAMP;
+ALTER TABLE user_business_membership ADD COLUMN cancel_at_period_end BOOLEAN DEFAULT FALSE;
+ALTER TABLE user_business_membership ADD COLUMN pause_collection_behavior VARCHAR(50);
+ALTER TABLE user_business_membership ADD COLUMN pause_resumes_at TIMESTAMP;
+ALTER TABLE user_business_membership ADD COLUMN subscription_synced_at TIMESTAMP;
@@ -0,0 +1,6 @@
+-- Add locally stored payment-method presence to user_business
+-- NULL has_payment_method means not checked yet; payment_method_checked_at drives the Stripe fallback
+ALTER TABLE user_business ADD COLUMN has_payment_method BOOLEAN;
+ALTER TABLE user_business ADD COLUMN default_card_fingerprint VARCHAR(255);
+ALTER TABLE user_business ADD COLUMN payment_method_checked_at TIMESTAMP;
+CREATE INDEX IF NOT EXISTS idx_user_business_stripe_id ON user_business (stripe_id);
@@ -0,0 +1,4 @@
+-- Add an idempotency key to sign_in_logs so a retried scan request is only logged once
+-- NULL for scans that came without a key; unique otherwise
+ALTER TABLE sign_in_logs ADD COLUMN scan_key VARCHAR(64);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sign_in_logs_scan_key ON sign_in_logs (scan_key);
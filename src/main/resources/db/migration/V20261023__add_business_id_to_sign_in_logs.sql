@@ -0,0 +1,12 @@
+-- Add the business a scan happened at to sign_in_logs, with indexes for the cooldown check and date-range queries
+ALTER TABLE sign_in_logs ADD COLUMN business_id BIGINT;
+ALTER TABLE sign_in_logs ADD CONSTRAINT fk_sign_in_logs_business FOREIGN KEY (business_id) REFERENCES businesses(id) ON DELETE SET NULL;
+
+-- Existing rows: attribute a scan to the user's business when they belong to exactly one; otherwise leave NULL
+UPDATE sign_in_logs
+SET business_id = (SELECT MIN(ub.business_id) FROM user_business ub WHERE ub.user_id = sign_in_logs.user_id)
+WHERE business_id IS NULL
+  AND (SELECT COUNT(*) FROM user_business ub WHERE ub.user_id = sign_in_logs.user_id) = 1;
+
+CREATE INDEX IF NOT EXISTS idx_sign_in_logs_user_time ON sign_in_logs (user_id, sign_in_time);
+CREATE INDEX IF NOT EXISTS idx_sign_in_logs_business_time ON sign_in_logs (business_id, sign_in_time);
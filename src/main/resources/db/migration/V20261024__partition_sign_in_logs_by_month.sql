@@ -0,0 +1,49 @@
+-- Convert sign_in_logs to monthly range partitions on sign_in_time (PostgreSQL only)
+-- Every unique constraint on a partitioned table must include the partition key, so the primary key becomes
+-- (id, sign_in_time) and scan_key is a plain index; SignInLogWriter checks recent keys before inserting.
+-- SignInLogPartitionService creates later months ahead of time and applies the retention policy.
+BEGIN;
+
+ALTER TABLE sign_in_logs RENAME TO sign_in_logs_unpartitioned;
+
+CREATE TABLE sign_in_logs (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    business_id BIGINT REFERENCES businesses(id) ON DELETE SET NULL,
+    sign_in_time TIMESTAMP NOT NULL,
+    scan_key VARCHAR(64),
+    PRIMARY KEY (id, sign_in_time)
+) PARTITION BY RANGE (sign_in_time);
+
+-- One partition per month from the oldest scan through three months ahead
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := date_trunc('month', now() + interval '3 months')::date;
+BEGIN
+    SELECT date_trunc('month', COALESCE(MIN(sign_in_time), now()))::date INTO month_start FROM sign_in_logs_unpartitioned;
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF sign_in_logs FOR VALUES FROM (%L) TO (%L)',
+                       'sign_in_logs_' || to_char(month_start, 'YYYY_MM'),
+                       month_start,
+                       (month_start + interval '1 month')::date);
+        month_start := (month_start + interval '1 month')::date;
+    END LOOP;
+END $$;
+
+-- Catches anything outside the monthly ranges; stays empty while partitions are created ahead
+CREATE TABLE IF NOT EXISTS sign_in_logs_default PARTITION OF sign_in_logs DEFAULT;
+
+INSERT INTO sign_in_logs (id, user_id, business_id, sign_in_time, scan_key)
+SELECT id, user_id, business_id, sign_in_time, scan_key FROM sign_in_logs_unpartitioned;
+
+SELECT setval(pg_get_serial_sequence('sign_in_logs', 'id'), COALESCE((SELECT MAX(id) FROM sign_in_logs), 0) + 1, false);
+
+-- Drop the old table first: its indexes hold the names reused below
+DROP TABLE sign_in_logs_unpartitioned;
+
+CREATE INDEX IF NOT EXISTS idx_sign_in_logs_user_time ON sign_in_logs (user_id, sign_in_time);
+CREATE INDEX IF NOT EXISTS idx_sign_in_logs_business_time ON sign_in_logs (business_id, sign_in_time);
+CREATE INDEX IF NOT EXISTS idx_sign_in_logs_scan_key ON sign_in_logs (scan_key);
+
+COMMIT;
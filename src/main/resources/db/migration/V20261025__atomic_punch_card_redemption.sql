@@ -0,0 +1,19 @@
+-- Add the columns behind atomic punch-card redemption
+-- last_punch_at is checked by the conditional redemption update; scan_window is the hour bucket of a scan
+ALTER TABLE user_business_membership ADD COLUMN IF NOT EXISTS last_punch_at TIMESTAMP;
+ALTER TABLE punch_card_scans ADD COLUMN IF NOT EXISTS scan_window BIGINT;
+
+UPDATE user_business_membership ubm
+SET last_punch_at = s.last_scan
+FROM (SELECT user_business_membership_id, MAX(scanned_at) AS last_scan
+      FROM punch_card_scans GROUP BY user_business_membership_id) s
+WHERE s.user_business_membership_id = ubm.id;
+
+-- Only the first scan of each bucket gets one, so duplicates recorded before this change do not block the index
+UPDATE punch_card_scans p
+SET scan_window = FLOOR(EXTRACT(EPOCH FROM p.scanned_at) / 3600)
+WHERE p.id = (SELECT MIN(p2.id) FROM punch_card_scans p2
+              WHERE p2.user_business_membership_id = p.user_business_membership_id
+              AND FLOOR(EXTRACT(EPOCH FROM p2.scanned_at) / 3600) = FLOOR(EXTRACT(EPOCH FROM p.scanned_at) / 3600));
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_punch_card_scans_window ON punch_card_scans (user_business_membership_id, scan_window);
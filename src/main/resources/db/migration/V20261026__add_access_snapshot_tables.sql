@@ -0,0 +1,20 @@
+-- Add the offline turnstile access snapshot tables
+-- Rows are never deleted: a revoked token keeps its row with allowed = false so delta feeds can report it
+CREATE TABLE IF NOT EXISTS access_snapshot_entries (
+    business_id BIGINT NOT NULL,
+    token_hash VARCHAR(64) NOT NULL,
+    user_id BIGINT NOT NULL,
+    allowed BOOLEAN NOT NULL,
+    reason VARCHAR(100),
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (business_id, token_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_access_snapshot_entries_user ON access_snapshot_entries (user_id);
+CREATE INDEX IF NOT EXISTS idx_access_snapshot_entries_version ON access_snapshot_entries (business_id, version);
+
+CREATE TABLE IF NOT EXISTS access_snapshot_versions (
+    business_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL
+);
@@ -0,0 +1,21 @@
+-- Add the Stripe webhook inbox; endpoints store verified events here and workers process them
+CREATE TABLE IF NOT EXISTS webhook_inbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    source VARCHAR(32) NOT NULL,
+    event_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(100),
+    stripe_account_id VARCHAR(255),
+    ordering_key VARCHAR(255),
+    event_created BIGINT,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT DEFAULT 0 NOT NULL,
+    next_attempt_at TIMESTAMP,
+    last_error VARCHAR(1000),
+    received_at TIMESTAMP NOT NULL,
+    started_at TIMESTAMP,
+    processed_at TIMESTAMP,
+    CONSTRAINT uk_webhook_inbox_source_event UNIQUE (source, event_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_status ON webhook_inbox (status, id);
@@ -0,0 +1,2 @@
+-- Add an index on processed_event.processed_at for pruning expired idempotency claims
+CREATE INDEX IF NOT EXISTS idx_processed_event_processed_at ON processed_event (processed_at);
@@ -0,0 +1,28 @@
+-- Add bulk email jobs; each recipient row records whether the member's email was sent, so retries skip them
+CREATE TABLE IF NOT EXISTS bulk_email_jobs (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    business_id BIGINT NOT NULL REFERENCES businesses(id) ON DELETE CASCADE,
+    subject VARCHAR(500) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    requested INT DEFAULT 0 NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_bulk_email_jobs_business ON bulk_email_jobs (business_id, id);
+
+CREATE TABLE IF NOT EXISTS bulk_email_recipients (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    job_id BIGINT NOT NULL REFERENCES bulk_email_jobs(id) ON DELETE CASCADE,
+    user_business_id BIGINT NOT NULL,
+    email VARCHAR(255),
+    status VARCHAR(20) NOT NULL,
+    attempts INT DEFAULT 0 NOT NULL,
+    last_error VARCHAR(500),
+    sent_at TIMESTAMP,
+    CONSTRAINT uk_bulk_email_recipient UNIQUE (job_id, user_business_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_bulk_email_recipients_status ON bulk_email_recipients (job_id, status);
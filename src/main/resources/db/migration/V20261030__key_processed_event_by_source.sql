@@ -0,0 +1,10 @@
+-- Key processed_event claims by source ('platform', 'subscription', 'connected') and event id, so one event
+-- delivered to several webhook endpoints runs once per endpoint. Existing claims were made before the
+-- source was known and are carried over for every source, so those events are not run again.
+INSERT INTO processed_event (event_id, processed_at)
+SELECT 'subscription:' || event_id, processed_at FROM processed_event WHERE event_id NOT LIKE '%:%';
+
+INSERT INTO processed_event (event_id, processed_at)
+SELECT 'connected:' || event_id, processed_at FROM processed_event WHERE event_id NOT LIKE '%:%';
+
+UPDATE processed_event SET event_id = 'platform:' || event_id WHERE event_id NOT LIKE '%:%';
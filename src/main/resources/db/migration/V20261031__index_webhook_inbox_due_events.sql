@@ -0,0 +1,3 @@
+-- Index due webhook inbox events, and pending events by ordering key for the held-behind-a-retry check
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_due ON webhook_inbox (status, next_attempt_at, id);
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_ordering_key ON webhook_inbox (ordering_key, status, id);
@@ -0,0 +1,2 @@
+-- Index sign_in_logs by (sign_in_time, id) for the newest-first keyset pages of GET /api/scan-ins
+CREATE INDEX IF NOT EXISTS idx_sign_in_logs_time ON sign_in_logs (sign_in_time, id);
@@ -175,10 +175,14 @@ CREATE TABLE IF NOT EXISTS user_business (
     is_paused BOOLEAN DEFAULT FALSE,
     calculated_status VARCHAR(50),
     calculated_user_type VARCHAR(50),
+    has_payment_method BOOLEAN,
+    default_card_fingerprint VARCHAR(255),
+    payment_method_checked_at DATETIME,
     created_at DATETIME NOT NULL,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (business_id) REFERENCES businesses(id) ON DELETE CASCADE,
-    UNIQUE (user_id, business_id)
+    UNIQUE (user_id, business_id),
+    INDEX idx_user_business_stripe_id (stripe_id)
 );
 
 -- Packages table (must be created before user_business_membership due to foreign key)
@@ -210,12 +214,21 @@ CREATE TABLE IF NOT EXISTS user_business_membership (
     pause_start_date DATETIME,
     punches_remaining INT,
     punches_expiry_date DATETIME,
+    last_punch_at DATETIME,
     processing_fee_paid DECIMAL(10, 2),
     pause_end_date DATETIME,
     actual_price DECIMAL(10, 2) NOT NULL DEFAULT 0,
     signature_data_url TEXT,
     signed_at DATETIME,
     signer_name VARCHAR(255),
+    stripe_status VARCHAR(50),
+    current_period_start DATETIME,
+    current_period_end DATETIME,
+    cancel_at DATETIME,
+    cancel_at_period_end BOOLEAN DEFAULT FALSE,
+    pause_collection_behavior VARCHAR(50),
+    pause_resumes_at DATETIME,
+    subscription_synced_at DATETIME,
     created_at DATETIME NOT NULL,
     updated_at DATETIME NOT NULL,
     FOREIGN KEY (user_business_id) REFERENCES user_business(id) ON DELETE CASCADE,
@@ -239,8 +252,15 @@ CREATE TABLE IF NOT EXISTS member_logs (
 CREATE TABLE IF NOT EXISTS sign_in_logs (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     user_id BIGINT NOT NULL,
+    business_id BIGINT,
     sign_in_time DATETIME NOT NULL,
-    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+    scan_key VARCHAR(64),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (business_id) REFERENCES businesses(id) ON DELETE SET NULL,
+    INDEX idx_sign_in_logs_user_time (user_id, sign_in_time),
+    INDEX idx_sign_in_logs_business_time (business_id, sign_in_time),
+    INDEX idx_sign_in_logs_time (sign_in_time, id),
+    INDEX idx_sign_in_logs_scan_key (scan_key)
 );
 
 -- Analytics Cache table
@@ -320,8 +340,10 @@ CREATE TABLE IF NOT EXISTS punch_card_scans (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     user_business_membership_id BIGINT NOT NULL,
     scanned_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    scan_window BIGINT,
     FOREIGN KEY (user_business_membership_id) REFERENCES user_business_membership(id) ON DELETE CASCADE,
-    INDEX idx_user_membership_scan (user_business_membership_id, scanned_at)
+    INDEX idx_user_membership_scan (user_business_membership_id, scanned_at),
+    UNIQUE (user_business_membership_id, scan_window)
 );
 
 -- Products table
@@ -364,6 +386,224 @@ CREATE TABLE IF NOT EXISTS promo_users (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
+-- Stripe ledger: local copy of charges, invoices, refunds and subscriptions for analytics
+CREATE TABLE IF NOT EXISTS stripe_ledger_charges (
+    id VARCHAR(255) PRIMARY KEY,
+    customer_id VARCHAR(255),
+    invoice_id VARCHAR(255),
+    amount BIGINT NOT NULL,
+    amount_refunded BIGINT,
+    currency VARCHAR(10),
+    status VARCHAR(50),
+    paid BOOLEAN NOT NULL,
+    refunded BOOLEAN NOT NULL,
+    billing_name VARCHAR(255),
+    created BIGINT NOT NULL,
+    stripe_account_id VARCHAR(255),
+    updated_at DATETIME NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_charges_created ON stripe_ledger_charges (created);
+CREATE INDEX IF NOT EXISTS idx_ledger_charges_customer ON stripe_ledger_charges (customer_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_charges_invoice ON stripe_ledger_charges (invoice_id);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_invoices (
+    id VARCHAR(255) PRIMARY KEY,
+    customer_id VARCHAR(255),
+    customer_name VARCHAR(255),
+    subscription_id VARCHAR(255),
+    charge_id VARCHAR(255),
+    status VARCHAR(50),
+    amount_due BIGINT,
+    amount_paid BIGINT,
+    created BIGINT NOT NULL,
+    stripe_account_id VARCHAR(255),
+    updated_at DATETIME NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_invoices_status_created ON stripe_ledger_invoices (status, created);
+CREATE INDEX IF NOT EXISTS idx_ledger_invoices_customer ON stripe_ledger_invoices (customer_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_invoices_charge ON stripe_ledger_invoices (charge_id);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_invoice_lines (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    invoice_id VARCHAR(255) NOT NULL,
+    stripe_line_id VARCHAR(255),
+    price_id VARCHAR(255),
+    amount BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_invoice_lines_invoice ON stripe_ledger_invoice_lines (invoice_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_invoice_lines_price ON stripe_ledger_invoice_lines (price_id);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_refunds (
+    id VARCHAR(255) PRIMARY KEY,
+    charge_id VARCHAR(255),
+    customer_id VARCHAR(255),
+    amount BIGINT NOT NULL,
+    status VARCHAR(50),
+    reason VARCHAR(100),
+    created BIGINT NOT NULL,
+    stripe_account_id VARCHAR(255),
+    updated_at DATETIME NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_refunds_created ON stripe_ledger_refunds (created);
+CREATE INDEX IF NOT EXISTS idx_ledger_refunds_charge ON stripe_ledger_refunds (charge_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_refunds_customer ON stripe_ledger_refunds (customer_id);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_subscriptions (
+    id VARCHAR(255) PRIMARY KEY,
+    customer_id VARCHAR(255),
+    status VARCHAR(50),
+    created BIGINT NOT NULL,
+    start_date BIGINT,
+    canceled_at BIGINT,
+    current_period_start BIGINT,
+    current_period_end BIGINT,
+    cancel_at_period_end BOOLEAN,
+    stripe_account_id VARCHAR(255),
+    updated_at DATETIME NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_subscriptions_customer ON stripe_ledger_subscriptions (customer_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_subscriptions_status ON stripe_ledger_subscriptions (status);
+CREATE INDEX IF NOT EXISTS idx_ledger_subscriptions_created ON stripe_ledger_subscriptions (created);
+
+CREATE TABLE IF NOT EXISTS stripe_ledger_subscription_items (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    subscription_id VARCHAR(255) NOT NULL,
+    stripe_item_id VARCHAR(255),
+    price_id VARCHAR(255),
+    unit_amount BIGINT,
+    recurring_interval VARCHAR(20),
+    recurring_interval_count BIGINT,
+    quantity BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_subscription_items_subscription ON stripe_ledger_subscription_items (subscription_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_subscription_items_price ON stripe_ledger_subscription_items (price_id);
+
+-- Stripe sync checkpoints (watermark / resume cursor for the daily subscription sync)
+CREATE TABLE IF NOT EXISTS stripe_sync_state (
+    sync_name VARCHAR(100) PRIMARY KEY,
+    mode VARCHAR(20),
+    status VARCHAR(20),
+    watermark BIGINT,
+    cursor_id VARCHAR(255),
+    run_started_epoch BIGINT,
+    chunks_processed INT,
+    items_processed INT,
+    items_updated INT,
+    errors INT,
+    message VARCHAR(1000),
+    started_at DATETIME,
+    finished_at DATETIME,
+    last_progress_at DATETIME
+);
+
+-- Daily per-business metric rollup (revenue, MRR, members, churn) backing the analytics charts
+CREATE TABLE IF NOT EXISTS daily_business_metrics (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    business_id BIGINT NOT NULL,
+    metric_date DATE NOT NULL,
+    gross_revenue BIGINT DEFAULT 0 NOT NULL,
+    refunds BIGINT DEFAULT 0 NOT NULL,
+    mrr BIGINT DEFAULT 0 NOT NULL,
+    active_members INT DEFAULT 0 NOT NULL,
+    total_members INT DEFAULT 0 NOT NULL,
+    new_members INT DEFAULT 0 NOT NULL,
+    churned_members INT DEFAULT 0 NOT NULL,
+    failed_payments INT DEFAULT 0 NOT NULL,
+    updated_at DATETIME NOT NULL,
+    CONSTRAINT uk_daily_business_metrics_business_date UNIQUE (business_id, metric_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_daily_business_metrics_date ON daily_business_metrics (metric_date);
+
+-- Offline turnstile access snapshot: current verdict per business and entry token hash
+CREATE TABLE IF NOT EXISTS access_snapshot_entries (
+    business_id BIGINT NOT NULL,
+    token_hash VARCHAR(64) NOT NULL,
+    user_id BIGINT NOT NULL,
+    allowed BOOLEAN NOT NULL,
+    reason VARCHAR(100),
+    version BIGINT NOT NULL,
+    updated_at DATETIME NOT NULL,
+    PRIMARY KEY (business_id, token_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_access_snapshot_entries_user ON access_snapshot_entries (user_id);
+CREATE INDEX IF NOT EXISTS idx_access_snapshot_entries_version ON access_snapshot_entries (business_id, version);
+
+CREATE TABLE IF NOT EXISTS access_snapshot_versions (
+    business_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+-- Stripe webhook inbox: verified deliveries waiting for, or kept after, asynchronous processing
+CREATE TABLE IF NOT EXISTS webhook_inbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    source VARCHAR(32) NOT NULL,
+    event_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(100),
+    stripe_account_id VARCHAR(255),
+    ordering_key VARCHAR(255),
+    event_created BIGINT,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT DEFAULT 0 NOT NULL,
+    next_attempt_at DATETIME,
+    last_error VARCHAR(1000),
+    received_at DATETIME NOT NULL,
+    started_at DATETIME,
+    processed_at DATETIME,
+    CONSTRAINT uk_webhook_inbox_source_event UNIQUE (source, event_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_status ON webhook_inbox (status, id);
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_due ON webhook_inbox (status, next_attempt_at, id);
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_ordering_key ON webhook_inbox (ordering_key, status, id);
+
+-- Stripe events already processed per source (idempotency claims, keyed source:event_id), pruned after the retention period
+CREATE TABLE IF NOT EXISTS processed_event (
+    event_id VARCHAR(255) PRIMARY KEY,
+    processed_at DATETIME
+);
+
+CREATE INDEX IF NOT EXISTS idx_processed_event_processed_at ON processed_event (processed_at);
+
+-- Bulk email jobs and their recipients, one row per member with the delivery outcome
+CREATE TABLE IF NOT EXISTS bulk_email_jobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    business_id BIGINT NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    requested INT DEFAULT 0 NOT NULL,
+    created_at DATETIME NOT NULL,
+    started_at DATETIME,
+    finished_at DATETIME,
+    FOREIGN KEY (business_id) REFERENCES businesses(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_bulk_email_jobs_business ON bulk_email_jobs (business_id, id);
+
+CREATE TABLE IF NOT EXISTS bulk_email_recipients (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_id BIGINT NOT NULL,
+    user_business_id BIGINT NOT NULL,
+    email VARCHAR(255),
+    status VARCHAR(20) NOT NULL,
+    attempts INT DEFAULT 0 NOT NULL,
+    last_error VARCHAR(500),
+    sent_at DATETIME,
+    CONSTRAINT uk_bulk_email_recipient UNIQUE (job_id, user_business_id),
+    FOREIGN KEY (job_id) REFERENCES bulk_email_jobs(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_bulk_email_recipients_status ON bulk_email_recipients (job_id, status);
+
 -- Insert user titles
 INSERT INTO user_titles (title) VALUES
 ('Member'),
@@ -0,0 +1,92 @@
+package com.BossLiftingClub.BossLifting.Stripe.ProcessedEvent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that an event is claimed once per source, also when many threads claim it at once, and that a
+ * released claim can be taken again.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:eventclaims;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_UPPER=false;LOCK_TIMEOUT=10000")
+class EventServiceClaimTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private EventService eventService;
+
+    @Test
+    void parallelClaimsOfOneEventHaveOneWinner() throws Exception {
+        String eventId = newEventId();
+
+        AtomicInteger won = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS * 2; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (eventService.claim("platform", eventId)) {
+                        won.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, won.get());
+    }
+
+    @Test
+    void eventDeliveredToTwoSourcesIsClaimedByEach() {
+        String eventId = newEventId();
+
+        assertTrue(eventService.claim("platform", eventId));
+        assertTrue(eventService.claim("subscription", eventId));
+        assertFalse(eventService.claim("platform", eventId));
+        assertFalse(eventService.claim("subscription", eventId));
+
+        assertEquals(Set.of(eventId), eventService.findProcessed("platform", List.of(eventId)));
+        assertEquals(Set.of(), eventService.findProcessed("connected", List.of(eventId)));
+    }
+
+    @Test
+    void releasedClaimCanBeClaimedAgain() {
+        String eventId = newEventId();
+
+        assertTrue(eventService.claim("connected", eventId));
+        eventService.release("connected", eventId);
+
+        assertEquals(Set.of(), eventService.findProcessed("connected", List.of(eventId)));
+        assertTrue(eventService.claim("connected", eventId));
+        assertFalse(eventService.claim("connected", eventId));
+    }
+
+    private static String newEventId() {
+        return "evt_" + UUID.randomUUID().toString().replace("-", "");
+    }
+}
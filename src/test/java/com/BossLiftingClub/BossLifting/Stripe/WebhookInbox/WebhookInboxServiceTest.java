@@ -0,0 +1,164 @@
+package com.BossLiftingClub.BossLifting.Stripe.WebhookInbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs events through the inbox with a test handler and checks per-customer ordering, retries,
+ * dead-lettering, and that events waiting for a retry do not hold back newer ones.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:webhookinbox;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_UPPER=false;LOCK_TIMEOUT=10000",
+        "stripe.webhook-inbox.coalesce-window=0s",
+        "stripe.webhook-inbox.max-attempts=3",
+        "stripe.webhook-inbox.initial-backoff=100ms",
+        "stripe.webhook-inbox.max-backoff=200ms",
+        "stripe.webhook-inbox.poll-interval-ms=50"
+})
+class WebhookInboxServiceTest {
+
+    private static final String SOURCE = "test";
+
+    @Autowired
+    private WebhookInboxService webhookInboxService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+
+    private void registerHandler() {
+        webhookInboxService.registerHandler(SOURCE, (event, stripeAccountId) -> {
+            AtomicInteger left = failuresLeft.get(event.getId());
+            if (left != null && left.getAndDecrement() > 0) {
+                throw new IllegalStateException("Failing " + event.getId() + " on purpose");
+            }
+            handled.add(event.getId());
+        });
+    }
+
+    @Test
+    void eventsOfOneCustomerRunInArrivalOrder() throws Exception {
+        registerHandler();
+        String customer = newId("cus_");
+        List<String> eventIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String eventId = newId("evt_");
+            eventIds.add(eventId);
+            webhookInboxService.receive(SOURCE, payload(eventId, customer), null);
+        }
+
+        awaitTrue(() -> eventIds.stream().allMatch(this::isDone));
+
+        assertEquals(eventIds, handledOf(eventIds));
+    }
+
+    @Test
+    void failedEventIsRetriedBeforeTheCustomersLaterEvents() throws Exception {
+        registerHandler();
+        String customer = newId("cus_");
+        String first = newId("evt_");
+        String second = newId("evt_");
+        failuresLeft.put(first, new AtomicInteger(1));
+
+        webhookInboxService.receive(SOURCE, payload(first, customer), null);
+        webhookInboxService.receive(SOURCE, payload(second, customer), null);
+
+        awaitTrue(() -> isDone(first) && isDone(second));
+
+        assertEquals(List.of(first, second), handledOf(List.of(first, second)));
+        assertEquals(2, attempts(first));
+        assertEquals(1, attempts(second));
+    }
+
+    @Test
+    void eventFailingEveryAttemptIsDeadLettered() throws Exception {
+        registerHandler();
+        String eventId = newId("evt_");
+        failuresLeft.put(eventId, new AtomicInteger(Integer.MAX_VALUE));
+
+        webhookInboxService.receive(SOURCE, payload(eventId, newId("cus_")), null);
+
+        awaitTrue(() -> "DEAD".equals(status(eventId)));
+
+        assertEquals(3, attempts(eventId));
+        assertTrue(handledOf(List.of(eventId)).isEmpty());
+    }
+
+    @Test
+    void eventsWaitingForRetryDoNotHoldBackNewerEvents() throws Exception {
+        registerHandler();
+        // More waiting events than one dispatch page, all older than the new event
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp retryAt = Timestamp.valueOf(LocalDateTime.now().plusHours(1));
+        List<Object[]> waiting = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            String eventId = newId("evt_");
+            String customer = newId("cus_");
+            waiting.add(new Object[] {SOURCE, eventId, customer, payload(eventId, customer), retryAt, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO webhook_inbox (source, event_id, event_type, ordering_key, payload, status, " +
+                "attempts, next_attempt_at, received_at) VALUES (?, ?, 'customer.updated', ?, ?, 'PENDING', 1, ?, ?)", waiting);
+
+        String eventId = newId("evt_");
+        webhookInboxService.receive(SOURCE, payload(eventId, newId("cus_")), null);
+
+        awaitTrue(() -> isDone(eventId));
+        jdbcTemplate.update("DELETE FROM webhook_inbox WHERE source = ? AND status = 'PENDING'", SOURCE);
+    }
+
+    private List<String> handledOf(List<String> eventIds) {
+        synchronized (handled) {
+            return handled.stream().filter(eventIds::contains).toList();
+        }
+    }
+
+    private boolean isDone(String eventId) {
+        return "DONE".equals(status(eventId));
+    }
+
+    private String status(String eventId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM webhook_inbox WHERE source = ? AND event_id = ?",
+                String.class, SOURCE, eventId);
+    }
+
+    private int attempts(String eventId) {
+        return jdbcTemplate.queryForObject("SELECT attempts FROM webhook_inbox WHERE source = ? AND event_id = ?",
+                Integer.class, SOURCE, eventId);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the inbox");
+            Thread.sleep(50);
+        }
+    }
+
+    private static String payload(String eventId, String customer) {
+        return "{\"id\":\"" + eventId + "\",\"object\":\"event\",\"type\":\"customer.updated\"," +
+                "\"created\":" + System.currentTimeMillis() / 1000 + "," +
+                "\"data\":{\"object\":{\"id\":\"" + customer + "\",\"object\":\"customer\"}}}";
+    }
+
+    private static String newId(String prefix) {
+        return prefix + UUID.randomUUID().toString().replace("-", "");
+    }
+}
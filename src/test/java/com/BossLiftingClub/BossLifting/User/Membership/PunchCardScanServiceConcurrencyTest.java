@@ -0,0 +1,177 @@
+package com.BossLiftingClub.BossLifting.User.Membership;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires many scans at punch cards at once and checks that each card is redeemed exactly once within
+ * the duplicate window, with no lost decrements and no errors from the losing scans.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:punchcard;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_UPPER=false;LOCK_TIMEOUT=10000")
+class PunchCardScanServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PunchCardScanService punchCardScanService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long userBusinessId;
+    private long membershipId;
+
+    @BeforeEach
+    void setUp() {
+        String tag = "punch-" + UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        long clientId = insert("INSERT INTO clients (email, password, created_at) VALUES (?, ?, ?)",
+                tag + "@example.com", "secret", Timestamp.valueOf(now));
+        long businessId = insert("INSERT INTO businesses (title, created_at, business_tag, client_id) VALUES (?, ?, ?, ?)",
+                "Punch Test", Timestamp.valueOf(now), tag, clientId);
+        long userId = insert("INSERT INTO users (first_name, last_name, email, created_at) VALUES (?, ?, ?, ?)",
+                "Punch", "Tester", tag + "@example.com", Timestamp.valueOf(now));
+        userBusinessId = insert("INSERT INTO user_business (user_id, business_id, created_at) VALUES (?, ?, ?)",
+                userId, businessId, Timestamp.valueOf(now));
+        membershipId = insert("INSERT INTO membership (title, price, charge_interval, business_tag, membership_type, punch_count) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", "10 Visits", "100.00", "one_time", tag, "PUNCH_CARD", 10);
+    }
+
+    @Test
+    void parallelScansOfOneCardRedeemOnePunch() throws Exception {
+        long cardId = createCard(5);
+
+        List<Long> scans = Collections.nCopies(THREADS * 2, cardId);
+        Map<Long, AtomicInteger> redeemed = scanInParallel(scans);
+
+        assertEquals(1, redeemed.get(cardId).get());
+        assertEquals(4, punchesRemaining(cardId));
+        assertEquals(1, scanRows(cardId));
+    }
+
+    @Test
+    void parallelScansOfManyCardsRedeemOnePunchEach() throws Exception {
+        int cards = 10;
+        int scansPerCard = 8;
+        List<Long> scans = new ArrayList<>();
+        List<Long> cardIds = new ArrayList<>();
+        for (int i = 0; i < cards; i++) {
+            long cardId = createCard(3);
+            cardIds.add(cardId);
+            for (int j = 0; j < scansPerCard; j++) {
+                scans.add(cardId);
+            }
+        }
+        Collections.shuffle(scans);
+
+        Map<Long, AtomicInteger> redeemed = scanInParallel(scans);
+
+        for (long cardId : cardIds) {
+            assertEquals(1, redeemed.get(cardId).get(), "redemptions for card " + cardId);
+            assertEquals(2, punchesRemaining(cardId), "punches left on card " + cardId);
+            assertEquals(1, scanRows(cardId), "scan rows for card " + cardId);
+        }
+    }
+
+    @Test
+    void cardWithLastPunchRedeemedOutsideWindowIsNotOverdrawn() throws Exception {
+        long cardId = createCard(1);
+        jdbcTemplate.update("UPDATE user_business_membership SET last_punch_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(2)), cardId);
+
+        Map<Long, AtomicInteger> redeemed = scanInParallel(Collections.nCopies(THREADS, cardId));
+
+        assertEquals(1, redeemed.get(cardId).get());
+        assertEquals(0, punchesRemaining(cardId));
+    }
+
+    /**
+     * Run every scan at once from a thread pool. Returns successful redemptions per card; a scan that
+     * throws fails the test unless the card simply ran out of punches.
+     */
+    private Map<Long, AtomicInteger> scanInParallel(List<Long> cardIds) throws Exception {
+        Map<Long, AtomicInteger> redeemed = new ConcurrentHashMap<>();
+        cardIds.forEach(id -> redeemed.putIfAbsent(id, new AtomicInteger()));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long cardId : cardIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        if (punchCardScanService.processPunchCardScan(cardId)) {
+                            redeemed.get(cardId).incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        assertEquals("No punches remaining on this card", e.getMessage());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return redeemed;
+    }
+
+    private long createCard(int punches) {
+        LocalDateTime now = LocalDateTime.now();
+        return insert("INSERT INTO user_business_membership (user_business_id, membership_id, status, punches_remaining, " +
+                        "punches_expiry_date, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                userBusinessId, membershipId, "ACTIVE", punches, Timestamp.valueOf(now.plusDays(30)),
+                Timestamp.valueOf(now), Timestamp.valueOf(now));
+    }
+
+    private int punchesRemaining(long cardId) {
+        return jdbcTemplate.queryForObject("SELECT punches_remaining FROM user_business_membership WHERE id = ?",
+                Integer.class, cardId);
+    }
+
+    private int scanRows(long cardId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM punch_card_scans WHERE user_business_membership_id = ?",
+                Integer.class, cardId);
+    }
+
+    private long insert(String sql, Object... args) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+}